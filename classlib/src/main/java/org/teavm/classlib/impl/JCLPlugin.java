@@ -22,6 +22,7 @@ import java.lang.invoke.MethodHandles;
 import java.lang.invoke.MethodType;
 import java.util.ServiceLoader;
 import org.teavm.classlib.impl.lambda.LambdaMetafactorySubstitutor;
+import org.teavm.classlib.impl.regex.RegExpTransformer;
 import org.teavm.classlib.impl.unicode.CLDRReader;
 import org.teavm.classlib.java.lang.reflect.AnnotationDependencyListener;
 import org.teavm.backend.javascript.TeaVMJavaScriptHost;
@@ -52,5 +53,13 @@ public class JCLPlugin implements TeaVMPlugin {
                 String.class, MethodType.class, MethodType.class, MethodHandle.class, MethodType.class,
                 CallSite.class), new LambdaMetafactorySubstitutor());
         host.add(new ScalaHacks());
+        host.add(new StringConcatenationTransformer());
+        if (OpenAddressingHashMapTransformer.OPEN_ADDRESSING.equals(
+                host.getProperties().getProperty(OpenAddressingHashMapTransformer.PROPERTY))) {
+            host.add(new OpenAddressingHashMapTransformer());
+        }
+        if (jsExtension != null && Boolean.parseBoolean(host.getProperties().getProperty(RegExpTransformer.PROPERTY))) {
+            host.add(new RegExpTransformer());
+        }
     }
 }
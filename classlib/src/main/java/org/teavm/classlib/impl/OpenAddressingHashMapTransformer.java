@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+
+/**
+ * <p>Makes program use open addressing hash tables, i.e. replaces every instantiation of {@link HashMap}
+ * and {@link HashSet} with instantiation of their open addressing subclasses. Subclasses of
+ * <code>HashMap</code> and <code>HashSet</code> (like <code>LinkedHashMap</code>) are left as is, since they
+ * rely on the chained implementation. Enabled by setting <code>java.util.HashMap.implementation</code>
+ * property to <code>openAddressing</code>.</p>
+ *
+ * <p>Constructor references like <code>HashMap::new</code> are covered as well, since classes generated
+ * for lambdas and method references go through transformers like any other class. Instances created
+ * reflectively, with <code>HashMap.class.newInstance()</code>, are not replaced.</p>
+ */
+public class OpenAddressingHashMapTransformer implements ClassHolderTransformer {
+    public static final String PROPERTY = "java.util.HashMap.implementation";
+    public static final String OPEN_ADDRESSING = "openAddressing";
+    private static final Map<String, String> REPLACEMENTS = new HashMap<>();
+
+    static {
+        REPLACEMENTS.put(HashMap.class.getName(), "java.util.OpenAddressingHashMap");
+        REPLACEMENTS.put(HashSet.class.getName(), "java.util.OpenAddressingHashSet");
+    }
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
+        if (REPLACEMENTS.containsValue(cls.getName())) {
+            return;
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (method.getProgram() != null) {
+                transformProgram(method.getProgram());
+            }
+        }
+    }
+
+    private void transformProgram(Program program) {
+        Set<Variable> constructed = new HashSet<>();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (insn instanceof ConstructInstruction) {
+                    ConstructInstruction construct = (ConstructInstruction) insn;
+                    String replacement = REPLACEMENTS.get(construct.getType());
+                    if (replacement != null) {
+                        construct.setType(replacement);
+                        constructed.add(construct.getReceiver());
+                    }
+                }
+            }
+        }
+        if (constructed.isEmpty()) {
+            return;
+        }
+
+        // Constructors of HashMap are also called by constructors of subclasses on their own instances,
+        // only calls on instances created above are redirected
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (!(insn instanceof InvokeInstruction)) {
+                    continue;
+                }
+                InvokeInstruction invoke = (InvokeInstruction) insn;
+                MethodReference method = invoke.getMethod();
+                String replacement = REPLACEMENTS.get(method.getClassName());
+                if (replacement != null && invoke.getType() == InvocationType.SPECIAL
+                        && method.getName().equals("<init>") && constructed.contains(invoke.getInstance())) {
+                    invoke.setMethod(new MethodReference(replacement, method.getDescriptor()));
+                }
+            }
+        }
+    }
+}
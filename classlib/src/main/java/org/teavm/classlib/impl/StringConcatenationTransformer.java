@@ -0,0 +1,293 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.TextLocation;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BinaryOperation;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.NumericOperandType;
+import org.teavm.model.instructions.StringConstantInstruction;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Rewrites string concatenation, as javac compiles it, i.e. chains like
+ * {@code new StringBuilder().append(a).append(b).toString()}, so that the builder is allocated right before
+ * {@code toString()} with capacity enough to hold all the parts. This way buffer is allocated once instead of
+ * being grown and copied by {@code ensureCapacity}.</p>
+ *
+ * <p>Parts are still evaluated in the original order. Objects are converted to strings where they were
+ * appended originally, so side effects of their {@code toString()} are not reordered with respect to
+ * evaluation of other operands. Only the builder, which is not observable by anything else, is moved.
+ * Capacity is exact for strings and an upper estimate for primitives.</p>
+ *
+ * <p>Transformation runs before dependency analysis, so that methods it introduces get linked.</p>
+ */
+public class StringConcatenationTransformer implements ClassHolderTransformer {
+    private static final String BUILDER = StringBuilder.class.getName();
+    private static final ValueType BUILDER_TYPE = ValueType.object(BUILDER);
+    private static final ValueType STRING_TYPE = ValueType.object(String.class.getName());
+    private static final ValueType OBJECT_TYPE = ValueType.object(Object.class.getName());
+    private static final MethodDescriptor INIT = new MethodDescriptor("<init>", void.class);
+    private static final MethodDescriptor TO_STRING = new MethodDescriptor("toString", String.class);
+    private static final MethodReference INIT_WITH_CAPACITY = new MethodReference(StringBuilder.class, "<init>",
+            int.class, void.class);
+    private static final MethodReference APPEND_STRING = new MethodReference(BUILDER, "append", STRING_TYPE,
+            BUILDER_TYPE);
+    private static final MethodReference VALUE_OF = new MethodReference(String.class, "valueOf", Object.class,
+            String.class);
+    private static final MethodReference LENGTH = new MethodReference(String.class, "length", int.class);
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
+        if (cls.getName().equals(BUILDER)) {
+            return;
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (method.getProgram() != null && method.getProgram().basicBlockCount() > 0) {
+                transformProgram(method.getProgram());
+            }
+        }
+    }
+
+    private void transformProgram(Program program) {
+        int[] useCounts = null;
+        String[] constants = null;
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            List<Chain> chains = new ArrayList<>();
+            for (int j = 0; j < block.getInstructions().size(); ++j) {
+                Instruction insn = block.getInstructions().get(j);
+                if (!(insn instanceof ConstructInstruction)
+                        || !((ConstructInstruction) insn).getType().equals(BUILDER)) {
+                    continue;
+                }
+                if (useCounts == null) {
+                    useCounts = ProgramUtils.getUseCounts(program);
+                    constants = getStringConstants(program);
+                }
+                Chain chain = findChain(block, j, useCounts);
+                if (chain != null) {
+                    chains.add(chain);
+                }
+            }
+            for (Chain chain : chains) {
+                rewrite(program, block, chain, constants);
+            }
+        }
+    }
+
+    private Chain findChain(BasicBlock block, int start, int[] useCounts) {
+        List<Instruction> instructions = block.getInstructions();
+        Chain chain = new Chain();
+        chain.construct = (ConstructInstruction) instructions.get(start);
+        Variable current = chain.construct.getReceiver();
+        if (useCounts[current.getIndex()] != 2) {
+            return null;
+        }
+
+        // Each value in chain is used exactly once by the next call, so the first call on the current value
+        // is either continuation of chain or something we can't handle
+        for (int i = start + 1; i < instructions.size(); ++i) {
+            Instruction insn = instructions.get(i);
+            if (!(insn instanceof InvokeInstruction) || ((InvokeInstruction) insn).getInstance() != current) {
+                continue;
+            }
+            InvokeInstruction invoke = (InvokeInstruction) insn;
+            MethodReference method = invoke.getMethod();
+            if (!method.getClassName().equals(BUILDER)) {
+                return null;
+            }
+            if (chain.init == null) {
+                if (invoke.getType() != InvocationType.SPECIAL || !method.getDescriptor().equals(INIT)) {
+                    return null;
+                }
+                chain.init = invoke;
+            } else if (method.getDescriptor().equals(TO_STRING)) {
+                if (chain.appends.isEmpty()) {
+                    return null;
+                }
+                chain.toStringInvocation = invoke;
+                return chain;
+            } else if (isSupportedAppend(method)) {
+                if (invoke.getReceiver() == null || useCounts[invoke.getReceiver().getIndex()] != 1) {
+                    return null;
+                }
+                chain.appends.add(invoke);
+                current = invoke.getReceiver();
+            } else {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    private boolean isSupportedAppend(MethodReference method) {
+        if (!method.getName().equals("append") || method.parameterCount() != 1
+                || !method.getReturnType().equals(BUILDER_TYPE)) {
+            return false;
+        }
+        ValueType type = method.parameterType(0);
+        return type instanceof ValueType.Primitive || type.equals(STRING_TYPE) || type.equals(OBJECT_TYPE);
+    }
+
+    private void rewrite(Program program, BasicBlock block, Chain chain, String[] constants) {
+        List<Instruction> instructions = block.getInstructions();
+        instructions.remove(chain.construct);
+        instructions.remove(chain.init);
+
+        TextLocation location = chain.toStringInvocation.getLocation();
+        List<Instruction> replacement = new ArrayList<>();
+        Variable builder = program.createVariable();
+        int staticLength = 0;
+        Variable length = null;
+        List<InvokeInstruction> appends = new ArrayList<>();
+
+        for (InvokeInstruction append : chain.appends) {
+            ValueType type = append.getMethod().parameterType(0);
+            Variable value = append.getArguments().get(0);
+            MethodReference appendMethod = append.getMethod();
+            if (type instanceof ValueType.Primitive) {
+                staticLength += getMaxLength((ValueType.Primitive) type);
+                instructions.remove(append);
+            } else if (constants[value.getIndex()] != null) {
+                staticLength += constants[value.getIndex()].length();
+                instructions.remove(append);
+            } else {
+                // Converting to string produces "null" for null values, as append does
+                InvokeInstruction valueOf = new InvokeInstruction();
+                valueOf.setType(InvocationType.SPECIAL);
+                valueOf.setMethod(VALUE_OF);
+                valueOf.getArguments().add(value);
+                valueOf.setReceiver(program.createVariable());
+                valueOf.setLocation(append.getLocation());
+                instructions.set(instructions.indexOf(append), valueOf);
+                value = valueOf.getReceiver();
+                appendMethod = APPEND_STRING;
+
+                InvokeInstruction partLength = new InvokeInstruction();
+                partLength.setType(InvocationType.VIRTUAL);
+                partLength.setMethod(LENGTH);
+                partLength.setInstance(value);
+                partLength.setReceiver(program.createVariable());
+                partLength.setLocation(location);
+                replacement.add(partLength);
+                length = add(program, replacement, length, partLength.getReceiver(), location);
+            }
+
+            InvokeInstruction newAppend = new InvokeInstruction();
+            newAppend.setType(InvocationType.VIRTUAL);
+            newAppend.setMethod(appendMethod);
+            newAppend.setInstance(builder);
+            newAppend.getArguments().add(value);
+            newAppend.setLocation(append.getLocation());
+            appends.add(newAppend);
+        }
+
+        IntegerConstantInstruction staticLengthConstant = new IntegerConstantInstruction();
+        staticLengthConstant.setConstant(staticLength);
+        staticLengthConstant.setReceiver(program.createVariable());
+        staticLengthConstant.setLocation(location);
+        replacement.add(staticLengthConstant);
+        length = add(program, replacement, length, staticLengthConstant.getReceiver(), location);
+
+        ConstructInstruction construct = new ConstructInstruction();
+        construct.setType(BUILDER);
+        construct.setReceiver(builder);
+        construct.setLocation(chain.construct.getLocation());
+        replacement.add(construct);
+
+        InvokeInstruction init = new InvokeInstruction();
+        init.setType(InvocationType.SPECIAL);
+        init.setMethod(INIT_WITH_CAPACITY);
+        init.setInstance(builder);
+        init.getArguments().add(length);
+        init.setLocation(chain.init.getLocation());
+        replacement.add(init);
+
+        replacement.addAll(appends);
+        chain.toStringInvocation.setInstance(builder);
+        instructions.addAll(instructions.indexOf(chain.toStringInvocation), replacement);
+    }
+
+    private Variable add(Program program, List<Instruction> instructions, Variable a, Variable b,
+            TextLocation location) {
+        if (a == null) {
+            return b;
+        }
+        BinaryInstruction sum = new BinaryInstruction(BinaryOperation.ADD, NumericOperandType.INT);
+        sum.setFirstOperand(a);
+        sum.setSecondOperand(b);
+        sum.setReceiver(program.createVariable());
+        sum.setLocation(location);
+        instructions.add(sum);
+        return sum.getReceiver();
+    }
+
+    private static int getMaxLength(ValueType.Primitive type) {
+        switch (type.getKind()) {
+            case BOOLEAN:
+                return 5;
+            case CHARACTER:
+                return 1;
+            case LONG:
+                return 20;
+            case FLOAT:
+                return 16;
+            case DOUBLE:
+                return 24;
+            default:
+                return 11;
+        }
+    }
+
+    private static String[] getStringConstants(Program program) {
+        String[] constants = new String[program.variableCount()];
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (insn instanceof StringConstantInstruction) {
+                    StringConstantInstruction constant = (StringConstantInstruction) insn;
+                    constants[constant.getReceiver().getIndex()] = constant.getConstant();
+                }
+            }
+        }
+        return constants;
+    }
+
+    static class Chain {
+        ConstructInstruction construct;
+        InvokeInstruction init;
+        List<InvokeInstruction> appends = new ArrayList<>();
+        InvokeInstruction toStringInvocation;
+    }
+}
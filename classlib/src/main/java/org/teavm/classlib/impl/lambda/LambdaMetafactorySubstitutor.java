@@ -1,11 +1,13 @@
 package org.teavm.classlib.impl.lambda;
 
 import java.util.Arrays;
-import org.teavm.cache.NoCache;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import org.teavm.dependency.BootstrapMethodSubstitutor;
 import org.teavm.dependency.DynamicCallSite;
 import org.teavm.model.AccessLevel;
-import org.teavm.model.AnnotationHolder;
 import org.teavm.model.ClassHolder;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
@@ -19,24 +21,79 @@ import org.teavm.model.emit.ProgramEmitter;
 import org.teavm.model.emit.ValueEmitter;
 
 /**
+ * <p>Replaces {@code LambdaMetafactory.metafactory} call sites with instantiation of generated classes.</p>
+ *
+ * <p>Generated classes are named after the caller class and the contents of the call site, so that
+ * subsequent builds produce the same names and programs, and both caller and lambda methods can be taken
+ * from the program cache. Call sites with equal contents within the same class share implementor.
+ * Non-capturing lambdas are instantiated once, in static initializer of the implementor.</p>
  *
  * @author Alexey Andreev
  */
 public class LambdaMetafactorySubstitutor implements BootstrapMethodSubstitutor {
-    private int lambdaIndex = 0;
+    private static final String INSTANCE_FIELD = "INSTANCE";
+    private Map<String, String> implementorNames = new HashMap<>();
+    private Set<String> usedNames = new HashSet<>();
+
+    @Override
+    public boolean isCacheable() {
+        return true;
+    }
 
     @Override
     public ValueEmitter substitute(DynamicCallSite callSite, ProgramEmitter callerPe) {
-        ValueType[] invokedType = callSite.getCalledMethod().getSignature();
         ValueType[] samMethodType = callSite.getBootstrapArguments().get(0).getMethodType();
         MethodHandle implMethod = callSite.getBootstrapArguments().get(1).getMethodHandle();
         ValueType[] instantiatedMethodType = callSite.getBootstrapArguments().get(2).getMethodType();
 
+        String key = callSite.getCaller().getClassName() + " " + callSite.getCalledMethod()
+                + " " + describe(samMethodType) + " " + describe(implMethod)
+                + " " + describe(instantiatedMethodType);
+        String className = implementorNames.get(key);
+        if (className == null) {
+            className = createImplementorName(callSite.getCaller().getClassName(), key);
+            implementorNames.put(key, className);
+            callSite.getAgent().submitClass(createImplementor(callSite, className, samMethodType, implMethod,
+                    instantiatedMethodType));
+        }
+
+        if (callSite.getCalledMethod().parameterCount() == 0) {
+            return callerPe.getField(className, INSTANCE_FIELD, ValueType.object(className));
+        }
+        return callerPe.construct(className, callSite.getArguments().toArray(new ValueEmitter[0]));
+    }
+
+    private String createImplementorName(String callerClassName, String key) {
+        String baseName = callerClassName + "$$Lambda$" + Integer.toHexString(key.hashCode());
+        String name = baseName;
+        int suffix = 0;
+        while (!usedNames.add(name)) {
+            name = baseName + "_" + ++suffix;
+        }
+        return name;
+    }
+
+    private static String describe(ValueType[] types) {
+        StringBuilder sb = new StringBuilder();
+        for (ValueType type : types) {
+            sb.append(type);
+        }
+        return sb.toString();
+    }
+
+    private static String describe(MethodHandle handle) {
+        return handle.getKind() + ":" + handle.getClassName() + "." + handle.getName()
+                + describe(handle.signature());
+    }
+
+    private ClassHolder createImplementor(DynamicCallSite callSite, String className, ValueType[] samMethodType,
+            MethodHandle implMethod, ValueType[] instantiatedMethodType) {
+        ValueType[] invokedType = callSite.getCalledMethod().getSignature();
         String samName = ((ValueType.Object) callSite.getCalledMethod().getResultType()).getClassName();
         ClassReaderSource classSource = callSite.getAgent().getClassSource();
         ClassReader samClass = classSource.get(samName);
 
-        ClassHolder implementor = new ClassHolder("$$LAMBDA" + (lambdaIndex++) + "$$");
+        ClassHolder implementor = new ClassHolder(className);
         implementor.setLevel(AccessLevel.PUBLIC);
         if (samClass != null && samClass.hasModifier(ElementModifier.INTERFACE)) {
             implementor.setParent("java.lang.Object");
@@ -46,16 +103,16 @@ public class LambdaMetafactorySubstitutor implements BootstrapMethodSubstitutor
         }
 
         int capturedVarCount = callSite.getCalledMethod().parameterCount();
-        MethodHolder ctor = createConstructor(classSource, implementor,
-                Arrays.copyOfRange(invokedType, 0, capturedVarCount));
-        ctor.getAnnotations().add(new AnnotationHolder(NoCache.class.getName()));
+        createConstructor(classSource, implementor, Arrays.copyOfRange(invokedType, 0, capturedVarCount));
+        if (capturedVarCount == 0) {
+            createInstanceField(classSource, implementor);
+        }
         createBridge(classSource, implementor, callSite.getCalledMethod().getName(), instantiatedMethodType,
                 samMethodType);
 
         MethodHolder worker = new MethodHolder(callSite.getCalledMethod().getName(), instantiatedMethodType);
-        worker.getAnnotations().add(new AnnotationHolder(NoCache.class.getName()));
         worker.setLevel(AccessLevel.PUBLIC);
-        ProgramEmitter pe = ProgramEmitter.create(worker, callSite.getAgent().getClassSource());
+        ProgramEmitter pe = ProgramEmitter.create(worker, classSource);
         ValueEmitter thisVar = pe.var(0, implementor);
         ValueEmitter[] arguments = new ValueEmitter[instantiatedMethodType.length - 1];
         for (int i = 0; i < arguments.length; ++i) {
@@ -82,9 +139,7 @@ public class LambdaMetafactorySubstitutor implements BootstrapMethodSubstitutor
         }
 
         implementor.addMethod(worker);
-
-        callSite.getAgent().submitClass(implementor);
-        return callerPe.construct(ctor.getOwnerName(), callSite.getArguments().toArray(new ValueEmitter[0]));
+        return implementor;
     }
 
     private ValueEmitter invoke(ProgramEmitter pe, MethodHandle handle, ValueEmitter[] arguments) {
@@ -218,7 +273,7 @@ public class LambdaMetafactorySubstitutor implements BootstrapMethodSubstitutor
         }
     }
 
-    private MethodHolder createConstructor(ClassReaderSource classSource, ClassHolder implementor, ValueType[] types) {
+    private void createConstructor(ClassReaderSource classSource, ClassHolder implementor, ValueType[] types) {
         ValueType[] signature = Arrays.copyOf(types, types.length + 1);
         signature[types.length] = ValueType.VOID;
         MethodHolder ctor = new MethodHolder("<init>", signature);
@@ -238,7 +293,23 @@ public class LambdaMetafactorySubstitutor implements BootstrapMethodSubstitutor
 
         pe.exit();
         implementor.addMethod(ctor);
-        return ctor;
+    }
+
+    private void createInstanceField(ClassReaderSource classSource, ClassHolder implementor) {
+        FieldHolder field = new FieldHolder(INSTANCE_FIELD);
+        field.setLevel(AccessLevel.PUBLIC);
+        field.getModifiers().add(ElementModifier.STATIC);
+        field.getModifiers().add(ElementModifier.FINAL);
+        field.setType(ValueType.object(implementor.getName()));
+        implementor.addField(field);
+
+        MethodHolder clinit = new MethodHolder("<clinit>", ValueType.VOID);
+        clinit.setLevel(AccessLevel.PUBLIC);
+        clinit.getModifiers().add(ElementModifier.STATIC);
+        ProgramEmitter pe = ProgramEmitter.create(clinit, classSource);
+        pe.setField(implementor.getName(), INSTANCE_FIELD, pe.construct(implementor.getName()));
+        pe.exit();
+        implementor.addMethod(clinit);
     }
 
     private void createBridge(ClassReaderSource classSource, ClassHolder implementor, String name, ValueType[] types,
@@ -248,7 +319,6 @@ public class LambdaMetafactorySubstitutor implements BootstrapMethodSubstitutor
         }
 
         MethodHolder bridge = new MethodHolder(name, bridgeTypes);
-        bridge.getAnnotations().add(new AnnotationHolder(NoCache.class.getName()));
         bridge.setLevel(AccessLevel.PUBLIC);
         bridge.getModifiers().add(ElementModifier.BRIDGE);
         ProgramEmitter pe = ProgramEmitter.create(bridge, classSource);
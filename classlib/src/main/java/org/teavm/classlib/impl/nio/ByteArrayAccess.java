@@ -0,0 +1,224 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.nio;
+
+import org.teavm.backend.javascript.spi.GeneratedBy;
+import org.teavm.interop.Address;
+import org.teavm.interop.DelegateTo;
+import org.teavm.runtime.Allocator;
+
+/**
+ * <p>Reads and writes multi-byte values stored in byte arrays. In JavaScript byte arrays are backed by
+ * <code>ArrayBuffer</code>, so values are accessed through a <code>DataView</code> over the same buffer.
+ * In WebAssembly values are loaded directly from linear memory.</p>
+ *
+ * <p>Methods do not check bounds, callers are responsible for that.</p>
+ */
+public final class ByteArrayAccess {
+    private ByteArrayAccess() {
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("getShortLowLevel")
+    public static native short getShort(byte[] array, int index, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static short getShortLowLevel(byte[] array, int index, boolean bigEndian) {
+        short value = Address.ofData(array).add(index).getShort();
+        return bigEndian ? Short.reverseBytes(value) : value;
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("putShortLowLevel")
+    public static native void putShort(byte[] array, int index, short value, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void putShortLowLevel(byte[] array, int index, short value, boolean bigEndian) {
+        Address.ofData(array).add(index).putShort(bigEndian ? Short.reverseBytes(value) : value);
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("getIntLowLevel")
+    public static native int getInt(byte[] array, int index, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static int getIntLowLevel(byte[] array, int index, boolean bigEndian) {
+        int value = Address.ofData(array).add(index).getInt();
+        return bigEndian ? Integer.reverseBytes(value) : value;
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("putIntLowLevel")
+    public static native void putInt(byte[] array, int index, int value, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void putIntLowLevel(byte[] array, int index, int value, boolean bigEndian) {
+        Address.ofData(array).add(index).putInt(bigEndian ? Integer.reverseBytes(value) : value);
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("getLongLowLevel")
+    public static native long getLong(byte[] array, int index, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static long getLongLowLevel(byte[] array, int index, boolean bigEndian) {
+        long value = Address.ofData(array).add(index).getLong();
+        return bigEndian ? Long.reverseBytes(value) : value;
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("putLongLowLevel")
+    public static native void putLong(byte[] array, int index, long value, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void putLongLowLevel(byte[] array, int index, long value, boolean bigEndian) {
+        Address.ofData(array).add(index).putLong(bigEndian ? Long.reverseBytes(value) : value);
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("getFloatLowLevel")
+    public static native float getFloat(byte[] array, int index, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static float getFloatLowLevel(byte[] array, int index, boolean bigEndian) {
+        if (!bigEndian) {
+            return Address.ofData(array).add(index).getFloat();
+        }
+        return Float.intBitsToFloat(Integer.reverseBytes(Address.ofData(array).add(index).getInt()));
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("putFloatLowLevel")
+    public static native void putFloat(byte[] array, int index, float value, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void putFloatLowLevel(byte[] array, int index, float value, boolean bigEndian) {
+        if (!bigEndian) {
+            Address.ofData(array).add(index).putFloat(value);
+        } else {
+            Address.ofData(array).add(index).putInt(Integer.reverseBytes(Float.floatToRawIntBits(value)));
+        }
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("getDoubleLowLevel")
+    public static native double getDouble(byte[] array, int index, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static double getDoubleLowLevel(byte[] array, int index, boolean bigEndian) {
+        if (!bigEndian) {
+            return Address.ofData(array).add(index).getDouble();
+        }
+        return Double.longBitsToDouble(Long.reverseBytes(Address.ofData(array).add(index).getLong()));
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("putDoubleLowLevel")
+    public static native void putDouble(byte[] array, int index, double value, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void putDoubleLowLevel(byte[] array, int index, double value, boolean bigEndian) {
+        if (!bigEndian) {
+            Address.ofData(array).add(index).putDouble(value);
+        } else {
+            Address.ofData(array).add(index).putLong(Long.reverseBytes(Double.doubleToRawLongBits(value)));
+        }
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("getIntsLowLevel")
+    public static native void getInts(byte[] array, int index, int[] dest, int offset, int count,
+            boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void getIntsLowLevel(byte[] array, int index, int[] dest, int offset, int count,
+            boolean bigEndian) {
+        Address source = Address.ofData(array).add(index);
+        Address target = Address.ofData(dest).add(offset * 4);
+        if (!bigEndian) {
+            Allocator.moveMemoryBlock(source, target, count * 4);
+        } else {
+            for (int i = 0; i < count; ++i) {
+                target.putInt(Integer.reverseBytes(source.getInt()));
+                source = source.add(4);
+                target = target.add(4);
+            }
+        }
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("putIntsLowLevel")
+    public static native void putInts(byte[] array, int index, int[] src, int offset, int count,
+            boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void putIntsLowLevel(byte[] array, int index, int[] src, int offset, int count,
+            boolean bigEndian) {
+        Address source = Address.ofData(src).add(offset * 4);
+        Address target = Address.ofData(array).add(index);
+        if (!bigEndian) {
+            Allocator.moveMemoryBlock(source, target, count * 4);
+        } else {
+            for (int i = 0; i < count; ++i) {
+                target.putInt(Integer.reverseBytes(source.getInt()));
+                source = source.add(4);
+                target = target.add(4);
+            }
+        }
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("getFloatsLowLevel")
+    public static native void getFloats(byte[] array, int index, float[] dest, int offset, int count,
+            boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void getFloatsLowLevel(byte[] array, int index, float[] dest, int offset, int count,
+            boolean bigEndian) {
+        Address source = Address.ofData(array).add(index);
+        Address target = Address.ofData(dest).add(offset * 4);
+        if (!bigEndian) {
+            Allocator.moveMemoryBlock(source, target, count * 4);
+        } else {
+            for (int i = 0; i < count; ++i) {
+                target.putInt(Integer.reverseBytes(source.getInt()));
+                source = source.add(4);
+                target = target.add(4);
+            }
+        }
+    }
+
+    @GeneratedBy(ByteArrayAccessGenerator.class)
+    @DelegateTo("putFloatsLowLevel")
+    public static native void putFloats(byte[] array, int index, float[] src, int offset, int count,
+            boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static void putFloatsLowLevel(byte[] array, int index, float[] src, int offset, int count,
+            boolean bigEndian) {
+        Address source = Address.ofData(src).add(offset * 4);
+        Address target = Address.ofData(array).add(index);
+        if (!bigEndian) {
+            Allocator.moveMemoryBlock(source, target, count * 4);
+        } else {
+            for (int i = 0; i < count; ++i) {
+                target.putInt(Integer.reverseBytes(source.getInt()));
+                source = source.add(4);
+                target = target.add(4);
+            }
+        }
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.nio;
+
+import java.io.IOException;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.spi.Generator;
+import org.teavm.backend.javascript.spi.GeneratorContext;
+import org.teavm.model.MethodReference;
+
+public class ByteArrayAccessGenerator implements Generator {
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef)
+            throws IOException {
+        String array = context.getParameterName(1);
+        writer.append("var view = " + array + ".data.$view;").softNewLine();
+        writer.append("if (view === undefined) {").indent().softNewLine();
+        writer.append("var data = " + array + ".data;").softNewLine();
+        writer.append("view = new DataView(data.buffer, data.byteOffset, data.byteLength);").softNewLine();
+        writer.append("data.$view = view;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+
+        switch (methodRef.getName()) {
+            case "getShort":
+                generateGet(context, writer, "getInt16");
+                break;
+            case "getInt":
+                generateGet(context, writer, "getInt32");
+                break;
+            case "getFloat":
+                generateGet(context, writer, "getFloat32");
+                break;
+            case "getDouble":
+                generateGet(context, writer, "getFloat64");
+                break;
+            case "putShort":
+                generatePut(context, writer, "setInt16");
+                break;
+            case "putInt":
+                generatePut(context, writer, "setInt32");
+                break;
+            case "putFloat":
+                generatePut(context, writer, "setFloat32");
+                break;
+            case "putDouble":
+                generatePut(context, writer, "setFloat64");
+                break;
+            case "getLong":
+                generateGetLong(context, writer);
+                break;
+            case "putLong":
+                generatePutLong(context, writer);
+                break;
+            case "getInts":
+                generateGetBulk(context, writer, "getInt32");
+                break;
+            case "getFloats":
+                generateGetBulk(context, writer, "getFloat32");
+                break;
+            case "putInts":
+                generatePutBulk(context, writer, "setInt32");
+                break;
+            case "putFloats":
+                generatePutBulk(context, writer, "setFloat32");
+                break;
+        }
+    }
+
+    private void generateGet(GeneratorContext context, SourceWriter writer, String function) throws IOException {
+        String index = context.getParameterName(2);
+        String bigEndian = context.getParameterName(3);
+        writer.append("return view." + function + "(" + index + ", !" + bigEndian + ");").softNewLine();
+    }
+
+    private void generatePut(GeneratorContext context, SourceWriter writer, String function) throws IOException {
+        String index = context.getParameterName(2);
+        String value = context.getParameterName(3);
+        String bigEndian = context.getParameterName(4);
+        writer.append("view." + function + "(" + index + ", " + value + ", !" + bigEndian + ");").softNewLine();
+    }
+
+    private void generateGetLong(GeneratorContext context, SourceWriter writer) throws IOException {
+        String index = context.getParameterName(2);
+        String bigEndian = context.getParameterName(3);
+        writer.append("var low = view.getInt32(" + index + " + (" + bigEndian + " ? 4 : 0), !" + bigEndian + ");")
+                .softNewLine();
+        writer.append("var high = view.getInt32(" + index + " + (" + bigEndian + " ? 0 : 4), !" + bigEndian
+                + ");").softNewLine();
+        writer.append("return new Long(low, high);").softNewLine();
+    }
+
+    private void generatePutLong(GeneratorContext context, SourceWriter writer) throws IOException {
+        String index = context.getParameterName(2);
+        String value = context.getParameterName(3);
+        String bigEndian = context.getParameterName(4);
+        writer.append("view.setInt32(" + index + " + (" + bigEndian + " ? 4 : 0), " + value + ".lo, !"
+                + bigEndian + ");").softNewLine();
+        writer.append("view.setInt32(" + index + " + (" + bigEndian + " ? 0 : 4), " + value + ".hi, !"
+                + bigEndian + ");").softNewLine();
+    }
+
+    private void generateGetBulk(GeneratorContext context, SourceWriter writer, String function)
+            throws IOException {
+        String index = context.getParameterName(2);
+        String dest = context.getParameterName(3);
+        String offset = context.getParameterName(4);
+        String count = context.getParameterName(5);
+        String bigEndian = context.getParameterName(6);
+        writer.append("for (var i = 0; i < " + count + "; i = (i + 1) | 0) {").indent().softNewLine();
+        writer.append(dest + ".data[" + offset + " + i] = view." + function + "(" + index + " + i * 4, !"
+                + bigEndian + ");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    private void generatePutBulk(GeneratorContext context, SourceWriter writer, String function)
+            throws IOException {
+        String index = context.getParameterName(2);
+        String src = context.getParameterName(3);
+        String offset = context.getParameterName(4);
+        String count = context.getParameterName(5);
+        String bigEndian = context.getParameterName(6);
+        writer.append("for (var i = 0; i < " + count + "; i = (i + 1) | 0) {").indent().softNewLine();
+        writer.append("view." + function + "(" + index + " + i * 4, " + src + ".data[" + offset + " + i], !"
+                + bigEndian + ");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+}
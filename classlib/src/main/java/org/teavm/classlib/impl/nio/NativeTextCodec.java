@@ -0,0 +1,79 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.nio;
+
+import org.teavm.backend.javascript.spi.GeneratedBy;
+import org.teavm.interop.DelegateTo;
+
+/**
+ * <p>Converts large arrays between bytes and characters with <code>TextDecoder</code> and
+ * <code>TextEncoder</code> of the JavaScript environment. Other backends don't have native codecs,
+ * so {@link #isAvailable()} returns <code>false</code> there and callers use their own loops.</p>
+ *
+ * <p>Decoders follow WHATWG rules for malformed input, which differ from the Java ones. To keep results
+ * exact, decoding methods return <code>null</code> as soon as the result contains replacement character,
+ * and callers decode the same input again themselves. <code>TextDecoder</code> for ISO-8859-1 actually
+ * implements windows-1252, so there's no native support for it.</p>
+ */
+public final class NativeTextCodec {
+    /**
+     * Minimum number of input elements that pays off the cost of calling native codec and converting
+     * JavaScript string from or to char array.
+     */
+    public static final int THRESHOLD = 512;
+
+    private NativeTextCodec() {
+    }
+
+    @GeneratedBy(NativeTextCodecGenerator.class)
+    @DelegateTo("isAvailableLowLevel")
+    public static native boolean isAvailable();
+
+    @SuppressWarnings("unused")
+    private static boolean isAvailableLowLevel() {
+        return false;
+    }
+
+    @GeneratedBy(NativeTextCodecGenerator.class)
+    @DelegateTo("decodeUTF8LowLevel")
+    public static native char[] decodeUTF8(byte[] bytes, int offset, int length);
+
+    @GeneratedBy(NativeTextCodecGenerator.class)
+    @DelegateTo("decodeUTF16LowLevel")
+    public static native char[] decodeUTF16(byte[] bytes, int offset, int length, boolean bigEndian);
+
+    @SuppressWarnings("unused")
+    private static char[] decodeUTF8LowLevel(byte[] bytes, int offset, int length) {
+        return null;
+    }
+
+    @SuppressWarnings("unused")
+    private static char[] decodeUTF16LowLevel(byte[] bytes, int offset, int length, boolean bigEndian) {
+        return null;
+    }
+
+    /**
+     * Encodes well-formed UTF-16 sequence of characters into UTF-8. Destination array must be of exact size
+     * of the result.
+     */
+    @GeneratedBy(NativeTextCodecGenerator.class)
+    @DelegateTo("encodeUTF8LowLevel")
+    public static native void encodeUTF8(char[] chars, int offset, int length, byte[] dest);
+
+    @SuppressWarnings("unused")
+    private static void encodeUTF8LowLevel(char[] chars, int offset, int length, byte[] dest) {
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.nio;
+
+import java.io.IOException;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.spi.Generator;
+import org.teavm.backend.javascript.spi.GeneratorContext;
+import org.teavm.model.MethodReference;
+
+public class NativeTextCodecGenerator implements Generator {
+    private static final int CHUNK_SIZE = 4096;
+
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef)
+            throws IOException {
+        switch (methodRef.getName()) {
+            case "isAvailable":
+                writer.append("return typeof TextDecoder !== 'undefined' && typeof TextEncoder !== 'undefined'"
+                        + " && typeof TextEncoder.prototype.encodeInto === 'function';").softNewLine();
+                break;
+            case "decodeUTF8":
+                generateDecode(context, writer, "'utf-8'");
+                break;
+            case "decodeUTF16":
+                generateDecode(context, writer, context.getParameterName(4) + " ? 'utf-16be' : 'utf-16le'");
+                break;
+            case "encodeUTF8":
+                generateEncodeUTF8(context, writer);
+                break;
+        }
+    }
+
+    private void generateDecode(GeneratorContext context, SourceWriter writer, String encoding)
+            throws IOException {
+        String bytes = context.getParameterName(1);
+        String offset = context.getParameterName(2);
+        String length = context.getParameterName(3);
+        writer.append("var text;").softNewLine();
+        writer.append("try {").indent().softNewLine();
+        writer.append("text = new TextDecoder(" + encoding + ", { ignoreBOM: true }).decode(" + bytes
+                + ".data.subarray(" + offset + ", " + offset + " + " + length + "));").softNewLine();
+        writer.outdent().append("} catch (e) {").indent().softNewLine();
+        writer.append("return null;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("if (text.indexOf('\\uFFFD') >= 0) {").indent().softNewLine();
+        writer.append("return null;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("var chars = $rt_createCharArray(text.length);").softNewLine();
+        writer.append("var data = chars.data;").softNewLine();
+        writer.append("for (var i = 0; i < text.length; i = (i + 1) | 0) {").indent().softNewLine();
+        writer.append("data[i] = text.charCodeAt(i);").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return chars;").softNewLine();
+    }
+
+    private void generateEncodeUTF8(GeneratorContext context, SourceWriter writer) throws IOException {
+        String chars = context.getParameterName(1);
+        String offset = context.getParameterName(2);
+        String length = context.getParameterName(3);
+        String dest = context.getParameterName(4);
+        writer.append("var data = " + chars + ".data;").softNewLine();
+        writer.append("var end = " + offset + " + " + length + ";").softNewLine();
+        writer.append("var text = '';").softNewLine();
+        writer.append("for (var i = " + offset + "; i < end; i = (i + " + CHUNK_SIZE + ") | 0) {").indent()
+                .softNewLine();
+        writer.append("text += String.fromCharCode.apply(null, data.subarray(i, Math.min(i + " + CHUNK_SIZE
+                + ", end)));").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("var target = " + dest + ".data;").softNewLine();
+        writer.append("new TextEncoder().encodeInto(text, new Uint8Array(target.buffer, target.byteOffset, "
+                + "target.length));").softNewLine();
+    }
+}
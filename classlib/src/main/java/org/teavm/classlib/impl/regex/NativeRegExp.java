@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.regex;
+
+import org.teavm.backend.javascript.spi.GeneratedBy;
+
+/**
+ * <p>JavaScript <code>RegExp</code> objects that run {@link java.util.regex.Matcher} operations on behalf of
+ * a pattern translated at build time. Regular expressions and input strings are opaque JavaScript objects.
+ * Instances are created only by <code>Pattern.compileWithRegExp</code>, calls to which are generated only
+ * for the JavaScript backend, so other backends never reach the native methods and use matcher's own
+ * engine.</p>
+ */
+public final class NativeRegExp {
+    public static final int FIND = 0;
+    public static final int LOOKING_AT = 1;
+    public static final int MATCHES = 2;
+    private final Object[] regExps;
+
+    private NativeRegExp(Object[] regExps) {
+        this.regExps = regExps;
+    }
+
+    /**
+     * Creates regular expressions for <code>find</code>, <code>lookingAt</code> and <code>matches</code>
+     * operations from given source.
+     *
+     * @return regular expressions or <code>null</code>, if they can't be created, for example when browser
+     * does not support some of the flags.
+     */
+    public static NativeRegExp create(String source) {
+        Object[] regExps = new Object[3];
+        regExps[FIND] = createRegExp(source, "dgu");
+        regExps[LOOKING_AT] = createRegExp(source, "dyu");
+        regExps[MATCHES] = createRegExp("(?:" + source + ")(?![\\s\\S])", "dyu");
+        for (Object regExp : regExps) {
+            if (regExp == null) {
+                return null;
+            }
+        }
+        return new NativeRegExp(regExps);
+    }
+
+    /**
+     * Converts string to JavaScript string, which can be passed to {@link #exec(int, Object, int, int[])}.
+     */
+    public Object wrap(String string) {
+        return wrapString(string);
+    }
+
+    /**
+     * Executes regular expression of given kind starting from given index. Bounds of groups are written to
+     * <code>bounds</code> array as pairs of start and end, non-participating groups get <code>-1</code>.
+     *
+     * @return start of match or <code>-1</code> if there is no match.
+     */
+    public int exec(int kind, Object input, int from, int[] bounds) {
+        return execRegExp(regExps[kind], input, from, bounds);
+    }
+
+    @GeneratedBy(NativeRegExpGenerator.class)
+    private static native Object createRegExp(String source, String flags);
+
+    @GeneratedBy(NativeRegExpGenerator.class)
+    private static native Object wrapString(String string);
+
+    @GeneratedBy(NativeRegExpGenerator.class)
+    private static native int execRegExp(Object regExp, Object input, int from, int[] bounds);
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.regex;
+
+import java.io.IOException;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.spi.Generator;
+import org.teavm.backend.javascript.spi.GeneratorContext;
+import org.teavm.model.MethodReference;
+
+public class NativeRegExpGenerator implements Generator {
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef)
+            throws IOException {
+        switch (methodRef.getName()) {
+            case "createRegExp":
+                generateCreate(context, writer);
+                break;
+            case "wrapString":
+                writer.append("return $rt_ustr(" + context.getParameterName(1) + ");").softNewLine();
+                break;
+            case "execRegExp":
+                generateExec(context, writer);
+                break;
+        }
+    }
+
+    private void generateCreate(GeneratorContext context, SourceWriter writer) throws IOException {
+        String source = context.getParameterName(1);
+        String flags = context.getParameterName(2);
+        writer.append("try {").indent().softNewLine();
+        writer.append("return new RegExp($rt_ustr(" + source + "), $rt_ustr(" + flags + "));").softNewLine();
+        writer.outdent().append("} catch (e) {").indent().softNewLine();
+        writer.append("return null;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    private void generateExec(GeneratorContext context, SourceWriter writer) throws IOException {
+        String regExp = context.getParameterName(1);
+        String input = context.getParameterName(2);
+        String from = context.getParameterName(3);
+        String bounds = context.getParameterName(4);
+        writer.append(regExp + ".lastIndex = " + from + ";").softNewLine();
+        writer.append("var match = " + regExp + ".exec(" + input + ");").softNewLine();
+        writer.append("if (match === null) {").indent().softNewLine();
+        writer.append("return -1;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("var indices = match.indices;").softNewLine();
+        writer.append("var data = " + bounds + ".data;").softNewLine();
+        writer.append("for (var i = 0; i < indices.length; i = (i + 1) | 0) {").indent().softNewLine();
+        writer.append("var range = indices[i];").softNewLine();
+        writer.append("data[i * 2] = range !== undefined ? range[0] : -1;").softNewLine();
+        writer.append("data[i * 2 + 1] = range !== undefined ? range[1] : -1;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("return indices[0][0];").softNewLine();
+    }
+}
@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.regex;
+
+import java.util.List;
+import java.util.regex.Pattern;
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+
+/**
+ * <p>Finds calls of {@link Pattern#compile(String)} and {@link Pattern#compile(String, int)} with constant
+ * arguments and translates patterns to JavaScript regular expressions with {@link RegExpTranslator}.
+ * Calls of translated patterns are replaced with <code>Pattern.compileWithRegExp</code>, which additionally
+ * receives source of JavaScript regular expression, so that matcher can run it instead of interpreting pattern.
+ * Patterns that can't be translated are left as is. Enabled by setting
+ * <code>java.util.regex.Pattern.compileToRegExp</code> property to <code>true</code>.</p>
+ */
+public class RegExpTransformer implements ClassHolderTransformer {
+    public static final String PROPERTY = "java.util.regex.Pattern.compileToRegExp";
+    private static final String PATTERN = Pattern.class.getName();
+    private static final ValueType STRING_TYPE = ValueType.object(String.class.getName());
+    private static final ValueType PATTERN_TYPE = ValueType.object(PATTERN);
+    private static final MethodDescriptor COMPILE = new MethodDescriptor("compile", STRING_TYPE, PATTERN_TYPE);
+    private static final MethodDescriptor COMPILE_WITH_FLAGS = new MethodDescriptor("compile", STRING_TYPE,
+            ValueType.INTEGER, PATTERN_TYPE);
+    private static final MethodReference COMPILE_WITH_REGEXP = new MethodReference(PATTERN, "compileWithRegExp",
+            STRING_TYPE, ValueType.INTEGER, STRING_TYPE, PATTERN_TYPE);
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
+        if (cls.getName().equals(PATTERN)) {
+            return;
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (method.getProgram() != null) {
+                transformProgram(method.getProgram());
+            }
+        }
+    }
+
+    private void transformProgram(Program program) {
+        Object[] constants = null;
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            List<Instruction> instructions = block.getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction insn = instructions.get(j);
+                if (!(insn instanceof InvokeInstruction)) {
+                    continue;
+                }
+                InvokeInstruction invoke = (InvokeInstruction) insn;
+                MethodReference method = invoke.getMethod();
+                if (invoke.getType() != InvocationType.SPECIAL || invoke.getInstance() != null
+                        || !method.getClassName().equals(PATTERN)
+                        || !method.getDescriptor().equals(COMPILE)
+                        && !method.getDescriptor().equals(COMPILE_WITH_FLAGS)) {
+                    continue;
+                }
+                if (constants == null) {
+                    constants = getConstants(program);
+                }
+
+                List<Variable> arguments = invoke.getArguments();
+                Object pattern = constants[arguments.get(0).getIndex()];
+                Object flags = arguments.size() > 1 ? constants[arguments.get(1).getIndex()] : (Object) 0;
+                if (!(pattern instanceof String) || !(flags instanceof Integer)) {
+                    continue;
+                }
+                String source = RegExpTranslator.translate((String) pattern, (Integer) flags);
+                if (source == null) {
+                    continue;
+                }
+
+                if (arguments.size() == 1) {
+                    IntegerConstantInstruction flagsConstant = new IntegerConstantInstruction();
+                    flagsConstant.setConstant(0);
+                    flagsConstant.setReceiver(program.createVariable());
+                    flagsConstant.setLocation(invoke.getLocation());
+                    instructions.add(j++, flagsConstant);
+                    arguments.add(flagsConstant.getReceiver());
+                }
+                StringConstantInstruction sourceConstant = new StringConstantInstruction();
+                sourceConstant.setConstant(source);
+                sourceConstant.setReceiver(program.createVariable());
+                sourceConstant.setLocation(invoke.getLocation());
+                instructions.add(j++, sourceConstant);
+                arguments.add(sourceConstant.getReceiver());
+                invoke.setMethod(COMPILE_WITH_REGEXP);
+            }
+        }
+    }
+
+    private static Object[] getConstants(Program program) {
+        Object[] constants = new Object[program.variableCount()];
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (insn instanceof StringConstantInstruction) {
+                    StringConstantInstruction constant = (StringConstantInstruction) insn;
+                    constants[constant.getReceiver().getIndex()] = constant.getConstant();
+                } else if (insn instanceof IntegerConstantInstruction) {
+                    IntegerConstantInstruction constant = (IntegerConstantInstruction) insn;
+                    constants[constant.getReceiver().getIndex()] = constant.getConstant();
+                }
+            }
+        }
+        return constants;
+    }
+}
@@ -0,0 +1,561 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.regex;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * <p>Translates Java regular expression to JavaScript <code>RegExp</code> source, which is meant to be used
+ * with <code>u</code> and <code>d</code> flags. Only patterns that produce exactly the same matches and
+ * groups in both engines are translated, otherwise {@link #translate(String, int)} returns <code>null</code>
+ * and pattern is left to the regular expression engine of class library. Capturing groups are translated
+ * one to one, so they have the same numbers.</p>
+ *
+ * <p>Following constructs are supported: literals and escaped characters, <code>\Q...\E</code>, character
+ * classes without unions and intersections, <code>.</code>, <code>\d \D \s \S \w \W</code>, <code>^</code> and
+ * <code>$</code> without <code>MULTILINE</code> flag, alternation, capturing and non-capturing groups,
+ * lookaround without groups inside, greedy and reluctant quantifiers. Supported flags are
+ * <code>CASE_INSENSITIVE</code> (translated to explicit alternatives of ASCII letters), <code>DOTALL</code>
+ * and <code>LITERAL</code>.</p>
+ *
+ * <p>Quantifiers are restricted to elements that can't match empty string and don't contain nested capturing
+ * groups when repeated more than once, since JavaScript clears such groups at every iteration and rejects
+ * empty iterations.</p>
+ */
+public final class RegExpTranslator {
+    private static final int SUPPORTED_FLAGS = Pattern.CASE_INSENSITIVE | Pattern.DOTALL | Pattern.LITERAL;
+    private static final String SYNTAX_CHARACTERS = "^$\\.*+?()[]{}|/";
+    private static final String LINE_TERMINATORS = "\\n\\r\\u0085\\u2028\\u2029";
+    private static final String JAVA_SPACES = "\\t\\n\\u000B\\f\\r ";
+    private String pattern;
+    private int index;
+    private boolean caseInsensitive;
+    private boolean dotAll;
+
+    private RegExpTranslator(String pattern, int flags) {
+        this.pattern = pattern;
+        caseInsensitive = (flags & Pattern.CASE_INSENSITIVE) != 0;
+        dotAll = (flags & Pattern.DOTALL) != 0;
+    }
+
+    /**
+     * Translates pattern with given flags.
+     *
+     * @return source of equivalent JavaScript regular expression or <code>null</code> if pattern contains
+     * constructs that can't be translated exactly.
+     */
+    public static String translate(String pattern, int flags) {
+        if ((flags & ~SUPPORTED_FLAGS) != 0) {
+            return null;
+        }
+        RegExpTranslator translator = new RegExpTranslator(pattern, flags);
+        try {
+            if ((flags & Pattern.LITERAL) != 0) {
+                return translator.translateLiteral();
+            }
+            Term result = translator.parseAlternation();
+            return translator.index == pattern.length() ? result.source : null;
+        } catch (UnsupportedConstructException e) {
+            return null;
+        }
+    }
+
+    private String translateLiteral() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < pattern.length(); ++i) {
+            sb.append(literal(pattern.charAt(i)));
+        }
+        return sb.toString();
+    }
+
+    private Term parseAlternation() {
+        Term result = parseSequence();
+        while (index < pattern.length() && pattern.charAt(index) == '|') {
+            ++index;
+            Term alternative = parseSequence();
+            result = new Term(result.source + "|" + alternative.source, result.nullable || alternative.nullable,
+                    result.hasGroups || alternative.hasGroups);
+            result.unbounded = result.unbounded || alternative.unbounded;
+        }
+        return result;
+    }
+
+    private Term parseSequence() {
+        StringBuilder sb = new StringBuilder();
+        boolean nullable = true;
+        boolean hasGroups = false;
+        boolean unbounded = false;
+        while (index < pattern.length()) {
+            char c = pattern.charAt(index);
+            if (c == '|' || c == ')') {
+                break;
+            }
+            Term term = parseQuantified();
+            sb.append(term.source);
+            nullable &= term.nullable;
+            hasGroups |= term.hasGroups;
+            unbounded |= term.unbounded;
+        }
+        Term result = new Term(sb.toString(), nullable, hasGroups);
+        result.unbounded = unbounded;
+        return result;
+    }
+
+    private Term parseQuantified() {
+        Term atom = parseAtom();
+        if (index >= pattern.length()) {
+            return atom;
+        }
+        int start = index;
+        int min;
+        int max;
+        switch (pattern.charAt(index)) {
+            case '*':
+                min = 0;
+                max = -1;
+                ++index;
+                break;
+            case '+':
+                min = 1;
+                max = -1;
+                ++index;
+                break;
+            case '?':
+                min = 0;
+                max = 1;
+                ++index;
+                break;
+            case '{':
+                ++index;
+                min = parseNumber();
+                if (consume(',')) {
+                    max = index < pattern.length() && pattern.charAt(index) != '}' ? parseNumber() : -1;
+                } else {
+                    max = min;
+                }
+                expect('}');
+                break;
+            default:
+                return atom;
+        }
+        if (index < pattern.length()) {
+            char c = pattern.charAt(index);
+            if (c == '+') {
+                // Possessive quantifiers are not supported by JavaScript
+                throw new UnsupportedConstructException();
+            } else if (c == '?') {
+                ++index;
+            }
+        }
+
+        if (!atom.quantifiable || atom.nullable || max != 0 && max != 1 && atom.hasNestedGroups) {
+            throw new UnsupportedConstructException();
+        }
+        Term result = new Term(atom.source + pattern.substring(start, index), atom.nullable || min == 0,
+                atom.hasGroups);
+        result.unbounded = atom.unbounded || max < 0;
+        return result;
+    }
+
+    private Term parseAtom() {
+        char c = pattern.charAt(index++);
+        switch (c) {
+            case '(':
+                return parseGroup();
+            case '[':
+                return term(parseClass());
+            case '.':
+                return term(dotAll ? "[\\s\\S]" : "[^" + LINE_TERMINATORS + "]");
+            case '^':
+                return assertion("^");
+            case '$':
+                // Matches at the end of input and before the final line terminator, but not inside \r\n
+                return assertion("(?=(?:\\r\\n|[" + LINE_TERMINATORS + "])?(?![\\s\\S]))(?<!\\r(?=\\n))");
+            case '\\':
+                return parseEscape();
+            case '*':
+            case '+':
+            case '?':
+            case '{':
+            case ')':
+                throw new UnsupportedConstructException();
+            default:
+                return term(literal(c));
+        }
+    }
+
+    private Term parseGroup() {
+        String prefix;
+        boolean capturing = false;
+        boolean lookaround = false;
+        boolean lookbehind = false;
+        if (consume('?')) {
+            if (consume(':')) {
+                prefix = "(?:";
+            } else if (consume('=')) {
+                prefix = "(?=";
+                lookaround = true;
+            } else if (consume('!')) {
+                prefix = "(?!";
+                lookaround = true;
+            } else if (consume('<')) {
+                if (consume('=')) {
+                    prefix = "(?<=";
+                } else if (consume('!')) {
+                    prefix = "(?<!";
+                } else {
+                    throw new UnsupportedConstructException();
+                }
+                lookaround = true;
+                lookbehind = true;
+            } else {
+                // Inline flags, atomic and named groups
+                throw new UnsupportedConstructException();
+            }
+        } else {
+            prefix = "(";
+            capturing = true;
+        }
+
+        Term body = parseAlternation();
+        expect(')');
+        if (lookaround) {
+            // Java requires lookbehind to have bounded length
+            if (body.hasGroups || lookbehind && body.unbounded) {
+                throw new UnsupportedConstructException();
+            }
+            return assertion(prefix + body.source + ")");
+        }
+        Term result = new Term(prefix + body.source + ")", body.nullable, capturing || body.hasGroups);
+        result.hasNestedGroups = body.hasGroups;
+        result.unbounded = body.unbounded;
+        return result;
+    }
+
+    private String parseClass() {
+        boolean negated = consume('^');
+        if (index < pattern.length() && pattern.charAt(index) == ']') {
+            throw new UnsupportedConstructException();
+        }
+        List<int[]> ranges = new ArrayList<>();
+        StringBuilder escapes = new StringBuilder();
+        while (true) {
+            if (index >= pattern.length()) {
+                throw new UnsupportedConstructException();
+            }
+            char c = pattern.charAt(index++);
+            if (c == ']') {
+                break;
+            }
+            if (c == '[' || c == '&' && index < pattern.length() && pattern.charAt(index) == '&') {
+                // Unions and intersections of classes
+                throw new UnsupportedConstructException();
+            }
+            int from;
+            if (c == '\\') {
+                String predefined = predefinedClass(true);
+                if (predefined != null) {
+                    escapes.append(predefined);
+                    continue;
+                }
+                from = escapedCharacter();
+            } else {
+                from = c;
+            }
+            int to = from;
+            if (index + 1 < pattern.length() && pattern.charAt(index) == '-' && pattern.charAt(index + 1) != ']') {
+                ++index;
+                char d = pattern.charAt(index++);
+                if (d == '[' || d == '&') {
+                    throw new UnsupportedConstructException();
+                }
+                if (d == '\\') {
+                    if (predefinedClass(true) != null) {
+                        throw new UnsupportedConstructException();
+                    }
+                    to = escapedCharacter();
+                } else {
+                    to = d;
+                }
+                if (to < from) {
+                    throw new UnsupportedConstructException();
+                }
+            }
+            checkCharacter(from);
+            checkCharacter(to);
+            ranges.add(new int[] { from, to });
+        }
+
+        StringBuilder sb = new StringBuilder("[");
+        if (negated) {
+            sb.append('^');
+        }
+        for (int[] range : ranges) {
+            appendRange(sb, range[0], range[1]);
+            if (caseInsensitive) {
+                int lower = Math.max(range[0], 'a');
+                int upper = Math.min(range[1], 'z');
+                if (lower <= upper) {
+                    appendRange(sb, lower - 'a' + 'A', upper - 'a' + 'A');
+                }
+                lower = Math.max(range[0], 'A');
+                upper = Math.min(range[1], 'Z');
+                if (lower <= upper) {
+                    appendRange(sb, lower - 'A' + 'a', upper - 'A' + 'a');
+                }
+            }
+        }
+        sb.append(escapes).append(']');
+        return sb.toString();
+    }
+
+    private void appendRange(StringBuilder sb, int from, int to) {
+        appendClassCharacter(sb, from);
+        if (to != from) {
+            sb.append('-');
+            appendClassCharacter(sb, to);
+        }
+    }
+
+    private static void appendClassCharacter(StringBuilder sb, int c) {
+        if (c == '\\' || c == ']' || c == '[' || c == '^' || c == '-') {
+            sb.append('\\').append((char) c);
+        } else {
+            appendCharacter(sb, c);
+        }
+    }
+
+    private Term parseEscape() {
+        if (index >= pattern.length()) {
+            throw new UnsupportedConstructException();
+        }
+        String predefined = predefinedClass(false);
+        if (predefined != null) {
+            return term(predefined);
+        }
+        if (pattern.charAt(index) == 'Q') {
+            ++index;
+            int end = pattern.indexOf("\\E", index);
+            if (end < 0) {
+                end = pattern.length();
+            }
+            StringBuilder sb = new StringBuilder();
+            while (index < end) {
+                char c = pattern.charAt(index++);
+                checkCharacter(c);
+                sb.append(literal(c));
+            }
+            index = Math.min(pattern.length(), end + 2);
+            // Quantifier after \Q...\E applies to the last character only, which is not worth supporting
+            Term result = new Term(sb.toString(), sb.length() == 0, false);
+            result.quantifiable = false;
+            return result;
+        }
+        return term(literal(escapedCharacter()));
+    }
+
+    private String predefinedClass(boolean inClass) {
+        switch (pattern.charAt(index)) {
+            case 'd':
+                ++index;
+                return "\\d";
+            case 'D':
+                ++index;
+                return "\\D";
+            case 'w':
+                ++index;
+                return "\\w";
+            case 'W':
+                ++index;
+                return "\\W";
+            case 's':
+                // JavaScript treats Unicode spaces as whitespace, so spaces are listed explicitly
+                ++index;
+                return inClass ? JAVA_SPACES : "[" + JAVA_SPACES + "]";
+            case 'S':
+                if (inClass) {
+                    throw new UnsupportedConstructException();
+                }
+                ++index;
+                return "[^" + JAVA_SPACES + "]";
+            default:
+                return null;
+        }
+    }
+
+    private int escapedCharacter() {
+        if (index >= pattern.length()) {
+            throw new UnsupportedConstructException();
+        }
+        char c = pattern.charAt(index++);
+        switch (c) {
+            case 't':
+                return '\t';
+            case 'n':
+                return '\n';
+            case 'r':
+                return '\r';
+            case 'f':
+                return '\f';
+            case 'a':
+                return 7;
+            case 'e':
+                return 27;
+            case '0':
+                return parseOctal();
+            case 'x':
+                return parseHex(2);
+            case 'u':
+                return parseHex(4);
+            case 'c':
+                if (index >= pattern.length()) {
+                    throw new UnsupportedConstructException();
+                }
+                return pattern.charAt(index++) ^ 64;
+            default:
+                if (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9') {
+                    // Back references, boundaries, Unicode categories, etc.
+                    throw new UnsupportedConstructException();
+                }
+                return c;
+        }
+    }
+
+    private int parseOctal() {
+        int result = 0;
+        int maxDigits = index < pattern.length() && pattern.charAt(index) <= '3' ? 3 : 2;
+        int digits = 0;
+        while (digits < maxDigits && index < pattern.length()) {
+            char c = pattern.charAt(index);
+            if (c < '0' || c > '7') {
+                break;
+            }
+            result = result * 8 + (c - '0');
+            ++index;
+            ++digits;
+        }
+        if (digits == 0) {
+            throw new UnsupportedConstructException();
+        }
+        return result;
+    }
+
+    private int parseHex(int digits) {
+        if (index + digits > pattern.length()) {
+            throw new UnsupportedConstructException();
+        }
+        int result = 0;
+        for (int i = 0; i < digits; ++i) {
+            int digit = Character.digit(pattern.charAt(index++), 16);
+            if (digit < 0) {
+                throw new UnsupportedConstructException();
+            }
+            result = result * 16 + digit;
+        }
+        return result;
+    }
+
+    private int parseNumber() {
+        int start = index;
+        int result = 0;
+        while (index < pattern.length() && Character.isDigit(pattern.charAt(index))) {
+            result = result * 10 + (pattern.charAt(index++) - '0');
+            if (result > 1000) {
+                throw new UnsupportedConstructException();
+            }
+        }
+        if (index == start) {
+            throw new UnsupportedConstructException();
+        }
+        return result;
+    }
+
+    private String literal(int c) {
+        checkCharacter(c);
+        StringBuilder sb = new StringBuilder();
+        if (caseInsensitive && (c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z')) {
+            sb.append('[').append((char) c).append((char) (c ^ 32)).append(']');
+        } else if (SYNTAX_CHARACTERS.indexOf(c) >= 0) {
+            sb.append('\\').append((char) c);
+        } else {
+            appendCharacter(sb, c);
+        }
+        return sb.toString();
+    }
+
+    private static void appendCharacter(StringBuilder sb, int c) {
+        if (c >= ' ' && c < 127) {
+            sb.append((char) c);
+        } else {
+            sb.append("\\u");
+            for (int i = 12; i >= 0; i -= 4) {
+                sb.append(Character.forDigit((c >> i) & 15, 16));
+            }
+        }
+    }
+
+    private static void checkCharacter(int c) {
+        // Java matches supplementary characters by code points, they are not worth supporting
+        if (Character.isSurrogate((char) c) || c > 0xFFFF) {
+            throw new UnsupportedConstructException();
+        }
+    }
+
+    private boolean consume(char c) {
+        if (index < pattern.length() && pattern.charAt(index) == c) {
+            ++index;
+            return true;
+        }
+        return false;
+    }
+
+    private void expect(char c) {
+        if (!consume(c)) {
+            throw new UnsupportedConstructException();
+        }
+    }
+
+    private Term term(String source) {
+        return new Term(source, false, false);
+    }
+
+    private Term assertion(String source) {
+        Term result = new Term(source, true, false);
+        result.quantifiable = false;
+        return result;
+    }
+
+    static class Term {
+        String source;
+        boolean nullable;
+        boolean hasGroups;
+        boolean hasNestedGroups;
+        boolean unbounded;
+        boolean quantifiable = true;
+
+        Term(String source, boolean nullable, boolean hasGroups) {
+            this.source = source;
+            this.nullable = nullable;
+            this.hasGroups = hasGroups;
+        }
+    }
+
+    static class UnsupportedConstructException extends RuntimeException {
+        private static final long serialVersionUID = -2519837281725347452L;
+    }
+}
@@ -83,10 +83,7 @@ class TAbstractStringBuilder extends TObject implements TSerializable, TCharSequ
             buffer[i + string.length()] = buffer[i];
         }
         length += string.length();
-        int j = index;
-        for (int i = 0; i < string.length(); ++i) {
-            buffer[j++] = string.charAt(i);
-        }
+        string.getChars(0, string.length(), buffer, index);
         return this;
     }
 
@@ -711,9 +708,7 @@ class TAbstractStringBuilder extends TObject implements TSerializable, TCharSequ
         } else if (str.length() < oldSize) {
             delete(start + str.length(), end);
         }
-        for (int i = 0; i < str.length(); ++i) {
-            buffer[start++] = str.charAt(i);
-        }
+        str.getChars(0, str.length(), buffer, start);
         return this;
     }
 
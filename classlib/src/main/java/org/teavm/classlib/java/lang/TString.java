@@ -20,6 +20,8 @@ import org.teavm.classlib.java.io.TUnsupportedEncodingException;
 import org.teavm.classlib.java.nio.TByteBuffer;
 import org.teavm.classlib.java.nio.TCharBuffer;
 import org.teavm.classlib.java.nio.charset.TCharset;
+import org.teavm.classlib.java.nio.charset.impl.TBulkCharset;
+import org.teavm.classlib.java.nio.charset.impl.TLatin1Charset;
 import org.teavm.classlib.java.nio.charset.impl.TUTF8Charset;
 import org.teavm.classlib.java.util.TArrays;
 import org.teavm.classlib.java.util.TComparator;
@@ -28,37 +30,63 @@ import org.teavm.classlib.java.util.TMap;
 import org.teavm.classlib.java.util.regex.TPattern;
 
 /**
+ * <p>On WebAssembly strings are compact: when every character fits into Latin-1, characters are stored one per
+ * byte in {@link #latin1} and {@link #coder} is {@link #LATIN1}, otherwise they are stored in
+ * {@link #characters}. The representation is canonical, i.e. a string that can be stored in Latin-1 is always
+ * stored in Latin-1, so strings with different coders are never equal. The JavaScript backend always
+ * uses <code>char[]</code>. {@link #compactStrings} is never written: each backend replaces reads of it with
+ * its own constant using {@link org.teavm.backend.CompactStringsTransformer}.</p>
  *
  * @author Alexey Andreev
  */
 public class TString extends TObject implements TSerializable, TComparable<TString>, TCharSequence {
     public static final TComparator<TString> CASE_INSENSITIVE_ORDER = (o1, o2) -> o1.compareToIgnoreCase(o2);
+    private static final byte LATIN1 = 1;
+    private static boolean compactStrings;
     private char[] characters;
+    private byte[] latin1;
     private transient int hashCode;
+    private byte coder;
     private static TMap<TString, TString> pool = new THashMap<>();
 
     public TString() {
-        this.characters = new char[0];
+        if (compactStrings) {
+            latin1 = new byte[0];
+            coder = LATIN1;
+        } else {
+            characters = new char[0];
+        }
     }
 
     public TString(TString other) {
         characters = other.characters;
+        latin1 = other.latin1;
+        coder = other.coder;
     }
 
     public TString(char[] characters) {
-        this.characters = new char[characters.length];
-        for (int i = 0; i < characters.length; ++i) {
-            this.characters[i] = characters[i];
-        }
+        this(characters, 0, characters.length);
     }
 
     public TString(char[] value, int offset, int count) {
+        if (compactStrings) {
+            latin1 = compress(value, offset, count);
+            if (latin1 != null) {
+                coder = LATIN1;
+                return;
+            }
+        }
         this.characters = new char[count];
         for (int i = 0; i < count; ++i) {
             this.characters[i] = value[i + offset];
         }
     }
 
+    private TString(byte coder, byte[] latin1) {
+        this.latin1 = latin1;
+        this.coder = coder;
+    }
+
     public TString(byte[] bytes, int offset, int length, TString charsetName) throws TUnsupportedEncodingException {
         this(bytes, offset, length, TCharset.forName(charsetName.toString()));
     }
@@ -68,7 +96,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public TString(byte[] bytes, int offset, int length) {
-        initWithBytes(bytes, offset, length, new TUTF8Charset());
+        initWithBytes(bytes, offset, length, TUTF8Charset.INSTANCE);
     }
 
     public TString(byte[] bytes) {
@@ -84,7 +112,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public TString(int[] codePoints, int offset, int count) {
-        characters = new char[count * 2];
+        char[] characters = new char[count * 2];
         int charCount = 0;
         for (int i = 0; i < count; ++i) {
             int codePoint = codePoints[offset++];
@@ -98,16 +126,63 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (charCount < characters.length) {
             characters = TArrays.copyOf(characters, charCount);
         }
+        initWithCharacters(characters);
     }
 
     private void initWithBytes(byte[] bytes, int offset, int length, TCharset charset) {
+        if (charset instanceof TBulkCharset) {
+            if (offset < 0 || length < 0 || offset > bytes.length - length) {
+                throw new TStringIndexOutOfBoundsException();
+            }
+            if (compactStrings && charset == TLatin1Charset.INSTANCE) {
+                latin1 = TArrays.copyOfRange(bytes, offset, offset + length);
+                coder = LATIN1;
+                return;
+            }
+            initWithCharacters(((TBulkCharset) charset).decodeArray(bytes, offset, length));
+            return;
+        }
         TCharBuffer buffer = charset.decode(TByteBuffer.wrap(bytes, offset, length));
         if (buffer.hasArray() && buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
-            characters = buffer.array();
+            initWithCharacters(buffer.array());
         } else {
-            characters = new char[buffer.remaining()];
+            char[] characters = new char[buffer.remaining()];
             buffer.get(characters);
+            initWithCharacters(characters);
+        }
+    }
+
+    private void initWithCharacters(char[] characters) {
+        if (compactStrings) {
+            latin1 = compress(characters, 0, characters.length);
+            if (latin1 != null) {
+                coder = LATIN1;
+                return;
+            }
         }
+        this.characters = characters;
+    }
+
+    private static byte[] compress(char[] chars, int offset, int count) {
+        byte[] result = new byte[count];
+        for (int i = 0; i < count; ++i) {
+            char c = chars[offset + i];
+            if (c > 0xFF) {
+                return null;
+            }
+            result[i] = (byte) c;
+        }
+        return result;
+    }
+
+    private static void inflate(byte[] latin1, int offset, char[] dest, int destOffset, int count) {
+        for (int i = 0; i < count; ++i) {
+            dest[destOffset + i] = (char) (latin1[offset + i] & 0xFF);
+        }
+    }
+
+    private boolean isLatin1() {
+        return compactStrings && coder == LATIN1;
     }
 
     public TString(TStringBuilder sb) {
@@ -116,6 +191,12 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     @Override
     public char charAt(int index) {
+        if (isLatin1()) {
+            if (index < 0 || index >= latin1.length) {
+                throw new TStringIndexOutOfBoundsException();
+            }
+            return (char) (latin1[index] & 0xFF);
+        }
         if (index < 0 || index >= characters.length) {
             throw new TStringIndexOutOfBoundsException();
         }
@@ -140,11 +221,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
 
     @Override
     public int length() {
-        return characters.length;
+        return isLatin1() ? latin1.length : characters.length;
     }
 
     public boolean isEmpty() {
-        return characters.length == 0;
+        return length() == 0;
     }
 
     public void getChars(int srcBegin, int srcEnd, char[] dst, int dstBegin) {
@@ -152,17 +233,22 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
                 || dstBegin + (srcEnd - srcBegin) > dst.length) {
             throw new TIndexOutOfBoundsException();
         }
+        if (isLatin1()) {
+            inflate(latin1, srcBegin, dst, dstBegin, srcEnd - srcBegin);
+            return;
+        }
         while (srcBegin < srcEnd) {
-            dst[dstBegin++] = charAt(srcBegin++);
+            dst[dstBegin++] = characters[srcBegin++];
         }
     }
 
     public boolean contentEquals(TStringBuffer buffer) {
-        if (characters.length != buffer.length()) {
+        int length = length();
+        if (length != buffer.length()) {
             return false;
         }
-        for (int i = 0; i < characters.length; ++i) {
-            if (characters[i] != buffer.charAt(i)) {
+        for (int i = 0; i < length; ++i) {
+            if (charAt(i) != buffer.charAt(i)) {
                 return false;
             }
         }
@@ -173,11 +259,12 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (this == charSeq) {
             return true;
         }
-        if (characters.length != charSeq.length()) {
+        int length = length();
+        if (length != charSeq.length()) {
             return false;
         }
-        for (int i = 0; i < characters.length; ++i) {
-            if (characters[i] != charSeq.charAt(i)) {
+        for (int i = 0; i < length; ++i) {
+            if (charAt(i) != charSeq.charAt(i)) {
                 return false;
             }
         }
@@ -281,10 +368,22 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public int indexOf(int ch, int fromIndex) {
+        fromIndex = TMath.max(fromIndex, 0);
+        if (isLatin1()) {
+            if (ch < 0 || ch > 0xFF) {
+                return -1;
+            }
+            byte b = (byte) ch;
+            for (int i = fromIndex; i < latin1.length; ++i) {
+                if (latin1[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
         if (ch < TCharacter.MIN_SUPPLEMENTARY_CODE_POINT) {
-            char bmpChar = (char) ch;
             for (int i = fromIndex; i < characters.length; ++i) {
-                if (characters[i] == bmpChar) {
+                if (characters[i] == ch) {
                     return i;
                 }
             }
@@ -306,10 +405,22 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public int lastIndexOf(int ch, int fromIndex) {
+        fromIndex = TMath.min(fromIndex, length() - 1);
+        if (isLatin1()) {
+            if (ch < 0 || ch > 0xFF) {
+                return -1;
+            }
+            byte b = (byte) ch;
+            for (int i = fromIndex; i >= 0; --i) {
+                if (latin1[i] == b) {
+                    return i;
+                }
+            }
+            return -1;
+        }
         if (ch < TCharacter.MIN_SUPPLEMENTARY_CODE_POINT) {
-            char bmpChar = (char) ch;
             for (int i = fromIndex; i >= 0; --i) {
-                if (characters[i] == bmpChar) {
+                if (characters[i] == ch) {
                     return i;
                 }
             }
@@ -331,7 +442,24 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public int indexOf(TString str, int fromIndex) {
+        fromIndex = TMath.max(fromIndex, 0);
         int toIndex = length() - str.length();
+        if (isLatin1()) {
+            if (!str.isLatin1()) {
+                return -1;
+            }
+            byte[] pattern = str.latin1;
+            outer:
+            for (int i = fromIndex; i <= toIndex; ++i) {
+                for (int j = 0; j < pattern.length; ++j) {
+                    if (latin1[i + j] != pattern[j]) {
+                        continue outer;
+                    }
+                }
+                return i;
+            }
+            return -1;
+        }
         outer:
         for (int i = fromIndex; i <= toIndex; ++i) {
             for (int j = 0; j < str.length(); ++j) {
@@ -370,6 +498,12 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (beginIndex > endIndex) {
             throw new TIndexOutOfBoundsException();
         }
+        if (isLatin1()) {
+            if (beginIndex < 0 || endIndex > latin1.length) {
+                throw new TIndexOutOfBoundsException();
+            }
+            return new TString(LATIN1, TArrays.copyOfRange(latin1, beginIndex, endIndex));
+        }
         return new TString(characters, beginIndex, endIndex - beginIndex);
     }
 
@@ -386,6 +520,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (str.isEmpty()) {
             return this;
         }
+        if (isLatin1() && str.isLatin1()) {
+            byte[] buffer = TArrays.copyOf(latin1, latin1.length + str.latin1.length);
+            System.arraycopy(str.latin1, 0, buffer, latin1.length, str.latin1.length);
+            return new TString(LATIN1, buffer);
+        }
         char[] buffer = new char[length() + str.length()];
         int index = 0;
         for (int i = 0; i < length(); ++i) {
@@ -401,6 +540,16 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (oldChar == newChar) {
             return this;
         }
+        if (isLatin1() && newChar <= 0xFF) {
+            if (oldChar > 0xFF) {
+                return this;
+            }
+            byte[] buffer = new byte[latin1.length];
+            for (int i = 0; i < buffer.length; ++i) {
+                buffer[i] = latin1[i] == (byte) oldChar ? (byte) newChar : latin1[i];
+            }
+            return new TString(LATIN1, buffer);
+        }
         char[] buffer = new char[length()];
         for (int i = 0; i < length(); ++i) {
             buffer[i] = charAt(i) == oldChar ? newChar : charAt(i);
@@ -409,8 +558,12 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public boolean contains(TCharSequence s) {
+        if (s instanceof TString) {
+            return indexOf((TString) s) >= 0;
+        }
+        int toIndex = length() - s.length();
         outer:
-        for (int i = 0; i < length(); ++i) {
+        for (int i = 0; i <= toIndex; ++i) {
             for (int j = 0; j < s.length(); ++j) {
                 if (charAt(i + j) != s.charAt(j)) {
                     continue outer;
@@ -458,6 +611,11 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public char[] toCharArray() {
+        if (isLatin1()) {
+            char[] array = new char[latin1.length];
+            inflate(latin1, 0, array, 0, array.length);
+            return array;
+        }
         char[] array = new char[characters.length];
         for (int i = 0; i < array.length; ++i) {
             array[i] = characters[i];
@@ -518,6 +676,14 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
             return false;
         }
         TString str = (TString) other;
+        if (compactStrings) {
+            if (coder != str.coder) {
+                return false;
+            }
+            if (coder == LATIN1) {
+                return TArrays.equals(latin1, str.latin1);
+            }
+        }
         if (str.length() != length()) {
             return false;
         }
@@ -552,10 +718,17 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     }
 
     public byte[] getBytes() {
-        return getBytes(new TUTF8Charset());
+        return getBytes(TUTF8Charset.INSTANCE);
     }
 
     public byte[] getBytes(TCharset charset) {
+        if (isLatin1() && charset == TLatin1Charset.INSTANCE) {
+            return TArrays.copyOf(latin1, latin1.length);
+        }
+        char[] characters = isLatin1() ? toCharArray() : this.characters;
+        if (charset instanceof TBulkCharset) {
+            return ((TBulkCharset) charset).encodeArray(characters, 0, characters.length);
+        }
         TByteBuffer buffer = charset.encode(TCharBuffer.wrap(characters));
         if (buffer.hasArray() && buffer.position() == 0 && buffer.limit() == buffer.capacity()) {
             return buffer.array();
@@ -569,6 +742,12 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
     @Override
     public int hashCode() {
         if (hashCode == 0) {
+            if (isLatin1()) {
+                for (byte b : latin1) {
+                    hashCode = 31 * hashCode + (b & 0xFF);
+                }
+                return hashCode;
+            }
             for (char c : characters) {
                 hashCode = 31 * hashCode + c;
             }
@@ -584,6 +763,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (isEmpty()) {
             return this;
         }
+        char[] characters = isLatin1() ? toCharArray() : this.characters;
         int[] codePoints = new int[characters.length];
         int codePointCount = 0;
         for (int i = 0; i < characters.length; ++i) {
@@ -603,6 +783,7 @@ public class TString extends TObject implements TSerializable, TComparable<TStri
         if (isEmpty()) {
             return this;
         }
+        char[] characters = isLatin1() ? toCharArray() : this.characters;
         int[] codePoints = new int[characters.length];
         int codePointCount = 0;
         for (int i = 0; i < characters.length; ++i) {
@@ -34,8 +34,8 @@ public class TThread extends TObject implements TRunnable {
     private long timeSliceStart;
     private int yieldCount;
     private final Object finishedLock = new Object();
-    private boolean interruptedFlag;
-    private TThreadInterruptHandler interruptHandler;
+    boolean interruptedFlag;
+    TThreadInterruptHandler interruptHandler;
 
     private TString name;
     TRunnable target;
@@ -0,0 +1,158 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.lang;
+
+import org.teavm.interop.Async;
+import org.teavm.platform.Platform;
+import org.teavm.platform.PlatformRunnable;
+import org.teavm.platform.async.AsyncCallback;
+
+/**
+ * <p>Queue of green threads suspended until some other thread signals them. Threads are switched only when
+ * current thread suspends, so code between two suspension points runs atomically. This allows to implement
+ * blocking data structures without any locking: a thread checks its condition and calls {@link #await(long)}
+ * if it does not hold, another thread changes state and calls {@link #signal()}.</p>
+ *
+ * <p>Nothing is allocated until some thread actually waits.</p>
+ */
+public final class TThreadWaitQueue {
+    private Waiter first;
+    private Waiter last;
+
+    public boolean hasWaiters() {
+        return first != null;
+    }
+
+    /**
+     * Suspends current thread until it is signalled, timeout expires or thread gets interrupted.
+     *
+     * @param timeout timeout in milliseconds, zero or negative means no timeout.
+     * @return <code>true</code> if thread was signalled, <code>false</code> if timeout expired.
+     */
+    @Async
+    public native boolean await(long timeout) throws InterruptedException;
+
+    private void await(long timeout, AsyncCallback<Boolean> callback) {
+        TThread thread = TThread.currentThread();
+        if (thread.interruptedFlag) {
+            thread.interruptedFlag = false;
+            callback.error(new InterruptedException());
+            return;
+        }
+        Waiter waiter = new Waiter(this, thread, callback);
+        waiter.previous = last;
+        if (last != null) {
+            last.next = waiter;
+        } else {
+            first = waiter;
+        }
+        last = waiter;
+        thread.interruptHandler = waiter;
+        if (timeout > 0) {
+            waiter.timerId = Platform.schedule(waiter::expire, timeout < Integer.MAX_VALUE
+                    ? (int) timeout : Integer.MAX_VALUE);
+        }
+    }
+
+    public void signal() {
+        if (first != null) {
+            first.wake();
+        }
+    }
+
+    public void signalAll() {
+        while (first != null) {
+            first.wake();
+        }
+    }
+
+    private void remove(Waiter waiter) {
+        if (waiter.previous != null) {
+            waiter.previous.next = waiter.next;
+        } else {
+            first = waiter.next;
+        }
+        if (waiter.next != null) {
+            waiter.next.previous = waiter.previous;
+        } else {
+            last = waiter.previous;
+        }
+        waiter.previous = null;
+        waiter.next = null;
+    }
+
+    static class Waiter implements PlatformRunnable, TThreadInterruptHandler {
+        private TThreadWaitQueue queue;
+        private TThread thread;
+        private AsyncCallback<Boolean> callback;
+        Waiter previous;
+        Waiter next;
+        int timerId = -1;
+        private boolean done;
+
+        Waiter(TThreadWaitQueue queue, TThread thread, AsyncCallback<Boolean> callback) {
+            this.queue = queue;
+            this.thread = thread;
+            this.callback = callback;
+        }
+
+        void wake() {
+            if (finish()) {
+                Platform.postpone(this);
+            }
+        }
+
+        void expire() {
+            if (finish()) {
+                TThread.setCurrentThread(thread);
+                callback.complete(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            TThread.setCurrentThread(thread);
+            callback.complete(true);
+        }
+
+        @Override
+        public void interrupted() {
+            if (finish()) {
+                thread.interruptedFlag = false;
+                Platform.postpone(() -> {
+                    TThread.setCurrentThread(thread);
+                    callback.error(new InterruptedException());
+                });
+            }
+        }
+
+        private boolean finish() {
+            if (done) {
+                return false;
+            }
+            done = true;
+            queue.remove(this);
+            if (timerId >= 0) {
+                Platform.killSchedule(timerId);
+                timerId = -1;
+            }
+            if (thread.interruptHandler == this) {
+                thread.interruptHandler = null;
+            }
+            return true;
+        }
+    }
+}
@@ -18,11 +18,25 @@ package org.teavm.classlib.java.lang.ref;
 import org.teavm.classlib.java.lang.TObject;
 
 /**
+ * <p>Base class of references. A reference registered with a queue is appended to it once referent becomes
+ * unreachable. Queued references are linked through {@link #next} field, the last one points to itself.
+ * Garbage collector of low-level backends links references in exactly the same way, so these fields
+ * should not be changed without changing {@link org.teavm.runtime.GC}.</p>
  *
  * @author Alexey Andreev
  * @param <T> type of an object to which this reference points.
  */
 public abstract class TReference<T> extends TObject {
+    TReferenceQueue<? super T> queue;
+    TReference<?> next;
+
+    TReference() {
+    }
+
+    TReference(TReferenceQueue<? super T> queue) {
+        this.queue = queue;
+    }
+
     public T get() {
         return null;
     }
@@ -31,10 +45,17 @@ public abstract class TReference<T> extends TObject {
     }
 
     public boolean isEnqueued() {
-        return false;
+        return next != null;
     }
 
     public boolean enqueue() {
-        return false;
+        if (queue == null) {
+            return false;
+        }
+        TReferenceQueue<? super T> queue = this.queue;
+        this.queue = null;
+        clear();
+        queue.add(this);
+        return true;
     }
 }
@@ -21,7 +21,25 @@ package org.teavm.classlib.java.lang.ref;
  * @param <T>
  */
 public class TReferenceQueue<T> {
-    public TReference<T> poll() {
-        return null;
+    private TReference<? extends T> head;
+
+    public TReference<? extends T> poll() {
+        TReference<? extends T> result = head;
+        if (result == null) {
+            return null;
+        }
+        head = result.next != result ? cast(result.next) : null;
+        result.next = null;
+        return result;
+    }
+
+    void add(TReference<?> reference) {
+        reference.next = head != null ? head : reference;
+        head = cast(reference);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> TReference<? extends T> cast(TReference<?> reference) {
+        return (TReference<? extends T>) reference;
     }
 }
@@ -15,29 +15,67 @@
  */
 package org.teavm.classlib.java.lang.ref;
 
+import org.teavm.backend.javascript.spi.GeneratedBy;
+import org.teavm.dependency.PluggableDependency;
+import org.teavm.interop.DelegateTo;
+
 /**
+ * <p>Reference that does not prevent its referent from being collected.</p>
+ *
+ * <p>In JavaScript {@link #value} holds engine's <code>WeakRef</code>, and queued references are enqueued by
+ * a <code>FinalizationRegistry</code>. In environments lacking <code>WeakRef</code> the reference falls back
+ * to a strong one. In low-level backends {@link #value} holds the referent itself, but garbage collector
+ * does not trace it, and clears it when referent becomes unreachable. There {@link #gcNext} links weak
+ * references found during mark phase, it's only used by garbage collector.</p>
  *
  * @author Alexey Andreev
  * @param <T>
  */
 public class TWeakReference<T> extends TReference<T> {
-    private T value;
+    private Object value;
+    @SuppressWarnings("unused")
+    private Object gcNext;
+    @SuppressWarnings("unused")
+    private static Object registry;
 
     public TWeakReference(T value) {
-        this.value = value;
+        init(value);
     }
 
-    public TWeakReference(T value, @SuppressWarnings("unused") TReferenceQueue<T> queue) {
-        this.value = value;
+    public TWeakReference(T value, TReferenceQueue<? super T> queue) {
+        super(queue);
+        init(value);
+    }
+
+    @GeneratedBy(WeakReferenceGenerator.class)
+    @PluggableDependency(WeakReferenceGenerator.class)
+    @DelegateTo("initLowLevel")
+    private native void init(T value);
+
+    @SuppressWarnings("unused")
+    private static void initLowLevel(TWeakReference<?> self, Object value) {
+        self.value = value;
     }
 
     @Override
-    public T get() {
-        return value;
+    @GeneratedBy(WeakReferenceGenerator.class)
+    @PluggableDependency(WeakReferenceGenerator.class)
+    @DelegateTo("getLowLevel")
+    public native T get();
+
+    @SuppressWarnings("unused")
+    private static Object getLowLevel(TWeakReference<?> self) {
+        return self.value;
     }
 
     @Override
-    public void clear() {
-        value = null;
+    @GeneratedBy(WeakReferenceGenerator.class)
+    @PluggableDependency(WeakReferenceGenerator.class)
+    @DelegateTo("clearLowLevel")
+    public native void clear();
+
+    @SuppressWarnings("unused")
+    private static void clearLowLevel(TWeakReference<?> self) {
+        self.value = null;
     }
 }
@@ -0,0 +1,130 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.lang.ref;
+
+import java.io.IOException;
+import org.teavm.backend.javascript.codegen.SourceWriter;
+import org.teavm.backend.javascript.spi.Generator;
+import org.teavm.backend.javascript.spi.GeneratorContext;
+import org.teavm.dependency.DependencyAgent;
+import org.teavm.dependency.DependencyPlugin;
+import org.teavm.dependency.FieldDependency;
+import org.teavm.dependency.MethodDependency;
+import org.teavm.model.CallLocation;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+
+public class WeakReferenceGenerator implements Generator, DependencyPlugin {
+    private static final FieldReference VALUE_FIELD = new FieldReference("java.lang.ref.WeakReference", "value");
+    private static final FieldReference REGISTRY_FIELD = new FieldReference("java.lang.ref.WeakReference",
+            "registry");
+    private static final MethodDescriptor ENQUEUE_METHOD = new MethodDescriptor("enqueue", ValueType.BOOLEAN);
+
+    @Override
+    public void methodReached(DependencyAgent agent, MethodDependency method, CallLocation location) {
+        FieldDependency valueDep = agent.linkField(VALUE_FIELD, location);
+        switch (method.getReference().getName()) {
+            case "init": {
+                agent.linkField(REGISTRY_FIELD, location);
+                method.getVariable(1).connect(valueDep.getValue());
+                MethodDependency enqueueDep = agent.linkMethod(new MethodReference("java.lang.ref.Reference",
+                        ENQUEUE_METHOD), location);
+                method.getVariable(0).connect(enqueueDep.getVariable(0));
+                enqueueDep.use();
+                break;
+            }
+            case "get":
+                valueDep.getValue().connect(method.getResult());
+                break;
+            case "clear":
+                agent.linkField(REGISTRY_FIELD, location);
+                break;
+        }
+    }
+
+    @Override
+    public void generate(GeneratorContext context, SourceWriter writer, MethodReference methodRef)
+            throws IOException {
+        switch (methodRef.getName()) {
+            case "init":
+                generateInit(context, writer);
+                break;
+            case "get":
+                generateGet(context, writer);
+                break;
+            case "clear":
+                generateClear(context, writer);
+                break;
+        }
+    }
+
+    private void generateInit(GeneratorContext context, SourceWriter writer) throws IOException {
+        String self = context.getParameterName(0);
+        String value = context.getParameterName(1);
+        writer.append("if").ws().append("(" + value + " === null)").ws().append("{").indent().softNewLine();
+        writer.append("return;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+
+        writer.append("if").ws().append("(typeof WeakRef === 'undefined')").ws().append("{").indent().softNewLine();
+        writer.append(self).append('.').appendField(VALUE_FIELD).ws().append("=").ws().append("{").ws()
+                .append("deref:").ws().append("function()").ws().append("{").ws()
+                .append("return " + value + ";").ws().append("}").ws().append("};").softNewLine();
+        writer.append("return;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+
+        writer.append(self).append('.').appendField(VALUE_FIELD).ws().append("=").ws()
+                .append("new WeakRef(" + value + ");").softNewLine();
+
+        writer.append("if").ws().append("(").append(self).append('.').appendField(new FieldReference(
+                "java.lang.ref.Reference", "queue")).ws().append("!==").ws().append("null")
+                .ws().append("&&").ws().append("typeof FinalizationRegistry !== 'undefined')").ws().append("{")
+                .indent().softNewLine();
+        writer.append("if").ws().append("(").appendStaticField(REGISTRY_FIELD).ws().append("===").ws()
+                .append("null)").ws().append("{").indent().softNewLine();
+        writer.appendStaticField(REGISTRY_FIELD).ws().append("=").ws()
+                .append("new FinalizationRegistry(function(ref)").ws().append("{").ws()
+                .append("ref.").appendMethod(ENQUEUE_METHOD).append("();").ws().append("});").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.appendStaticField(REGISTRY_FIELD).append(".register(" + value + ",").ws().append(self + ",").ws()
+                .append(self + ");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+    }
+
+    private void generateGet(GeneratorContext context, SourceWriter writer) throws IOException {
+        String self = context.getParameterName(0);
+        writer.append("var ref").ws().append("=").ws().append(self).append('.').appendField(VALUE_FIELD)
+                .append(";").softNewLine();
+        writer.append("if").ws().append("(ref").ws().append("===").ws().append("null)").ws().append("{")
+                .indent().softNewLine();
+        writer.append("return null;").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append("var value").ws().append("=").ws().append("ref.deref();").softNewLine();
+        writer.append("return value").ws().append("!==").ws().append("undefined").ws().append("?").ws()
+                .append("value").ws().append(":").ws().append("null;").softNewLine();
+    }
+
+    private void generateClear(GeneratorContext context, SourceWriter writer) throws IOException {
+        String self = context.getParameterName(0);
+        writer.append("if").ws().append("(").appendStaticField(REGISTRY_FIELD).ws().append("!==").ws()
+                .append("null)").ws().append("{").indent().softNewLine();
+        writer.appendStaticField(REGISTRY_FIELD).append(".unregister(" + self + ");").softNewLine();
+        writer.outdent().append("}").softNewLine();
+        writer.append(self).append('.').appendField(VALUE_FIELD).ws().append("=").ws().append("null;")
+                .softNewLine();
+    }
+}
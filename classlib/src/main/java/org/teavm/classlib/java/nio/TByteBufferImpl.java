@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -123,14 +125,9 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 1 >= limit) {
             throw new TBufferUnderflowException();
         }
-        int a = array[start + position] & 0xFF;
-        int b = array[start + position + 1] & 0xFF;
+        char result = (char) ByteArrayAccess.getShort(array, start + position, order == TByteOrder.BIG_ENDIAN);
         position += 2;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (char) ((a << 8) | b);
-        } else {
-            return (char) ((b << 8) | a);
-        }
+        return result;
     }
 
     @Override
@@ -141,13 +138,8 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 1 >= limit) {
             throw new TBufferOverflowException();
         }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + position++] = (byte) (value >> 8);
-            array[start + position++] = (byte) value;
-        } else {
-            array[start + position++] = (byte) value;
-            array[start + position++] = (byte) (value >> 8);
-        }
+        ByteArrayAccess.putShort(array, start + position, (short) value, order == TByteOrder.BIG_ENDIAN);
+        position += 2;
         return this;
     }
 
@@ -156,13 +148,7 @@ class TByteBufferImpl extends TByteBuffer {
         if (index < 0 || index + 1 >= limit) {
             throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 1) + ")");
         }
-        int a = array[start + index] & 0xFF;
-        int b = array[start + index + 1] & 0xFF;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (char) ((a << 8) | b);
-        } else {
-            return (char) ((b << 8) | a);
-        }
+        return (char) ByteArrayAccess.getShort(array, start + index, order == TByteOrder.BIG_ENDIAN);
     }
 
     @Override
@@ -173,13 +159,7 @@ class TByteBufferImpl extends TByteBuffer {
         if (index < 0 || index + 1 >= limit) {
             throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 1) + ")");
         }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + index] = (byte) (value >> 8);
-            array[start + index + 1] = (byte) value;
-        } else {
-            array[start + index] = (byte) value;
-            array[start + index + 1] = (byte) (value >> 8);
-        }
+        ByteArrayAccess.putShort(array, start + index, (short) value, order == TByteOrder.BIG_ENDIAN);
         return this;
     }
 
@@ -198,14 +178,9 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 1 >= limit) {
             throw new TBufferUnderflowException();
         }
-        int a = array[start + position] & 0xFF;
-        int b = array[start + position + 1] & 0xFF;
+        short result = ByteArrayAccess.getShort(array, start + position, order == TByteOrder.BIG_ENDIAN);
         position += 2;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (short) ((a << 8) | b);
-        } else {
-            return (short) ((b << 8) | a);
-        }
+        return result;
     }
 
     @Override
@@ -216,13 +191,8 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 1 >= limit) {
             throw new TBufferOverflowException();
         }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + position++] = (byte) (value >> 8);
-            array[start + position++] = (byte) value;
-        } else {
-            array[start + position++] = (byte) value;
-            array[start + position++] = (byte) (value >> 8);
-        }
+        ByteArrayAccess.putShort(array, start + position, value, order == TByteOrder.BIG_ENDIAN);
+        position += 2;
         return this;
     }
 
@@ -231,13 +201,7 @@ class TByteBufferImpl extends TByteBuffer {
         if (index < 0 || index + 1 >= limit) {
             throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 1) + ")");
         }
-        int a = array[start + index] & 0xFF;
-        int b = array[start + index + 1] & 0xFF;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (short) ((a << 8) | b);
-        } else {
-            return (short) ((b << 8) | a);
-        }
+        return ByteArrayAccess.getShort(array, start + index, order == TByteOrder.BIG_ENDIAN);
     }
 
     @Override
@@ -248,13 +212,7 @@ class TByteBufferImpl extends TByteBuffer {
         if (index < 0 || index + 1 >= limit) {
             throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 1) + ")");
         }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + index] = (byte) (value >> 8);
-            array[start + index + 1] = (byte) value;
-        } else {
-            array[start + index] = (byte) value;
-            array[start + index + 1] = (byte) (value >> 8);
-        }
+        ByteArrayAccess.putShort(array, start + index, value, order == TByteOrder.BIG_ENDIAN);
         return this;
     }
 
@@ -273,16 +231,9 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 3 >= limit) {
             throw new TBufferUnderflowException();
         }
-        int a = array[start + position] & 0xFF;
-        int b = array[start + position + 1] & 0xFF;
-        int c = array[start + position + 2] & 0xFF;
-        int d = array[start + position + 3] & 0xFF;
+        int result = ByteArrayAccess.getInt(array, start + position, order == TByteOrder.BIG_ENDIAN);
         position += 4;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (a << 24) | (b << 16) | (c << 8) | d;
-        } else {
-            return (d << 24) | (c << 16) | (b << 8) | a;
-        }
+        return result;
     }
 
     @Override
@@ -293,17 +244,8 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 3 >= limit) {
             throw new TBufferOverflowException();
         }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + position++] = (byte) (value >> 24);
-            array[start + position++] = (byte) (value >> 16);
-            array[start + position++] = (byte) (value >> 8);
-            array[start + position++] = (byte) value;
-        } else {
-            array[start + position++] = (byte) value;
-            array[start + position++] = (byte) (value >> 8);
-            array[start + position++] = (byte) (value >> 16);
-            array[start + position++] = (byte) (value >> 24);
-        }
+        ByteArrayAccess.putInt(array, start + position, value, order == TByteOrder.BIG_ENDIAN);
+        position += 4;
         return this;
     }
 
@@ -312,15 +254,7 @@ class TByteBufferImpl extends TByteBuffer {
         if (index < 0 || index + 3 >= limit) {
             throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 3) + ")");
         }
-        int a = array[start + index] & 0xFF;
-        int b = array[start + index + 1] & 0xFF;
-        int c = array[start + index + 2] & 0xFF;
-        int d = array[start + index + 3] & 0xFF;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (a << 24) | (b << 16) | (c << 8) | d;
-        } else {
-            return (d << 24) | (c << 16) | (b << 8) | a;
-        }
+        return ByteArrayAccess.getInt(array, start + index, order == TByteOrder.BIG_ENDIAN);
     }
 
     @Override
@@ -331,17 +265,7 @@ class TByteBufferImpl extends TByteBuffer {
         if (index < 0 || index + 3 >= limit) {
             throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 3) + ")");
         }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + index] = (byte) (value >> 24);
-            array[start + index + 1] = (byte) (value >> 16);
-            array[start + index + 2] = (byte) (value >> 8);
-            array[start + index + 3] = (byte) value;
-        } else {
-            array[start + index] = (byte) value;
-            array[start + index + 1] = (byte) (value >> 8);
-            array[start + index + 2] = (byte) (value >> 16);
-            array[start + index + 3] = (byte) (value >> 24);
-        }
+        ByteArrayAccess.putInt(array, start + index, value, order == TByteOrder.BIG_ENDIAN);
         return this;
     }
 
@@ -360,20 +284,9 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 7 >= limit) {
             throw new TBufferUnderflowException();
         }
-        long a = array[start + position] & 0xFF;
-        long b = array[start + position + 1] & 0xFF;
-        long c = array[start + position + 2] & 0xFF;
-        long d = array[start + position + 3] & 0xFF;
-        long e = array[start + position + 4] & 0xFF;
-        long f = array[start + position + 5] & 0xFF;
-        long g = array[start + position + 6] & 0xFF;
-        long h = array[start + position + 7] & 0xFF;
+        long result = ByteArrayAccess.getLong(array, start + position, order == TByteOrder.BIG_ENDIAN);
         position += 8;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (a << 56) | (b << 48) | (c << 40) | (d << 32) | (e << 24) | (f << 16) | (g << 8) | h;
-        } else {
-            return (h << 56) | (g << 48) | (f << 40) | (e << 32) | (d << 24) | (c << 16) | (b << 8) | a;
-        }
+        return result;
     }
 
     @Override
@@ -384,25 +297,8 @@ class TByteBufferImpl extends TByteBuffer {
         if (position + 7 >= limit) {
             throw new TBufferOverflowException();
         }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + position++] = (byte) (value >> 56);
-            array[start + position++] = (byte) (value >> 48);
-            array[start + position++] = (byte) (value >> 40);
-            array[start + position++] = (byte) (value >> 32);
-            array[start + position++] = (byte) (value >> 24);
-            array[start + position++] = (byte) (value >> 16);
-            array[start + position++] = (byte) (value >> 8);
-            array[start + position++] = (byte) value;
-        } else {
-            array[start + position++] = (byte) value;
-            array[start + position++] = (byte) (value >> 8);
-            array[start + position++] = (byte) (value >> 16);
-            array[start + position++] = (byte) (value >> 24);
-            array[start + position++] = (byte) (value >> 32);
-            array[start + position++] = (byte) (value >> 40);
-            array[start + position++] = (byte) (value >> 48);
-            array[start + position++] = (byte) (value >> 56);
-        }
+        ByteArrayAccess.putLong(array, start + position, value, order == TByteOrder.BIG_ENDIAN);
+        position += 8;
         return this;
     }
 
@@ -411,20 +307,7 @@ class TByteBufferImpl extends TByteBuffer {
         if (index < 0 || index + 7 >= limit) {
             throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 7) + ")");
         }
-        long a = array[start + index] & 0xFF;
-        long b = array[start + index + 1] & 0xFF;
-        long c = array[start + index + 2] & 0xFF;
-        long d = array[start + index + 3] & 0xFF;
-        long e = array[start + index + 4] & 0xFF;
-        long f = array[start + index + 5] & 0xFF;
-        long g = array[start + index + 6] & 0xFF;
-        long h = array[start + index + 7] & 0xFF;
-        position += 8;
-        if (order == TByteOrder.BIG_ENDIAN) {
-            return (a << 56) | (b << 48) | (c << 40) | (d << 32) | (e << 24) | (f << 16) | (g << 8) | h;
-        } else {
-            return (h << 56) | (g << 48) | (f << 40) | (e << 32) | (d << 24) | (c << 16) | (b << 8) | a;
-        }
+        return ByteArrayAccess.getLong(array, start + index, order == TByteOrder.BIG_ENDIAN);
     }
 
     @Override
@@ -432,28 +315,10 @@ class TByteBufferImpl extends TByteBuffer {
         if (readOnly) {
             throw new TReadOnlyBufferException();
         }
-        if (index < 0 || index + 3 >= limit) {
-            throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 3) + ")");
-        }
-        if (order == TByteOrder.BIG_ENDIAN) {
-            array[start + index + 0] = (byte) (value >> 56);
-            array[start + index + 1] = (byte) (value >> 48);
-            array[start + index + 2] = (byte) (value >> 40);
-            array[start + index + 3] = (byte) (value >> 32);
-            array[start + index + 4] = (byte) (value >> 24);
-            array[start + index + 5] = (byte) (value >> 16);
-            array[start + index + 6] = (byte) (value >> 8);
-            array[start + index + 7] = (byte) value;
-        } else {
-            array[start + index + 0] = (byte) value;
-            array[start + index + 1] = (byte) (value >> 8);
-            array[start + index + 2] = (byte) (value >> 16);
-            array[start + index + 3] = (byte) (value >> 24);
-            array[start + index + 4] = (byte) (value >> 24);
-            array[start + index + 5] = (byte) (value >> 24);
-            array[start + index + 6] = (byte) (value >> 24);
-            array[start + index + 7] = (byte) (value >> 24);
+        if (index < 0 || index + 7 >= limit) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 7) + ")");
         }
+        ByteArrayAccess.putLong(array, start + index, value, order == TByteOrder.BIG_ENDIAN);
         return this;
     }
 
@@ -467,16 +332,102 @@ class TByteBufferImpl extends TByteBuffer {
         }
     }
 
+    @Override
+    public float getFloat() {
+        if (position + 3 >= limit) {
+            throw new TBufferUnderflowException();
+        }
+        float result = ByteArrayAccess.getFloat(array, start + position, order == TByteOrder.BIG_ENDIAN);
+        position += 4;
+        return result;
+    }
+
+    @Override
+    public TByteBuffer putFloat(float value) {
+        if (readOnly) {
+            throw new TReadOnlyBufferException();
+        }
+        if (position + 3 >= limit) {
+            throw new TBufferOverflowException();
+        }
+        ByteArrayAccess.putFloat(array, start + position, value, order == TByteOrder.BIG_ENDIAN);
+        position += 4;
+        return this;
+    }
+
+    @Override
+    public float getFloat(int index) {
+        if (index < 0 || index + 3 >= limit) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 3) + ")");
+        }
+        return ByteArrayAccess.getFloat(array, start + index, order == TByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public TByteBuffer putFloat(int index, float value) {
+        if (readOnly) {
+            throw new TReadOnlyBufferException();
+        }
+        if (index < 0 || index + 3 >= limit) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 3) + ")");
+        }
+        ByteArrayAccess.putFloat(array, start + index, value, order == TByteOrder.BIG_ENDIAN);
+        return this;
+    }
+
     @Override
     public TFloatBuffer asFloatBuffer() {
         int sz = remaining() / 4;
-        if (order == TByteOrder.LITTLE_ENDIAN) {
+        if (order == TByteOrder.BIG_ENDIAN) {
             return new TFloatBufferOverByteBufferBigEndian(start + position, sz, this, 0, sz, isReadOnly());
         } else {
             return new TFloatBufferOverByteBufferLittleEndian(start + position, sz, this, 0, sz, isReadOnly());
         }
     }
 
+    @Override
+    public double getDouble() {
+        if (position + 7 >= limit) {
+            throw new TBufferUnderflowException();
+        }
+        double result = ByteArrayAccess.getDouble(array, start + position, order == TByteOrder.BIG_ENDIAN);
+        position += 8;
+        return result;
+    }
+
+    @Override
+    public TByteBuffer putDouble(double value) {
+        if (readOnly) {
+            throw new TReadOnlyBufferException();
+        }
+        if (position + 7 >= limit) {
+            throw new TBufferOverflowException();
+        }
+        ByteArrayAccess.putDouble(array, start + position, value, order == TByteOrder.BIG_ENDIAN);
+        position += 8;
+        return this;
+    }
+
+    @Override
+    public double getDouble(int index) {
+        if (index < 0 || index + 7 >= limit) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 7) + ")");
+        }
+        return ByteArrayAccess.getDouble(array, start + index, order == TByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    public TByteBuffer putDouble(int index, double value) {
+        if (readOnly) {
+            throw new TReadOnlyBufferException();
+        }
+        if (index < 0 || index + 7 >= limit) {
+            throw new IndexOutOfBoundsException("Index " + index + " is outside of range [0;" + (limit - 7) + ")");
+        }
+        ByteArrayAccess.putDouble(array, start + index, value, order == TByteOrder.BIG_ENDIAN);
+        return this;
+    }
+
     @Override
     public TDoubleBuffer asDoubleBuffer() {
         int sz = remaining() / 8;
@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -27,15 +29,12 @@ class TCharBufferOverByteBufferBigEndian extends TCharBufferOverByteBuffer {
 
     @Override
     char getChar(int index) {
-        int value = ((byteByffer.array[start + index * 2] & 0xFF) << 8)
-                | (byteByffer.array[start + index * 2 + 1] & 0xFF);
-        return (char) value;
+        return (char) ByteArrayAccess.getShort(byteByffer.array, start + index * 2, true);
     }
 
     @Override
     void putChar(int index, char value) {
-        byteByffer.array[start + index * 2] = (byte) (value >> 8);
-        byteByffer.array[start + index * 2 + 1] = (byte) value;
+        ByteArrayAccess.putShort(byteByffer.array, start + index * 2, (short) value, true);
     }
 
     @Override
@@ -46,6 +45,6 @@ class TCharBufferOverByteBufferBigEndian extends TCharBufferOverByteBuffer {
 
     @Override
     public TByteOrder order() {
-        return TByteOrder.LITTLE_ENDIAN;
+        return TByteOrder.BIG_ENDIAN;
     }
 }
@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -27,20 +29,17 @@ class TCharBufferOverByteBufferLittleEndian extends TCharBufferOverByteBuffer {
 
     @Override
     char getChar(int index) {
-        int value = ((byteByffer.array[start + index * 2 + 1] & 0xFF) << 8)
-                | (byteByffer.array[start + index * 2] & 0xFF);
-        return (char) value;
+        return (char) ByteArrayAccess.getShort(byteByffer.array, start + index * 2, false);
     }
 
     @Override
     void putChar(int index, char value) {
-        byteByffer.array[start + index * 2] = (byte) value;
-        byteByffer.array[start + index * 2 + 1] = (byte) (value >> 8);
+        ByteArrayAccess.putShort(byteByffer.array, start + index * 2, (short) value, false);
     }
 
     @Override
     public TByteOrder order() {
-        return TByteOrder.BIG_ENDIAN;
+        return TByteOrder.LITTLE_ENDIAN;
     }
 
     @Override
@@ -59,6 +59,18 @@ public abstract class TFloatBuffer extends TBuffer implements Comparable<TFloatB
 
     abstract void putElement(int index, float value);
 
+    void getElements(int index, float[] dst, int offset, int length) {
+        for (int i = 0; i < length; ++i) {
+            dst[offset++] = getElement(index++);
+        }
+    }
+
+    void putElements(int index, float[] src, int offset, int length) {
+        for (int i = 0; i < length; ++i) {
+            putElement(index++, src[offset++]);
+        }
+    }
+
     public TFloatBuffer get(float[] dst, int offset, int length) {
         if (offset < 0 || offset >= dst.length) {
             throw new IndexOutOfBoundsException("Offset " + offset + " is outside of range [0;" + dst.length + ")");
@@ -73,10 +85,7 @@ public abstract class TFloatBuffer extends TBuffer implements Comparable<TFloatB
         if (length < 0) {
             throw new IndexOutOfBoundsException("Length " + length + " must be non-negative");
         }
-        int pos = position;
-        for (int i = 0; i < length; ++i) {
-            dst[offset++] = getElement(pos++);
-        }
+        getElements(position, dst, offset, length);
         position += length;
         return this;
     }
@@ -119,10 +128,7 @@ public abstract class TFloatBuffer extends TBuffer implements Comparable<TFloatB
         if (length < 0) {
             throw new IndexOutOfBoundsException("Length " + length + " must be non-negative");
         }
-        int pos = position;
-        for (int i = 0; i < length; ++i) {
-            putElement(pos++, src[offset++]);
-        }
+        putElements(position, src, offset, length);
         position += length;
         return this;
     }
@@ -50,6 +50,16 @@ class TFloatBufferOverArray extends TFloatBufferImpl {
         array[index + start] = value;
     }
 
+    @Override
+    void getElements(int index, float[] dst, int offset, int length) {
+        System.arraycopy(array, start + index, dst, offset, length);
+    }
+
+    @Override
+    void putElements(int index, float[] src, int offset, int length) {
+        System.arraycopy(src, offset, array, start + index, length);
+    }
+
     @Override
     boolean isArrayPresent() {
         return true;
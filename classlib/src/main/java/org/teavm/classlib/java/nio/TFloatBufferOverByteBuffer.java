@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -32,6 +34,18 @@ abstract class TFloatBufferOverByteBuffer extends TFloatBufferImpl {
         this.readOnly = readOnly;
     }
 
+    @Override
+    void getElements(int index, float[] dst, int offset, int length) {
+        ByteArrayAccess.getFloats(byteByffer.array, start + index * 4, dst, offset, length,
+                order() == TByteOrder.BIG_ENDIAN);
+    }
+
+    @Override
+    void putElements(int index, float[] src, int offset, int length) {
+        ByteArrayAccess.putFloats(byteByffer.array, start + index * 4, src, offset, length,
+                order() == TByteOrder.BIG_ENDIAN);
+    }
+
     @Override
     boolean isArrayPresent() {
         return false;
@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -33,20 +35,12 @@ class TFloatBufferOverByteBufferBigEndian extends TFloatBufferOverByteBuffer {
 
     @Override
     float getElement(int index) {
-        int value = (byteByffer.array[start + index * 4] & 0xFF)
-                | ((byteByffer.array[start + index * 4 + 1] & 0xFF) << 8)
-                | ((byteByffer.array[start + index * 4 + 2] & 0xFF) << 16)
-                | ((byteByffer.array[start + index * 4 + 3] & 0xFF) << 24);
-        return Float.intBitsToFloat(value);
+        return ByteArrayAccess.getFloat(byteByffer.array, start + index * 4, true);
     }
 
     @Override
-    void putElement(int index, float f) {
-        int value = Float.floatToIntBits(f);
-        byteByffer.array[start + index * 4] = (byte) value;
-        byteByffer.array[start + index * 4 + 1] = (byte) (value >> 8);
-        byteByffer.array[start + index * 4 + 2] = (byte) (value >> 16);
-        byteByffer.array[start + index * 4 + 3] = (byte) (value >> 24);
+    void putElement(int index, float value) {
+        ByteArrayAccess.putFloat(byteByffer.array, start + index * 4, value, true);
     }
 
     @Override
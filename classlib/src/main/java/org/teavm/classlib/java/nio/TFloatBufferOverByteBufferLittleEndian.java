@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -33,20 +35,12 @@ class TFloatBufferOverByteBufferLittleEndian extends TFloatBufferOverByteBuffer
 
     @Override
     float getElement(int index) {
-        int value = ((byteByffer.array[start + index * 4] & 0xFF) << 24)
-                | ((byteByffer.array[start + index * 4 + 1] & 0xFF) << 16)
-                | ((byteByffer.array[start + index * 4 + 2] & 0xFF) << 8)
-                | (byteByffer.array[start + index * 4 + 3] & 0xFF);
-        return Float.intBitsToFloat(value);
+        return ByteArrayAccess.getFloat(byteByffer.array, start + index * 4, false);
     }
 
     @Override
-    void putElement(int index, float f) {
-        int value = Float.floatToIntBits(f);
-        byteByffer.array[start + index * 4] = (byte) (value >> 24);
-        byteByffer.array[start + index * 4 + 1] = (byte) (value >> 16);
-        byteByffer.array[start + index * 4 + 2] = (byte) (value >> 8);
-        byteByffer.array[start + index * 4 + 3] = (byte) value;
+    void putElement(int index, float value) {
+        ByteArrayAccess.putFloat(byteByffer.array, start + index * 4, value, false);
     }
 
     @Override
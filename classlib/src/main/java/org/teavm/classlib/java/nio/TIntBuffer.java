@@ -59,6 +59,18 @@ public abstract class TIntBuffer extends TBuffer implements Comparable<TIntBuffe
 
     abstract void putElement(int index, int value);
 
+    void getElements(int index, int[] dst, int offset, int length) {
+        for (int i = 0; i < length; ++i) {
+            dst[offset++] = getElement(index++);
+        }
+    }
+
+    void putElements(int index, int[] src, int offset, int length) {
+        for (int i = 0; i < length; ++i) {
+            putElement(index++, src[offset++]);
+        }
+    }
+
     public TIntBuffer get(int[] dst, int offset, int length) {
         if (offset < 0 || offset >= dst.length) {
             throw new IndexOutOfBoundsException("Offset " + offset + " is outside of range [0;" + dst.length + ")");
@@ -73,10 +85,7 @@ public abstract class TIntBuffer extends TBuffer implements Comparable<TIntBuffe
         if (length < 0) {
             throw new IndexOutOfBoundsException("Length " + length + " must be non-negative");
         }
-        int pos = position;
-        for (int i = 0; i < length; ++i) {
-            dst[offset++] = getElement(pos++);
-        }
+        getElements(position, dst, offset, length);
         position += length;
         return this;
     }
@@ -119,10 +128,7 @@ public abstract class TIntBuffer extends TBuffer implements Comparable<TIntBuffe
         if (length < 0) {
             throw new IndexOutOfBoundsException("Length " + length + " must be non-negative");
         }
-        int pos = position;
-        for (int i = 0; i < length; ++i) {
-            putElement(pos++, src[offset++]);
-        }
+        putElements(position, src, offset, length);
         position += length;
         return this;
     }
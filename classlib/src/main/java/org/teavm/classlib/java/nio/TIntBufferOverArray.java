@@ -50,6 +50,16 @@ class TIntBufferOverArray extends TIntBufferImpl {
         array[index + start] = value;
     }
 
+    @Override
+    void getElements(int index, int[] dst, int offset, int length) {
+        System.arraycopy(array, start + index, dst, offset, length);
+    }
+
+    @Override
+    void putElements(int index, int[] src, int offset, int length) {
+        System.arraycopy(src, offset, array, start + index, length);
+    }
+
     @Override
     boolean isArrayPresent() {
         return true;
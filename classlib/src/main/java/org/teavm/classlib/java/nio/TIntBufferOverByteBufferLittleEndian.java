@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -33,18 +35,12 @@ class TIntBufferOverByteBufferLittleEndian extends TIntBufferOverByteBuffer {
 
     @Override
     int getElement(int index) {
-        return (byteByffer.array[start + index * 4] & 0xFF)
-                | ((byteByffer.array[start + index * 4 + 1] & 0xFF) << 8)
-                | ((byteByffer.array[start + index * 4 + 2] & 0xFF) << 16)
-                | ((byteByffer.array[start + index * 4 + 3] & 0xFF) << 24);
+        return ByteArrayAccess.getInt(byteByffer.array, start + index * 4, false);
     }
 
     @Override
     void putElement(int index, int value) {
-        byteByffer.array[start + index * 4] = (byte) value;
-        byteByffer.array[start + index * 4 + 1] = (byte) (value >> 8);
-        byteByffer.array[start + index * 4 + 2] = (byte) (value >> 16);
-        byteByffer.array[start + index * 4 + 3] = (byte) (value >> 24);
+        ByteArrayAccess.putInt(byteByffer.array, start + index * 4, value, false);
     }
 
     @Override
@@ -15,6 +15,8 @@
  */
 package org.teavm.classlib.java.nio;
 
+import org.teavm.classlib.impl.nio.ByteArrayAccess;
+
 /**
  *
  * @author Alexey Andreev
@@ -33,15 +35,12 @@ class TShortBufferOverByteBufferLittleEndian extends TShortBufferOverByteBuffer
 
     @Override
     short getElement(int index) {
-        int value = (byteByffer.array[start + index * 2] & 0xFF)
-                | ((byteByffer.array[start + index * 2 + 1] & 0xFF) << 8);
-        return (short) value;
+        return ByteArrayAccess.getShort(byteByffer.array, start + index * 2, false);
     }
 
     @Override
     void putElement(int index, short value) {
-        byteByffer.array[start + index * 2] = (byte) value;
-        byteByffer.array[start + index * 2 + 1] = (byte) (value >> 8);
+        ByteArrayAccess.putShort(byteByffer.array, start + index * 2, value, false);
     }
 
     @Override
@@ -18,6 +18,9 @@ package org.teavm.classlib.java.nio.charset;
 import java.util.*;
 import org.teavm.classlib.java.nio.TByteBuffer;
 import org.teavm.classlib.java.nio.TCharBuffer;
+import org.teavm.classlib.java.nio.charset.impl.TBulkCharset;
+import org.teavm.classlib.java.nio.charset.impl.TLatin1Charset;
+import org.teavm.classlib.java.nio.charset.impl.TUTF16Charset;
 import org.teavm.classlib.java.nio.charset.impl.TUTF8Charset;
 
 /**
@@ -28,11 +31,7 @@ public abstract class TCharset implements Comparable<TCharset> {
     private String canonicalName;
     private String[] aliases;
     private Set<String> aliasSet;
-    private static final Map<String, TCharset> charsets = new HashMap<>();
-
-    static {
-        charsets.put("UTF-8", new TUTF8Charset());
-    }
+    private static Map<String, TCharset> charsets;
 
     protected TCharset(String canonicalName, String[] aliases) {
         checkCanonicalName(canonicalName);
@@ -77,13 +76,33 @@ public abstract class TCharset implements Comparable<TCharset> {
             throw new IllegalArgumentException("charsetName is null");
         }
         checkCanonicalName(charsetName);
-        TCharset charset = charsets.get(charsetName.toUpperCase());
+        TCharset charset = getCharsets().get(charsetName.toUpperCase());
         if (charset == null) {
             throw new TUnsupportedCharsetException(charsetName);
         }
         return charset;
     }
 
+    private static Map<String, TCharset> getCharsets() {
+        if (charsets == null) {
+            charsets = new HashMap<>();
+            register(TUTF8Charset.INSTANCE);
+            register(TLatin1Charset.INSTANCE);
+            register(TLatin1Charset.ASCII);
+            register(TUTF16Charset.INSTANCE);
+            register(TUTF16Charset.BIG_ENDIAN);
+            register(TUTF16Charset.LITTLE_ENDIAN);
+        }
+        return charsets;
+    }
+
+    private static void register(TCharset charset) {
+        charsets.put(charset.canonicalName.toUpperCase(), charset);
+        for (String alias : charset.aliases) {
+            charsets.put(alias.toUpperCase(), charset);
+        }
+    }
+
     public final String name() {
         return canonicalName;
     }
@@ -114,6 +133,12 @@ public abstract class TCharset implements Comparable<TCharset> {
     }
 
     public final TCharBuffer decode(TByteBuffer bb) {
+        if (this instanceof TBulkCharset && bb.hasArray() && !bb.isReadOnly()) {
+            char[] chars = ((TBulkCharset) this).decodeArray(bb.array(), bb.arrayOffset() + bb.position(),
+                    bb.remaining());
+            bb.position(bb.limit());
+            return TCharBuffer.wrap(chars);
+        }
         try {
             return newDecoder()
                     .onMalformedInput(TCodingErrorAction.REPLACE)
@@ -125,6 +150,12 @@ public abstract class TCharset implements Comparable<TCharset> {
     }
 
     public final TByteBuffer encode(TCharBuffer cb) {
+        if (this instanceof TBulkCharset && cb.hasArray() && !cb.isReadOnly()) {
+            byte[] bytes = ((TBulkCharset) this).encodeArray(cb.array(), cb.arrayOffset() + cb.position(),
+                    cb.remaining());
+            cb.position(cb.limit());
+            return TByteBuffer.wrap(bytes);
+        }
         try {
             return newEncoder()
                     .onMalformedInput(TCodingErrorAction.REPLACE)
@@ -136,6 +167,9 @@ public abstract class TCharset implements Comparable<TCharset> {
     }
 
     public final TByteBuffer encode(String str) {
+        if (this instanceof TBulkCharset) {
+            return TByteBuffer.wrap(((TBulkCharset) this).encodeArray(str.toCharArray(), 0, str.length()));
+        }
         return encode(TCharBuffer.wrap(str));
     }
 
@@ -0,0 +1,32 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.nio.charset;
+
+import org.teavm.classlib.java.nio.charset.impl.TLatin1Charset;
+import org.teavm.classlib.java.nio.charset.impl.TUTF16Charset;
+import org.teavm.classlib.java.nio.charset.impl.TUTF8Charset;
+
+public final class TStandardCharsets {
+    public static final TCharset US_ASCII = TLatin1Charset.ASCII;
+    public static final TCharset ISO_8859_1 = TLatin1Charset.INSTANCE;
+    public static final TCharset UTF_8 = TUTF8Charset.INSTANCE;
+    public static final TCharset UTF_16BE = TUTF16Charset.BIG_ENDIAN;
+    public static final TCharset UTF_16LE = TUTF16Charset.LITTLE_ENDIAN;
+    public static final TCharset UTF_16 = TUTF16Charset.INSTANCE;
+
+    private TStandardCharsets() {
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.nio.charset.impl;
+
+import org.teavm.classlib.java.nio.charset.TCharset;
+
+/**
+ * <p>Charset that converts whole arrays in a single pass, without intermediate buffers of decoder and encoder.
+ * String constructors, {@link String#getBytes()} and {@link TCharset#decode}/{@link TCharset#encode} take
+ * this path for array-backed input.</p>
+ *
+ * <p>Results must be exactly the same as decoder and encoder produce when malformed input and unmappable
+ * characters are replaced.</p>
+ */
+public abstract class TBulkCharset extends TCharset {
+    protected static final char REPLACEMENT_CHAR = '\uFFFD';
+
+    protected TBulkCharset(String canonicalName, String[] aliases) {
+        super(canonicalName, aliases);
+    }
+
+    public abstract char[] decodeArray(byte[] bytes, int offset, int length);
+
+    public abstract byte[] encodeArray(char[] chars, int offset, int length);
+}
@@ -0,0 +1,82 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.nio.charset.impl;
+
+import java.util.Arrays;
+import org.teavm.classlib.java.nio.charset.TCharset;
+import org.teavm.classlib.java.nio.charset.TCharsetDecoder;
+import org.teavm.classlib.java.nio.charset.TCharsetEncoder;
+
+/**
+ * ISO-8859-1 charset, as well as US-ASCII, which is its 7-bit subset.
+ */
+public class TLatin1Charset extends TBulkCharset {
+    public static final TLatin1Charset INSTANCE = new TLatin1Charset("ISO-8859-1", new String[] { "ISO8859_1",
+            "ISO_8859_1", "ISO_8859-1", "ISO8859-1", "8859_1", "latin1", "l1", "cp819" }, 0xFF);
+    public static final TLatin1Charset ASCII = new TLatin1Charset("US-ASCII", new String[] { "ASCII", "ASCII7",
+            "ISO646-US", "default", "cp367", "us" }, 0x7F);
+    private int maxChar;
+
+    private TLatin1Charset(String canonicalName, String[] aliases, int maxChar) {
+        super(canonicalName, aliases);
+        this.maxChar = maxChar;
+    }
+
+    @Override
+    public boolean contains(TCharset cs) {
+        return cs instanceof TLatin1Charset && ((TLatin1Charset) cs).maxChar <= maxChar;
+    }
+
+    @Override
+    public TCharsetDecoder newDecoder() {
+        return new TLatin1Decoder(this, maxChar);
+    }
+
+    @Override
+    public TCharsetEncoder newEncoder() {
+        return new TLatin1Encoder(this, maxChar);
+    }
+
+    @Override
+    public char[] decodeArray(byte[] bytes, int offset, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i) {
+            int b = bytes[offset + i] & 0xFF;
+            chars[i] = b <= maxChar ? (char) b : REPLACEMENT_CHAR;
+        }
+        return chars;
+    }
+
+    @Override
+    public byte[] encodeArray(char[] chars, int offset, int length) {
+        byte[] bytes = new byte[length];
+        int end = offset + length;
+        int pos = 0;
+        for (int i = offset; i < end; ++i) {
+            char c = chars[i];
+            if (c <= maxChar) {
+                bytes[pos++] = (byte) c;
+            } else {
+                // Surrogate pair is a single unmappable character
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                    ++i;
+                }
+                bytes[pos++] = '?';
+            }
+        }
+        return pos == length ? bytes : Arrays.copyOf(bytes, pos);
+    }
+}
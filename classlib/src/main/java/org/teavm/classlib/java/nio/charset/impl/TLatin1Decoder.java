@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.nio.charset.impl;
+
+import org.teavm.classlib.java.nio.charset.TCharset;
+import org.teavm.classlib.java.nio.charset.TCoderResult;
+
+public class TLatin1Decoder extends TBufferedDecoder {
+    private int maxChar;
+
+    public TLatin1Decoder(TCharset cs, int maxChar) {
+        super(cs, 1, 1);
+        this.maxChar = maxChar;
+    }
+
+    @Override
+    protected TCoderResult arrayDecode(byte[] inArray, int inPos, int inSize, char[] outArray, int outPos, int outSize,
+            Controller controller) {
+        TCoderResult result = null;
+        while (inPos < inSize && outPos < outSize) {
+            int b = inArray[inPos] & 0xFF;
+            if (b > maxChar) {
+                result = TCoderResult.malformedForLength(1);
+                break;
+            }
+            outArray[outPos++] = (char) b;
+            ++inPos;
+        }
+        controller.setInPosition(inPos);
+        controller.setOutPosition(outPos);
+        return result;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.nio.charset.impl;
+
+import java.util.Arrays;
+import org.teavm.classlib.impl.nio.NativeTextCodec;
+import org.teavm.classlib.java.nio.charset.TCharset;
+import org.teavm.classlib.java.nio.charset.TCharsetDecoder;
+import org.teavm.classlib.java.nio.charset.TCharsetEncoder;
+
+/**
+ * UTF-16 charsets. When byte order is not fixed by charset name, decoder detects it by byte order mark
+ * and falls back to big-endian, while encoder writes big-endian byte order mark.
+ */
+public class TUTF16Charset extends TBulkCharset {
+    public static final TUTF16Charset INSTANCE = new TUTF16Charset("UTF-16", new String[] { "UTF_16", "UTF16",
+            "unicode" }, true, true);
+    public static final TUTF16Charset BIG_ENDIAN = new TUTF16Charset("UTF-16BE", new String[] { "UTF_16BE",
+            "X-UTF-16BE", "UnicodeBigUnmarked" }, true, false);
+    public static final TUTF16Charset LITTLE_ENDIAN = new TUTF16Charset("UTF-16LE", new String[] { "UTF_16LE",
+            "X-UTF-16LE", "UnicodeLittleUnmarked" }, false, false);
+    private boolean bigEndian;
+    private boolean byteOrderMark;
+
+    private TUTF16Charset(String canonicalName, String[] aliases, boolean bigEndian, boolean byteOrderMark) {
+        super(canonicalName, aliases);
+        this.bigEndian = bigEndian;
+        this.byteOrderMark = byteOrderMark;
+    }
+
+    @Override
+    public boolean contains(TCharset cs) {
+        return cs instanceof TUTF16Charset || cs instanceof TUTF8Charset || cs instanceof TLatin1Charset;
+    }
+
+    @Override
+    public TCharsetDecoder newDecoder() {
+        return new TUTF16Decoder(this, bigEndian, byteOrderMark);
+    }
+
+    @Override
+    public TCharsetEncoder newEncoder() {
+        return new TUTF16Encoder(this, bigEndian, byteOrderMark);
+    }
+
+    @Override
+    public char[] decodeArray(byte[] bytes, int offset, int length) {
+        int pos = offset;
+        int end = offset + length;
+        boolean bigEndian = this.bigEndian;
+        if (byteOrderMark && length >= 2) {
+            int b1 = bytes[pos] & 0xFF;
+            int b2 = bytes[pos + 1] & 0xFF;
+            if (b1 == 0xFE && b2 == 0xFF) {
+                pos += 2;
+            } else if (b1 == 0xFF && b2 == 0xFE) {
+                bigEndian = false;
+                pos += 2;
+            }
+        }
+
+        if (end - pos >= NativeTextCodec.THRESHOLD && NativeTextCodec.isAvailable()) {
+            char[] chars = NativeTextCodec.decodeUTF16(bytes, pos, end - pos, bigEndian);
+            if (chars != null) {
+                return chars;
+            }
+        }
+
+        // Each two bytes produce at most one character, unpaired trailing byte is replaced by a character
+        char[] chars = new char[(end - pos + 1) / 2];
+        int charCount = 0;
+        while (end - pos >= 2) {
+            char c = TUTF16Decoder.unit(bytes, pos, bigEndian);
+            pos += 2;
+            if (!Character.isSurrogate(c)) {
+                chars[charCount++] = c;
+            } else if (Character.isLowSurrogate(c)) {
+                chars[charCount++] = REPLACEMENT_CHAR;
+            } else if (end - pos < 2) {
+                // Truncated surrogate pair is replaced together with trailing byte
+                pos = end - 1;
+                break;
+            } else {
+                char low = TUTF16Decoder.unit(bytes, pos, bigEndian);
+                pos += 2;
+                if (Character.isLowSurrogate(low)) {
+                    chars[charCount++] = c;
+                    chars[charCount++] = low;
+                } else {
+                    chars[charCount++] = REPLACEMENT_CHAR;
+                }
+            }
+        }
+        if (pos < end) {
+            chars[charCount++] = REPLACEMENT_CHAR;
+        }
+        return charCount == chars.length ? chars : Arrays.copyOf(chars, charCount);
+    }
+
+    @Override
+    public byte[] encodeArray(char[] chars, int offset, int length) {
+        // Every character takes two bytes, including replacements of malformed surrogates
+        int pos = byteOrderMark && length > 0 ? 2 : 0;
+        byte[] bytes = new byte[pos + length * 2];
+        if (pos > 0) {
+            bytes[0] = (byte) 0xFE;
+            bytes[1] = (byte) 0xFF;
+        }
+        int end = offset + length;
+        for (int i = offset; i < end; ++i) {
+            char c = chars[i];
+            if (Character.isSurrogate(c)) {
+                if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                    TUTF16Encoder.putUnit(bytes, pos, c, bigEndian);
+                    c = chars[++i];
+                    pos += 2;
+                } else {
+                    c = REPLACEMENT_CHAR;
+                }
+            }
+            TUTF16Encoder.putUnit(bytes, pos, c, bigEndian);
+            pos += 2;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.nio.charset.impl;
+
+import org.teavm.classlib.java.nio.charset.TCharset;
+import org.teavm.classlib.java.nio.charset.TCoderResult;
+
+public class TUTF16Decoder extends TBufferedDecoder {
+    private boolean defaultBigEndian;
+    private boolean byteOrderMark;
+    private boolean bigEndian;
+    private boolean byteOrderKnown;
+
+    public TUTF16Decoder(TCharset cs, boolean bigEndian, boolean byteOrderMark) {
+        super(cs, 0.5f, 1);
+        this.defaultBigEndian = bigEndian;
+        this.byteOrderMark = byteOrderMark;
+        implReset();
+    }
+
+    @Override
+    protected TCoderResult arrayDecode(byte[] inArray, int inPos, int inSize, char[] outArray, int outPos, int outSize,
+            Controller controller) {
+        TCoderResult result = null;
+        if (!byteOrderKnown && inSize - inPos >= 2) {
+            int b1 = inArray[inPos] & 0xFF;
+            int b2 = inArray[inPos + 1] & 0xFF;
+            if (b1 == 0xFE && b2 == 0xFF) {
+                inPos += 2;
+            } else if (b1 == 0xFF && b2 == 0xFE) {
+                bigEndian = false;
+                inPos += 2;
+            }
+            byteOrderKnown = true;
+        }
+
+        while (byteOrderKnown && inSize - inPos >= 2 && outPos < outSize) {
+            char c = unit(inArray, inPos, bigEndian);
+            if (!Character.isSurrogate(c)) {
+                outArray[outPos++] = c;
+                inPos += 2;
+            } else if (Character.isLowSurrogate(c)) {
+                result = TCoderResult.malformedForLength(2);
+                break;
+            } else if (inSize - inPos < 4) {
+                if (!controller.hasMoreInput()) {
+                    result = TCoderResult.UNDERFLOW;
+                }
+                break;
+            } else {
+                char low = unit(inArray, inPos + 2, bigEndian);
+                if (!Character.isLowSurrogate(low)) {
+                    result = TCoderResult.malformedForLength(4);
+                    break;
+                }
+                if (outPos + 2 > outSize) {
+                    if (!controller.hasMoreOutput(2)) {
+                        result = TCoderResult.OVERFLOW;
+                    }
+                    break;
+                }
+                outArray[outPos++] = c;
+                outArray[outPos++] = low;
+                inPos += 4;
+            }
+        }
+
+        controller.setInPosition(inPos);
+        controller.setOutPosition(outPos);
+        return result;
+    }
+
+    @Override
+    protected void implReset() {
+        bigEndian = defaultBigEndian;
+        byteOrderKnown = !byteOrderMark;
+    }
+
+    static char unit(byte[] bytes, int pos, boolean bigEndian) {
+        int b1 = bytes[pos] & 0xFF;
+        int b2 = bytes[pos + 1] & 0xFF;
+        return bigEndian ? (char) ((b1 << 8) | b2) : (char) ((b2 << 8) | b1);
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.nio.charset.impl;
+
+import org.teavm.classlib.java.nio.charset.TCharset;
+import org.teavm.classlib.java.nio.charset.TCoderResult;
+
+public class TUTF16Encoder extends TBufferedEncoder {
+    private boolean bigEndian;
+    private boolean byteOrderMark;
+    private boolean byteOrderMarkWritten;
+
+    public TUTF16Encoder(TCharset cs, boolean bigEndian, boolean byteOrderMark) {
+        super(cs, 2, 2, bigEndian ? new byte[] { (byte) 0xFF, (byte) 0xFD } : new byte[] { (byte) 0xFD, (byte) 0xFF });
+        this.bigEndian = bigEndian;
+        this.byteOrderMark = byteOrderMark;
+    }
+
+    @Override
+    protected TCoderResult arrayEncode(char[] inArray, int inPos, int inSize, byte[] outArray, int outPos, int outSize,
+            Controller controller) {
+        TCoderResult result = null;
+        while (inPos < inSize && outPos < outSize) {
+            int required = byteOrderMark && !byteOrderMarkWritten ? 4 : 2;
+            if (outPos + required > outSize) {
+                if (!controller.hasMoreOutput(required)) {
+                    result = TCoderResult.OVERFLOW;
+                }
+                break;
+            }
+            if (required == 4) {
+                putUnit(outArray, outPos, '\uFEFF', bigEndian);
+                outPos += 2;
+                byteOrderMarkWritten = true;
+            }
+
+            char c = inArray[inPos];
+            if (!Character.isSurrogate(c)) {
+                putUnit(outArray, outPos, c, bigEndian);
+                outPos += 2;
+                ++inPos;
+            } else if (Character.isLowSurrogate(c)) {
+                result = TCoderResult.malformedForLength(1);
+                break;
+            } else if (inPos + 1 >= inSize) {
+                if (!controller.hasMoreInput()) {
+                    result = TCoderResult.UNDERFLOW;
+                }
+                break;
+            } else {
+                char low = inArray[inPos + 1];
+                if (!Character.isLowSurrogate(low)) {
+                    result = TCoderResult.malformedForLength(1);
+                    break;
+                }
+                if (outPos + 4 > outSize) {
+                    if (!controller.hasMoreOutput(4)) {
+                        result = TCoderResult.OVERFLOW;
+                    }
+                    break;
+                }
+                putUnit(outArray, outPos, c, bigEndian);
+                putUnit(outArray, outPos + 2, low, bigEndian);
+                outPos += 4;
+                inPos += 2;
+            }
+        }
+
+        controller.setInPosition(inPos);
+        controller.setOutPosition(outPos);
+        return result;
+    }
+
+    @Override
+    protected void implReset() {
+        byteOrderMarkWritten = false;
+    }
+
+    static void putUnit(byte[] bytes, int pos, char c, boolean bigEndian) {
+        if (bigEndian) {
+            bytes[pos] = (byte) (c >> 8);
+            bytes[pos + 1] = (byte) c;
+        } else {
+            bytes[pos] = (byte) c;
+            bytes[pos + 1] = (byte) (c >> 8);
+        }
+    }
+}
@@ -15,22 +15,22 @@
  */
 package org.teavm.classlib.java.nio.charset.impl;
 
+import java.util.Arrays;
+import org.teavm.classlib.impl.nio.NativeTextCodec;
 import org.teavm.classlib.java.nio.charset.TCharset;
 import org.teavm.classlib.java.nio.charset.TCharsetDecoder;
 import org.teavm.classlib.java.nio.charset.TCharsetEncoder;
 
-/**
- *
- * @author Alexey Andreev
- */
-public class TUTF8Charset extends TCharset {
+public class TUTF8Charset extends TBulkCharset {
+    public static final TUTF8Charset INSTANCE = new TUTF8Charset();
+
     public TUTF8Charset() {
-        super("UTF-8", new String[0]);
+        super("UTF-8", new String[] { "UTF8" });
     }
 
     @Override
     public boolean contains(TCharset cs) {
-        return cs == this;
+        return cs instanceof TUTF8Charset || cs instanceof TUTF16Charset || cs instanceof TLatin1Charset;
     }
 
     @Override
@@ -42,4 +42,109 @@ public class TUTF8Charset extends TCharset {
     public TCharsetEncoder newEncoder() {
         return new TUTF8Encoder(this);
     }
+
+    @Override
+    public char[] decodeArray(byte[] bytes, int offset, int length) {
+        if (length >= NativeTextCodec.THRESHOLD && NativeTextCodec.isAvailable()) {
+            char[] chars = NativeTextCodec.decodeUTF8(bytes, offset, length);
+            if (chars != null) {
+                return chars;
+            }
+        }
+
+        // UTF-8 never produces more characters than there are bytes, including replacements
+        char[] chars = new char[length];
+        int pos = offset;
+        int end = offset + length;
+        int charCount = 0;
+        while (pos < end) {
+            byte b = bytes[pos];
+            if (b >= 0) {
+                chars[charCount++] = (char) b;
+                ++pos;
+                continue;
+            }
+            int sequenceLength = TUTF8Decoder.checkSequence(bytes, pos, end);
+            if (sequenceLength > 0) {
+                charCount = TUTF8Decoder.decodeSequence(bytes, pos, sequenceLength, chars, charCount);
+                pos += sequenceLength;
+            } else {
+                chars[charCount++] = REPLACEMENT_CHAR;
+                if (sequenceLength == 0) {
+                    break;
+                }
+                pos -= sequenceLength;
+            }
+        }
+        return charCount == length ? chars : Arrays.copyOf(chars, charCount);
+    }
+
+    @Override
+    public byte[] encodeArray(char[] chars, int offset, int length) {
+        int end = offset + length;
+        int asciiEnd = offset;
+        while (asciiEnd < end && chars[asciiEnd] < 0x80) {
+            ++asciiEnd;
+        }
+        if (asciiEnd == end) {
+            byte[] bytes = new byte[length];
+            for (int i = 0; i < length; ++i) {
+                bytes[i] = (byte) chars[offset + i];
+            }
+            return bytes;
+        }
+
+        // Compute exact size first, so that the result does not have to be copied
+        int size = asciiEnd - offset;
+        boolean malformed = false;
+        for (int i = asciiEnd; i < end; ++i) {
+            char c = chars[i];
+            if (c < 0x80) {
+                size++;
+            } else if (c < 0x800) {
+                size += 2;
+            } else if (!Character.isSurrogate(c)) {
+                size += 3;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                size += 4;
+                ++i;
+            } else {
+                size++;
+                malformed = true;
+            }
+        }
+
+        byte[] bytes = new byte[size];
+        if (!malformed && length >= NativeTextCodec.THRESHOLD && NativeTextCodec.isAvailable()) {
+            NativeTextCodec.encodeUTF8(chars, offset, length, bytes);
+            return bytes;
+        }
+
+        int pos = 0;
+        for (int i = offset; i < asciiEnd; ++i) {
+            bytes[pos++] = (byte) chars[i];
+        }
+        for (int i = asciiEnd; i < end; ++i) {
+            char c = chars[i];
+            if (c < 0x80) {
+                bytes[pos++] = (byte) c;
+            } else if (c < 0x800) {
+                bytes[pos++] = (byte) (0xC0 | (c >> 6));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (!Character.isSurrogate(c)) {
+                bytes[pos++] = (byte) (0xE0 | (c >> 12));
+                bytes[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(chars[i + 1])) {
+                int codePoint = Character.toCodePoint(c, chars[++i]);
+                bytes[pos++] = (byte) (0xF0 | (codePoint >> 18));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                bytes[pos++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                bytes[pos++] = '?';
+            }
+        }
+        return bytes;
+    }
 }
@@ -24,7 +24,7 @@ import org.teavm.classlib.java.nio.charset.TCoderResult;
  */
 public class TUTF8Decoder extends TBufferedDecoder {
     public TUTF8Decoder(TCharset cs) {
-        super(cs, 1f / 3, 0.5f);
+        super(cs, 1, 1);
     }
 
     @Override
@@ -32,77 +32,31 @@ public class TUTF8Decoder extends TBufferedDecoder {
             Controller controller) {
         TCoderResult result = null;
         while (inPos < inSize && outPos < outSize) {
-            int b = inArray[inPos++] & 0xFF;
-            if ((b & 0x80) == 0) {
+            byte b = inArray[inPos];
+            if (b >= 0) {
                 outArray[outPos++] = (char) b;
-            } else if ((b & 0xE0) == 0xC0) {
-                if (inPos >= inSize) {
-                    --inPos;
-                    if (!controller.hasMoreInput()) {
-                        result = TCoderResult.UNDERFLOW;
-                    }
-                    break;
-                }
-                byte b2 = inArray[inPos++];
-                if (!checkMidByte(b2)) {
-                    inPos -= 2;
-                    result = TCoderResult.malformedForLength(1);
-                    break;
-                }
-                outArray[outPos++] = (char) (((b & 0x1F) << 6) | (b2 & 0x3F));
-            } else if ((b & 0xF0) == 0xE0) {
-                if (inPos + 2 > inSize) {
-                    --inPos;
-                    if (!controller.hasMoreInput()) {
-                        result = TCoderResult.UNDERFLOW;
-                    }
-                    break;
-                }
-                byte b2 = inArray[inPos++];
-                byte b3 = inArray[inPos++];
-                if (!checkMidByte(b2) || !checkMidByte(b3)) {
-                    inPos -= 3;
-                    result = TCoderResult.malformedForLength(1);
-                    break;
-                }
-                char c = (char) (((b & 0x0F) << 12) | ((b2 & 0x3f) << 6) | (b3 & 0x3F));
-                if (Character.isSurrogate(c)) {
-                    inPos -= 3;
-                    result = TCoderResult.malformedForLength(3);
-                    break;
-                }
-                outArray[outPos++] = c;
-            } else if ((b & 0xF8) == 0xF0) {
-                if (inPos + 3 > inSize) {
-                    --inPos;
-                    if (!controller.hasMoreInput()) {
-                        result = TCoderResult.UNDERFLOW;
-                    }
-                    break;
-                }
-                if (outPos + 2 > outSize) {
-                    --inPos;
-                    if (!controller.hasMoreOutput(2)) {
-                        result = TCoderResult.OVERFLOW;
-                    }
-                    break;
+                ++inPos;
+                continue;
+            }
+            int length = checkSequence(inArray, inPos, inSize);
+            if (length < 0) {
+                result = TCoderResult.malformedForLength(-length);
+                break;
+            }
+            if (length == 0) {
+                if (!controller.hasMoreInput()) {
+                    result = TCoderResult.UNDERFLOW;
                 }
-                byte b2 = inArray[inPos++];
-                byte b3 = inArray[inPos++];
-                byte b4 = inArray[inPos++];
-                if (!checkMidByte(b2) || !checkMidByte(b3) || !checkMidByte(b4)) {
-                    inPos -= 3;
-                    result = TCoderResult.malformedForLength(1);
-                    break;
+                break;
+            }
+            if (length == 4 && outPos + 2 > outSize) {
+                if (!controller.hasMoreOutput(2)) {
+                    result = TCoderResult.OVERFLOW;
                 }
-                int code = ((b & 0x07) << 18) | ((b2 & 0x3f) << 12) | ((b3 & 0x3F) << 6) | (b4 & 0x3F);
-                outArray[outPos++] = Character.highSurrogate(code);
-                outArray[outPos++] = Character.lowSurrogate(code);
-            } else {
-                --inPos;
-                result = TCoderResult.malformedForLength(1);
                 break;
             }
+            outPos = decodeSequence(inArray, inPos, length, outArray, outPos);
+            inPos += length;
         }
 
         controller.setInPosition(inPos);
@@ -110,7 +64,84 @@ public class TUTF8Decoder extends TBufferedDecoder {
         return result;
     }
 
-    private boolean checkMidByte(byte b) {
+    /**
+     * Validates multi-byte sequence that starts at the given position. Returns length of the sequence
+     * if it's well-formed, <code>0</code> if input ends before the sequence is complete, or negated length
+     * of malformed input that should be replaced, the same as reported by JDK.
+     */
+    static int checkSequence(byte[] in, int pos, int end) {
+        int b1 = in[pos] & 0xFF;
+        int remaining = end - pos;
+        if (b1 >= 0xC2 && b1 <= 0xDF) {
+            if (remaining < 2) {
+                return 0;
+            }
+            return isContinuation(in[pos + 1]) ? 2 : -1;
+        } else if ((b1 & 0xF0) == 0xE0) {
+            if (remaining < 2) {
+                return 0;
+            }
+            int b2 = in[pos + 1] & 0xFF;
+            if (!isContinuation(b2) || b1 == 0xE0 && b2 < 0xA0) {
+                return -1;
+            }
+            if (remaining < 3) {
+                return 0;
+            }
+            if (!isContinuation(in[pos + 2])) {
+                return -2;
+            }
+            if (b1 == 0xED && b2 >= 0xA0) {
+                return -3;
+            }
+            return 3;
+        } else if (b1 >= 0xF0 && b1 <= 0xF4) {
+            if (remaining < 2) {
+                return 0;
+            }
+            int b2 = in[pos + 1] & 0xFF;
+            if (!isContinuation(b2) || b1 == 0xF0 && b2 < 0x90 || b1 == 0xF4 && b2 >= 0x90) {
+                return -1;
+            }
+            if (remaining < 3) {
+                return 0;
+            }
+            if (!isContinuation(in[pos + 2])) {
+                return -2;
+            }
+            if (remaining < 4) {
+                return 0;
+            }
+            if (!isContinuation(in[pos + 3])) {
+                return -3;
+            }
+            return 4;
+        } else {
+            return -1;
+        }
+    }
+
+    static int decodeSequence(byte[] in, int pos, int length, char[] out, int outPos) {
+        int b1 = in[pos];
+        switch (length) {
+            case 2:
+                out[outPos++] = (char) (((b1 & 0x1F) << 6) | (in[pos + 1] & 0x3F));
+                break;
+            case 3:
+                out[outPos++] = (char) (((b1 & 0x0F) << 12) | ((in[pos + 1] & 0x3F) << 6) | (in[pos + 2] & 0x3F));
+                break;
+            default: {
+                int code = ((b1 & 0x07) << 18) | ((in[pos + 1] & 0x3F) << 12) | ((in[pos + 2] & 0x3F) << 6)
+                        | (in[pos + 3] & 0x3F);
+                out[outPos++] = Character.highSurrogate(code);
+                out[outPos++] = Character.lowSurrogate(code);
+                break;
+            }
+        }
+        return outPos;
+    }
+
+    private static boolean isContinuation(int b) {
         return (b & 0xC0) == 0x80;
     }
 }
@@ -58,6 +58,7 @@ public class TUTF8Encoder extends TBufferedEncoder {
                 outArray[outPos++] = (byte) (0x80 | (ch & 0x3F));
             } else if (Character.isHighSurrogate(ch)) {
                 if (inPos >= inSize) {
+                    --inPos;
                     if (!controller.hasMoreInput()) {
                         result = TCoderResult.UNDERFLOW;
                     }
@@ -82,6 +83,7 @@ public class TUTF8Encoder extends TBufferedEncoder {
                 outArray[outPos++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
                 outArray[outPos++] = (byte) (0x80 | (codePoint & 0x3F));
             } else {
+                --inPos;
                 result = TCoderResult.malformedForLength(1);
                 break;
             }
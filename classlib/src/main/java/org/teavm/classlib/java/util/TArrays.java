@@ -18,6 +18,7 @@ package org.teavm.classlib.java.util;
 import java.lang.reflect.Array;
 import java.util.Objects;
 import java.util.RandomAccess;
+import org.teavm.classlib.java.lang.TArrayIndexOutOfBoundsException;
 import org.teavm.classlib.java.lang.TClass;
 import org.teavm.classlib.java.lang.TComparable;
 import org.teavm.classlib.java.lang.TDouble;
@@ -29,6 +30,14 @@ import org.teavm.classlib.java.lang.TObject;
 import org.teavm.classlib.java.lang.TString;
 import org.teavm.classlib.java.lang.TStringBuilder;
 import org.teavm.classlib.java.lang.reflect.TArray;
+import org.teavm.classlib.java.util.stream.TDoubleStream;
+import org.teavm.classlib.java.util.stream.TIntStream;
+import org.teavm.classlib.java.util.stream.TLongStream;
+import org.teavm.classlib.java.util.stream.TStream;
+import org.teavm.classlib.java.util.stream.impl.TArrayDoubleStreamImpl;
+import org.teavm.classlib.java.util.stream.impl.TArrayIntStreamImpl;
+import org.teavm.classlib.java.util.stream.impl.TArrayLongStreamImpl;
+import org.teavm.classlib.java.util.stream.impl.TArrayStreamImpl;
 
 public class TArrays extends TObject {
     public static char[] copyOf(char[] array, int length) {
@@ -442,448 +451,79 @@ public class TArrays extends TObject {
     }
 
     public static void sort(int[] a, int fromIndex, int toIndex) {
-        int[] subarray = new int[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TDualPivotQuicksort.sort(a, fromIndex, toIndex);
     }
 
     public static void sort(int[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        int[] first = a;
-        int[] second = new int[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
-            }
-            int[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(int[] a, int[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            int p = a[from];
-            int q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        TDualPivotQuicksort.sort(a, 0, a.length);
     }
 
     public static void sort(long[] a, int fromIndex, int toIndex) {
-        long[] subarray = new long[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TDualPivotQuicksort.sort(a, fromIndex, toIndex);
     }
 
     public static void sort(long[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        long[] first = a;
-        long[] second = new long[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
-            }
-            long[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(long[] a, long[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            long p = a[from];
-            long q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        TDualPivotQuicksort.sort(a, 0, a.length);
     }
 
     public static void sort(short[] a, int fromIndex, int toIndex) {
-        short[] subarray = new short[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TDualPivotQuicksort.sort(a, fromIndex, toIndex);
     }
 
     public static void sort(short[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        short[] first = a;
-        short[] second = new short[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
-            }
-            short[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(short[] a, short[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            short p = a[from];
-            short q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        TDualPivotQuicksort.sort(a, 0, a.length);
     }
 
     public static void sort(char[] a, int fromIndex, int toIndex) {
-        char[] subarray = new char[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TDualPivotQuicksort.sort(a, fromIndex, toIndex);
     }
 
     public static void sort(char[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        char[] first = a;
-        char[] second = new char[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
-            }
-            char[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(char[] a, char[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            char p = a[from];
-            char q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        TDualPivotQuicksort.sort(a, 0, a.length);
     }
 
     public static void sort(byte[] a, int fromIndex, int toIndex) {
-        byte[] subarray = new byte[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TDualPivotQuicksort.sort(a, fromIndex, toIndex);
     }
 
     public static void sort(byte[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        byte[] first = a;
-        byte[] second = new byte[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
-            }
-            byte[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(byte[] a, byte[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            byte p = a[from];
-            byte q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        TDualPivotQuicksort.sort(a, 0, a.length);
     }
 
     public static void sort(float[] a, int fromIndex, int toIndex) {
-        float[] subarray = new float[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TDualPivotQuicksort.sort(a, fromIndex, toIndex);
     }
 
     public static void sort(float[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        float[] first = a;
-        float[] second = new float[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
-            }
-            float[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(float[] a, float[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            float p = a[from];
-            float q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        TDualPivotQuicksort.sort(a, 0, a.length);
     }
 
     public static void sort(double[] a, int fromIndex, int toIndex) {
-        double[] subarray = new double[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TDualPivotQuicksort.sort(a, fromIndex, toIndex);
     }
 
     public static void sort(double[] a) {
-        if (a.length == 0) {
-            return;
-        }
-        double[] first = a;
-        double[] second = new double[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize));
-            }
-            double[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(double[] a, double[] b, int from, int split, int to) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            double p = a[from];
-            double q = a[from2];
-            if (p <= q) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        TDualPivotQuicksort.sort(a, 0, a.length);
     }
 
     public static void sort(Object[] a) {
-        sort(a, new NaturalOrder());
+        sort(a, 0, a.length);
     }
 
     public static void sort(Object[] a, int fromIndex, int toIndex) {
-        sort(a, fromIndex, toIndex, new NaturalOrder());
+        sort(a, fromIndex, toIndex, null);
     }
 
     private static class NaturalOrder implements TComparator<Object> {
+        static final NaturalOrder INSTANCE = new NaturalOrder();
+
         @SuppressWarnings({ "rawtypes", "unchecked" })
         @Override public int compare(Object o1, Object o2) {
             if (o1 != null) {
@@ -897,67 +537,12 @@ public class TArrays extends TObject {
     }
 
     public static <T> void sort(T[] a, int fromIndex, int toIndex, TComparator<? super T> c) {
-        @SuppressWarnings("unchecked")
-        T[] subarray = (T[]) new Object[toIndex - fromIndex];
-        for (int i = fromIndex; i < toIndex; ++i) {
-            subarray[i - fromIndex] = a[i];
-        }
-        sort(subarray, c);
-        for (int i = fromIndex; i < toIndex; ++i) {
-            a[i] = subarray[i - fromIndex];
-        }
+        checkRange(a.length, fromIndex, toIndex);
+        TTimSort.sort(a, fromIndex, toIndex, c != null ? c : NaturalOrder.INSTANCE);
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> void sort(T[] a, TComparator<? super T> c) {
-        if (a.length == 0) {
-            return;
-        }
-        Object[] first = a;
-        Object[] second = new Object[a.length];
-        int chunkSize = 1;
-        while (chunkSize < a.length) {
-            for (int i = 0; i < first.length; i += chunkSize * 2) {
-                merge(first, second, i, Math.min(first.length, i + chunkSize),
-                        Math.min(first.length, i + 2 * chunkSize), (TComparator<Object>) c);
-            }
-            Object[] tmp = first;
-            first = second;
-            second = tmp;
-            chunkSize *= 2;
-        }
-        if (first != a) {
-            for (int i = 0; i < first.length; ++i) {
-                second[i] = first[i];
-            }
-        }
-    }
-
-    private static void merge(Object[] a, Object[] b, int from, int split, int to, TComparator<Object> comp) {
-        int index = from;
-        int from2 = split;
-        while (true) {
-            if (from == split) {
-                while (from2 < to) {
-                    b[index++] = a[from2++];
-                }
-                break;
-            } else if (from2 == to) {
-                while (from < split) {
-                    b[index++] = a[from++];
-                }
-                break;
-            }
-            Object p = a[from];
-            Object q = a[from2];
-            if (comp.compare(p, q) <= 0) {
-                b[index++] = p;
-                ++from;
-            } else {
-                b[index++] = q;
-                ++from2;
-            }
-        }
+        sort(a, 0, a.length, c);
     }
 
     public static int binarySearch(int[] a, int key) {
@@ -1517,6 +1102,51 @@ public class TArrays extends TObject {
         }
     }
 
+    public static <T> TStream<T> stream(T[] array) {
+        return new TArrayStreamImpl<>(array, 0, array.length);
+    }
+
+    public static <T> TStream<T> stream(T[] array, int startInclusive, int endExclusive) {
+        checkRange(array.length, startInclusive, endExclusive);
+        return new TArrayStreamImpl<>(array, startInclusive, endExclusive);
+    }
+
+    public static TIntStream stream(int[] array) {
+        return new TArrayIntStreamImpl(array, 0, array.length);
+    }
+
+    public static TIntStream stream(int[] array, int startInclusive, int endExclusive) {
+        checkRange(array.length, startInclusive, endExclusive);
+        return new TArrayIntStreamImpl(array, startInclusive, endExclusive);
+    }
+
+    public static TLongStream stream(long[] array) {
+        return new TArrayLongStreamImpl(array, 0, array.length);
+    }
+
+    public static TLongStream stream(long[] array, int startInclusive, int endExclusive) {
+        checkRange(array.length, startInclusive, endExclusive);
+        return new TArrayLongStreamImpl(array, startInclusive, endExclusive);
+    }
+
+    public static TDoubleStream stream(double[] array) {
+        return new TArrayDoubleStreamImpl(array, 0, array.length);
+    }
+
+    public static TDoubleStream stream(double[] array, int startInclusive, int endExclusive) {
+        checkRange(array.length, startInclusive, endExclusive);
+        return new TArrayDoubleStreamImpl(array, startInclusive, endExclusive);
+    }
+
+    private static void checkRange(int length, int startInclusive, int endExclusive) {
+        if (startInclusive < 0 || endExclusive > length) {
+            throw new TArrayIndexOutOfBoundsException();
+        }
+        if (startInclusive > endExclusive) {
+            throw new TIllegalArgumentException();
+        }
+    }
+
     public static TString deepToString(Object[] a) {
         TStringBuilder sb = new TStringBuilder();
         deepToString(a, sb, new TArrayList<Object[]>());
@@ -16,6 +16,8 @@
 package org.teavm.classlib.java.util;
 
 import org.teavm.classlib.java.lang.TIterable;
+import org.teavm.classlib.java.util.stream.TStream;
+import org.teavm.classlib.java.util.stream.impl.TCollectionStreamImpl;
 
 /**
  *
@@ -46,4 +48,12 @@ public interface TCollection<E> extends TIterable<E> {
     boolean retainAll(TCollection<?> c);
 
     void clear();
+
+    default TStream<E> stream() {
+        return new TCollectionStreamImpl<>(this);
+    }
+
+    default TStream<E> parallelStream() {
+        return stream();
+    }
 }
@@ -0,0 +1,1522 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+/**
+ * <p>Sorting algorithms for arrays of primitive types, used by {@link TArrays}. All of them sort in place.</p>
+ *
+ * <p>Arrays are sorted by dual-pivot quicksort, which partitions range into three parts around two pivots chosen
+ * from five sampled elements, and falls back to insertion sort for small ranges. When recursion gets too deep
+ * on adversarial input, heap sort is used instead, so the worst case is <code>O(n log n)</code>.
+ * Large arrays of bytes, chars and shorts are sorted by counting values.</p>
+ *
+ * <p>Floating-point values are ordered as {@link Double#compare(double, double)} does: <code>-0.0</code>
+ * goes before <code>0.0</code> and NaN goes after all other values.</p>
+ */
+final class TDualPivotQuicksort {
+    private static final int INSERTION_SORT_THRESHOLD = 47;
+    private static final int BYTE_COUNTING_SORT_THRESHOLD = 29;
+    private static final int CHAR_COUNTING_SORT_THRESHOLD = 3200;
+
+    private TDualPivotQuicksort() {
+    }
+
+    private static int depthLimit(int length) {
+        return 2 * (32 - Integer.numberOfLeadingZeros(length));
+    }
+
+    static void sort(int[] a, int from, int to) {
+        quicksort(a, from, to - 1, depthLimit(to - from));
+    }
+
+    private static void quicksort(int[] a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(a, left, right);
+                return;
+            }
+
+            // Take five evenly spaced elements around the middle and sort them
+            int length = right - left + 1;
+            int step = (length >> 3) + (length >> 6) + 1;
+            int e3 = (left + right) >>> 1;
+            int e2 = e3 - step;
+            int e1 = e2 - step;
+            int e4 = e3 + step;
+            int e5 = e4 + step;
+            sortFive(a, e1, e2, e3, e4, e5);
+
+            int less = left;
+            int great = right;
+            if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+                // Partition into three parts: less than pivot1, between pivots and greater than pivot2.
+                // Pivots are stored at the ends of the range, their elements will be scanned as usual
+                int pivot1 = a[e2];
+                int pivot2 = a[e4];
+                a[e2] = a[left];
+                a[e4] = a[right];
+                while (a[++less] < pivot1) {
+                    // skip elements that are already in place
+                }
+                while (a[--great] > pivot2) {
+                    // skip elements that are already in place
+                }
+                outer:
+                for (int k = less - 1; ++k <= great;) {
+                    int ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak > pivot2) {
+                        while (a[great] > pivot2) {
+                            if (great-- == k) {
+                                break outer;
+                            }
+                        }
+                        if (a[great] < pivot1) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                a[left] = a[less - 1];
+                a[less - 1] = pivot1;
+                a[right] = a[great + 1];
+                a[great + 1] = pivot2;
+
+                quicksort(a, left, less - 2, depth);
+                quicksort(a, great + 2, right, depth);
+
+                if (less < e1 && e5 < great) {
+                    // Middle part is too large, which means there are many elements equal to pivots.
+                    // Move them to the ends of the middle part, so that they are excluded from further sorting
+                    while (a[less] == pivot1) {
+                        ++less;
+                    }
+                    while (a[great] == pivot2) {
+                        --great;
+                    }
+                    outer:
+                    for (int k = less - 1; ++k <= great;) {
+                        int ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        } else if (ak == pivot2) {
+                            while (a[great] == pivot2) {
+                                if (great-- == k) {
+                                    break outer;
+                                }
+                            }
+                            if (a[great] == pivot1) {
+                                a[k] = a[less];
+                                a[less++] = a[great];
+                            } else {
+                                a[k] = a[great];
+                            }
+                            a[great--] = ak;
+                        }
+                    }
+                }
+                left = less;
+                right = great;
+            } else {
+                // Sampled elements are not distinct, so partition around single pivot into three parts:
+                // less than, equal to and greater than pivot
+                int pivot = a[e3];
+                for (int k = less; k <= great; ++k) {
+                    int ak = a[k];
+                    if (ak == pivot) {
+                        continue;
+                    }
+                    if (ak < pivot) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else {
+                        while (a[great] > pivot) {
+                            --great;
+                        }
+                        if (a[great] < pivot) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                quicksort(a, left, less - 1, depth);
+                left = great + 1;
+            }
+        }
+        insertionSort(a, left, right);
+    }
+
+    private static void sortFive(int[] a, int e1, int e2, int e3, int e4, int e5) {
+        int t;
+        if (a[e2] < a[e1]) {
+            t = a[e2];
+            a[e2] = a[e1];
+            a[e1] = t;
+        }
+        if (a[e3] < a[e2]) {
+            t = a[e3];
+            a[e3] = a[e2];
+            a[e2] = t;
+            if (t < a[e1]) {
+                a[e2] = a[e1];
+                a[e1] = t;
+            }
+        }
+        if (a[e4] < a[e3]) {
+            t = a[e4];
+            a[e4] = a[e3];
+            a[e3] = t;
+            if (t < a[e2]) {
+                a[e3] = a[e2];
+                a[e2] = t;
+                if (t < a[e1]) {
+                    a[e2] = a[e1];
+                    a[e1] = t;
+                }
+            }
+        }
+        if (a[e5] < a[e4]) {
+            t = a[e5];
+            a[e5] = a[e4];
+            a[e4] = t;
+            if (t < a[e3]) {
+                a[e4] = a[e3];
+                a[e3] = t;
+                if (t < a[e2]) {
+                    a[e3] = a[e2];
+                    a[e2] = t;
+                    if (t < a[e1]) {
+                        a[e2] = a[e1];
+                        a[e1] = t;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void heapSort(int[] a, int left, int right) {
+        int length = right - left + 1;
+        for (int i = length / 2 - 1; i >= 0; --i) {
+            siftDown(a, left, i, length);
+        }
+        while (--length > 0) {
+            int max = a[left];
+            a[left] = a[left + length];
+            a[left + length] = max;
+            siftDown(a, left, 0, length);
+        }
+    }
+
+    private static void siftDown(int[] a, int offset, int index, int length) {
+        int value = a[offset + index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && a[offset + child + 1] > a[offset + child]) {
+                ++child;
+            }
+            if (a[offset + child] <= value) {
+                break;
+            }
+            a[offset + index] = a[offset + child];
+            index = child;
+        }
+        a[offset + index] = value;
+    }
+
+    private static void insertionSort(int[] a, int left, int right) {
+        for (int i = left + 1; i <= right; ++i) {
+            int value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    static void sort(long[] a, int from, int to) {
+        quicksort(a, from, to - 1, depthLimit(to - from));
+    }
+
+    private static void quicksort(long[] a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(a, left, right);
+                return;
+            }
+
+            // Take five evenly spaced elements around the middle and sort them
+            int length = right - left + 1;
+            int step = (length >> 3) + (length >> 6) + 1;
+            int e3 = (left + right) >>> 1;
+            int e2 = e3 - step;
+            int e1 = e2 - step;
+            int e4 = e3 + step;
+            int e5 = e4 + step;
+            sortFive(a, e1, e2, e3, e4, e5);
+
+            int less = left;
+            int great = right;
+            if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+                // Partition into three parts: less than pivot1, between pivots and greater than pivot2.
+                // Pivots are stored at the ends of the range, their elements will be scanned as usual
+                long pivot1 = a[e2];
+                long pivot2 = a[e4];
+                a[e2] = a[left];
+                a[e4] = a[right];
+                while (a[++less] < pivot1) {
+                    // skip elements that are already in place
+                }
+                while (a[--great] > pivot2) {
+                    // skip elements that are already in place
+                }
+                outer:
+                for (int k = less - 1; ++k <= great;) {
+                    long ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak > pivot2) {
+                        while (a[great] > pivot2) {
+                            if (great-- == k) {
+                                break outer;
+                            }
+                        }
+                        if (a[great] < pivot1) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                a[left] = a[less - 1];
+                a[less - 1] = pivot1;
+                a[right] = a[great + 1];
+                a[great + 1] = pivot2;
+
+                quicksort(a, left, less - 2, depth);
+                quicksort(a, great + 2, right, depth);
+
+                if (less < e1 && e5 < great) {
+                    // Middle part is too large, which means there are many elements equal to pivots.
+                    // Move them to the ends of the middle part, so that they are excluded from further sorting
+                    while (a[less] == pivot1) {
+                        ++less;
+                    }
+                    while (a[great] == pivot2) {
+                        --great;
+                    }
+                    outer:
+                    for (int k = less - 1; ++k <= great;) {
+                        long ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        } else if (ak == pivot2) {
+                            while (a[great] == pivot2) {
+                                if (great-- == k) {
+                                    break outer;
+                                }
+                            }
+                            if (a[great] == pivot1) {
+                                a[k] = a[less];
+                                a[less++] = a[great];
+                            } else {
+                                a[k] = a[great];
+                            }
+                            a[great--] = ak;
+                        }
+                    }
+                }
+                left = less;
+                right = great;
+            } else {
+                // Sampled elements are not distinct, so partition around single pivot into three parts:
+                // less than, equal to and greater than pivot
+                long pivot = a[e3];
+                for (int k = less; k <= great; ++k) {
+                    long ak = a[k];
+                    if (ak == pivot) {
+                        continue;
+                    }
+                    if (ak < pivot) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else {
+                        while (a[great] > pivot) {
+                            --great;
+                        }
+                        if (a[great] < pivot) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                quicksort(a, left, less - 1, depth);
+                left = great + 1;
+            }
+        }
+        insertionSort(a, left, right);
+    }
+
+    private static void sortFive(long[] a, int e1, int e2, int e3, int e4, int e5) {
+        long t;
+        if (a[e2] < a[e1]) {
+            t = a[e2];
+            a[e2] = a[e1];
+            a[e1] = t;
+        }
+        if (a[e3] < a[e2]) {
+            t = a[e3];
+            a[e3] = a[e2];
+            a[e2] = t;
+            if (t < a[e1]) {
+                a[e2] = a[e1];
+                a[e1] = t;
+            }
+        }
+        if (a[e4] < a[e3]) {
+            t = a[e4];
+            a[e4] = a[e3];
+            a[e3] = t;
+            if (t < a[e2]) {
+                a[e3] = a[e2];
+                a[e2] = t;
+                if (t < a[e1]) {
+                    a[e2] = a[e1];
+                    a[e1] = t;
+                }
+            }
+        }
+        if (a[e5] < a[e4]) {
+            t = a[e5];
+            a[e5] = a[e4];
+            a[e4] = t;
+            if (t < a[e3]) {
+                a[e4] = a[e3];
+                a[e3] = t;
+                if (t < a[e2]) {
+                    a[e3] = a[e2];
+                    a[e2] = t;
+                    if (t < a[e1]) {
+                        a[e2] = a[e1];
+                        a[e1] = t;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void heapSort(long[] a, int left, int right) {
+        int length = right - left + 1;
+        for (int i = length / 2 - 1; i >= 0; --i) {
+            siftDown(a, left, i, length);
+        }
+        while (--length > 0) {
+            long max = a[left];
+            a[left] = a[left + length];
+            a[left + length] = max;
+            siftDown(a, left, 0, length);
+        }
+    }
+
+    private static void siftDown(long[] a, int offset, int index, int length) {
+        long value = a[offset + index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && a[offset + child + 1] > a[offset + child]) {
+                ++child;
+            }
+            if (a[offset + child] <= value) {
+                break;
+            }
+            a[offset + index] = a[offset + child];
+            index = child;
+        }
+        a[offset + index] = value;
+    }
+
+    private static void insertionSort(long[] a, int left, int right) {
+        for (int i = left + 1; i <= right; ++i) {
+            long value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    static void sort(short[] a, int from, int to) {
+        if (to - from > CHAR_COUNTING_SORT_THRESHOLD) {
+            countingSort(a, from, to);
+        } else {
+            quicksort(a, from, to - 1, depthLimit(to - from));
+        }
+    }
+
+    private static void countingSort(short[] a, int from, int to) {
+        int[] counts = new int[1 << 16];
+        for (int i = from; i < to; ++i) {
+            counts[a[i] - Short.MIN_VALUE]++;
+        }
+        int k = from;
+        for (int i = 0; i < counts.length; ++i) {
+            short value = (short) (i + Short.MIN_VALUE);
+            for (int count = counts[i]; count > 0; --count) {
+                a[k++] = value;
+            }
+        }
+    }
+
+    private static void quicksort(short[] a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(a, left, right);
+                return;
+            }
+
+            // Take five evenly spaced elements around the middle and sort them
+            int length = right - left + 1;
+            int step = (length >> 3) + (length >> 6) + 1;
+            int e3 = (left + right) >>> 1;
+            int e2 = e3 - step;
+            int e1 = e2 - step;
+            int e4 = e3 + step;
+            int e5 = e4 + step;
+            sortFive(a, e1, e2, e3, e4, e5);
+
+            int less = left;
+            int great = right;
+            if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+                // Partition into three parts: less than pivot1, between pivots and greater than pivot2.
+                // Pivots are stored at the ends of the range, their elements will be scanned as usual
+                short pivot1 = a[e2];
+                short pivot2 = a[e4];
+                a[e2] = a[left];
+                a[e4] = a[right];
+                while (a[++less] < pivot1) {
+                    // skip elements that are already in place
+                }
+                while (a[--great] > pivot2) {
+                    // skip elements that are already in place
+                }
+                outer:
+                for (int k = less - 1; ++k <= great;) {
+                    short ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak > pivot2) {
+                        while (a[great] > pivot2) {
+                            if (great-- == k) {
+                                break outer;
+                            }
+                        }
+                        if (a[great] < pivot1) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                a[left] = a[less - 1];
+                a[less - 1] = pivot1;
+                a[right] = a[great + 1];
+                a[great + 1] = pivot2;
+
+                quicksort(a, left, less - 2, depth);
+                quicksort(a, great + 2, right, depth);
+
+                if (less < e1 && e5 < great) {
+                    // Middle part is too large, which means there are many elements equal to pivots.
+                    // Move them to the ends of the middle part, so that they are excluded from further sorting
+                    while (a[less] == pivot1) {
+                        ++less;
+                    }
+                    while (a[great] == pivot2) {
+                        --great;
+                    }
+                    outer:
+                    for (int k = less - 1; ++k <= great;) {
+                        short ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        } else if (ak == pivot2) {
+                            while (a[great] == pivot2) {
+                                if (great-- == k) {
+                                    break outer;
+                                }
+                            }
+                            if (a[great] == pivot1) {
+                                a[k] = a[less];
+                                a[less++] = a[great];
+                            } else {
+                                a[k] = a[great];
+                            }
+                            a[great--] = ak;
+                        }
+                    }
+                }
+                left = less;
+                right = great;
+            } else {
+                // Sampled elements are not distinct, so partition around single pivot into three parts:
+                // less than, equal to and greater than pivot
+                short pivot = a[e3];
+                for (int k = less; k <= great; ++k) {
+                    short ak = a[k];
+                    if (ak == pivot) {
+                        continue;
+                    }
+                    if (ak < pivot) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else {
+                        while (a[great] > pivot) {
+                            --great;
+                        }
+                        if (a[great] < pivot) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                quicksort(a, left, less - 1, depth);
+                left = great + 1;
+            }
+        }
+        insertionSort(a, left, right);
+    }
+
+    private static void sortFive(short[] a, int e1, int e2, int e3, int e4, int e5) {
+        short t;
+        if (a[e2] < a[e1]) {
+            t = a[e2];
+            a[e2] = a[e1];
+            a[e1] = t;
+        }
+        if (a[e3] < a[e2]) {
+            t = a[e3];
+            a[e3] = a[e2];
+            a[e2] = t;
+            if (t < a[e1]) {
+                a[e2] = a[e1];
+                a[e1] = t;
+            }
+        }
+        if (a[e4] < a[e3]) {
+            t = a[e4];
+            a[e4] = a[e3];
+            a[e3] = t;
+            if (t < a[e2]) {
+                a[e3] = a[e2];
+                a[e2] = t;
+                if (t < a[e1]) {
+                    a[e2] = a[e1];
+                    a[e1] = t;
+                }
+            }
+        }
+        if (a[e5] < a[e4]) {
+            t = a[e5];
+            a[e5] = a[e4];
+            a[e4] = t;
+            if (t < a[e3]) {
+                a[e4] = a[e3];
+                a[e3] = t;
+                if (t < a[e2]) {
+                    a[e3] = a[e2];
+                    a[e2] = t;
+                    if (t < a[e1]) {
+                        a[e2] = a[e1];
+                        a[e1] = t;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void heapSort(short[] a, int left, int right) {
+        int length = right - left + 1;
+        for (int i = length / 2 - 1; i >= 0; --i) {
+            siftDown(a, left, i, length);
+        }
+        while (--length > 0) {
+            short max = a[left];
+            a[left] = a[left + length];
+            a[left + length] = max;
+            siftDown(a, left, 0, length);
+        }
+    }
+
+    private static void siftDown(short[] a, int offset, int index, int length) {
+        short value = a[offset + index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && a[offset + child + 1] > a[offset + child]) {
+                ++child;
+            }
+            if (a[offset + child] <= value) {
+                break;
+            }
+            a[offset + index] = a[offset + child];
+            index = child;
+        }
+        a[offset + index] = value;
+    }
+
+    private static void insertionSort(short[] a, int left, int right) {
+        for (int i = left + 1; i <= right; ++i) {
+            short value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    static void sort(char[] a, int from, int to) {
+        if (to - from > CHAR_COUNTING_SORT_THRESHOLD) {
+            countingSort(a, from, to);
+        } else {
+            quicksort(a, from, to - 1, depthLimit(to - from));
+        }
+    }
+
+    private static void countingSort(char[] a, int from, int to) {
+        int[] counts = new int[1 << 16];
+        for (int i = from; i < to; ++i) {
+            counts[a[i]]++;
+        }
+        int k = from;
+        for (int i = 0; i < counts.length; ++i) {
+            char value = (char) (i);
+            for (int count = counts[i]; count > 0; --count) {
+                a[k++] = value;
+            }
+        }
+    }
+
+    private static void quicksort(char[] a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(a, left, right);
+                return;
+            }
+
+            // Take five evenly spaced elements around the middle and sort them
+            int length = right - left + 1;
+            int step = (length >> 3) + (length >> 6) + 1;
+            int e3 = (left + right) >>> 1;
+            int e2 = e3 - step;
+            int e1 = e2 - step;
+            int e4 = e3 + step;
+            int e5 = e4 + step;
+            sortFive(a, e1, e2, e3, e4, e5);
+
+            int less = left;
+            int great = right;
+            if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+                // Partition into three parts: less than pivot1, between pivots and greater than pivot2.
+                // Pivots are stored at the ends of the range, their elements will be scanned as usual
+                char pivot1 = a[e2];
+                char pivot2 = a[e4];
+                a[e2] = a[left];
+                a[e4] = a[right];
+                while (a[++less] < pivot1) {
+                    // skip elements that are already in place
+                }
+                while (a[--great] > pivot2) {
+                    // skip elements that are already in place
+                }
+                outer:
+                for (int k = less - 1; ++k <= great;) {
+                    char ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak > pivot2) {
+                        while (a[great] > pivot2) {
+                            if (great-- == k) {
+                                break outer;
+                            }
+                        }
+                        if (a[great] < pivot1) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                a[left] = a[less - 1];
+                a[less - 1] = pivot1;
+                a[right] = a[great + 1];
+                a[great + 1] = pivot2;
+
+                quicksort(a, left, less - 2, depth);
+                quicksort(a, great + 2, right, depth);
+
+                if (less < e1 && e5 < great) {
+                    // Middle part is too large, which means there are many elements equal to pivots.
+                    // Move them to the ends of the middle part, so that they are excluded from further sorting
+                    while (a[less] == pivot1) {
+                        ++less;
+                    }
+                    while (a[great] == pivot2) {
+                        --great;
+                    }
+                    outer:
+                    for (int k = less - 1; ++k <= great;) {
+                        char ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        } else if (ak == pivot2) {
+                            while (a[great] == pivot2) {
+                                if (great-- == k) {
+                                    break outer;
+                                }
+                            }
+                            if (a[great] == pivot1) {
+                                a[k] = a[less];
+                                a[less++] = a[great];
+                            } else {
+                                a[k] = a[great];
+                            }
+                            a[great--] = ak;
+                        }
+                    }
+                }
+                left = less;
+                right = great;
+            } else {
+                // Sampled elements are not distinct, so partition around single pivot into three parts:
+                // less than, equal to and greater than pivot
+                char pivot = a[e3];
+                for (int k = less; k <= great; ++k) {
+                    char ak = a[k];
+                    if (ak == pivot) {
+                        continue;
+                    }
+                    if (ak < pivot) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else {
+                        while (a[great] > pivot) {
+                            --great;
+                        }
+                        if (a[great] < pivot) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                quicksort(a, left, less - 1, depth);
+                left = great + 1;
+            }
+        }
+        insertionSort(a, left, right);
+    }
+
+    private static void sortFive(char[] a, int e1, int e2, int e3, int e4, int e5) {
+        char t;
+        if (a[e2] < a[e1]) {
+            t = a[e2];
+            a[e2] = a[e1];
+            a[e1] = t;
+        }
+        if (a[e3] < a[e2]) {
+            t = a[e3];
+            a[e3] = a[e2];
+            a[e2] = t;
+            if (t < a[e1]) {
+                a[e2] = a[e1];
+                a[e1] = t;
+            }
+        }
+        if (a[e4] < a[e3]) {
+            t = a[e4];
+            a[e4] = a[e3];
+            a[e3] = t;
+            if (t < a[e2]) {
+                a[e3] = a[e2];
+                a[e2] = t;
+                if (t < a[e1]) {
+                    a[e2] = a[e1];
+                    a[e1] = t;
+                }
+            }
+        }
+        if (a[e5] < a[e4]) {
+            t = a[e5];
+            a[e5] = a[e4];
+            a[e4] = t;
+            if (t < a[e3]) {
+                a[e4] = a[e3];
+                a[e3] = t;
+                if (t < a[e2]) {
+                    a[e3] = a[e2];
+                    a[e2] = t;
+                    if (t < a[e1]) {
+                        a[e2] = a[e1];
+                        a[e1] = t;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void heapSort(char[] a, int left, int right) {
+        int length = right - left + 1;
+        for (int i = length / 2 - 1; i >= 0; --i) {
+            siftDown(a, left, i, length);
+        }
+        while (--length > 0) {
+            char max = a[left];
+            a[left] = a[left + length];
+            a[left + length] = max;
+            siftDown(a, left, 0, length);
+        }
+    }
+
+    private static void siftDown(char[] a, int offset, int index, int length) {
+        char value = a[offset + index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && a[offset + child + 1] > a[offset + child]) {
+                ++child;
+            }
+            if (a[offset + child] <= value) {
+                break;
+            }
+            a[offset + index] = a[offset + child];
+            index = child;
+        }
+        a[offset + index] = value;
+    }
+
+    private static void insertionSort(char[] a, int left, int right) {
+        for (int i = left + 1; i <= right; ++i) {
+            char value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    static void sort(byte[] a, int from, int to) {
+        if (to - from > BYTE_COUNTING_SORT_THRESHOLD) {
+            countingSort(a, from, to);
+        } else {
+            insertionSort(a, from, to - 1);
+        }
+    }
+
+    private static void countingSort(byte[] a, int from, int to) {
+        int[] counts = new int[1 << 8];
+        for (int i = from; i < to; ++i) {
+            counts[a[i] - Byte.MIN_VALUE]++;
+        }
+        int k = from;
+        for (int i = 0; i < counts.length; ++i) {
+            byte value = (byte) (i + Byte.MIN_VALUE);
+            for (int count = counts[i]; count > 0; --count) {
+                a[k++] = value;
+            }
+        }
+    }
+
+    private static void insertionSort(byte[] a, int left, int right) {
+        for (int i = left + 1; i <= right; ++i) {
+            byte value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    static void sort(float[] a, int from, int to) {
+        // NaN is greater than any other value, so move all NaNs to the end and exclude them from sorting
+        int end = to - 1;
+        while (end >= from && a[end] != a[end]) {
+            --end;
+        }
+        for (int k = end - 1; k >= from; --k) {
+            float ak = a[k];
+            if (ak != ak) {
+                a[k] = a[end];
+                a[end--] = ak;
+            }
+        }
+
+        // -0.0 is less than 0.0, but they are equal in terms of comparison operators. Replace negative zeros
+        // with positive ones and restore them after sorting
+        int negativeZeros = 0;
+        for (int k = from; k <= end; ++k) {
+            float ak = a[k];
+            if (ak == 0 && 1 / ak < 0) {
+                a[k] = 0;
+                ++negativeZeros;
+            }
+        }
+
+        quicksort(a, from, end, depthLimit(end - from + 1));
+
+        if (negativeZeros > 0) {
+            int low = from;
+            int high = end;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (a[middle] < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            while (negativeZeros-- > 0) {
+                a[low++] = -0f;
+            }
+        }
+    }
+
+    private static void quicksort(float[] a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(a, left, right);
+                return;
+            }
+
+            // Take five evenly spaced elements around the middle and sort them
+            int length = right - left + 1;
+            int step = (length >> 3) + (length >> 6) + 1;
+            int e3 = (left + right) >>> 1;
+            int e2 = e3 - step;
+            int e1 = e2 - step;
+            int e4 = e3 + step;
+            int e5 = e4 + step;
+            sortFive(a, e1, e2, e3, e4, e5);
+
+            int less = left;
+            int great = right;
+            if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+                // Partition into three parts: less than pivot1, between pivots and greater than pivot2.
+                // Pivots are stored at the ends of the range, their elements will be scanned as usual
+                float pivot1 = a[e2];
+                float pivot2 = a[e4];
+                a[e2] = a[left];
+                a[e4] = a[right];
+                while (a[++less] < pivot1) {
+                    // skip elements that are already in place
+                }
+                while (a[--great] > pivot2) {
+                    // skip elements that are already in place
+                }
+                outer:
+                for (int k = less - 1; ++k <= great;) {
+                    float ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak > pivot2) {
+                        while (a[great] > pivot2) {
+                            if (great-- == k) {
+                                break outer;
+                            }
+                        }
+                        if (a[great] < pivot1) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                a[left] = a[less - 1];
+                a[less - 1] = pivot1;
+                a[right] = a[great + 1];
+                a[great + 1] = pivot2;
+
+                quicksort(a, left, less - 2, depth);
+                quicksort(a, great + 2, right, depth);
+
+                if (less < e1 && e5 < great) {
+                    // Middle part is too large, which means there are many elements equal to pivots.
+                    // Move them to the ends of the middle part, so that they are excluded from further sorting
+                    while (a[less] == pivot1) {
+                        ++less;
+                    }
+                    while (a[great] == pivot2) {
+                        --great;
+                    }
+                    outer:
+                    for (int k = less - 1; ++k <= great;) {
+                        float ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        } else if (ak == pivot2) {
+                            while (a[great] == pivot2) {
+                                if (great-- == k) {
+                                    break outer;
+                                }
+                            }
+                            if (a[great] == pivot1) {
+                                a[k] = a[less];
+                                a[less++] = a[great];
+                            } else {
+                                a[k] = a[great];
+                            }
+                            a[great--] = ak;
+                        }
+                    }
+                }
+                left = less;
+                right = great;
+            } else {
+                // Sampled elements are not distinct, so partition around single pivot into three parts:
+                // less than, equal to and greater than pivot
+                float pivot = a[e3];
+                for (int k = less; k <= great; ++k) {
+                    float ak = a[k];
+                    if (ak == pivot) {
+                        continue;
+                    }
+                    if (ak < pivot) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else {
+                        while (a[great] > pivot) {
+                            --great;
+                        }
+                        if (a[great] < pivot) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                quicksort(a, left, less - 1, depth);
+                left = great + 1;
+            }
+        }
+        insertionSort(a, left, right);
+    }
+
+    private static void sortFive(float[] a, int e1, int e2, int e3, int e4, int e5) {
+        float t;
+        if (a[e2] < a[e1]) {
+            t = a[e2];
+            a[e2] = a[e1];
+            a[e1] = t;
+        }
+        if (a[e3] < a[e2]) {
+            t = a[e3];
+            a[e3] = a[e2];
+            a[e2] = t;
+            if (t < a[e1]) {
+                a[e2] = a[e1];
+                a[e1] = t;
+            }
+        }
+        if (a[e4] < a[e3]) {
+            t = a[e4];
+            a[e4] = a[e3];
+            a[e3] = t;
+            if (t < a[e2]) {
+                a[e3] = a[e2];
+                a[e2] = t;
+                if (t < a[e1]) {
+                    a[e2] = a[e1];
+                    a[e1] = t;
+                }
+            }
+        }
+        if (a[e5] < a[e4]) {
+            t = a[e5];
+            a[e5] = a[e4];
+            a[e4] = t;
+            if (t < a[e3]) {
+                a[e4] = a[e3];
+                a[e3] = t;
+                if (t < a[e2]) {
+                    a[e3] = a[e2];
+                    a[e2] = t;
+                    if (t < a[e1]) {
+                        a[e2] = a[e1];
+                        a[e1] = t;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void heapSort(float[] a, int left, int right) {
+        int length = right - left + 1;
+        for (int i = length / 2 - 1; i >= 0; --i) {
+            siftDown(a, left, i, length);
+        }
+        while (--length > 0) {
+            float max = a[left];
+            a[left] = a[left + length];
+            a[left + length] = max;
+            siftDown(a, left, 0, length);
+        }
+    }
+
+    private static void siftDown(float[] a, int offset, int index, int length) {
+        float value = a[offset + index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && a[offset + child + 1] > a[offset + child]) {
+                ++child;
+            }
+            if (a[offset + child] <= value) {
+                break;
+            }
+            a[offset + index] = a[offset + child];
+            index = child;
+        }
+        a[offset + index] = value;
+    }
+
+    private static void insertionSort(float[] a, int left, int right) {
+        for (int i = left + 1; i <= right; ++i) {
+            float value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+
+    static void sort(double[] a, int from, int to) {
+        // NaN is greater than any other value, so move all NaNs to the end and exclude them from sorting
+        int end = to - 1;
+        while (end >= from && a[end] != a[end]) {
+            --end;
+        }
+        for (int k = end - 1; k >= from; --k) {
+            double ak = a[k];
+            if (ak != ak) {
+                a[k] = a[end];
+                a[end--] = ak;
+            }
+        }
+
+        // -0.0 is less than 0.0, but they are equal in terms of comparison operators. Replace negative zeros
+        // with positive ones and restore them after sorting
+        int negativeZeros = 0;
+        for (int k = from; k <= end; ++k) {
+            double ak = a[k];
+            if (ak == 0 && 1 / ak < 0) {
+                a[k] = 0;
+                ++negativeZeros;
+            }
+        }
+
+        quicksort(a, from, end, depthLimit(end - from + 1));
+
+        if (negativeZeros > 0) {
+            int low = from;
+            int high = end;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (a[middle] < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle - 1;
+                }
+            }
+            while (negativeZeros-- > 0) {
+                a[low++] = -0.0;
+            }
+        }
+    }
+
+    private static void quicksort(double[] a, int left, int right, int depth) {
+        while (right - left >= INSERTION_SORT_THRESHOLD) {
+            if (depth-- == 0) {
+                heapSort(a, left, right);
+                return;
+            }
+
+            // Take five evenly spaced elements around the middle and sort them
+            int length = right - left + 1;
+            int step = (length >> 3) + (length >> 6) + 1;
+            int e3 = (left + right) >>> 1;
+            int e2 = e3 - step;
+            int e1 = e2 - step;
+            int e4 = e3 + step;
+            int e5 = e4 + step;
+            sortFive(a, e1, e2, e3, e4, e5);
+
+            int less = left;
+            int great = right;
+            if (a[e1] != a[e2] && a[e2] != a[e3] && a[e3] != a[e4] && a[e4] != a[e5]) {
+                // Partition into three parts: less than pivot1, between pivots and greater than pivot2.
+                // Pivots are stored at the ends of the range, their elements will be scanned as usual
+                double pivot1 = a[e2];
+                double pivot2 = a[e4];
+                a[e2] = a[left];
+                a[e4] = a[right];
+                while (a[++less] < pivot1) {
+                    // skip elements that are already in place
+                }
+                while (a[--great] > pivot2) {
+                    // skip elements that are already in place
+                }
+                outer:
+                for (int k = less - 1; ++k <= great;) {
+                    double ak = a[k];
+                    if (ak < pivot1) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else if (ak > pivot2) {
+                        while (a[great] > pivot2) {
+                            if (great-- == k) {
+                                break outer;
+                            }
+                        }
+                        if (a[great] < pivot1) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                a[left] = a[less - 1];
+                a[less - 1] = pivot1;
+                a[right] = a[great + 1];
+                a[great + 1] = pivot2;
+
+                quicksort(a, left, less - 2, depth);
+                quicksort(a, great + 2, right, depth);
+
+                if (less < e1 && e5 < great) {
+                    // Middle part is too large, which means there are many elements equal to pivots.
+                    // Move them to the ends of the middle part, so that they are excluded from further sorting
+                    while (a[less] == pivot1) {
+                        ++less;
+                    }
+                    while (a[great] == pivot2) {
+                        --great;
+                    }
+                    outer:
+                    for (int k = less - 1; ++k <= great;) {
+                        double ak = a[k];
+                        if (ak == pivot1) {
+                            a[k] = a[less];
+                            a[less++] = ak;
+                        } else if (ak == pivot2) {
+                            while (a[great] == pivot2) {
+                                if (great-- == k) {
+                                    break outer;
+                                }
+                            }
+                            if (a[great] == pivot1) {
+                                a[k] = a[less];
+                                a[less++] = a[great];
+                            } else {
+                                a[k] = a[great];
+                            }
+                            a[great--] = ak;
+                        }
+                    }
+                }
+                left = less;
+                right = great;
+            } else {
+                // Sampled elements are not distinct, so partition around single pivot into three parts:
+                // less than, equal to and greater than pivot
+                double pivot = a[e3];
+                for (int k = less; k <= great; ++k) {
+                    double ak = a[k];
+                    if (ak == pivot) {
+                        continue;
+                    }
+                    if (ak < pivot) {
+                        a[k] = a[less];
+                        a[less++] = ak;
+                    } else {
+                        while (a[great] > pivot) {
+                            --great;
+                        }
+                        if (a[great] < pivot) {
+                            a[k] = a[less];
+                            a[less++] = a[great];
+                        } else {
+                            a[k] = a[great];
+                        }
+                        a[great--] = ak;
+                    }
+                }
+                quicksort(a, left, less - 1, depth);
+                left = great + 1;
+            }
+        }
+        insertionSort(a, left, right);
+    }
+
+    private static void sortFive(double[] a, int e1, int e2, int e3, int e4, int e5) {
+        double t;
+        if (a[e2] < a[e1]) {
+            t = a[e2];
+            a[e2] = a[e1];
+            a[e1] = t;
+        }
+        if (a[e3] < a[e2]) {
+            t = a[e3];
+            a[e3] = a[e2];
+            a[e2] = t;
+            if (t < a[e1]) {
+                a[e2] = a[e1];
+                a[e1] = t;
+            }
+        }
+        if (a[e4] < a[e3]) {
+            t = a[e4];
+            a[e4] = a[e3];
+            a[e3] = t;
+            if (t < a[e2]) {
+                a[e3] = a[e2];
+                a[e2] = t;
+                if (t < a[e1]) {
+                    a[e2] = a[e1];
+                    a[e1] = t;
+                }
+            }
+        }
+        if (a[e5] < a[e4]) {
+            t = a[e5];
+            a[e5] = a[e4];
+            a[e4] = t;
+            if (t < a[e3]) {
+                a[e4] = a[e3];
+                a[e3] = t;
+                if (t < a[e2]) {
+                    a[e3] = a[e2];
+                    a[e2] = t;
+                    if (t < a[e1]) {
+                        a[e2] = a[e1];
+                        a[e1] = t;
+                    }
+                }
+            }
+        }
+    }
+
+    private static void heapSort(double[] a, int left, int right) {
+        int length = right - left + 1;
+        for (int i = length / 2 - 1; i >= 0; --i) {
+            siftDown(a, left, i, length);
+        }
+        while (--length > 0) {
+            double max = a[left];
+            a[left] = a[left + length];
+            a[left + length] = max;
+            siftDown(a, left, 0, length);
+        }
+    }
+
+    private static void siftDown(double[] a, int offset, int index, int length) {
+        double value = a[offset + index];
+        while (true) {
+            int child = index * 2 + 1;
+            if (child >= length) {
+                break;
+            }
+            if (child + 1 < length && a[offset + child + 1] > a[offset + child]) {
+                ++child;
+            }
+            if (a[offset + child] <= value) {
+                break;
+            }
+            a[offset + index] = a[offset + child];
+            index = child;
+        }
+        a[offset + index] = value;
+    }
+
+    private static void insertionSort(double[] a, int left, int right) {
+        for (int i = left + 1; i <= right; ++i) {
+            double value = a[i];
+            int j = i - 1;
+            while (j >= left && a[j] > value) {
+                a[j + 1] = a[j];
+                --j;
+            }
+            a[j + 1] = value;
+        }
+    }
+}
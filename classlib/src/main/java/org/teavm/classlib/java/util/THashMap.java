@@ -292,6 +292,13 @@ public class THashMap<K, V> extends TAbstractMap<K, V> implements TCloneable, TS
         }
     }
 
+    /**
+     * Constructs a map that has no table of entries, for subclasses that store mappings in a different way.
+     */
+    THashMap(float loadFactor) {
+        this.loadFactor = loadFactor;
+    }
+
     public THashMap(TMap<? extends K, ? extends V> map) {
         this(calculateCapacity(map.size()));
         putAllImpl(map);
@@ -0,0 +1,499 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import java.util.Arrays;
+import org.teavm.classlib.java.lang.TCloneNotSupportedException;
+import org.teavm.classlib.java.lang.TIllegalArgumentException;
+import org.teavm.classlib.java.lang.TIllegalStateException;
+import org.teavm.classlib.java.lang.TObject;
+import org.teavm.interop.Rename;
+
+/**
+ * <p>Hash map with open addressing, used instead of {@link THashMap} when
+ * <code>java.util.HashMap.implementation</code> property is set to <code>openAddressing</code>.
+ * Keys, values and hash codes are stored in three parallel arrays, so a mapping costs no object allocation.
+ * Collisions are resolved with linear probing, removal shifts subsequent entries of the cluster back
+ * instead of leaving tombstones. Hash codes are cached to avoid calling <code>equals</code> on mismatching keys
+ * and calling <code>hashCode</code> on resize.</p>
+ *
+ * <p>Iteration starts from an empty slot and goes cyclically. Since no cluster crosses this slot, shifting
+ * entries back on removal through iterator never moves an entry that was not visited yet to a visited
+ * slot.</p>
+ */
+public class TOpenAddressingHashMap<K, V> extends THashMap<K, V> {
+    static final Object NULL_KEY = new Object();
+    private static final int DEFAULT_LENGTH = 16;
+    private static final int MAX_LENGTH = 1 << 30;
+    private transient Object[] keys;
+    private transient Object[] values;
+    private transient int[] hashes;
+
+    public TOpenAddressingHashMap() {
+        this(DEFAULT_LENGTH);
+    }
+
+    public TOpenAddressingHashMap(int capacity) {
+        this(capacity, 0.75f);
+    }
+
+    public TOpenAddressingHashMap(int capacity, float loadFactor) {
+        super(loadFactor);
+        if (capacity < 0 || loadFactor <= 0) {
+            throw new TIllegalArgumentException();
+        }
+        // Until table is allocated, threshold keeps its initial length
+        threshold = tableLength(capacity);
+    }
+
+    public TOpenAddressingHashMap(TMap<? extends K, ? extends V> map) {
+        this(Math.max((int) (map.size() / 0.75f) + 1, DEFAULT_LENGTH));
+        putAll(map);
+    }
+
+    static int tableLength(int capacity) {
+        int length = 2;
+        while (length < capacity && length < MAX_LENGTH) {
+            length <<= 1;
+        }
+        return length;
+    }
+
+    static int thresholdFor(int length, float loadFactor) {
+        return Math.max(1, Math.min((int) (length * loadFactor), length - 1));
+    }
+
+    static int hash(Object key) {
+        if (key == null) {
+            return 0;
+        }
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private int indexOf(Object key) {
+        if (elementCount == 0) {
+            return -1;
+        }
+        Object k = key != null ? key : NULL_KEY;
+        int h = hash(key);
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = h & mask;
+        while (true) {
+            Object candidate = keys[index];
+            if (candidate == null) {
+                return -1;
+            }
+            if (candidate == k || (hashes[index] == h && k.equals(candidate))) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    @Override
+    public int size() {
+        return elementCount;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return elementCount == 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = indexOf(key);
+        return index >= 0 ? (V) values[index] : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return indexOf(key) >= 0;
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (elementCount == 0) {
+            return false;
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            if (keys[i] != null && TObjects.equals(values[i], value)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        if (keys == null) {
+            allocate(threshold);
+        }
+        Object k = key != null ? key : NULL_KEY;
+        int h = hash(key);
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int index = h & mask;
+        while (true) {
+            Object candidate = keys[index];
+            if (candidate == null) {
+                break;
+            }
+            if (candidate == k || (hashes[index] == h && k.equals(candidate))) {
+                V old = (V) values[index];
+                values[index] = value;
+                return old;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[index] = k;
+        values[index] = value;
+        hashes[index] = h;
+        modCount++;
+        if (++elementCount > threshold) {
+            resize(keys.length * 2);
+        }
+        return null;
+    }
+
+    @Override
+    public void putAll(TMap<? extends K, ? extends V> map) {
+        int required = elementCount + map.size();
+        if (keys != null && required > threshold) {
+            resize(tableLength((int) (required / loadFactor) + 1));
+        } else if (keys == null && required > thresholdFor(threshold, loadFactor)) {
+            threshold = tableLength((int) (required / loadFactor) + 1);
+        }
+        for (TIterator<? extends TMap.Entry<? extends K, ? extends V>> iter = map.entrySet().iterator();
+                iter.hasNext();) {
+            TMap.Entry<? extends K, ? extends V> entry = iter.next();
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int index = indexOf(key);
+        if (index < 0) {
+            return null;
+        }
+        V old = (V) values[index];
+        removeAt(index);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        if (elementCount > 0) {
+            Arrays.fill(keys, null);
+            Arrays.fill(values, null);
+            elementCount = 0;
+            modCount++;
+        }
+    }
+
+    private void allocate(int length) {
+        keys = new Object[length];
+        values = new Object[length];
+        hashes = new int[length];
+        threshold = thresholdFor(length, loadFactor);
+    }
+
+    private void resize(int length) {
+        if (length > MAX_LENGTH || length <= keys.length) {
+            threshold = keys.length - 1;
+            return;
+        }
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        allocate(length);
+        int mask = length - 1;
+        for (int i = 0; i < oldKeys.length; ++i) {
+            Object key = oldKeys[i];
+            if (key == null) {
+                continue;
+            }
+            int h = oldHashes[i];
+            int index = h & mask;
+            while (keys[index] != null) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = oldValues[i];
+            hashes[index] = h;
+        }
+    }
+
+    void removeAt(int index) {
+        Object[] keys = this.keys;
+        int mask = keys.length - 1;
+        int gap = index;
+        int current = index;
+        while (true) {
+            current = (current + 1) & mask;
+            Object key = keys[current];
+            if (key == null) {
+                break;
+            }
+            // Entry can fill the gap only if the gap lies between entry's home slot and its current slot
+            int home = hashes[current] & mask;
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                keys[gap] = key;
+                values[gap] = values[current];
+                hashes[gap] = hashes[current];
+                gap = current;
+            }
+        }
+        keys[gap] = null;
+        values[gap] = null;
+        elementCount--;
+        modCount++;
+    }
+
+    @Rename("clone")
+    @Override
+    @SuppressWarnings("unchecked")
+    public TObject clone0() {
+        try {
+            TOpenAddressingHashMap<K, V> map = (TOpenAddressingHashMap<K, V>) super.clone();
+            map.cachedKeySet = null;
+            map.cachedValues = null;
+            if (keys != null) {
+                map.keys = keys.clone();
+                map.values = values.clone();
+                map.hashes = hashes.clone();
+            }
+            return map;
+        } catch (TCloneNotSupportedException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public TSet<K> keySet() {
+        if (cachedKeySet == null) {
+            cachedKeySet = new TAbstractSet<K>() {
+                @Override
+                public int size() {
+                    return elementCount;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public boolean remove(Object o) {
+                    int index = indexOf(o);
+                    if (index < 0) {
+                        return false;
+                    }
+                    removeAt(index);
+                    return true;
+                }
+
+                @Override
+                public void clear() {
+                    TOpenAddressingHashMap.this.clear();
+                }
+
+                @Override
+                public TIterator<K> iterator() {
+                    return new TableIterator<K>() {
+                        @Override
+                        K get(int index) {
+                            return key(index);
+                        }
+                    };
+                }
+            };
+        }
+        return cachedKeySet;
+    }
+
+    @Override
+    public TCollection<V> values() {
+        if (cachedValues == null) {
+            cachedValues = new TAbstractCollection<V>() {
+                @Override
+                public int size() {
+                    return elementCount;
+                }
+
+                @Override
+                public boolean contains(Object o) {
+                    return containsValue(o);
+                }
+
+                @Override
+                public void clear() {
+                    TOpenAddressingHashMap.this.clear();
+                }
+
+                @Override
+                public TIterator<V> iterator() {
+                    return new TableIterator<V>() {
+                        @Override
+                        @SuppressWarnings("unchecked")
+                        V get(int index) {
+                            return (V) values[index];
+                        }
+                    };
+                }
+            };
+        }
+        return cachedValues;
+    }
+
+    @Override
+    public TSet<TMap.Entry<K, V>> entrySet() {
+        return new TAbstractSet<TMap.Entry<K, V>>() {
+            @Override
+            public int size() {
+                return elementCount;
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return indexOfEntry(o) >= 0;
+            }
+
+            @Override
+            public boolean remove(Object o) {
+                int index = indexOfEntry(o);
+                if (index < 0) {
+                    return false;
+                }
+                removeAt(index);
+                return true;
+            }
+
+            @Override
+            public void clear() {
+                TOpenAddressingHashMap.this.clear();
+            }
+
+            @Override
+            public TIterator<TMap.Entry<K, V>> iterator() {
+                return new TableIterator<TMap.Entry<K, V>>() {
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    TMap.Entry<K, V> get(int index) {
+                        return new TableEntry(key(index), (V) values[index]);
+                    }
+                };
+            }
+        };
+    }
+
+    private int indexOfEntry(Object o) {
+        if (!(o instanceof TMap.Entry)) {
+            return -1;
+        }
+        TMap.Entry<?, ?> entry = (TMap.Entry<?, ?>) o;
+        int index = indexOf(entry.getKey());
+        return index >= 0 && TObjects.equals(values[index], entry.getValue()) ? index : -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private K key(int index) {
+        Object key = keys[index];
+        return key != NULL_KEY ? (K) key : null;
+    }
+
+    class TableEntry extends TMapEntry<K, V> {
+        TableEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V object) {
+            V result = super.setValue(object);
+            put(key, object);
+            return result;
+        }
+    }
+
+    abstract class TableIterator<E> implements TIterator<E> {
+        private int start;
+        private int position;
+        private int length;
+        private int lastPosition = -1;
+        private int expectedModCount = modCount;
+
+        TableIterator() {
+            if (elementCount > 0) {
+                length = keys.length;
+                while (keys[start] != null) {
+                    start++;
+                }
+                seek(1);
+            }
+        }
+
+        private void seek(int from) {
+            Object[] keys = TOpenAddressingHashMap.this.keys;
+            int mask = length - 1;
+            position = from;
+            while (position < length && keys[(start + position) & mask] == null) {
+                position++;
+            }
+        }
+
+        abstract E get(int index);
+
+        @Override
+        public boolean hasNext() {
+            return position < length;
+        }
+
+        @Override
+        public E next() {
+            if (expectedModCount != modCount) {
+                throw new TConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new TNoSuchElementException();
+            }
+            lastPosition = position;
+            int index = (start + position) & (length - 1);
+            seek(position + 1);
+            return get(index);
+        }
+
+        @Override
+        public void remove() {
+            if (lastPosition < 0) {
+                throw new TIllegalStateException();
+            }
+            if (expectedModCount != modCount) {
+                throw new TConcurrentModificationException();
+            }
+            removeAt((start + lastPosition) & (length - 1));
+            expectedModCount = modCount;
+            // An entry from the rest of the cluster could be shifted into the removed slot
+            seek(lastPosition);
+            lastPosition = -1;
+        }
+    }
+}
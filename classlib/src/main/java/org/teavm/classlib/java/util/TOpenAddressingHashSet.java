@@ -0,0 +1,281 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import java.util.Arrays;
+import org.teavm.classlib.java.lang.TIllegalArgumentException;
+import org.teavm.classlib.java.lang.TIllegalStateException;
+import org.teavm.classlib.java.lang.TObject;
+import org.teavm.interop.Rename;
+
+/**
+ * <p>Hash set with open addressing, used instead of {@link THashSet} when
+ * <code>java.util.HashMap.implementation</code> property is set to <code>openAddressing</code>.
+ * Unlike {@link THashSet} it has no backing map, elements and their hash codes are stored in two parallel
+ * arrays. Table is organized exactly like in {@link TOpenAddressingHashMap}.</p>
+ */
+public class TOpenAddressingHashSet<E> extends THashSet<E> {
+    private static final int DEFAULT_LENGTH = 16;
+    private transient Object[] elements;
+    private transient int[] hashes;
+    private transient int size;
+    private transient int modCount;
+    private int threshold;
+    private final float loadFactor;
+
+    public TOpenAddressingHashSet() {
+        this(DEFAULT_LENGTH);
+    }
+
+    public TOpenAddressingHashSet(int capacity) {
+        this(capacity, 0.75f);
+    }
+
+    public TOpenAddressingHashSet(int capacity, float loadFactor) {
+        super((THashMap<E, THashSet<E>>) null);
+        if (capacity < 0 || loadFactor <= 0) {
+            throw new TIllegalArgumentException();
+        }
+        this.loadFactor = loadFactor;
+        // Until table is allocated, threshold keeps its initial length
+        threshold = TOpenAddressingHashMap.tableLength(capacity);
+    }
+
+    public TOpenAddressingHashSet(TCollection<? extends E> collection) {
+        this(Math.max((int) (collection.size() / 0.75f) + 1, DEFAULT_LENGTH));
+        for (TIterator<? extends E> iter = collection.iterator(); iter.hasNext();) {
+            add(iter.next());
+        }
+    }
+
+    private int indexOf(Object element) {
+        if (size == 0) {
+            return -1;
+        }
+        Object e = element != null ? element : TOpenAddressingHashMap.NULL_KEY;
+        int h = TOpenAddressingHashMap.hash(element);
+        Object[] elements = this.elements;
+        int mask = elements.length - 1;
+        int index = h & mask;
+        while (true) {
+            Object candidate = elements[index];
+            if (candidate == null) {
+                return -1;
+            }
+            if (candidate == e || (hashes[index] == h && e.equals(candidate))) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    @Override
+    public boolean add(E element) {
+        if (elements == null) {
+            allocate(threshold);
+        }
+        Object e = element != null ? element : TOpenAddressingHashMap.NULL_KEY;
+        int h = TOpenAddressingHashMap.hash(element);
+        Object[] elements = this.elements;
+        int mask = elements.length - 1;
+        int index = h & mask;
+        while (true) {
+            Object candidate = elements[index];
+            if (candidate == null) {
+                break;
+            }
+            if (candidate == e || (hashes[index] == h && e.equals(candidate))) {
+                return false;
+            }
+            index = (index + 1) & mask;
+        }
+        elements[index] = e;
+        hashes[index] = h;
+        modCount++;
+        if (++size > threshold) {
+            resize(elements.length * 2);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean contains(Object element) {
+        return indexOf(element) >= 0;
+    }
+
+    @Override
+    public boolean remove(Object element) {
+        int index = indexOf(element);
+        if (index < 0) {
+            return false;
+        }
+        removeAt(index);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(elements, null);
+            size = 0;
+            modCount++;
+        }
+    }
+
+    private void allocate(int length) {
+        elements = new Object[length];
+        hashes = new int[length];
+        threshold = TOpenAddressingHashMap.thresholdFor(length, loadFactor);
+    }
+
+    private void resize(int length) {
+        if (length > 1 << 30 || length <= elements.length) {
+            threshold = elements.length - 1;
+            return;
+        }
+        Object[] oldElements = elements;
+        int[] oldHashes = hashes;
+        allocate(length);
+        int mask = length - 1;
+        for (int i = 0; i < oldElements.length; ++i) {
+            Object element = oldElements[i];
+            if (element == null) {
+                continue;
+            }
+            int h = oldHashes[i];
+            int index = h & mask;
+            while (elements[index] != null) {
+                index = (index + 1) & mask;
+            }
+            elements[index] = element;
+            hashes[index] = h;
+        }
+    }
+
+    private void removeAt(int index) {
+        Object[] elements = this.elements;
+        int mask = elements.length - 1;
+        int gap = index;
+        int current = index;
+        while (true) {
+            current = (current + 1) & mask;
+            Object element = elements[current];
+            if (element == null) {
+                break;
+            }
+            int home = hashes[current] & mask;
+            if (((current - home) & mask) >= ((current - gap) & mask)) {
+                elements[gap] = element;
+                hashes[gap] = hashes[current];
+                gap = current;
+            }
+        }
+        elements[gap] = null;
+        size--;
+        modCount++;
+    }
+
+    @Override
+    public TIterator<E> iterator() {
+        return new TIterator<E>() {
+            private int start;
+            private int position;
+            private int length;
+            private int lastPosition = -1;
+            private int expectedModCount = modCount;
+
+            {
+                if (size > 0) {
+                    length = elements.length;
+                    while (elements[start] != null) {
+                        start++;
+                    }
+                    seek(1);
+                }
+            }
+
+            private void seek(int from) {
+                int mask = length - 1;
+                position = from;
+                while (position < length && elements[(start + position) & mask] == null) {
+                    position++;
+                }
+            }
+
+            @Override
+            public boolean hasNext() {
+                return position < length;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (expectedModCount != modCount) {
+                    throw new TConcurrentModificationException();
+                }
+                if (!hasNext()) {
+                    throw new TNoSuchElementException();
+                }
+                lastPosition = position;
+                Object element = elements[(start + position) & (length - 1)];
+                seek(position + 1);
+                return element != TOpenAddressingHashMap.NULL_KEY ? (E) element : null;
+            }
+
+            @Override
+            public void remove() {
+                if (lastPosition < 0) {
+                    throw new TIllegalStateException();
+                }
+                if (expectedModCount != modCount) {
+                    throw new TConcurrentModificationException();
+                }
+                removeAt((start + lastPosition) & (length - 1));
+                expectedModCount = modCount;
+                seek(lastPosition);
+                lastPosition = -1;
+            }
+        };
+    }
+
+    @Rename("clone")
+    @Override
+    public TObject clone0() {
+        return (TObject) clone();
+    }
+
+    @Override
+    public Object clone() {
+        TOpenAddressingHashSet<E> copy = new TOpenAddressingHashSet<>(0, loadFactor);
+        copy.threshold = threshold;
+        if (elements != null) {
+            copy.elements = elements.clone();
+            copy.hashes = hashes.clone();
+            copy.size = size;
+        }
+        return copy;
+    }
+}
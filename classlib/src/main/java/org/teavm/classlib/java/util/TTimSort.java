@@ -0,0 +1,457 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+/**
+ * <p>Stable sort for arrays of objects, used by {@link TArrays}. This is TimSort: array is split into runs
+ * of elements that are already ordered (descending runs are reversed), short runs are extended to minimal
+ * length by binary insertion sort, and runs are merged while keeping their lengths balanced on a stack.</p>
+ *
+ * <p>When one run wins many comparisons in a row, merge switches to galloping mode, which finds the whole
+ * block of winning elements by exponential search and moves it at once. This makes sorting of partially
+ * ordered input close to linear, while random input takes <code>O(n log n)</code> comparisons.
+ * Temporary storage never exceeds half of the sorted range.</p>
+ */
+final class TTimSort<T> {
+    private static final int MIN_MERGE = 32;
+    private static final int MIN_GALLOP = 7;
+    private static final int MAX_STACK_SIZE = 49;
+    private T[] a;
+    private TComparator<? super T> c;
+    private Object[] tmp;
+    private int minGallop = MIN_GALLOP;
+    private int[] runBase = new int[MAX_STACK_SIZE];
+    private int[] runLength = new int[MAX_STACK_SIZE];
+    private int stackSize;
+
+    private TTimSort(T[] a, TComparator<? super T> c) {
+        this.a = a;
+        this.c = c;
+    }
+
+    static <T> void sort(T[] a, int from, int to, TComparator<? super T> c) {
+        int remaining = to - from;
+        if (remaining < 2) {
+            return;
+        }
+        if (remaining < MIN_MERGE) {
+            int initialRunLength = countRunAndMakeAscending(a, from, to, c);
+            binarySort(a, from, to, from + initialRunLength, c);
+            return;
+        }
+
+        TTimSort<T> sorter = new TTimSort<>(a, c);
+        int minRun = minRunLength(remaining);
+        do {
+            int length = countRunAndMakeAscending(a, from, to, c);
+            if (length < minRun) {
+                int forcedLength = Math.min(remaining, minRun);
+                binarySort(a, from, from + forcedLength, from + length, c);
+                length = forcedLength;
+            }
+            sorter.pushRun(from, length);
+            sorter.mergeCollapse();
+            from += length;
+            remaining -= length;
+        } while (remaining > 0);
+        sorter.mergeForceCollapse();
+    }
+
+    private static int minRunLength(int n) {
+        int r = 0;
+        while (n >= MIN_MERGE) {
+            r |= n & 1;
+            n >>= 1;
+        }
+        return n + r;
+    }
+
+    private static <T> int countRunAndMakeAscending(T[] a, int from, int to, TComparator<? super T> c) {
+        int runEnd = from + 1;
+        if (runEnd == to) {
+            return 1;
+        }
+        if (c.compare(a[runEnd++], a[from]) < 0) {
+            // Only strictly descending runs are reversed, otherwise sort would not be stable
+            while (runEnd < to && c.compare(a[runEnd], a[runEnd - 1]) < 0) {
+                ++runEnd;
+            }
+            for (int i = from, j = runEnd - 1; i < j; ++i, --j) {
+                T t = a[i];
+                a[i] = a[j];
+                a[j] = t;
+            }
+        } else {
+            while (runEnd < to && c.compare(a[runEnd], a[runEnd - 1]) >= 0) {
+                ++runEnd;
+            }
+        }
+        return runEnd - from;
+    }
+
+    private static <T> void binarySort(T[] a, int from, int to, int start, TComparator<? super T> c) {
+        for (; start < to; ++start) {
+            T pivot = a[start];
+            int left = from;
+            int right = start;
+            while (left < right) {
+                int middle = (left + right) >>> 1;
+                if (c.compare(pivot, a[middle]) < 0) {
+                    right = middle;
+                } else {
+                    left = middle + 1;
+                }
+            }
+            System.arraycopy(a, left, a, left + 1, start - left);
+            a[left] = pivot;
+        }
+    }
+
+    private void pushRun(int base, int length) {
+        runBase[stackSize] = base;
+        runLength[stackSize] = length;
+        stackSize++;
+    }
+
+    /*
+     * Merges runs until lengths on the stack satisfy the following invariants:
+     *   runLength[i - 2] > runLength[i - 1] + runLength[i]
+     *   runLength[i - 1] > runLength[i]
+     * This keeps merges balanced and bounds stack size by logarithm of array length.
+     */
+    private void mergeCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLength[n - 1] <= runLength[n] + runLength[n + 1]
+                    || n > 1 && runLength[n - 2] <= runLength[n] + runLength[n - 1]) {
+                if (runLength[n - 1] < runLength[n + 1]) {
+                    --n;
+                }
+            } else if (runLength[n] > runLength[n + 1]) {
+                break;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeForceCollapse() {
+        while (stackSize > 1) {
+            int n = stackSize - 2;
+            if (n > 0 && runLength[n - 1] < runLength[n + 1]) {
+                --n;
+            }
+            mergeAt(n);
+        }
+    }
+
+    private void mergeAt(int i) {
+        int base1 = runBase[i];
+        int length1 = runLength[i];
+        int base2 = runBase[i + 1];
+        int length2 = runLength[i + 1];
+
+        runLength[i] = length1 + length2;
+        if (i == stackSize - 3) {
+            runBase[i + 1] = runBase[i + 2];
+            runLength[i + 1] = runLength[i + 2];
+        }
+        stackSize--;
+
+        // Elements of the first run that do not exceed the first element of the second run are already in place,
+        // as well as elements of the second run that are not less than the last element of the first run
+        int k = gallopRight(a[base2], a, base1, length1, 0, c);
+        base1 += k;
+        length1 -= k;
+        if (length1 == 0) {
+            return;
+        }
+        length2 = gallopLeft(a[base1 + length1 - 1], a, base2, length2, length2 - 1, c);
+        if (length2 == 0) {
+            return;
+        }
+
+        if (length1 <= length2) {
+            mergeLow(base1, length1, base2, length2);
+        } else {
+            mergeHigh(base1, length1, base2, length2);
+        }
+    }
+
+    /*
+     * Returns position k in range such that array[base + k - 1] < key <= array[base + k],
+     * searching exponentially from hint.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> int gallopLeft(T key, Object[] array, int base, int length, int hint,
+            TComparator<? super T> c) {
+        int lastOffset = 0;
+        int offset = 1;
+        if (c.compare(key, (T) array[base + hint]) > 0) {
+            int maxOffset = length - hint;
+            while (offset < maxOffset && c.compare(key, (T) array[base + hint + offset]) > 0) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            lastOffset += hint;
+            offset += hint;
+        } else {
+            int maxOffset = hint + 1;
+            while (offset < maxOffset && c.compare(key, (T) array[base + hint - offset]) <= 0) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            int t = lastOffset;
+            lastOffset = hint - offset;
+            offset = hint - t;
+        }
+
+        ++lastOffset;
+        while (lastOffset < offset) {
+            int middle = lastOffset + ((offset - lastOffset) >>> 1);
+            if (c.compare(key, (T) array[base + middle]) > 0) {
+                lastOffset = middle + 1;
+            } else {
+                offset = middle;
+            }
+        }
+        return offset;
+    }
+
+    /*
+     * Returns position k in range such that array[base + k - 1] <= key < array[base + k],
+     * searching exponentially from hint.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> int gallopRight(T key, Object[] array, int base, int length, int hint,
+            TComparator<? super T> c) {
+        int lastOffset = 0;
+        int offset = 1;
+        if (c.compare(key, (T) array[base + hint]) < 0) {
+            int maxOffset = hint + 1;
+            while (offset < maxOffset && c.compare(key, (T) array[base + hint - offset]) < 0) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            int t = lastOffset;
+            lastOffset = hint - offset;
+            offset = hint - t;
+        } else {
+            int maxOffset = length - hint;
+            while (offset < maxOffset && c.compare(key, (T) array[base + hint + offset]) >= 0) {
+                lastOffset = offset;
+                offset = (offset << 1) + 1;
+                if (offset <= 0) {
+                    offset = maxOffset;
+                }
+            }
+            if (offset > maxOffset) {
+                offset = maxOffset;
+            }
+            lastOffset += hint;
+            offset += hint;
+        }
+
+        ++lastOffset;
+        while (lastOffset < offset) {
+            int middle = lastOffset + ((offset - lastOffset) >>> 1);
+            if (c.compare(key, (T) array[base + middle]) < 0) {
+                offset = middle;
+            } else {
+                lastOffset = middle + 1;
+            }
+        }
+        return offset;
+    }
+
+    /*
+     * Merges adjacent runs from left to right, copying the first (shorter) run to temporary storage.
+     */
+    @SuppressWarnings("unchecked")
+    private void mergeLow(int base1, int length1, int base2, int length2) {
+        Object[] tmp = ensureCapacity(length1);
+        System.arraycopy(a, base1, tmp, 0, length1);
+        int cursor1 = 0;
+        int end1 = length1;
+        int cursor2 = base2;
+        int end2 = base2 + length2;
+        int dest = base1;
+        int minGallop = this.minGallop;
+
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+            do {
+                if (c.compare(a[cursor2], (T) tmp[cursor1]) < 0) {
+                    a[dest++] = a[cursor2++];
+                    count2++;
+                    count1 = 0;
+                    if (cursor2 == end2) {
+                        break outer;
+                    }
+                } else {
+                    a[dest++] = (T) tmp[cursor1++];
+                    count1++;
+                    count2 = 0;
+                    if (cursor1 == end1) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < minGallop);
+
+            do {
+                count1 = gallopRight(a[cursor2], tmp, cursor1, end1 - cursor1, 0, c);
+                if (count1 != 0) {
+                    System.arraycopy(tmp, cursor1, a, dest, count1);
+                    dest += count1;
+                    cursor1 += count1;
+                    if (cursor1 == end1) {
+                        break outer;
+                    }
+                }
+                a[dest++] = a[cursor2++];
+                if (cursor2 == end2) {
+                    break outer;
+                }
+
+                count2 = gallopLeft((T) tmp[cursor1], a, cursor2, end2 - cursor2, 0, c);
+                if (count2 != 0) {
+                    System.arraycopy(a, cursor2, a, dest, count2);
+                    dest += count2;
+                    cursor2 += count2;
+                    if (cursor2 == end2) {
+                        break outer;
+                    }
+                }
+                a[dest++] = (T) tmp[cursor1++];
+                if (cursor1 == end1) {
+                    break outer;
+                }
+                --minGallop;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            if (minGallop < 0) {
+                minGallop = 0;
+            }
+            minGallop += 2;
+        }
+        this.minGallop = Math.max(1, minGallop);
+
+        // Rest of the second run is already in place
+        System.arraycopy(tmp, cursor1, a, dest, end1 - cursor1);
+    }
+
+    /*
+     * Merges adjacent runs from right to left, copying the second (shorter) run to temporary storage.
+     */
+    @SuppressWarnings("unchecked")
+    private void mergeHigh(int base1, int length1, int base2, int length2) {
+        Object[] tmp = ensureCapacity(length2);
+        System.arraycopy(a, base2, tmp, 0, length2);
+        int cursor1 = base1 + length1 - 1;
+        int cursor2 = length2 - 1;
+        int dest = base2 + length2 - 1;
+        int minGallop = this.minGallop;
+
+        outer:
+        while (true) {
+            int count1 = 0;
+            int count2 = 0;
+            do {
+                if (c.compare((T) tmp[cursor2], a[cursor1]) < 0) {
+                    a[dest--] = a[cursor1--];
+                    count1++;
+                    count2 = 0;
+                    if (cursor1 < base1) {
+                        break outer;
+                    }
+                } else {
+                    a[dest--] = (T) tmp[cursor2--];
+                    count2++;
+                    count1 = 0;
+                    if (cursor2 < 0) {
+                        break outer;
+                    }
+                }
+            } while ((count1 | count2) < minGallop);
+
+            do {
+                int remaining1 = cursor1 - base1 + 1;
+                count1 = remaining1 - gallopRight((T) tmp[cursor2], a, base1, remaining1, remaining1 - 1, c);
+                if (count1 != 0) {
+                    dest -= count1;
+                    cursor1 -= count1;
+                    System.arraycopy(a, cursor1 + 1, a, dest + 1, count1);
+                    if (cursor1 < base1) {
+                        break outer;
+                    }
+                }
+                a[dest--] = (T) tmp[cursor2--];
+                if (cursor2 < 0) {
+                    break outer;
+                }
+
+                count2 = cursor2 + 1 - gallopLeft(a[cursor1], tmp, 0, cursor2 + 1, cursor2, c);
+                if (count2 != 0) {
+                    dest -= count2;
+                    cursor2 -= count2;
+                    System.arraycopy(tmp, cursor2 + 1, a, dest + 1, count2);
+                    if (cursor2 < 0) {
+                        break outer;
+                    }
+                }
+                a[dest--] = a[cursor1--];
+                if (cursor1 < base1) {
+                    break outer;
+                }
+                --minGallop;
+            } while (count1 >= MIN_GALLOP || count2 >= MIN_GALLOP);
+            if (minGallop < 0) {
+                minGallop = 0;
+            }
+            minGallop += 2;
+        }
+        this.minGallop = Math.max(1, minGallop);
+
+        // Rest of the first run is already in place
+        System.arraycopy(tmp, 0, a, dest - cursor2, cursor2 + 1);
+    }
+
+    private Object[] ensureCapacity(int capacity) {
+        if (tmp == null || tmp.length < capacity) {
+            int newCapacity = tmp != null ? Math.max(tmp.length * 2, capacity) : capacity;
+            tmp = new Object[Math.min(newCapacity, a.length / 2 + 1)];
+        }
+        return tmp;
+    }
+}
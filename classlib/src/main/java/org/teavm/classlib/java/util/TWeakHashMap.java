@@ -0,0 +1,346 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import java.util.ConcurrentModificationException;
+import org.teavm.classlib.java.lang.TIllegalArgumentException;
+import org.teavm.classlib.java.lang.TIllegalStateException;
+import org.teavm.classlib.java.lang.ref.TReferenceQueue;
+import org.teavm.classlib.java.lang.ref.TWeakReference;
+
+/**
+ * <p>Hash map that holds its keys with weak references. Entries whose keys were collected are removed on
+ * subsequent operations with the map.</p>
+ *
+ * @param <K> type of keys.
+ * @param <V> type of values.
+ */
+public class TWeakHashMap<K, V> extends TAbstractMap<K, V> implements TMap<K, V> {
+    private static final Object NULL_KEY = new Object();
+    private static final float DEFAULT_LOAD_FACTOR = 0.75f;
+    private TReferenceQueue<Object> queue = new TReferenceQueue<>();
+    private WeakEntry<K, V>[] table;
+    private int size;
+    private int threshold;
+    private float loadFactor;
+    private int modCount;
+    private TSet<TMap.Entry<K, V>> entrySet;
+
+    public TWeakHashMap() {
+        this(16, DEFAULT_LOAD_FACTOR);
+    }
+
+    public TWeakHashMap(int capacity) {
+        this(capacity, DEFAULT_LOAD_FACTOR);
+    }
+
+    public TWeakHashMap(int capacity, float loadFactor) {
+        if (capacity < 0 || loadFactor <= 0) {
+            throw new TIllegalArgumentException();
+        }
+        int tableSize = 1;
+        while (tableSize < capacity) {
+            tableSize <<= 1;
+        }
+        this.loadFactor = loadFactor;
+        table = newTable(tableSize);
+        threshold = (int) (tableSize * loadFactor);
+    }
+
+    public TWeakHashMap(TMap<? extends K, ? extends V> map) {
+        this(Math.max((int) (map.size() / DEFAULT_LOAD_FACTOR) + 1, 16), DEFAULT_LOAD_FACTOR);
+        putAll(map);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K, V> WeakEntry<K, V>[] newTable(int size) {
+        return (WeakEntry<K, V>[]) new WeakEntry<?, ?>[size];
+    }
+
+    private static Object maskNull(Object key) {
+        return key != null ? key : NULL_KEY;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K> K unmaskNull(Object key) {
+        return key != NULL_KEY ? (K) key : null;
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private void expungeStaleEntries() {
+        while (true) {
+            @SuppressWarnings("unchecked")
+            WeakEntry<K, V> stale = (WeakEntry<K, V>) queue.poll();
+            if (stale == null) {
+                break;
+            }
+            removeEntry(stale);
+        }
+    }
+
+    private void removeEntry(WeakEntry<K, V> entry) {
+        int index = entry.hash & (table.length - 1);
+        WeakEntry<K, V> previous = null;
+        for (WeakEntry<K, V> e = table[index]; e != null; e = e.nextEntry) {
+            if (e == entry) {
+                if (previous == null) {
+                    table[index] = e.nextEntry;
+                } else {
+                    previous.nextEntry = e.nextEntry;
+                }
+                e.value = null;
+                --size;
+                ++modCount;
+                return;
+            }
+            previous = e;
+        }
+    }
+
+    private WeakEntry<K, V> findEntry(Object key) {
+        Object k = maskNull(key);
+        int h = hash(k);
+        for (WeakEntry<K, V> e = table[h & (table.length - 1)]; e != null; e = e.nextEntry) {
+            if (e.hash == h) {
+                Object entryKey = e.get();
+                if (entryKey == k || k.equals(entryKey)) {
+                    return e;
+                }
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int size() {
+        expungeStaleEntries();
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        expungeStaleEntries();
+        WeakEntry<K, V> entry = findEntry(key);
+        return entry != null ? entry.value : null;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        expungeStaleEntries();
+        return findEntry(key) != null;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        expungeStaleEntries();
+        WeakEntry<K, V> entry = findEntry(key);
+        if (entry != null) {
+            V old = entry.value;
+            entry.value = value;
+            return old;
+        }
+
+        Object k = maskNull(key);
+        int h = hash(k);
+        int index = h & (table.length - 1);
+        table[index] = new WeakEntry<>(k, value, h, queue, table[index]);
+        ++modCount;
+        if (++size > threshold) {
+            resize(table.length * 2);
+        }
+        return null;
+    }
+
+    private void resize(int newSize) {
+        WeakEntry<K, V>[] newTable = newTable(newSize);
+        for (WeakEntry<K, V> head : table) {
+            WeakEntry<K, V> e = head;
+            while (e != null) {
+                WeakEntry<K, V> next = e.nextEntry;
+                if (e.get() == null) {
+                    e.value = null;
+                    --size;
+                } else {
+                    int index = e.hash & (newSize - 1);
+                    e.nextEntry = newTable[index];
+                    newTable[index] = e;
+                }
+                e = next;
+            }
+        }
+        table = newTable;
+        threshold = (int) (newSize * loadFactor);
+    }
+
+    @Override
+    public V remove(Object key) {
+        expungeStaleEntries();
+        WeakEntry<K, V> entry = findEntry(key);
+        if (entry == null) {
+            return null;
+        }
+        V old = entry.value;
+        removeEntry(entry);
+        return old;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < table.length; ++i) {
+            table[i] = null;
+        }
+        size = 0;
+        ++modCount;
+        while (queue.poll() != null) {
+            // Entries of the old table are not needed anymore
+        }
+    }
+
+    @Override
+    public TSet<TMap.Entry<K, V>> entrySet() {
+        if (entrySet == null) {
+            entrySet = new EntrySet();
+        }
+        return entrySet;
+    }
+
+    private class EntrySet extends TAbstractSet<TMap.Entry<K, V>> {
+        @Override
+        public int size() {
+            return TWeakHashMap.this.size();
+        }
+
+        @Override
+        public void clear() {
+            TWeakHashMap.this.clear();
+        }
+
+        @Override
+        public TIterator<TMap.Entry<K, V>> iterator() {
+            return new EntryIterator();
+        }
+    }
+
+    private class EntryIterator implements TIterator<TMap.Entry<K, V>> {
+        private int index;
+        private WeakEntry<K, V> nextEntry;
+        // Strong reference to the key of the next entry, so that it is not collected between hasNext and next
+        private Object nextKey;
+        private WeakEntry<K, V> lastReturned;
+        private int expectedModCount = modCount;
+
+        @Override
+        public boolean hasNext() {
+            while (nextKey == null) {
+                if (nextEntry != null) {
+                    nextEntry = nextEntry.nextEntry;
+                }
+                while (nextEntry == null) {
+                    if (index >= table.length) {
+                        return false;
+                    }
+                    nextEntry = table[index++];
+                }
+                nextKey = nextEntry.get();
+            }
+            return true;
+        }
+
+        @Override
+        public TMap.Entry<K, V> next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new TNoSuchElementException();
+            }
+            lastReturned = nextEntry;
+            nextKey = null;
+            return lastReturned;
+        }
+
+        @Override
+        public void remove() {
+            if (lastReturned == null) {
+                throw new TIllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeEntry(lastReturned);
+            expectedModCount = modCount;
+            lastReturned = null;
+        }
+    }
+
+    static class WeakEntry<K, V> extends TWeakReference<Object> implements TMap.Entry<K, V> {
+        final int hash;
+        V value;
+        WeakEntry<K, V> nextEntry;
+
+        WeakEntry(Object key, V value, int hash, TReferenceQueue<Object> queue, WeakEntry<K, V> nextEntry) {
+            super(key, queue);
+            this.value = value;
+            this.hash = hash;
+            this.nextEntry = nextEntry;
+        }
+
+        @Override
+        public K getKey() {
+            return unmaskNull(get());
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V old = this.value;
+            this.value = value;
+            return old;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof TMap.Entry)) {
+                return false;
+            }
+            TMap.Entry<?, ?> other = (TMap.Entry<?, ?>) obj;
+            return TObjects.equals(getKey(), other.getKey()) && TObjects.equals(value, other.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return TObjects.hashCode(getKey()) ^ TObjects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return getKey() + "=" + value;
+        }
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.util.TArrayList;
+import org.teavm.classlib.java.util.TCollection;
+import org.teavm.classlib.java.util.TIterator;
+import org.teavm.classlib.java.util.TList;
+
+public abstract class TAbstractExecutorService implements TExecutorService {
+    protected <T> TRunnableFuture<T> newTaskFor(TRunnable runnable, T value) {
+        return new TFutureTask<>(runnable, value);
+    }
+
+    protected <T> TRunnableFuture<T> newTaskFor(TCallable<T> callable) {
+        return new TFutureTask<>(callable);
+    }
+
+    @Override
+    public TFuture<?> submit(TRunnable task) {
+        return submit(task, null);
+    }
+
+    @Override
+    public <T> TFuture<T> submit(TRunnable task, T result) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        TRunnableFuture<T> future = newTaskFor(task, result);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> TFuture<T> submit(TCallable<T> task) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        TRunnableFuture<T> future = newTaskFor(task);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> TList<TFuture<T>> invokeAll(TCollection<? extends TCallable<T>> tasks) throws InterruptedException {
+        TList<TFuture<T>> futures = submitAll(tasks);
+        for (int i = 0; i < futures.size(); ++i) {
+            try {
+                futures.get(i).get();
+            } catch (TExecutionException | TCancellationException e) {
+                // ignore, exception is reported by the future itself
+            }
+        }
+        return futures;
+    }
+
+    @Override
+    public <T> TList<TFuture<T>> invokeAll(TCollection<? extends TCallable<T>> tasks, long timeout, TTimeUnit unit)
+            throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        TList<TFuture<T>> futures = submitAll(tasks);
+        for (int i = 0; i < futures.size(); ++i) {
+            try {
+                futures.get(i).get(Math.max(1, deadline - System.currentTimeMillis()), TTimeUnit.MILLISECONDS);
+            } catch (TExecutionException | TCancellationException e) {
+                // ignore, exception is reported by the future itself
+            } catch (TTimeoutException e) {
+                cancelAll(futures);
+                break;
+            }
+        }
+        return futures;
+    }
+
+    @Override
+    public <T> T invokeAny(TCollection<? extends TCallable<T>> tasks) throws InterruptedException,
+            TExecutionException {
+        try {
+            return invokeAny(tasks, false, 0);
+        } catch (TTimeoutException e) {
+            throw new AssertionError();
+        }
+    }
+
+    @Override
+    public <T> T invokeAny(TCollection<? extends TCallable<T>> tasks, long timeout, TTimeUnit unit)
+            throws InterruptedException, TExecutionException, TTimeoutException {
+        return invokeAny(tasks, true, System.currentTimeMillis() + unit.toMillis(timeout));
+    }
+
+    private <T> T invokeAny(TCollection<? extends TCallable<T>> tasks, boolean timed, long deadline)
+            throws InterruptedException, TExecutionException, TTimeoutException {
+        if (tasks.isEmpty()) {
+            throw new IllegalArgumentException();
+        }
+        TList<TFuture<T>> futures = submitAll(tasks);
+        TExecutionException lastException = null;
+        try {
+            for (int i = 0; i < futures.size(); ++i) {
+                try {
+                    if (timed) {
+                        long remaining = deadline - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            throw new TTimeoutException();
+                        }
+                        return futures.get(i).get(remaining, TTimeUnit.MILLISECONDS);
+                    }
+                    return futures.get(i).get();
+                } catch (TExecutionException e) {
+                    lastException = e;
+                } catch (TCancellationException e) {
+                    lastException = new TExecutionException(e);
+                }
+            }
+        } finally {
+            cancelAll(futures);
+        }
+        throw lastException;
+    }
+
+    private <T> TList<TFuture<T>> submitAll(TCollection<? extends TCallable<T>> tasks) {
+        TList<TFuture<T>> futures = new TArrayList<>(tasks.size());
+        for (TIterator<? extends TCallable<T>> iter = tasks.iterator(); iter.hasNext();) {
+            futures.add(submit(iter.next()));
+        }
+        return futures;
+    }
+
+    private static <T> void cancelAll(TList<TFuture<T>> futures) {
+        for (int i = 0; i < futures.size(); ++i) {
+            futures.get(i).cancel(true);
+        }
+    }
+}
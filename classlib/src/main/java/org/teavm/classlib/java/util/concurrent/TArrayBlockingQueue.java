@@ -0,0 +1,257 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.lang.TThreadWaitQueue;
+import org.teavm.classlib.java.util.TAbstractQueue;
+import org.teavm.classlib.java.util.TCollection;
+import org.teavm.classlib.java.util.TIterator;
+import org.teavm.classlib.java.util.TNoSuchElementException;
+
+/**
+ * <p>Bounded queue backed by a circular array. Non-blocking operations never suspend, so they need no locking
+ * and cost the same as in a plain queue. Blocking operations suspend current thread on one of two wait queues,
+ * which are signalled by the opposite operations.</p>
+ */
+public class TArrayBlockingQueue<E> extends TAbstractQueue<E> implements TBlockingQueue<E> {
+    private Object[] items;
+    private int takeIndex;
+    private int count;
+    private TThreadWaitQueue notEmpty = new TThreadWaitQueue();
+    private TThreadWaitQueue notFull = new TThreadWaitQueue();
+
+    public TArrayBlockingQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException();
+        }
+        items = new Object[capacity];
+    }
+
+    public TArrayBlockingQueue(int capacity, boolean fair) {
+        this(capacity);
+    }
+
+    public TArrayBlockingQueue(int capacity, boolean fair, TCollection<? extends E> c) {
+        this(capacity);
+        for (TIterator<? extends E> iter = c.iterator(); iter.hasNext();) {
+            if (!offer(iter.next())) {
+                throw new IllegalArgumentException();
+            }
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        if (count == items.length) {
+            return false;
+        }
+        enqueue(e);
+        return true;
+    }
+
+    @Override
+    public void put(E e) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        while (count == items.length) {
+            notFull.await(0);
+        }
+        enqueue(e);
+    }
+
+    @Override
+    public boolean offer(E e, long timeout, TTimeUnit unit) throws InterruptedException {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (count == items.length) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            notFull.await(remaining);
+        }
+        enqueue(e);
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        return count > 0 ? dequeue() : null;
+    }
+
+    @Override
+    public E take() throws InterruptedException {
+        while (count == 0) {
+            notEmpty.await(0);
+        }
+        return dequeue();
+    }
+
+    @Override
+    public E poll(long timeout, TTimeUnit unit) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (count == 0) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return null;
+            }
+            notEmpty.await(remaining);
+        }
+        return dequeue();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E peek() {
+        return count > 0 ? (E) items[takeIndex] : null;
+    }
+
+    @Override
+    public int size() {
+        return count;
+    }
+
+    @Override
+    public int remainingCapacity() {
+        return items.length - count;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (int i = 0; i < count; ++i) {
+            if (o.equals(items[index(i)])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (int i = 0; i < count; ++i) {
+            if (o.equals(items[index(i)])) {
+                removeAt(i);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < count; ++i) {
+            items[index(i)] = null;
+        }
+        takeIndex = 0;
+        count = 0;
+        notFull.signalAll();
+    }
+
+    @Override
+    public int drainTo(TCollection<? super E> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(TCollection<? super E> c, int maxElements) {
+        if (c == null) {
+            throw new NullPointerException();
+        }
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        int n = Math.min(maxElements, count);
+        for (int i = 0; i < n; ++i) {
+            c.add(dequeue());
+        }
+        return n;
+    }
+
+    @Override
+    public TIterator<E> iterator() {
+        return new TIterator<E>() {
+            int position;
+            int lastPosition = -1;
+
+            @Override
+            public boolean hasNext() {
+                return position < count;
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public E next() {
+                if (position >= count) {
+                    throw new TNoSuchElementException();
+                }
+                lastPosition = position++;
+                return (E) items[index(lastPosition)];
+            }
+
+            @Override
+            public void remove() {
+                if (lastPosition < 0) {
+                    throw new IllegalStateException();
+                }
+                removeAt(lastPosition);
+                position = lastPosition;
+                lastPosition = -1;
+            }
+        };
+    }
+
+    private int index(int offset) {
+        int index = takeIndex + offset;
+        return index < items.length ? index : index - items.length;
+    }
+
+    private void enqueue(E e) {
+        items[index(count++)] = e;
+        notEmpty.signal();
+    }
+
+    @SuppressWarnings("unchecked")
+    private E dequeue() {
+        E e = (E) items[takeIndex];
+        items[takeIndex] = null;
+        if (++takeIndex == items.length) {
+            takeIndex = 0;
+        }
+        count--;
+        notFull.signal();
+        return e;
+    }
+
+    private void removeAt(int offset) {
+        for (int i = offset + 1; i < count; ++i) {
+            items[index(i - 1)] = items[index(i)];
+        }
+        items[index(--count)] = null;
+        notFull.signal();
+    }
+}
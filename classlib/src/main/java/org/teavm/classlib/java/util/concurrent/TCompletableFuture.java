@@ -0,0 +1,641 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.lang.TThread;
+import org.teavm.classlib.java.lang.TThreadWaitQueue;
+import org.teavm.classlib.java.lang.TThrowable;
+import org.teavm.classlib.java.util.TArrayList;
+import org.teavm.classlib.java.util.TList;
+import org.teavm.classlib.java.util.function.TBiConsumer;
+import org.teavm.classlib.java.util.function.TBiFunction;
+import org.teavm.classlib.java.util.function.TConsumer;
+import org.teavm.classlib.java.util.function.TFunction;
+import org.teavm.classlib.java.util.function.TSupplier;
+
+/**
+ * <p>Dependent actions are stored in a plain list and run by the thread that completes the future, no locking
+ * is needed since green threads are never switched in the middle of non-blocking code. Only threads that
+ * wait for result with {@link #get()} or {@link #join()} are suspended. Async actions without explicit
+ * executor run in new green threads.</p>
+ */
+public class TCompletableFuture<T> implements TFuture<T>, TCompletionStage<T> {
+    private static final TExecutor ASYNC_EXECUTOR = task -> new TThread(task).start();
+    private boolean done;
+    private T value;
+    private Throwable exception;
+    private TList<TRunnable> dependents;
+    private TThreadWaitQueue waiters;
+
+    public TCompletableFuture() {
+    }
+
+    public static <U> TCompletableFuture<U> supplyAsync(TSupplier<U> supplier) {
+        return supplyAsync(supplier, ASYNC_EXECUTOR);
+    }
+
+    public static <U> TCompletableFuture<U> supplyAsync(TSupplier<U> supplier, TExecutor executor) {
+        if (supplier == null || executor == null) {
+            throw new NullPointerException();
+        }
+        TCompletableFuture<U> future = new TCompletableFuture<>();
+        run(executor, future, () -> future.complete(supplier.get()));
+        return future;
+    }
+
+    public static TCompletableFuture<Void> runAsync(TRunnable runnable) {
+        return runAsync(runnable, ASYNC_EXECUTOR);
+    }
+
+    public static TCompletableFuture<Void> runAsync(TRunnable runnable, TExecutor executor) {
+        if (runnable == null || executor == null) {
+            throw new NullPointerException();
+        }
+        TCompletableFuture<Void> future = new TCompletableFuture<>();
+        run(executor, future, () -> {
+            runnable.run();
+            future.complete(null);
+        });
+        return future;
+    }
+
+    public static <U> TCompletableFuture<U> completedFuture(U value) {
+        TCompletableFuture<U> future = new TCompletableFuture<>();
+        future.complete(value);
+        return future;
+    }
+
+    public static TCompletableFuture<Void> allOf(TCompletableFuture<?>... futures) {
+        TCompletableFuture<Void> result = new TCompletableFuture<>();
+        int[] remaining = { futures.length };
+        if (futures.length == 0) {
+            result.complete(null);
+        }
+        for (TCompletableFuture<?> future : futures) {
+            future.onComplete(() -> {
+                if (--remaining[0] > 0) {
+                    return;
+                }
+                for (TCompletableFuture<?> f : futures) {
+                    if (f.exception != null) {
+                        result.completeThrowable(f.exception);
+                        return;
+                    }
+                }
+                result.complete(null);
+            });
+        }
+        return result;
+    }
+
+    public static TCompletableFuture<Object> anyOf(TCompletableFuture<?>... futures) {
+        TCompletableFuture<Object> result = new TCompletableFuture<>();
+        for (TCompletableFuture<?> future : futures) {
+            future.onComplete(() -> result.propagate(future));
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isDone() {
+        return done;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return exception instanceof TCancellationException;
+    }
+
+    public boolean isCompletedExceptionally() {
+        return exception != null;
+    }
+
+    public int getNumberOfDependents() {
+        return dependents != null ? dependents.size() : 0;
+    }
+
+    @Override
+    public T get() throws InterruptedException, TExecutionException {
+        while (!done) {
+            getWaiters().await(0);
+        }
+        return reportGet();
+    }
+
+    @Override
+    public T get(long timeout, TTimeUnit unit) throws InterruptedException, TExecutionException, TTimeoutException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!done) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TTimeoutException();
+            }
+            getWaiters().await(remaining);
+        }
+        return reportGet();
+    }
+
+    public T join() {
+        boolean interrupted = false;
+        while (!done) {
+            try {
+                getWaiters().await(0);
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            TThread.currentThread().interrupt();
+        }
+        return reportJoin();
+    }
+
+    public T getNow(T valueIfAbsent) {
+        return done ? reportJoin() : valueIfAbsent;
+    }
+
+    public boolean complete(T value) {
+        return completeWith(value, null);
+    }
+
+    public boolean completeExceptionally(Throwable ex) {
+        if (ex == null) {
+            throw new NullPointerException();
+        }
+        return completeWith(null, ex);
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        completeWith(null, new TCancellationException());
+        return isCancelled();
+    }
+
+    @Override
+    public TCompletableFuture<T> toCompletableFuture() {
+        return this;
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> thenApply(TFunction<? super T, ? extends U> fn) {
+        return applyStage(null, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> thenApplyAsync(TFunction<? super T, ? extends U> fn) {
+        return applyStage(ASYNC_EXECUTOR, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> thenApplyAsync(TFunction<? super T, ? extends U> fn, TExecutor executor) {
+        return applyStage(checkExecutor(executor), fn);
+    }
+
+    private <U> TCompletableFuture<U> applyStage(TExecutor executor, TFunction<? super T, ? extends U> fn) {
+        return uniStage(this, executor, (v, e, target) -> {
+            if (e != null) {
+                target.completeThrowable(e);
+            } else {
+                target.complete(fn.apply(v));
+            }
+        });
+    }
+
+    @Override
+    public TCompletableFuture<Void> thenAccept(TConsumer<? super T> action) {
+        return acceptStage(null, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> thenAcceptAsync(TConsumer<? super T> action) {
+        return acceptStage(ASYNC_EXECUTOR, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> thenAcceptAsync(TConsumer<? super T> action, TExecutor executor) {
+        return acceptStage(checkExecutor(executor), action);
+    }
+
+    private TCompletableFuture<Void> acceptStage(TExecutor executor, TConsumer<? super T> action) {
+        return uniStage(this, executor, (v, e, target) -> {
+            if (e != null) {
+                target.completeThrowable(e);
+            } else {
+                action.accept(v);
+                target.complete(null);
+            }
+        });
+    }
+
+    @Override
+    public TCompletableFuture<Void> thenRun(TRunnable action) {
+        return runStage(this, null, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> thenRunAsync(TRunnable action) {
+        return runStage(this, ASYNC_EXECUTOR, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> thenRunAsync(TRunnable action, TExecutor executor) {
+        return runStage(this, checkExecutor(executor), action);
+    }
+
+    @Override
+    public <U, V> TCompletableFuture<V> thenCombine(TCompletionStage<? extends U> other,
+            TBiFunction<? super T, ? super U, ? extends V> fn) {
+        return combineStage(other, null, fn);
+    }
+
+    @Override
+    public <U, V> TCompletableFuture<V> thenCombineAsync(TCompletionStage<? extends U> other,
+            TBiFunction<? super T, ? super U, ? extends V> fn) {
+        return combineStage(other, ASYNC_EXECUTOR, fn);
+    }
+
+    @Override
+    public <U, V> TCompletableFuture<V> thenCombineAsync(TCompletionStage<? extends U> other,
+            TBiFunction<? super T, ? super U, ? extends V> fn, TExecutor executor) {
+        return combineStage(other, checkExecutor(executor), fn);
+    }
+
+    private <U, V> TCompletableFuture<V> combineStage(TCompletionStage<? extends U> other, TExecutor executor,
+            TBiFunction<? super T, ? super U, ? extends V> fn) {
+        return biStage(this, other.toCompletableFuture(), executor,
+                (BiCompletion<T, U, V>) (a, b, target) -> target.complete(fn.apply(a, b)));
+    }
+
+    @Override
+    public <U> TCompletableFuture<Void> thenAcceptBoth(TCompletionStage<? extends U> other,
+            TBiConsumer<? super T, ? super U> action) {
+        return acceptBothStage(other, null, action);
+    }
+
+    @Override
+    public <U> TCompletableFuture<Void> thenAcceptBothAsync(TCompletionStage<? extends U> other,
+            TBiConsumer<? super T, ? super U> action) {
+        return acceptBothStage(other, ASYNC_EXECUTOR, action);
+    }
+
+    @Override
+    public <U> TCompletableFuture<Void> thenAcceptBothAsync(TCompletionStage<? extends U> other,
+            TBiConsumer<? super T, ? super U> action, TExecutor executor) {
+        return acceptBothStage(other, checkExecutor(executor), action);
+    }
+
+    private <U> TCompletableFuture<Void> acceptBothStage(TCompletionStage<? extends U> other, TExecutor executor,
+            TBiConsumer<? super T, ? super U> action) {
+        return biStage(this, other.toCompletableFuture(), executor, (BiCompletion<T, U, Void>) (a, b, target) -> {
+            action.accept(a, b);
+            target.complete(null);
+        });
+    }
+
+    @Override
+    public TCompletableFuture<Void> runAfterBoth(TCompletionStage<?> other, TRunnable action) {
+        return runAfterBothStage(other, null, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> runAfterBothAsync(TCompletionStage<?> other, TRunnable action) {
+        return runAfterBothStage(other, ASYNC_EXECUTOR, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> runAfterBothAsync(TCompletionStage<?> other, TRunnable action,
+            TExecutor executor) {
+        return runAfterBothStage(other, checkExecutor(executor), action);
+    }
+
+    private TCompletableFuture<Void> runAfterBothStage(TCompletionStage<?> other, TExecutor executor,
+            TRunnable action) {
+        return biStage(this, other.toCompletableFuture(), executor, (BiCompletion<T, Object, Void>) (a, b, t) -> {
+            action.run();
+            t.complete(null);
+        });
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> applyToEither(TCompletionStage<? extends T> other,
+            TFunction<? super T, U> fn) {
+        return either(this, other.toCompletableFuture()).applyStage(null, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> applyToEitherAsync(TCompletionStage<? extends T> other,
+            TFunction<? super T, U> fn) {
+        return either(this, other.toCompletableFuture()).applyStage(ASYNC_EXECUTOR, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> applyToEitherAsync(TCompletionStage<? extends T> other,
+            TFunction<? super T, U> fn, TExecutor executor) {
+        return either(this, other.toCompletableFuture()).applyStage(checkExecutor(executor), fn);
+    }
+
+    @Override
+    public TCompletableFuture<Void> acceptEither(TCompletionStage<? extends T> other,
+            TConsumer<? super T> action) {
+        return either(this, other.toCompletableFuture()).acceptStage(null, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> acceptEitherAsync(TCompletionStage<? extends T> other,
+            TConsumer<? super T> action) {
+        return either(this, other.toCompletableFuture()).acceptStage(ASYNC_EXECUTOR, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> acceptEitherAsync(TCompletionStage<? extends T> other,
+            TConsumer<? super T> action, TExecutor executor) {
+        return either(this, other.toCompletableFuture()).acceptStage(checkExecutor(executor), action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> runAfterEither(TCompletionStage<?> other, TRunnable action) {
+        return runStage(either(this, other.toCompletableFuture()), null, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> runAfterEitherAsync(TCompletionStage<?> other, TRunnable action) {
+        return runStage(either(this, other.toCompletableFuture()), ASYNC_EXECUTOR, action);
+    }
+
+    @Override
+    public TCompletableFuture<Void> runAfterEitherAsync(TCompletionStage<?> other, TRunnable action,
+            TExecutor executor) {
+        return runStage(either(this, other.toCompletableFuture()), checkExecutor(executor), action);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> thenCompose(TFunction<? super T, ? extends TCompletionStage<U>> fn) {
+        return composeStage(null, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> thenComposeAsync(TFunction<? super T, ? extends TCompletionStage<U>> fn) {
+        return composeStage(ASYNC_EXECUTOR, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> thenComposeAsync(TFunction<? super T, ? extends TCompletionStage<U>> fn,
+            TExecutor executor) {
+        return composeStage(checkExecutor(executor), fn);
+    }
+
+    private <U> TCompletableFuture<U> composeStage(TExecutor executor,
+            TFunction<? super T, ? extends TCompletionStage<U>> fn) {
+        return uniStage(this, executor, (v, e, target) -> {
+            if (e != null) {
+                target.completeThrowable(e);
+            } else {
+                TCompletableFuture<U> next = fn.apply(v).toCompletableFuture();
+                next.onComplete(() -> target.propagate(next));
+            }
+        });
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> handle(TBiFunction<? super T, Throwable, ? extends U> fn) {
+        return handleStage(null, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> handleAsync(TBiFunction<? super T, Throwable, ? extends U> fn) {
+        return handleStage(ASYNC_EXECUTOR, fn);
+    }
+
+    @Override
+    public <U> TCompletableFuture<U> handleAsync(TBiFunction<? super T, Throwable, ? extends U> fn,
+            TExecutor executor) {
+        return handleStage(checkExecutor(executor), fn);
+    }
+
+    private <U> TCompletableFuture<U> handleStage(TExecutor executor,
+            TBiFunction<? super T, Throwable, ? extends U> fn) {
+        return uniStage(this, executor, (v, e, target) -> target.complete(fn.apply(v, e)));
+    }
+
+    @Override
+    public TCompletableFuture<T> whenComplete(TBiConsumer<? super T, ? super Throwable> action) {
+        return whenCompleteStage(null, action);
+    }
+
+    @Override
+    public TCompletableFuture<T> whenCompleteAsync(TBiConsumer<? super T, ? super Throwable> action) {
+        return whenCompleteStage(ASYNC_EXECUTOR, action);
+    }
+
+    @Override
+    public TCompletableFuture<T> whenCompleteAsync(TBiConsumer<? super T, ? super Throwable> action,
+            TExecutor executor) {
+        return whenCompleteStage(checkExecutor(executor), action);
+    }
+
+    private TCompletableFuture<T> whenCompleteStage(TExecutor executor,
+            TBiConsumer<? super T, ? super Throwable> action) {
+        return uniStage(this, executor, (v, e, target) -> {
+            try {
+                action.accept(v, e);
+            } catch (Throwable actionException) {
+                if (e == null) {
+                    target.completeThrowable(actionException);
+                    return;
+                }
+            }
+            if (e != null) {
+                target.completeThrowable(e);
+            } else {
+                target.complete(v);
+            }
+        });
+    }
+
+    @Override
+    public TCompletableFuture<T> exceptionally(TFunction<Throwable, ? extends T> fn) {
+        return uniStage(this, null, (v, e, target) -> target.complete(e != null ? fn.apply(e) : v));
+    }
+
+    private static TExecutor checkExecutor(TExecutor executor) {
+        if (executor == null) {
+            throw new NullPointerException();
+        }
+        return executor;
+    }
+
+    private static TCompletableFuture<Void> runStage(TCompletableFuture<?> source, TExecutor executor,
+            TRunnable action) {
+        return uniStage(source, executor, (v, e, target) -> {
+            if (e != null) {
+                target.completeThrowable(e);
+            } else {
+                action.run();
+                target.complete(null);
+            }
+        });
+    }
+
+    private static <S, U> TCompletableFuture<U> uniStage(TCompletableFuture<S> source, TExecutor executor,
+            Completion<S, U> completion) {
+        TCompletableFuture<U> target = new TCompletableFuture<>();
+        source.onComplete(() -> run(executor, target, () -> completion.complete(source.value, source.exception,
+                target)));
+        return target;
+    }
+
+    private static <S1, S2, U> TCompletableFuture<U> biStage(TCompletableFuture<? extends S1> first,
+            TCompletableFuture<? extends S2> second, TExecutor executor, BiCompletion<S1, S2, U> completion) {
+        TCompletableFuture<U> target = new TCompletableFuture<>();
+        first.onComplete(() -> second.onComplete(() -> run(executor, target, () -> {
+            if (first.exception != null) {
+                target.completeThrowable(first.exception);
+            } else if (second.exception != null) {
+                target.completeThrowable(second.exception);
+            } else {
+                completion.complete(first.value, second.value, target);
+            }
+        })));
+        return target;
+    }
+
+    private static <S> TCompletableFuture<S> either(TCompletableFuture<? extends S> first,
+            TCompletableFuture<? extends S> second) {
+        TCompletableFuture<S> result = new TCompletableFuture<>();
+        first.onComplete(() -> result.completeWith(first.value, first.exception));
+        second.onComplete(() -> result.completeWith(second.value, second.exception));
+        return result;
+    }
+
+    private static void run(TExecutor executor, TCompletableFuture<?> target, TRunnable action) {
+        TRunnable task = () -> {
+            try {
+                action.run();
+            } catch (Throwable e) {
+                target.completeThrowable(e);
+            }
+        };
+        if (executor == null) {
+            task.run();
+        } else {
+            try {
+                executor.execute(task);
+            } catch (Throwable e) {
+                target.completeThrowable(e);
+            }
+        }
+    }
+
+    private void onComplete(TRunnable action) {
+        if (done) {
+            action.run();
+        } else {
+            if (dependents == null) {
+                dependents = new TArrayList<>();
+            }
+            dependents.add(action);
+        }
+    }
+
+    private void propagate(TCompletableFuture<? extends T> source) {
+        if (source.exception != null) {
+            completeThrowable(source.exception);
+        } else {
+            complete(source.value);
+        }
+    }
+
+    private void completeThrowable(Throwable e) {
+        completeWith(null, e instanceof TCompletionException ? e : new TCompletionException((TThrowable) e));
+    }
+
+    private boolean completeWith(T value, Throwable exception) {
+        if (done) {
+            return false;
+        }
+        done = true;
+        this.value = value;
+        this.exception = exception;
+        if (waiters != null) {
+            waiters.signalAll();
+            waiters = null;
+        }
+        TList<TRunnable> actions = dependents;
+        dependents = null;
+        if (actions != null) {
+            for (int i = 0; i < actions.size(); ++i) {
+                actions.get(i).run();
+            }
+        }
+        return true;
+    }
+
+    private TThreadWaitQueue getWaiters() {
+        if (waiters == null) {
+            waiters = new TThreadWaitQueue();
+        }
+        return waiters;
+    }
+
+    private T reportGet() throws TExecutionException {
+        if (exception == null) {
+            return value;
+        }
+        if (exception instanceof TCancellationException) {
+            throw (TCancellationException) exception;
+        }
+        Throwable cause = exception;
+        if (cause instanceof TCompletionException && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        throw new TExecutionException((TThrowable) cause);
+    }
+
+    private T reportJoin() {
+        if (exception == null) {
+            return value;
+        }
+        if (exception instanceof TCancellationException) {
+            throw (TCancellationException) exception;
+        }
+        if (exception instanceof TCompletionException) {
+            throw (TCompletionException) exception;
+        }
+        throw new TCompletionException((TThrowable) exception);
+    }
+
+    @Override
+    public String toString() {
+        String state;
+        if (!done) {
+            state = "Not completed";
+        } else if (exception != null) {
+            state = "Completed exceptionally";
+        } else {
+            state = "Completed normally";
+        }
+        return super.toString() + "[" + state + "]";
+    }
+
+    interface Completion<S, U> {
+        void complete(S value, Throwable exception, TCompletableFuture<U> target);
+    }
+
+    interface BiCompletion<S1, S2, U> {
+        void complete(S1 first, S2 second, TCompletableFuture<U> target);
+    }
+}
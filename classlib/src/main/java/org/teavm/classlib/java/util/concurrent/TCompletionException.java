@@ -0,0 +1,40 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.lang.TRuntimeException;
+import org.teavm.classlib.java.lang.TString;
+import org.teavm.classlib.java.lang.TThrowable;
+
+public class TCompletionException extends TRuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public TCompletionException() {
+        super();
+    }
+
+    public TCompletionException(TString message, TThrowable cause) {
+        super(message, cause);
+    }
+
+    public TCompletionException(TString message) {
+        super(message);
+    }
+
+    public TCompletionException(TThrowable cause) {
+        super(cause);
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.util.THashMap;
+import org.teavm.classlib.java.util.TIterator;
+import org.teavm.classlib.java.util.TMap;
+import org.teavm.classlib.java.util.TObjects;
+
+/**
+ * <p>Since green threads are switched only at suspension points and none of map's operations suspends,
+ * every operation is atomic without any locking. So this is just a hash map that rejects nulls and
+ * provides atomic compound operations.</p>
+ */
+public class TConcurrentHashMap<K, V> extends THashMap<K, V> implements TConcurrentMap<K, V> {
+    private static final long serialVersionUID = 1L;
+
+    public TConcurrentHashMap() {
+    }
+
+    public TConcurrentHashMap(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    public TConcurrentHashMap(int initialCapacity, float loadFactor) {
+        super(initialCapacity, loadFactor);
+    }
+
+    public TConcurrentHashMap(int initialCapacity, float loadFactor, int concurrencyLevel) {
+        super(initialCapacity, loadFactor);
+    }
+
+    public TConcurrentHashMap(TMap<? extends K, ? extends V> map) {
+        this(Math.max(map.size() * 2, 16));
+        putAll(map);
+    }
+
+    @Override
+    public V get(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return super.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return super.containsKey(key);
+    }
+
+    @Override
+    public boolean containsValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return super.containsValue(value);
+    }
+
+    public boolean contains(Object value) {
+        return containsValue(value);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        return super.put(key, value);
+    }
+
+    @Override
+    public void putAll(TMap<? extends K, ? extends V> map) {
+        for (TIterator<? extends Entry<? extends K, ? extends V>> iter = map.entrySet().iterator();
+                iter.hasNext();) {
+            Entry<? extends K, ? extends V> entry = iter.next();
+            put(entry.getKey(), entry.getValue());
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        return super.remove(key);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        V existing = get(key);
+        return existing != null ? existing : put(key, value);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        if (value == null) {
+            return false;
+        }
+        V existing = get(key);
+        if (existing != null && TObjects.equals(existing, value)) {
+            super.remove(key);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null) {
+            throw new NullPointerException();
+        }
+        V existing = get(key);
+        if (existing != null && TObjects.equals(existing, oldValue)) {
+            super.put(key, newValue);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return get(key) != null ? super.put(key, value) : null;
+    }
+
+    public long mappingCount() {
+        return size();
+    }
+}
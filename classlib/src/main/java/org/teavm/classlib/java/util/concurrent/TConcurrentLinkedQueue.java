@@ -0,0 +1,183 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.util.TAbstractQueue;
+import org.teavm.classlib.java.util.TCollection;
+import org.teavm.classlib.java.util.TIterator;
+import org.teavm.classlib.java.util.TNoSuchElementException;
+
+/**
+ * <p>Unbounded queue of linked nodes. No operation suspends a thread, so no locking is needed. Iterators are
+ * weakly consistent: removed nodes keep their links, so an iterator that stands on a removed node
+ * continues from where the node used to be.</p>
+ */
+public class TConcurrentLinkedQueue<E> extends TAbstractQueue<E> {
+    private Node<E> head;
+    private Node<E> tail;
+    private int size;
+
+    public TConcurrentLinkedQueue() {
+    }
+
+    public TConcurrentLinkedQueue(TCollection<? extends E> c) {
+        for (TIterator<? extends E> iter = c.iterator(); iter.hasNext();) {
+            offer(iter.next());
+        }
+    }
+
+    @Override
+    public boolean offer(E e) {
+        if (e == null) {
+            throw new NullPointerException();
+        }
+        Node<E> node = new Node<>(e);
+        if (tail == null) {
+            head = node;
+        } else {
+            tail.next = node;
+        }
+        tail = node;
+        size++;
+        return true;
+    }
+
+    @Override
+    public E poll() {
+        Node<E> node = head;
+        if (node == null) {
+            return null;
+        }
+        E item = node.item;
+        unlink(node, null);
+        return item;
+    }
+
+    @Override
+    public E peek() {
+        return head != null ? head.item : null;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return head == null;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        if (o == null) {
+            return false;
+        }
+        for (Node<E> node = head; node != null; node = node.next) {
+            if (o.equals(node.item)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (o == null) {
+            return false;
+        }
+        Node<E> previous = null;
+        for (Node<E> node = head; node != null; node = node.next) {
+            if (o.equals(node.item)) {
+                unlink(node, previous);
+                return true;
+            }
+            previous = node;
+        }
+        return false;
+    }
+
+    private void unlink(Node<E> node, Node<E> previous) {
+        if (previous == null) {
+            head = node.next;
+        } else {
+            previous.next = node.next;
+        }
+        if (tail == node) {
+            tail = previous;
+        }
+        node.item = null;
+        size--;
+    }
+
+    @Override
+    public TIterator<E> iterator() {
+        return new TIterator<E>() {
+            Node<E> nextNode = skipRemoved(head);
+            Node<E> lastNode;
+
+            @Override
+            public boolean hasNext() {
+                return nextNode != null;
+            }
+
+            @Override
+            public E next() {
+                if (nextNode == null) {
+                    throw new TNoSuchElementException();
+                }
+                lastNode = nextNode;
+                E item = lastNode.item;
+                nextNode = skipRemoved(lastNode.next);
+                return item;
+            }
+
+            @Override
+            public void remove() {
+                if (lastNode == null) {
+                    throw new IllegalStateException();
+                }
+                if (lastNode.item != null) {
+                    Node<E> previous = null;
+                    for (Node<E> node = head; node != null; node = node.next) {
+                        if (node == lastNode) {
+                            unlink(node, previous);
+                            break;
+                        }
+                        previous = node;
+                    }
+                }
+                lastNode = null;
+            }
+        };
+    }
+
+    private static <E> Node<E> skipRemoved(Node<E> node) {
+        while (node != null && node.item == null) {
+            node = node.next;
+        }
+        return node;
+    }
+
+    static class Node<E> {
+        E item;
+        Node<E> next;
+
+        Node(E item) {
+            this.item = item;
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.lang.TThread;
+import org.teavm.classlib.java.lang.TThreadWaitQueue;
+import org.teavm.classlib.java.util.TArrayDeque;
+import org.teavm.classlib.java.util.TArrayList;
+import org.teavm.classlib.java.util.TList;
+
+/**
+ * <p>Executor service that runs tasks on green threads. Since threads are switched only when a thread
+ * suspends, submitting a task is just adding it to the queue, no locking is involved. Idle workers suspend
+ * on a wait queue and are woken up one at a time as tasks arrive. New worker is started only when there
+ * are no idle ones and the limit is not reached.</p>
+ */
+class TCooperativeExecutorService extends TAbstractExecutorService {
+    private int maxThreads;
+    private long keepAlive;
+    private TArrayDeque<TRunnable> tasks = new TArrayDeque<>();
+    private TList<TThread> workers = new TArrayList<>();
+    private TThreadWaitQueue idleWorkers = new TThreadWaitQueue();
+    private TThreadWaitQueue termination;
+    private boolean shutdown;
+
+    TCooperativeExecutorService(int maxThreads, long keepAlive) {
+        this.maxThreads = maxThreads;
+        this.keepAlive = keepAlive;
+    }
+
+    @Override
+    public void execute(TRunnable command) {
+        if (command == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new TRejectedExecutionException();
+        }
+        tasks.add(command);
+        if (idleWorkers.hasWaiters()) {
+            idleWorkers.signal();
+        } else if (workers.size() < maxThreads) {
+            TThread worker = new TThread(this::work);
+            workers.add(worker);
+            worker.start();
+        }
+    }
+
+    private void work() {
+        while (true) {
+            TRunnable task = tasks.poll();
+            if (task == null) {
+                if (shutdown || !waitForTask()) {
+                    break;
+                }
+                continue;
+            }
+            TThread.interrupted();
+            try {
+                task.run();
+            } catch (Throwable e) {
+                e.printStackTrace();
+            }
+        }
+        workers.remove(TThread.currentThread());
+        if (isTerminated() && termination != null) {
+            termination.signalAll();
+        }
+    }
+
+    private boolean waitForTask() {
+        try {
+            return idleWorkers.await(keepAlive) || !tasks.isEmpty();
+        } catch (InterruptedException e) {
+            return true;
+        }
+    }
+
+    @Override
+    public void shutdown() {
+        if (shutdown) {
+            return;
+        }
+        shutdown = true;
+        idleWorkers.signalAll();
+        if (isTerminated() && termination != null) {
+            termination.signalAll();
+        }
+    }
+
+    @Override
+    public TList<TRunnable> shutdownNow() {
+        shutdown();
+        TList<TRunnable> result = new TArrayList<>(tasks);
+        tasks.clear();
+        for (int i = 0; i < workers.size(); ++i) {
+            workers.get(i).interrupt();
+        }
+        return result;
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return shutdown;
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return shutdown && workers.isEmpty();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TTimeUnit unit) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!isTerminated()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                return false;
+            }
+            if (termination == null) {
+                termination = new TThreadWaitQueue();
+            }
+            termination.await(remaining);
+        }
+        return true;
+    }
+}
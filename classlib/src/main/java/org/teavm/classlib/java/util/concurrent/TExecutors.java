@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.lang.TRunnable;
+
+public final class TExecutors {
+    private static final long CACHED_THREAD_KEEP_ALIVE = 60000;
+
+    private TExecutors() {
+    }
+
+    public static TExecutorService newFixedThreadPool(int threadCount) {
+        if (threadCount <= 0) {
+            throw new IllegalArgumentException();
+        }
+        return new TCooperativeExecutorService(threadCount, 0);
+    }
+
+    public static TExecutorService newCachedThreadPool() {
+        return new TCooperativeExecutorService(Integer.MAX_VALUE, CACHED_THREAD_KEEP_ALIVE);
+    }
+
+    public static TExecutorService newSingleThreadExecutor() {
+        return new TCooperativeExecutorService(1, 0);
+    }
+
+    public static TExecutorService newWorkStealingPool() {
+        return newCachedThreadPool();
+    }
+
+    public static TExecutorService newWorkStealingPool(int parallelism) {
+        return newFixedThreadPool(parallelism);
+    }
+
+    public static <T> TCallable<T> callable(TRunnable task, T result) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        return () -> {
+            task.run();
+            return result;
+        };
+    }
+
+    public static TCallable<Object> callable(TRunnable task) {
+        return callable(task, null);
+    }
+}
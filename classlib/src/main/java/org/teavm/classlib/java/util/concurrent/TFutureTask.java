@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.lang.TThread;
+import org.teavm.classlib.java.lang.TThreadWaitQueue;
+import org.teavm.classlib.java.lang.TThrowable;
+
+public class TFutureTask<V> implements TRunnableFuture<V> {
+    private static final int NEW = 0;
+    private static final int RUNNING = 1;
+    private static final int COMPLETED = 2;
+    private static final int FAILED = 3;
+    private static final int CANCELLED = 4;
+    private TCallable<V> callable;
+    private int state = NEW;
+    private V result;
+    private Throwable exception;
+    private TThread runner;
+    private TThreadWaitQueue waiters;
+
+    public TFutureTask(TCallable<V> callable) {
+        if (callable == null) {
+            throw new NullPointerException();
+        }
+        this.callable = callable;
+    }
+
+    public TFutureTask(TRunnable runnable, V result) {
+        this(TExecutors.callable(runnable, result));
+    }
+
+    @Override
+    public void run() {
+        if (state != NEW) {
+            return;
+        }
+        state = RUNNING;
+        runner = TThread.currentThread();
+        try {
+            set(callable.call());
+        } catch (Throwable e) {
+            setException(e);
+        } finally {
+            runner = null;
+        }
+    }
+
+    protected void set(V value) {
+        if (state == NEW || state == RUNNING) {
+            result = value;
+            finish(COMPLETED);
+        }
+    }
+
+    protected void setException(Throwable e) {
+        if (state == NEW || state == RUNNING) {
+            exception = e;
+            finish(FAILED);
+        }
+    }
+
+    private void finish(int newState) {
+        state = newState;
+        callable = null;
+        if (waiters != null) {
+            waiters.signalAll();
+        }
+        done();
+    }
+
+    protected void done() {
+    }
+
+    @Override
+    public boolean cancel(boolean mayInterruptIfRunning) {
+        if (state != NEW && state != RUNNING) {
+            return false;
+        }
+        if (mayInterruptIfRunning && runner != null) {
+            runner.interrupt();
+        }
+        finish(CANCELLED);
+        return true;
+    }
+
+    @Override
+    public boolean isCancelled() {
+        return state == CANCELLED;
+    }
+
+    @Override
+    public boolean isDone() {
+        return state > RUNNING;
+    }
+
+    @Override
+    public V get() throws InterruptedException, TExecutionException {
+        while (!isDone()) {
+            getWaiters().await(0);
+        }
+        return report();
+    }
+
+    @Override
+    public V get(long timeout, TTimeUnit unit) throws InterruptedException, TExecutionException,
+            TTimeoutException {
+        long deadline = System.currentTimeMillis() + unit.toMillis(timeout);
+        while (!isDone()) {
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new TTimeoutException();
+            }
+            getWaiters().await(remaining);
+        }
+        return report();
+    }
+
+    private TThreadWaitQueue getWaiters() {
+        if (waiters == null) {
+            waiters = new TThreadWaitQueue();
+        }
+        return waiters;
+    }
+
+    private V report() throws TExecutionException {
+        switch (state) {
+            case CANCELLED:
+                throw new TCancellationException();
+            case FAILED:
+                throw new TExecutionException((TThrowable) exception);
+            default:
+                return result;
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+public enum TTimeUnit {
+    NANOSECONDS(1L),
+    MICROSECONDS(1000L),
+    MILLISECONDS(1000L * 1000),
+    SECONDS(1000L * 1000 * 1000),
+    MINUTES(1000L * 1000 * 1000 * 60),
+    HOURS(1000L * 1000 * 1000 * 60 * 60),
+    DAYS(1000L * 1000 * 1000 * 60 * 60 * 24);
+
+    private final long nanos;
+
+    TTimeUnit(long nanos) {
+        this.nanos = nanos;
+    }
+
+    public long convert(long sourceDuration, TTimeUnit sourceUnit) {
+        if (sourceUnit.nanos == nanos) {
+            return sourceDuration;
+        } else if (sourceUnit.nanos < nanos) {
+            return sourceDuration / (nanos / sourceUnit.nanos);
+        }
+        long ratio = sourceUnit.nanos / nanos;
+        long max = Long.MAX_VALUE / ratio;
+        if (sourceDuration > max) {
+            return Long.MAX_VALUE;
+        } else if (sourceDuration < -max) {
+            return Long.MIN_VALUE;
+        }
+        return sourceDuration * ratio;
+    }
+
+    public long toNanos(long duration) {
+        return NANOSECONDS.convert(duration, this);
+    }
+
+    public long toMicros(long duration) {
+        return MICROSECONDS.convert(duration, this);
+    }
+
+    public long toMillis(long duration) {
+        return MILLISECONDS.convert(duration, this);
+    }
+
+    public long toSeconds(long duration) {
+        return SECONDS.convert(duration, this);
+    }
+
+    public long toMinutes(long duration) {
+        return MINUTES.convert(duration, this);
+    }
+
+    public long toHours(long duration) {
+        return HOURS.convert(duration, this);
+    }
+
+    public long toDays(long duration) {
+        return DAYS.convert(duration, this);
+    }
+
+    public void sleep(long timeout) throws InterruptedException {
+        if (timeout > 0) {
+            Thread.sleep(toMillis(timeout));
+        }
+    }
+
+    public void timedJoin(Thread thread, long timeout) throws InterruptedException {
+        if (timeout > 0) {
+            thread.join(toMillis(timeout));
+        }
+    }
+
+    public void timedWait(Object obj, long timeout) throws InterruptedException {
+        if (timeout > 0) {
+            obj.wait(toMillis(timeout));
+        }
+    }
+}
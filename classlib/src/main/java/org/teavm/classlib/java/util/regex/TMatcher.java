@@ -18,6 +18,7 @@
 package org.teavm.classlib.java.util.regex;
 
 import java.util.ArrayList;
+import org.teavm.classlib.impl.regex.NativeRegExp;
 
 /**
  * Provides a means of matching regular expressions against a given input,
@@ -74,6 +75,11 @@ public final class TMatcher implements TMatchResult {
 
     private ArrayList<Object> replacementParts = null;
 
+    // JavaScript regular expressions
+    private Object regExpInput;
+
+    private int[] regExpBounds;
+
     /**
      * Appends a literal part of the input plus a replacement for the current
      * match to a given {@link StringBuffer}. The literal part is exactly the
@@ -195,6 +201,7 @@ public final class TMatcher implements TMatchResult {
             throw new NullPointerException("");
         }
         this.string = input;
+        regExpInput = null;
         return reset();
     }
 
@@ -362,7 +369,9 @@ public final class TMatcher implements TMatchResult {
         matchResult.reset();
         matchResult.setMode(TMatcher.MODE_FIND);
         matchResult.setStartIndex(startIndex);
-        int foundIndex = start.find(startIndex, string, matchResult);
+        NativeRegExp regExp = nativeRegExp();
+        int foundIndex = regExp != null ? execRegExp(regExp, NativeRegExp.FIND, startIndex)
+                : start.find(startIndex, string, matchResult);
         if (foundIndex == -1) {
             matchResult.hitEnd = true;
         }
@@ -502,9 +511,46 @@ public final class TMatcher implements TMatchResult {
         matchResult.reset();
         matchResult.setMode(mode);
         matchResult.setStartIndex(startIndex);
+        NativeRegExp regExp = nativeRegExp();
+        if (regExp != null) {
+            int kind = mode == TMatcher.MODE_MATCH ? NativeRegExp.MATCHES : NativeRegExp.LOOKING_AT;
+            if (execRegExp(regExp, kind, startIndex) < 0) {
+                return false;
+            }
+            matchResult.finalizeMatch();
+            return true;
+        }
         return runMatch(start, startIndex, matchResult);
     }
 
+    /*
+     * JavaScript regular expression is used only when matcher works on the whole string, since it knows
+     * nothing about regions
+     */
+    private NativeRegExp nativeRegExp() {
+        NativeRegExp regExp = pat.nativeRegExp;
+        if (regExp == null || leftBound != 0 || rightBound != string.length() || !(string instanceof String)) {
+            return null;
+        }
+        if (regExpInput == null) {
+            regExpInput = regExp.wrap((String) string);
+            regExpBounds = new int[(pat.groupCount() + 1) * 2];
+        }
+        return regExp;
+    }
+
+    private int execRegExp(NativeRegExp regExp, int kind, int startIndex) {
+        int foundIndex = regExp.exec(kind, regExpInput, startIndex, regExpBounds);
+        if (foundIndex >= 0) {
+            for (int i = 0; i <= pat.groupCount(); ++i) {
+                matchResult.setStart(i, regExpBounds[i * 2]);
+                matchResult.setEnd(i, regExpBounds[i * 2 + 1]);
+            }
+            matchResult.setValid();
+        }
+        return foundIndex;
+    }
+
     /**
      * Returns the index of the first character of the text that matched the
      * whole regular expression.
@@ -667,6 +713,7 @@ public final class TMatcher implements TMatchResult {
         int mode = matchResult.mode();
         this.pat = pattern;
         this.start = pattern.start;
+        regExpInput = null;
         matchResult = new TMatchResultImpl(this.string, leftBound, rightBound, pattern.groupCount(),
                 pattern.compCount(), pattern.consCount());
         matchResult.setStartIndex(startIndex);
@@ -22,6 +22,7 @@ package org.teavm.classlib.java.util.regex;
 
 import java.io.Serializable;
 import java.util.ArrayList;
+import org.teavm.classlib.impl.regex.NativeRegExp;
 
 /**
  * Represents a pattern used for matching, searching, or replacing strings.
@@ -149,6 +150,12 @@ public final class TPattern implements Serializable {
 
     transient TAbstractSet start = null;
 
+    /*
+     * Equivalent JavaScript regular expressions, if pattern was translated at build time and JavaScript engine
+     * supports them
+     */
+    transient NativeRegExp nativeRegExp;
+
     /**
      * Returns a {@link TMatcher} for the {@code Pattern} and a given input. The
      * {@code Matcher} can be used to match the {@code Pattern} against the
@@ -305,6 +312,27 @@ public final class TPattern implements Serializable {
         return new TPattern().compileImpl(pattern, flags);
     }
 
+    /**
+     * Compiles a regular expression that was translated to JavaScript regular
+     * expression at build time. Matchers of such pattern use JavaScript engine
+     * when it is available. Calls to this method are generated in place of
+     * {@link #compile(String, int)} when pattern is a constant.
+     *
+     * @param pattern
+     *            the regular expression.
+     * @param flags
+     *            the flags to set.
+     * @param regExpSource
+     *            source of equivalent JavaScript regular expression.
+     *
+     * @return the new {@code Pattern} instance.
+     */
+    public static TPattern compileWithRegExp(String pattern, int flags, String regExpSource) {
+        TPattern result = compile(pattern, flags);
+        result.nativeRegExp = NativeRegExp.create(regExpSource);
+        return result;
+    }
+
     /**
      *
      * @param pattern
@@ -0,0 +1,37 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream;
+
+import org.teavm.classlib.java.lang.TAutoCloseable;
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.util.TIterator;
+
+public interface TBaseStream<T, S extends TBaseStream<T, S>> extends TAutoCloseable {
+    TIterator<T> iterator();
+
+    boolean isParallel();
+
+    S sequential();
+
+    S parallel();
+
+    S unordered();
+
+    S onClose(TRunnable closeHandler);
+
+    @Override
+    void close();
+}
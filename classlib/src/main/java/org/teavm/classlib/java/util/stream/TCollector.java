@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream;
+
+import org.teavm.classlib.java.util.TSet;
+import org.teavm.classlib.java.util.function.TBiConsumer;
+import org.teavm.classlib.java.util.function.TBinaryOperator;
+import org.teavm.classlib.java.util.function.TFunction;
+import org.teavm.classlib.java.util.function.TSupplier;
+import org.teavm.classlib.java.util.stream.impl.TCollectorImpl;
+
+public interface TCollector<T, A, R> {
+    TSupplier<A> supplier();
+
+    TBiConsumer<A, T> accumulator();
+
+    TBinaryOperator<A> combiner();
+
+    TFunction<A, R> finisher();
+
+    TSet<Characteristics> characteristics();
+
+    static <T, R> TCollector<T, R, R> of(TSupplier<R> supplier, TBiConsumer<R, T> accumulator,
+            TBinaryOperator<R> combiner, Characteristics... characteristics) {
+        return new TCollectorImpl<>(supplier, accumulator, combiner, r -> r,
+                TCollectorImpl.characteristics(characteristics, Characteristics.IDENTITY_FINISH));
+    }
+
+    static <T, A, R> TCollector<T, A, R> of(TSupplier<A> supplier, TBiConsumer<A, T> accumulator,
+            TBinaryOperator<A> combiner, TFunction<A, R> finisher, Characteristics... characteristics) {
+        return new TCollectorImpl<>(supplier, accumulator, combiner, finisher,
+                TCollectorImpl.characteristics(characteristics));
+    }
+
+    enum Characteristics {
+        CONCURRENT,
+        UNORDERED,
+        IDENTITY_FINISH
+    }
+}
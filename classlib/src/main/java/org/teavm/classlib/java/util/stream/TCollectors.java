@@ -0,0 +1,333 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream;
+
+import org.teavm.classlib.java.util.TArrayList;
+import org.teavm.classlib.java.util.TCollection;
+import org.teavm.classlib.java.util.TComparator;
+import org.teavm.classlib.java.util.TDoubleSummaryStatistics;
+import org.teavm.classlib.java.util.THashMap;
+import org.teavm.classlib.java.util.THashSet;
+import org.teavm.classlib.java.util.TIntSummaryStatistics;
+import org.teavm.classlib.java.util.TIterator;
+import org.teavm.classlib.java.util.TList;
+import org.teavm.classlib.java.util.TLongSummaryStatistics;
+import org.teavm.classlib.java.util.TMap;
+import org.teavm.classlib.java.util.TObjects;
+import org.teavm.classlib.java.util.TOptional;
+import org.teavm.classlib.java.util.TSet;
+import org.teavm.classlib.java.util.function.TBiConsumer;
+import org.teavm.classlib.java.util.function.TBinaryOperator;
+import org.teavm.classlib.java.util.function.TFunction;
+import org.teavm.classlib.java.util.function.TPredicate;
+import org.teavm.classlib.java.util.function.TSupplier;
+import org.teavm.classlib.java.util.function.TToDoubleFunction;
+import org.teavm.classlib.java.util.function.TToIntFunction;
+import org.teavm.classlib.java.util.function.TToLongFunction;
+import org.teavm.classlib.java.util.stream.TCollector.Characteristics;
+
+public final class TCollectors {
+    private TCollectors() {
+    }
+
+    public static <T, C extends TCollection<T>> TCollector<T, ?, C> toCollection(TSupplier<C> collectionFactory) {
+        return TCollector.of(collectionFactory, TCollection::add, (a, b) -> {
+            a.addAll(b);
+            return a;
+        });
+    }
+
+    public static <T> TCollector<T, ?, TList<T>> toList() {
+        return toCollection(TArrayList::new);
+    }
+
+    public static <T> TCollector<T, ?, TSet<T>> toSet() {
+        return toCollection(THashSet::new);
+    }
+
+    public static TCollector<CharSequence, ?, String> joining() {
+        return joining("");
+    }
+
+    public static TCollector<CharSequence, ?, String> joining(CharSequence delimiter) {
+        return joining(delimiter, "", "");
+    }
+
+    public static TCollector<CharSequence, ?, String> joining(CharSequence delimiter, CharSequence prefix,
+            CharSequence suffix) {
+        TBiConsumer<StringBuilder, CharSequence> accumulator = (sb, item) -> {
+            if (sb.length() > 0) {
+                sb.append(delimiter);
+            }
+            sb.append(item);
+        };
+        TBinaryOperator<StringBuilder> combiner = (a, b) -> {
+            if (a.length() > 0 && b.length() > 0) {
+                a.append(delimiter);
+            }
+            return a.append(b);
+        };
+        return TCollector.of(StringBuilder::new, accumulator, combiner,
+                sb -> new StringBuilder().append(prefix).append(sb).append(suffix).toString());
+    }
+
+    public static <T, U, A, R> TCollector<T, ?, R> mapping(TFunction<? super T, ? extends U> mapper,
+            TCollector<? super U, A, R> downstream) {
+        TBiConsumer<A, ? super U> downstreamAccumulator = downstream.accumulator();
+        return TCollector.of(downstream.supplier(), (a, t) -> downstreamAccumulator.accept(a, mapper.apply(t)),
+                downstream.combiner(), downstream.finisher(), characteristicsArray(downstream));
+    }
+
+    public static <T, A, R, R2> TCollector<T, A, R2> collectingAndThen(TCollector<T, A, R> downstream,
+            TFunction<R, R2> finisher) {
+        TFunction<A, R> downstreamFinisher = downstream.finisher();
+        TSet<Characteristics> characteristics = new THashSet<>();
+        characteristics.addAll(downstream.characteristics());
+        characteristics.remove(Characteristics.IDENTITY_FINISH);
+        return TCollector.of(downstream.supplier(), downstream.accumulator(), downstream.combiner(),
+                a -> finisher.apply(downstreamFinisher.apply(a)),
+                characteristics.toArray(new Characteristics[characteristics.size()]));
+    }
+
+    public static <T> TCollector<T, ?, Long> counting() {
+        return TCollector.of(() -> new long[1], (a, t) -> a[0]++, (a, b) -> {
+            a[0] += b[0];
+            return a;
+        }, a -> a[0]);
+    }
+
+    public static <T> TCollector<T, ?, TOptional<T>> minBy(TComparator<? super T> comparator) {
+        return reducing((a, b) -> comparator.compare(a, b) <= 0 ? a : b);
+    }
+
+    public static <T> TCollector<T, ?, TOptional<T>> maxBy(TComparator<? super T> comparator) {
+        return reducing((a, b) -> comparator.compare(a, b) >= 0 ? a : b);
+    }
+
+    public static <T> TCollector<T, ?, Integer> summingInt(TToIntFunction<? super T> mapper) {
+        return TCollector.of(() -> new int[1], (a, t) -> a[0] += mapper.applyAsInt(t), (a, b) -> {
+            a[0] += b[0];
+            return a;
+        }, a -> a[0]);
+    }
+
+    public static <T> TCollector<T, ?, Long> summingLong(TToLongFunction<? super T> mapper) {
+        return TCollector.of(() -> new long[1], (a, t) -> a[0] += mapper.applyAsLong(t), (a, b) -> {
+            a[0] += b[0];
+            return a;
+        }, a -> a[0]);
+    }
+
+    public static <T> TCollector<T, ?, Double> summingDouble(TToDoubleFunction<? super T> mapper) {
+        return TCollector.of(() -> new double[1], (a, t) -> a[0] += mapper.applyAsDouble(t), (a, b) -> {
+            a[0] += b[0];
+            return a;
+        }, a -> a[0]);
+    }
+
+    public static <T> TCollector<T, ?, Double> averagingInt(TToIntFunction<? super T> mapper) {
+        return collectingAndThen(summarizingInt(mapper), TIntSummaryStatistics::getAverage);
+    }
+
+    public static <T> TCollector<T, ?, Double> averagingLong(TToLongFunction<? super T> mapper) {
+        return collectingAndThen(summarizingLong(mapper), TLongSummaryStatistics::getAverage);
+    }
+
+    public static <T> TCollector<T, ?, Double> averagingDouble(TToDoubleFunction<? super T> mapper) {
+        return collectingAndThen(summarizingDouble(mapper), TDoubleSummaryStatistics::getAverage);
+    }
+
+    public static <T> TCollector<T, ?, TIntSummaryStatistics> summarizingInt(TToIntFunction<? super T> mapper) {
+        return TCollector.of(TIntSummaryStatistics::new, (a, t) -> a.accept(mapper.applyAsInt(t)), (a, b) -> {
+            a.combine(b);
+            return a;
+        });
+    }
+
+    public static <T> TCollector<T, ?, TLongSummaryStatistics> summarizingLong(
+            TToLongFunction<? super T> mapper) {
+        return TCollector.of(TLongSummaryStatistics::new, (a, t) -> a.accept(mapper.applyAsLong(t)), (a, b) -> {
+            a.combine(b);
+            return a;
+        });
+    }
+
+    public static <T> TCollector<T, ?, TDoubleSummaryStatistics> summarizingDouble(
+            TToDoubleFunction<? super T> mapper) {
+        return TCollector.of(TDoubleSummaryStatistics::new, (a, t) -> a.accept(mapper.applyAsDouble(t)),
+                (a, b) -> {
+                    a.combine(b);
+                    return a;
+                });
+    }
+
+    public static <T> TCollector<T, ?, T> reducing(T identity, TBinaryOperator<T> op) {
+        return reducing(identity, t -> t, op);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T, U> TCollector<T, ?, U> reducing(U identity, TFunction<? super T, ? extends U> mapper,
+            TBinaryOperator<U> op) {
+        return TCollector.of(() -> (U[]) new Object[] { identity },
+                (a, t) -> a[0] = op.apply(a[0], mapper.apply(t)),
+                (a, b) -> {
+                    a[0] = op.apply(a[0], b[0]);
+                    return a;
+                }, a -> a[0]);
+    }
+
+    public static <T> TCollector<T, ?, TOptional<T>> reducing(TBinaryOperator<T> op) {
+        return TCollector.of(() -> new ReducingState<T>(), (a, t) -> a.accept(t, op), (a, b) -> {
+            if (b.present) {
+                a.accept(b.value, op);
+            }
+            return a;
+        }, a -> a.present ? TOptional.of(a.value) : TOptional.empty());
+    }
+
+    public static <T, K> TCollector<T, ?, TMap<K, TList<T>>> groupingBy(TFunction<? super T, ? extends K> classifier) {
+        return groupingBy(classifier, toList());
+    }
+
+    public static <T, K, A, D> TCollector<T, ?, TMap<K, D>> groupingBy(TFunction<? super T, ? extends K> classifier,
+            TCollector<? super T, A, D> downstream) {
+        return groupingBy(classifier, THashMap::new, downstream);
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T, K, D, A, M extends TMap<K, D>> TCollector<T, ?, M> groupingBy(
+            TFunction<? super T, ? extends K> classifier, TSupplier<M> mapFactory,
+            TCollector<? super T, A, D> downstream) {
+        TSupplier<A> downstreamSupplier = downstream.supplier();
+        TBiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        TBinaryOperator<A> downstreamCombiner = downstream.combiner();
+        TFunction<A, D> downstreamFinisher = downstream.finisher();
+        TBiConsumer<TMap<K, A>, T> accumulator = (map, t) -> {
+            K key = TObjects.requireNonNull(classifier.apply(t), "element cannot be mapped to a null key");
+            A container = map.get(key);
+            if (container == null) {
+                container = downstreamSupplier.get();
+                map.put(key, container);
+            }
+            downstreamAccumulator.accept(container, t);
+        };
+        TBinaryOperator<TMap<K, A>> combiner = (a, b) -> {
+            for (TIterator<TMap.Entry<K, A>> iter = b.entrySet().iterator(); iter.hasNext();) {
+                TMap.Entry<K, A> entry = iter.next();
+                A existing = a.get(entry.getKey());
+                a.put(entry.getKey(), existing != null
+                        ? downstreamCombiner.apply(existing, entry.getValue())
+                        : entry.getValue());
+            }
+            return a;
+        };
+        TFunction<TMap<K, A>, M> finisher = map -> {
+            for (TIterator<TMap.Entry<K, A>> iter = map.entrySet().iterator(); iter.hasNext();) {
+                TMap.Entry<K, A> entry = iter.next();
+                ((TMap.Entry<K, Object>) (TMap.Entry<K, ?>) entry).setValue(
+                        downstreamFinisher.apply(entry.getValue()));
+            }
+            return (M) map;
+        };
+        return TCollector.of((TSupplier<TMap<K, A>>) (TSupplier<?>) mapFactory, accumulator, combiner, finisher);
+    }
+
+    public static <T> TCollector<T, ?, TMap<Boolean, TList<T>>> partitioningBy(TPredicate<? super T> predicate) {
+        return partitioningBy(predicate, toList());
+    }
+
+    public static <T, D, A> TCollector<T, ?, TMap<Boolean, D>> partitioningBy(TPredicate<? super T> predicate,
+            TCollector<? super T, A, D> downstream) {
+        TSupplier<A> downstreamSupplier = downstream.supplier();
+        TBiConsumer<A, ? super T> downstreamAccumulator = downstream.accumulator();
+        TBinaryOperator<A> downstreamCombiner = downstream.combiner();
+        TFunction<A, D> downstreamFinisher = downstream.finisher();
+        TBiConsumer<TMap<Boolean, A>, T> accumulator = (map, t) -> {
+            downstreamAccumulator.accept(map.get(predicate.test(t)), t);
+        };
+        TBinaryOperator<TMap<Boolean, A>> combiner = (a, b) -> {
+            a.put(true, downstreamCombiner.apply(a.get(true), b.get(true)));
+            a.put(false, downstreamCombiner.apply(a.get(false), b.get(false)));
+            return a;
+        };
+        TFunction<TMap<Boolean, A>, TMap<Boolean, D>> finisher = map -> {
+            TMap<Boolean, D> result = new THashMap<>();
+            result.put(true, downstreamFinisher.apply(map.get(true)));
+            result.put(false, downstreamFinisher.apply(map.get(false)));
+            return result;
+        };
+        TSupplier<TMap<Boolean, A>> supplier = () -> {
+            TMap<Boolean, A> map = new THashMap<>();
+            map.put(true, downstreamSupplier.get());
+            map.put(false, downstreamSupplier.get());
+            return map;
+        };
+        return TCollector.of(supplier, accumulator, combiner, finisher);
+    }
+
+    public static <T, K, U> TCollector<T, ?, TMap<K, U>> toMap(TFunction<? super T, ? extends K> keyMapper,
+            TFunction<? super T, ? extends U> valueMapper) {
+        return toMap(keyMapper, valueMapper, (a, b) -> {
+            throw new IllegalStateException("Duplicate key " + a);
+        });
+    }
+
+    public static <T, K, U> TCollector<T, ?, TMap<K, U>> toMap(TFunction<? super T, ? extends K> keyMapper,
+            TFunction<? super T, ? extends U> valueMapper, TBinaryOperator<U> mergeFunction) {
+        return toMap(keyMapper, valueMapper, mergeFunction, THashMap::new);
+    }
+
+    public static <T, K, U, M extends TMap<K, U>> TCollector<T, ?, M> toMap(
+            TFunction<? super T, ? extends K> keyMapper, TFunction<? super T, ? extends U> valueMapper,
+            TBinaryOperator<U> mergeFunction, TSupplier<M> mapFactory) {
+        TBiConsumer<M, T> accumulator = (map, t) -> {
+            merge(map, keyMapper.apply(t), valueMapper.apply(t), mergeFunction);
+        };
+        TBinaryOperator<M> combiner = (a, b) -> {
+            for (TIterator<TMap.Entry<K, U>> iter = b.entrySet().iterator(); iter.hasNext();) {
+                TMap.Entry<K, U> entry = iter.next();
+                merge(a, entry.getKey(), entry.getValue(), mergeFunction);
+            }
+            return a;
+        };
+        return TCollector.of(mapFactory, accumulator, combiner);
+    }
+
+    private static <K, U> void merge(TMap<K, U> map, K key, U value, TBinaryOperator<U> mergeFunction) {
+        TObjects.requireNonNull(value);
+        U oldValue = map.get(key);
+        map.put(key, oldValue == null ? value : mergeFunction.apply(oldValue, value));
+    }
+
+    private static Characteristics[] characteristicsArray(TCollector<?, ?, ?> collector) {
+        TSet<Characteristics> characteristics = collector.characteristics();
+        return characteristics.toArray(new Characteristics[characteristics.size()]);
+    }
+
+    static class ReducingState<T> {
+        boolean present;
+        T value;
+
+        void accept(T t, TBinaryOperator<T> op) {
+            if (present) {
+                value = op.apply(value, t);
+            } else {
+                value = t;
+                present = true;
+            }
+        }
+    }
+}
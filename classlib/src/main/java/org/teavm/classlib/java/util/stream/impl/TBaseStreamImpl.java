@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.util.TArrayList;
+import org.teavm.classlib.java.util.TList;
+
+/**
+ * <p>Base class for all stages of stream pipelines. Pipelines are push-based: every stage implements
+ * <code>next</code> method, which passes elements to the given consumer until either consumer returns
+ * <code>false</code> or there are no more elements. Stateless stages, like <code>filter</code> or
+ * <code>map</code>, simply wrap the consumer, so a pipeline of such stages is executed as a single loop
+ * over the source, without intermediate objects per element.</p>
+ *
+ * <p>The <code>next</code> method returns <code>true</code> when it stopped because consumer refused to
+ * take more elements, and <code>false</code> when the stream is exhausted. Stream can be resumed by calling
+ * <code>next</code> again, which is used by iterators and by short-circuiting stages.</p>
+ */
+public abstract class TBaseStreamImpl {
+    private TBaseStreamImpl previous;
+    private TList<TRunnable> closeHandlers;
+
+    <S extends TBaseStreamImpl> S chain(S next) {
+        ((TBaseStreamImpl) next).previous = this;
+        return next;
+    }
+
+    void addCloseHandler(TRunnable handler) {
+        if (closeHandlers == null) {
+            closeHandlers = new TArrayList<>();
+        }
+        closeHandlers.add(handler);
+    }
+
+    int estimateSize() {
+        return -1;
+    }
+
+    public boolean isParallel() {
+        return false;
+    }
+
+    public void close() {
+        RuntimeException error = close(null);
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private RuntimeException close(RuntimeException error) {
+        if (previous != null) {
+            error = previous.close(error);
+        }
+        if (closeHandlers != null) {
+            TList<TRunnable> handlers = closeHandlers;
+            closeHandlers = null;
+            for (int i = 0; i < handlers.size(); ++i) {
+                try {
+                    handlers.get(i).run();
+                } catch (RuntimeException e) {
+                    if (error == null) {
+                        error = e;
+                    } else if (error != e) {
+                        error.addSuppressed(e);
+                    }
+                }
+            }
+        }
+        return error;
+    }
+}
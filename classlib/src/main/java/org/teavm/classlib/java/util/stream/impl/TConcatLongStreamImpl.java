@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.util.function.TLongPredicate;
+
+public class TConcatLongStreamImpl extends TSimpleLongStreamImpl {
+    private TSimpleLongStreamImpl first;
+    private TSimpleLongStreamImpl second;
+    private boolean firstExhausted;
+
+    public TConcatLongStreamImpl(TSimpleLongStreamImpl first, TSimpleLongStreamImpl second) {
+        this.first = first;
+        this.second = second;
+        addCloseHandler(first::close);
+        addCloseHandler(second::close);
+    }
+
+    @Override
+    public boolean next(TLongPredicate consumer) {
+        if (!firstExhausted) {
+            if (first.next(consumer)) {
+                return true;
+            }
+            firstExhausted = true;
+        }
+        return second.next(consumer);
+    }
+}
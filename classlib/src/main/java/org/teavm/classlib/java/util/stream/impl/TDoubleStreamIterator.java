@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.util.TNoSuchElementException;
+import org.teavm.classlib.java.util.TPrimitiveIterator;
+
+public class TDoubleStreamIterator implements TPrimitiveIterator.OfDouble {
+    private static final byte NEEDS_MORE = 0;
+    private static final byte HAS_DATA = 1;
+    private static final byte LAST_ELEMENT = 2;
+    private TSimpleDoubleStreamImpl stream;
+    private double lastElement;
+    private byte state = NEEDS_MORE;
+
+    public TDoubleStreamIterator(TSimpleDoubleStreamImpl stream) {
+        this.stream = stream;
+    }
+
+    @Override
+    public boolean hasNext() {
+        fetchIfNeeded();
+        return state == HAS_DATA;
+    }
+
+    @Override
+    public double nextDouble() {
+        fetchIfNeeded();
+        if (state != HAS_DATA) {
+            throw new TNoSuchElementException();
+        }
+        state = NEEDS_MORE;
+        return lastElement;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    private void fetchIfNeeded() {
+        if (state != NEEDS_MORE) {
+            return;
+        }
+        state = stream.next(e -> {
+            lastElement = e;
+            return false;
+        }) ? HAS_DATA : LAST_ELEMENT;
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.util.function.TDoublePredicate;
+import org.teavm.classlib.java.util.stream.TDoubleStream;
+
+public class TFlatMappingDoubleStreamImpl extends TSimpleDoubleStreamImpl {
+    private TSimpleStreamImpl<? extends TDoubleStream> sourceStream;
+    private TSimpleDoubleStreamImpl current;
+    private boolean exhausted;
+
+    TFlatMappingDoubleStreamImpl(TSimpleStreamImpl<? extends TDoubleStream> sourceStream) {
+        this.sourceStream = sourceStream;
+    }
+
+    @Override
+    public boolean next(TDoublePredicate consumer) {
+        while (true) {
+            if (current != null) {
+                if (current.next(consumer)) {
+                    return true;
+                }
+                current.close();
+                current = null;
+            }
+            if (exhausted) {
+                return false;
+            }
+            exhausted = !sourceStream.next(stream -> {
+                if (stream == null) {
+                    return true;
+                }
+                current = TSimpleDoubleStreamImpl.from(stream);
+                return false;
+            });
+        }
+    }
+}
@@ -0,0 +1,45 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.util.TArrays;
+import org.teavm.classlib.java.util.stream.TDoubleStream;
+
+public class TSimpleDoubleStreamBuilder implements TDoubleStream.Builder {
+    private double[] array = new double[16];
+    private int size;
+    private boolean built;
+
+    @Override
+    public void accept(double t) {
+        if (built) {
+            throw new IllegalStateException();
+        }
+        if (size == array.length) {
+            array = TArrays.copyOf(array, array.length * 2);
+        }
+        array[size++] = t;
+    }
+
+    @Override
+    public TDoubleStream build() {
+        if (built) {
+            throw new IllegalStateException();
+        }
+        built = true;
+        return new TArrayDoubleStreamImpl(array, 0, size);
+    }
+}
@@ -0,0 +1,375 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.util.TArrays;
+import org.teavm.classlib.java.util.TDoubleSummaryStatistics;
+import org.teavm.classlib.java.util.TOptionalDouble;
+import org.teavm.classlib.java.util.TPrimitiveIterator;
+import org.teavm.classlib.java.util.function.TBiConsumer;
+import org.teavm.classlib.java.util.function.TDoubleBinaryOperator;
+import org.teavm.classlib.java.util.function.TDoubleConsumer;
+import org.teavm.classlib.java.util.function.TDoubleFunction;
+import org.teavm.classlib.java.util.function.TDoublePredicate;
+import org.teavm.classlib.java.util.function.TDoubleToIntFunction;
+import org.teavm.classlib.java.util.function.TDoubleToLongFunction;
+import org.teavm.classlib.java.util.function.TDoubleUnaryOperator;
+import org.teavm.classlib.java.util.function.TIntPredicate;
+import org.teavm.classlib.java.util.function.TLongPredicate;
+import org.teavm.classlib.java.util.function.TObjDoubleConsumer;
+import org.teavm.classlib.java.util.function.TPredicate;
+import org.teavm.classlib.java.util.function.TSupplier;
+import org.teavm.classlib.java.util.stream.TDoubleStream;
+import org.teavm.classlib.java.util.stream.TIntStream;
+import org.teavm.classlib.java.util.stream.TLongStream;
+import org.teavm.classlib.java.util.stream.TStream;
+
+public abstract class TSimpleDoubleStreamImpl extends TBaseStreamImpl implements TDoubleStream {
+    public abstract boolean next(TDoublePredicate consumer);
+
+    public static TSimpleDoubleStreamImpl from(TDoubleStream stream) {
+        if (stream instanceof TSimpleDoubleStreamImpl) {
+            return (TSimpleDoubleStreamImpl) stream;
+        }
+        TSimpleDoubleStreamImpl result = new TIteratorDoubleStreamImpl(stream.iterator());
+        result.addCloseHandler(stream::close);
+        return result;
+    }
+
+    @Override
+    public TDoubleStream filter(TDoublePredicate predicate) {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleDoubleStreamImpl.this.next(e -> !predicate.test(e) || consumer.test(e));
+            }
+        });
+    }
+
+    @Override
+    public TDoubleStream map(TDoubleUnaryOperator mapper) {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleDoubleStreamImpl.this.next(e -> consumer.test(mapper.applyAsDouble(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleDoubleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public <U> TStream<U> mapToObj(TDoubleFunction<? extends U> mapper) {
+        return chain(new TSimpleStreamImpl<U>() {
+            @Override
+            public boolean next(TPredicate<? super U> consumer) {
+                return TSimpleDoubleStreamImpl.this.next(e -> consumer.test(mapper.apply(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleDoubleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TIntStream mapToInt(TDoubleToIntFunction mapper) {
+        return chain(new TSimpleIntStreamImpl() {
+            @Override
+            public boolean next(TIntPredicate consumer) {
+                return TSimpleDoubleStreamImpl.this.next(e -> consumer.test(mapper.applyAsInt(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleDoubleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TLongStream mapToLong(TDoubleToLongFunction mapper) {
+        return chain(new TSimpleLongStreamImpl() {
+            @Override
+            public boolean next(TLongPredicate consumer) {
+                return TSimpleDoubleStreamImpl.this.next(e -> consumer.test(mapper.applyAsLong(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleDoubleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TDoubleStream flatMap(TDoubleFunction<? extends TDoubleStream> mapper) {
+        TSimpleStreamImpl<TDoubleStream> streams =
+                (TSimpleStreamImpl<TDoubleStream>) this.<TDoubleStream>mapToObj(mapper);
+        return streams.chain(new TFlatMappingDoubleStreamImpl(streams));
+    }
+
+    @Override
+    public TDoubleStream distinct() {
+        return chain(new TDistinctDoubleStreamImpl(this));
+    }
+
+    @Override
+    public TDoubleStream sorted() {
+        return chain(new TSortedDoubleStreamImpl(this));
+    }
+
+    @Override
+    public TDoubleStream peek(TDoubleConsumer action) {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleDoubleStreamImpl.this.next(e -> {
+                    action.accept(e);
+                    return consumer.test(e);
+                });
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleDoubleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TDoubleStream limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TLimitingDoubleStreamImpl(this, maxSize));
+    }
+
+    @Override
+    public TDoubleStream skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TSkippingDoubleStreamImpl(this, n));
+    }
+
+    @Override
+    public void forEach(TDoubleConsumer action) {
+        next(e -> {
+            action.accept(e);
+            return true;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(TDoubleConsumer action) {
+        forEach(action);
+    }
+
+    @Override
+    public double[] toArray() {
+        ArrayFillingConsumer consumer = new ArrayFillingConsumer(estimateSize());
+        next(consumer);
+        return consumer.array.length == consumer.size ? consumer.array : TArrays.copyOf(consumer.array, consumer.size);
+    }
+
+    @Override
+    public double reduce(double identity, TDoubleBinaryOperator op) {
+        double[] result = { identity };
+        next(e -> {
+            result[0] = op.applyAsDouble(result[0], e);
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalDouble reduce(TDoubleBinaryOperator op) {
+        ReducingConsumer consumer = new ReducingConsumer(op);
+        next(consumer);
+        return consumer.present ? TOptionalDouble.of(consumer.result) : TOptionalDouble.empty();
+    }
+
+    @Override
+    public <R> R collect(TSupplier<R> supplier, TObjDoubleConsumer<R> accumulator, TBiConsumer<R, R> combiner) {
+        R collection = supplier.get();
+        next(e -> {
+            accumulator.accept(collection, e);
+            return true;
+        });
+        return collection;
+    }
+
+    @Override
+    public double sum() {
+        double[] result = new double[1];
+        next(e -> {
+            result[0] += e;
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalDouble min() {
+        return reduce(Math::min);
+    }
+
+    @Override
+    public TOptionalDouble max() {
+        return reduce(Math::max);
+    }
+
+    @Override
+    public long count() {
+        long[] result = new long[1];
+        next(e -> {
+            result[0]++;
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalDouble average() {
+        TDoubleSummaryStatistics statistics = summaryStatistics();
+        return statistics.getCount() > 0 ? TOptionalDouble.of(statistics.getAverage()) : TOptionalDouble.empty();
+    }
+
+    @Override
+    public TDoubleSummaryStatistics summaryStatistics() {
+        TDoubleSummaryStatistics statistics = new TDoubleSummaryStatistics();
+        forEach(statistics);
+        return statistics;
+    }
+
+    @Override
+    public boolean anyMatch(TDoublePredicate predicate) {
+        return next(e -> !predicate.test(e));
+    }
+
+    @Override
+    public boolean allMatch(TDoublePredicate predicate) {
+        return !next(predicate);
+    }
+
+    @Override
+    public boolean noneMatch(TDoublePredicate predicate) {
+        return !anyMatch(predicate);
+    }
+
+    @Override
+    public TOptionalDouble findFirst() {
+        double[] result = new double[1];
+        if (next(e -> {
+            result[0] = e;
+            return false;
+        })) {
+            return TOptionalDouble.of(result[0]);
+        }
+        return TOptionalDouble.empty();
+    }
+
+    @Override
+    public TOptionalDouble findAny() {
+        return findFirst();
+    }
+
+    @Override
+    public TStream<Double> boxed() {
+        return chain(new TSimpleStreamImpl<Double>() {
+            @Override
+            public boolean next(TPredicate<? super Double> consumer) {
+                return TSimpleDoubleStreamImpl.this.next(e -> consumer.test(e));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleDoubleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TPrimitiveIterator.OfDouble iterator() {
+        return new TDoubleStreamIterator(this);
+    }
+
+    @Override
+    public TDoubleStream sequential() {
+        return this;
+    }
+
+    @Override
+    public TDoubleStream parallel() {
+        return this;
+    }
+
+    @Override
+    public TDoubleStream unordered() {
+        return this;
+    }
+
+    @Override
+    public TDoubleStream onClose(TRunnable closeHandler) {
+        addCloseHandler(closeHandler);
+        return this;
+    }
+
+    static class ArrayFillingConsumer implements TDoublePredicate {
+        double[] array;
+        int size;
+
+        ArrayFillingConsumer(int estimatedSize) {
+            array = new double[estimatedSize >= 0 ? estimatedSize : 16];
+        }
+
+        @Override
+        public boolean test(double t) {
+            if (size == array.length) {
+                array = TArrays.copyOf(array, Math.max(array.length * 2, 16));
+            }
+            array[size++] = t;
+            return true;
+        }
+    }
+
+    static class ReducingConsumer implements TDoublePredicate {
+        private TDoubleBinaryOperator accumulator;
+        double result;
+        boolean present;
+
+        ReducingConsumer(TDoubleBinaryOperator accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public boolean test(double t) {
+            if (present) {
+                result = accumulator.applyAsDouble(result, t);
+            } else {
+                result = t;
+                present = true;
+            }
+            return true;
+        }
+    }
+}
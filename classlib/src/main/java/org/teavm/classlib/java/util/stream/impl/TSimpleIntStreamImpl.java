@@ -0,0 +1,406 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.util.TArrays;
+import org.teavm.classlib.java.util.TIntSummaryStatistics;
+import org.teavm.classlib.java.util.TOptionalDouble;
+import org.teavm.classlib.java.util.TOptionalInt;
+import org.teavm.classlib.java.util.TPrimitiveIterator;
+import org.teavm.classlib.java.util.function.TBiConsumer;
+import org.teavm.classlib.java.util.function.TDoublePredicate;
+import org.teavm.classlib.java.util.function.TIntBinaryOperator;
+import org.teavm.classlib.java.util.function.TIntConsumer;
+import org.teavm.classlib.java.util.function.TIntFunction;
+import org.teavm.classlib.java.util.function.TIntPredicate;
+import org.teavm.classlib.java.util.function.TIntToDoubleFunction;
+import org.teavm.classlib.java.util.function.TIntToLongFunction;
+import org.teavm.classlib.java.util.function.TIntUnaryOperator;
+import org.teavm.classlib.java.util.function.TLongPredicate;
+import org.teavm.classlib.java.util.function.TObjIntConsumer;
+import org.teavm.classlib.java.util.function.TPredicate;
+import org.teavm.classlib.java.util.function.TSupplier;
+import org.teavm.classlib.java.util.stream.TDoubleStream;
+import org.teavm.classlib.java.util.stream.TIntStream;
+import org.teavm.classlib.java.util.stream.TLongStream;
+import org.teavm.classlib.java.util.stream.TStream;
+
+public abstract class TSimpleIntStreamImpl extends TBaseStreamImpl implements TIntStream {
+    public abstract boolean next(TIntPredicate consumer);
+
+    public static TSimpleIntStreamImpl from(TIntStream stream) {
+        if (stream instanceof TSimpleIntStreamImpl) {
+            return (TSimpleIntStreamImpl) stream;
+        }
+        TSimpleIntStreamImpl result = new TIteratorIntStreamImpl(stream.iterator());
+        result.addCloseHandler(stream::close);
+        return result;
+    }
+
+    @Override
+    public TIntStream filter(TIntPredicate predicate) {
+        return chain(new TSimpleIntStreamImpl() {
+            @Override
+            public boolean next(TIntPredicate consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> !predicate.test(e) || consumer.test(e));
+            }
+        });
+    }
+
+    @Override
+    public TIntStream map(TIntUnaryOperator mapper) {
+        return chain(new TSimpleIntStreamImpl() {
+            @Override
+            public boolean next(TIntPredicate consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> consumer.test(mapper.applyAsInt(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public <U> TStream<U> mapToObj(TIntFunction<? extends U> mapper) {
+        return chain(new TSimpleStreamImpl<U>() {
+            @Override
+            public boolean next(TPredicate<? super U> consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> consumer.test(mapper.apply(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TLongStream mapToLong(TIntToLongFunction mapper) {
+        return chain(new TSimpleLongStreamImpl() {
+            @Override
+            public boolean next(TLongPredicate consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> consumer.test(mapper.applyAsLong(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TDoubleStream mapToDouble(TIntToDoubleFunction mapper) {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> consumer.test(mapper.applyAsDouble(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TIntStream flatMap(TIntFunction<? extends TIntStream> mapper) {
+        TSimpleStreamImpl<TIntStream> streams =
+                (TSimpleStreamImpl<TIntStream>) this.<TIntStream>mapToObj(mapper);
+        return streams.chain(new TFlatMappingIntStreamImpl(streams));
+    }
+
+    @Override
+    public TIntStream distinct() {
+        return chain(new TDistinctIntStreamImpl(this));
+    }
+
+    @Override
+    public TIntStream sorted() {
+        return chain(new TSortedIntStreamImpl(this));
+    }
+
+    @Override
+    public TIntStream peek(TIntConsumer action) {
+        return chain(new TSimpleIntStreamImpl() {
+            @Override
+            public boolean next(TIntPredicate consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> {
+                    action.accept(e);
+                    return consumer.test(e);
+                });
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TIntStream limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TLimitingIntStreamImpl(this, maxSize));
+    }
+
+    @Override
+    public TIntStream skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TSkippingIntStreamImpl(this, n));
+    }
+
+    @Override
+    public void forEach(TIntConsumer action) {
+        next(e -> {
+            action.accept(e);
+            return true;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(TIntConsumer action) {
+        forEach(action);
+    }
+
+    @Override
+    public int[] toArray() {
+        ArrayFillingConsumer consumer = new ArrayFillingConsumer(estimateSize());
+        next(consumer);
+        return consumer.array.length == consumer.size ? consumer.array : TArrays.copyOf(consumer.array, consumer.size);
+    }
+
+    @Override
+    public int reduce(int identity, TIntBinaryOperator op) {
+        int[] result = { identity };
+        next(e -> {
+            result[0] = op.applyAsInt(result[0], e);
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalInt reduce(TIntBinaryOperator op) {
+        ReducingConsumer consumer = new ReducingConsumer(op);
+        next(consumer);
+        return consumer.present ? TOptionalInt.of(consumer.result) : TOptionalInt.empty();
+    }
+
+    @Override
+    public <R> R collect(TSupplier<R> supplier, TObjIntConsumer<R> accumulator, TBiConsumer<R, R> combiner) {
+        R collection = supplier.get();
+        next(e -> {
+            accumulator.accept(collection, e);
+            return true;
+        });
+        return collection;
+    }
+
+    @Override
+    public int sum() {
+        int[] result = new int[1];
+        next(e -> {
+            result[0] += e;
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalInt min() {
+        return reduce(Math::min);
+    }
+
+    @Override
+    public TOptionalInt max() {
+        return reduce(Math::max);
+    }
+
+    @Override
+    public long count() {
+        long[] result = new long[1];
+        next(e -> {
+            result[0]++;
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalDouble average() {
+        TIntSummaryStatistics statistics = summaryStatistics();
+        return statistics.getCount() > 0 ? TOptionalDouble.of(statistics.getAverage()) : TOptionalDouble.empty();
+    }
+
+    @Override
+    public TIntSummaryStatistics summaryStatistics() {
+        TIntSummaryStatistics statistics = new TIntSummaryStatistics();
+        forEach(statistics);
+        return statistics;
+    }
+
+    @Override
+    public boolean anyMatch(TIntPredicate predicate) {
+        return next(e -> !predicate.test(e));
+    }
+
+    @Override
+    public boolean allMatch(TIntPredicate predicate) {
+        return !next(predicate);
+    }
+
+    @Override
+    public boolean noneMatch(TIntPredicate predicate) {
+        return !anyMatch(predicate);
+    }
+
+    @Override
+    public TOptionalInt findFirst() {
+        int[] result = new int[1];
+        if (next(e -> {
+            result[0] = e;
+            return false;
+        })) {
+            return TOptionalInt.of(result[0]);
+        }
+        return TOptionalInt.empty();
+    }
+
+    @Override
+    public TOptionalInt findAny() {
+        return findFirst();
+    }
+
+    @Override
+    public TLongStream asLongStream() {
+        return chain(new TSimpleLongStreamImpl() {
+            @Override
+            public boolean next(TLongPredicate consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> consumer.test(e));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TDoubleStream asDoubleStream() {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> consumer.test(e));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TStream<Integer> boxed() {
+        return chain(new TSimpleStreamImpl<Integer>() {
+            @Override
+            public boolean next(TPredicate<? super Integer> consumer) {
+                return TSimpleIntStreamImpl.this.next(e -> consumer.test(e));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleIntStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TPrimitiveIterator.OfInt iterator() {
+        return new TIntStreamIterator(this);
+    }
+
+    @Override
+    public TIntStream sequential() {
+        return this;
+    }
+
+    @Override
+    public TIntStream parallel() {
+        return this;
+    }
+
+    @Override
+    public TIntStream unordered() {
+        return this;
+    }
+
+    @Override
+    public TIntStream onClose(TRunnable closeHandler) {
+        addCloseHandler(closeHandler);
+        return this;
+    }
+
+    static class ArrayFillingConsumer implements TIntPredicate {
+        int[] array;
+        int size;
+
+        ArrayFillingConsumer(int estimatedSize) {
+            array = new int[estimatedSize >= 0 ? estimatedSize : 16];
+        }
+
+        @Override
+        public boolean test(int t) {
+            if (size == array.length) {
+                array = TArrays.copyOf(array, Math.max(array.length * 2, 16));
+            }
+            array[size++] = t;
+            return true;
+        }
+    }
+
+    static class ReducingConsumer implements TIntPredicate {
+        private TIntBinaryOperator accumulator;
+        int result;
+        boolean present;
+
+        ReducingConsumer(TIntBinaryOperator accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public boolean test(int t) {
+            if (present) {
+                result = accumulator.applyAsInt(result, t);
+            } else {
+                result = t;
+                present = true;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,391 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.util.TArrays;
+import org.teavm.classlib.java.util.TLongSummaryStatistics;
+import org.teavm.classlib.java.util.TOptionalDouble;
+import org.teavm.classlib.java.util.TOptionalLong;
+import org.teavm.classlib.java.util.TPrimitiveIterator;
+import org.teavm.classlib.java.util.function.TBiConsumer;
+import org.teavm.classlib.java.util.function.TDoublePredicate;
+import org.teavm.classlib.java.util.function.TIntPredicate;
+import org.teavm.classlib.java.util.function.TLongBinaryOperator;
+import org.teavm.classlib.java.util.function.TLongConsumer;
+import org.teavm.classlib.java.util.function.TLongFunction;
+import org.teavm.classlib.java.util.function.TLongPredicate;
+import org.teavm.classlib.java.util.function.TLongToDoubleFunction;
+import org.teavm.classlib.java.util.function.TLongToIntFunction;
+import org.teavm.classlib.java.util.function.TLongUnaryOperator;
+import org.teavm.classlib.java.util.function.TObjLongConsumer;
+import org.teavm.classlib.java.util.function.TPredicate;
+import org.teavm.classlib.java.util.function.TSupplier;
+import org.teavm.classlib.java.util.stream.TDoubleStream;
+import org.teavm.classlib.java.util.stream.TIntStream;
+import org.teavm.classlib.java.util.stream.TLongStream;
+import org.teavm.classlib.java.util.stream.TStream;
+
+public abstract class TSimpleLongStreamImpl extends TBaseStreamImpl implements TLongStream {
+    public abstract boolean next(TLongPredicate consumer);
+
+    public static TSimpleLongStreamImpl from(TLongStream stream) {
+        if (stream instanceof TSimpleLongStreamImpl) {
+            return (TSimpleLongStreamImpl) stream;
+        }
+        TSimpleLongStreamImpl result = new TIteratorLongStreamImpl(stream.iterator());
+        result.addCloseHandler(stream::close);
+        return result;
+    }
+
+    @Override
+    public TLongStream filter(TLongPredicate predicate) {
+        return chain(new TSimpleLongStreamImpl() {
+            @Override
+            public boolean next(TLongPredicate consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> !predicate.test(e) || consumer.test(e));
+            }
+        });
+    }
+
+    @Override
+    public TLongStream map(TLongUnaryOperator mapper) {
+        return chain(new TSimpleLongStreamImpl() {
+            @Override
+            public boolean next(TLongPredicate consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> consumer.test(mapper.applyAsLong(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleLongStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public <U> TStream<U> mapToObj(TLongFunction<? extends U> mapper) {
+        return chain(new TSimpleStreamImpl<U>() {
+            @Override
+            public boolean next(TPredicate<? super U> consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> consumer.test(mapper.apply(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleLongStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TIntStream mapToInt(TLongToIntFunction mapper) {
+        return chain(new TSimpleIntStreamImpl() {
+            @Override
+            public boolean next(TIntPredicate consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> consumer.test(mapper.applyAsInt(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleLongStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TDoubleStream mapToDouble(TLongToDoubleFunction mapper) {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> consumer.test(mapper.applyAsDouble(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleLongStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TLongStream flatMap(TLongFunction<? extends TLongStream> mapper) {
+        TSimpleStreamImpl<TLongStream> streams =
+                (TSimpleStreamImpl<TLongStream>) this.<TLongStream>mapToObj(mapper);
+        return streams.chain(new TFlatMappingLongStreamImpl(streams));
+    }
+
+    @Override
+    public TLongStream distinct() {
+        return chain(new TDistinctLongStreamImpl(this));
+    }
+
+    @Override
+    public TLongStream sorted() {
+        return chain(new TSortedLongStreamImpl(this));
+    }
+
+    @Override
+    public TLongStream peek(TLongConsumer action) {
+        return chain(new TSimpleLongStreamImpl() {
+            @Override
+            public boolean next(TLongPredicate consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> {
+                    action.accept(e);
+                    return consumer.test(e);
+                });
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleLongStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TLongStream limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TLimitingLongStreamImpl(this, maxSize));
+    }
+
+    @Override
+    public TLongStream skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TSkippingLongStreamImpl(this, n));
+    }
+
+    @Override
+    public void forEach(TLongConsumer action) {
+        next(e -> {
+            action.accept(e);
+            return true;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(TLongConsumer action) {
+        forEach(action);
+    }
+
+    @Override
+    public long[] toArray() {
+        ArrayFillingConsumer consumer = new ArrayFillingConsumer(estimateSize());
+        next(consumer);
+        return consumer.array.length == consumer.size ? consumer.array : TArrays.copyOf(consumer.array, consumer.size);
+    }
+
+    @Override
+    public long reduce(long identity, TLongBinaryOperator op) {
+        long[] result = { identity };
+        next(e -> {
+            result[0] = op.applyAsLong(result[0], e);
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalLong reduce(TLongBinaryOperator op) {
+        ReducingConsumer consumer = new ReducingConsumer(op);
+        next(consumer);
+        return consumer.present ? TOptionalLong.of(consumer.result) : TOptionalLong.empty();
+    }
+
+    @Override
+    public <R> R collect(TSupplier<R> supplier, TObjLongConsumer<R> accumulator, TBiConsumer<R, R> combiner) {
+        R collection = supplier.get();
+        next(e -> {
+            accumulator.accept(collection, e);
+            return true;
+        });
+        return collection;
+    }
+
+    @Override
+    public long sum() {
+        long[] result = new long[1];
+        next(e -> {
+            result[0] += e;
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalLong min() {
+        return reduce(Math::min);
+    }
+
+    @Override
+    public TOptionalLong max() {
+        return reduce(Math::max);
+    }
+
+    @Override
+    public long count() {
+        long[] result = new long[1];
+        next(e -> {
+            result[0]++;
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public TOptionalDouble average() {
+        TLongSummaryStatistics statistics = summaryStatistics();
+        return statistics.getCount() > 0 ? TOptionalDouble.of(statistics.getAverage()) : TOptionalDouble.empty();
+    }
+
+    @Override
+    public TLongSummaryStatistics summaryStatistics() {
+        TLongSummaryStatistics statistics = new TLongSummaryStatistics();
+        forEach(statistics);
+        return statistics;
+    }
+
+    @Override
+    public boolean anyMatch(TLongPredicate predicate) {
+        return next(e -> !predicate.test(e));
+    }
+
+    @Override
+    public boolean allMatch(TLongPredicate predicate) {
+        return !next(predicate);
+    }
+
+    @Override
+    public boolean noneMatch(TLongPredicate predicate) {
+        return !anyMatch(predicate);
+    }
+
+    @Override
+    public TOptionalLong findFirst() {
+        long[] result = new long[1];
+        if (next(e -> {
+            result[0] = e;
+            return false;
+        })) {
+            return TOptionalLong.of(result[0]);
+        }
+        return TOptionalLong.empty();
+    }
+
+    @Override
+    public TOptionalLong findAny() {
+        return findFirst();
+    }
+
+    @Override
+    public TDoubleStream asDoubleStream() {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> consumer.test(e));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleLongStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TStream<Long> boxed() {
+        return chain(new TSimpleStreamImpl<Long>() {
+            @Override
+            public boolean next(TPredicate<? super Long> consumer) {
+                return TSimpleLongStreamImpl.this.next(e -> consumer.test(e));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleLongStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TPrimitiveIterator.OfLong iterator() {
+        return new TLongStreamIterator(this);
+    }
+
+    @Override
+    public TLongStream sequential() {
+        return this;
+    }
+
+    @Override
+    public TLongStream parallel() {
+        return this;
+    }
+
+    @Override
+    public TLongStream unordered() {
+        return this;
+    }
+
+    @Override
+    public TLongStream onClose(TRunnable closeHandler) {
+        addCloseHandler(closeHandler);
+        return this;
+    }
+
+    static class ArrayFillingConsumer implements TLongPredicate {
+        long[] array;
+        int size;
+
+        ArrayFillingConsumer(int estimatedSize) {
+            array = new long[estimatedSize >= 0 ? estimatedSize : 16];
+        }
+
+        @Override
+        public boolean test(long t) {
+            if (size == array.length) {
+                array = TArrays.copyOf(array, Math.max(array.length * 2, 16));
+            }
+            array[size++] = t;
+            return true;
+        }
+    }
+
+    static class ReducingConsumer implements TLongPredicate {
+        private TLongBinaryOperator accumulator;
+        long result;
+        boolean present;
+
+        ReducingConsumer(TLongBinaryOperator accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public boolean test(long t) {
+            if (present) {
+                result = accumulator.applyAsLong(result, t);
+            } else {
+                result = t;
+                present = true;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,392 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.lang.TRunnable;
+import org.teavm.classlib.java.util.TArrays;
+import org.teavm.classlib.java.util.TComparator;
+import org.teavm.classlib.java.util.TIterator;
+import org.teavm.classlib.java.util.TOptional;
+import org.teavm.classlib.java.util.function.TBiConsumer;
+import org.teavm.classlib.java.util.function.TBiFunction;
+import org.teavm.classlib.java.util.function.TBinaryOperator;
+import org.teavm.classlib.java.util.function.TConsumer;
+import org.teavm.classlib.java.util.function.TDoublePredicate;
+import org.teavm.classlib.java.util.function.TFunction;
+import org.teavm.classlib.java.util.function.TIntFunction;
+import org.teavm.classlib.java.util.function.TIntPredicate;
+import org.teavm.classlib.java.util.function.TLongPredicate;
+import org.teavm.classlib.java.util.function.TPredicate;
+import org.teavm.classlib.java.util.function.TSupplier;
+import org.teavm.classlib.java.util.function.TToDoubleFunction;
+import org.teavm.classlib.java.util.function.TToIntFunction;
+import org.teavm.classlib.java.util.function.TToLongFunction;
+import org.teavm.classlib.java.util.stream.TCollector;
+import org.teavm.classlib.java.util.stream.TDoubleStream;
+import org.teavm.classlib.java.util.stream.TIntStream;
+import org.teavm.classlib.java.util.stream.TLongStream;
+import org.teavm.classlib.java.util.stream.TStream;
+
+public abstract class TSimpleStreamImpl<T> extends TBaseStreamImpl implements TStream<T> {
+    public abstract boolean next(TPredicate<? super T> consumer);
+
+    @SuppressWarnings("unchecked")
+    public static <T> TSimpleStreamImpl<T> from(TStream<? extends T> stream) {
+        if (stream instanceof TSimpleStreamImpl) {
+            return (TSimpleStreamImpl<T>) stream;
+        }
+        TSimpleStreamImpl<T> result = new TIteratorStreamImpl<>(stream.iterator());
+        result.addCloseHandler(stream::close);
+        return result;
+    }
+
+    @Override
+    public TStream<T> filter(TPredicate<? super T> predicate) {
+        return chain(new TSimpleStreamImpl<T>() {
+            @Override
+            public boolean next(TPredicate<? super T> consumer) {
+                return TSimpleStreamImpl.this.next(e -> !predicate.test(e) || consumer.test(e));
+            }
+        });
+    }
+
+    @Override
+    public <R> TStream<R> map(TFunction<? super T, ? extends R> mapper) {
+        return chain(new TSimpleStreamImpl<R>() {
+            @Override
+            public boolean next(TPredicate<? super R> consumer) {
+                return TSimpleStreamImpl.this.next(e -> consumer.test(mapper.apply(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TIntStream mapToInt(TToIntFunction<? super T> mapper) {
+        return chain(new TSimpleIntStreamImpl() {
+            @Override
+            public boolean next(TIntPredicate consumer) {
+                return TSimpleStreamImpl.this.next(e -> consumer.test(mapper.applyAsInt(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TLongStream mapToLong(TToLongFunction<? super T> mapper) {
+        return chain(new TSimpleLongStreamImpl() {
+            @Override
+            public boolean next(TLongPredicate consumer) {
+                return TSimpleStreamImpl.this.next(e -> consumer.test(mapper.applyAsLong(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TDoubleStream mapToDouble(TToDoubleFunction<? super T> mapper) {
+        return chain(new TSimpleDoubleStreamImpl() {
+            @Override
+            public boolean next(TDoublePredicate consumer) {
+                return TSimpleStreamImpl.this.next(e -> consumer.test(mapper.applyAsDouble(e)));
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public <R> TStream<R> flatMap(TFunction<? super T, ? extends TStream<? extends R>> mapper) {
+        TSimpleStreamImpl<TStream<? extends R>> streams =
+                (TSimpleStreamImpl<TStream<? extends R>>) this.<TStream<? extends R>>map(mapper);
+        return streams.chain(new TFlatMappingStreamImpl<>(streams));
+    }
+
+    @Override
+    public TIntStream flatMapToInt(TFunction<? super T, ? extends TIntStream> mapper) {
+        TSimpleStreamImpl<TIntStream> streams = (TSimpleStreamImpl<TIntStream>) this.<TIntStream>map(mapper);
+        return streams.chain(new TFlatMappingIntStreamImpl(streams));
+    }
+
+    @Override
+    public TLongStream flatMapToLong(TFunction<? super T, ? extends TLongStream> mapper) {
+        TSimpleStreamImpl<TLongStream> streams = (TSimpleStreamImpl<TLongStream>) this.<TLongStream>map(mapper);
+        return streams.chain(new TFlatMappingLongStreamImpl(streams));
+    }
+
+    @Override
+    public TDoubleStream flatMapToDouble(TFunction<? super T, ? extends TDoubleStream> mapper) {
+        TSimpleStreamImpl<TDoubleStream> streams = (TSimpleStreamImpl<TDoubleStream>) this.<TDoubleStream>map(mapper);
+        return streams.chain(new TFlatMappingDoubleStreamImpl(streams));
+    }
+
+    @Override
+    public TStream<T> distinct() {
+        return chain(new TDistinctStreamImpl<>(this));
+    }
+
+    @Override
+    public TStream<T> sorted() {
+        return chain(new TSortedStreamImpl<>(this, null));
+    }
+
+    @Override
+    public TStream<T> sorted(TComparator<? super T> comparator) {
+        return chain(new TSortedStreamImpl<>(this, comparator));
+    }
+
+    @Override
+    public TStream<T> peek(TConsumer<? super T> action) {
+        return chain(new TSimpleStreamImpl<T>() {
+            @Override
+            public boolean next(TPredicate<? super T> consumer) {
+                return TSimpleStreamImpl.this.next(e -> {
+                    action.accept(e);
+                    return consumer.test(e);
+                });
+            }
+
+            @Override
+            int estimateSize() {
+                return TSimpleStreamImpl.this.estimateSize();
+            }
+        });
+    }
+
+    @Override
+    public TStream<T> limit(long maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TLimitingStreamImpl<>(this, maxSize));
+    }
+
+    @Override
+    public TStream<T> skip(long n) {
+        if (n < 0) {
+            throw new IllegalArgumentException();
+        }
+        return chain(new TSkippingStreamImpl<>(this, n));
+    }
+
+    @Override
+    public void forEach(TConsumer<? super T> action) {
+        next(e -> {
+            action.accept(e);
+            return true;
+        });
+    }
+
+    @Override
+    public void forEachOrdered(TConsumer<? super T> action) {
+        forEach(action);
+    }
+
+    @Override
+    public Object[] toArray() {
+        return toArray(Object[]::new);
+    }
+
+    @Override
+    public <A> A[] toArray(TIntFunction<A[]> generator) {
+        ArrayFillingConsumer<T> consumer = new ArrayFillingConsumer<>(estimateSize());
+        next(consumer);
+        A[] result = generator.apply(consumer.size);
+        System.arraycopy(consumer.array, 0, result, 0, consumer.size);
+        return result;
+    }
+
+    @Override
+    public T reduce(T identity, TBinaryOperator<T> accumulator) {
+        return reduce(identity, accumulator, accumulator);
+    }
+
+    @Override
+    public TOptional<T> reduce(TBinaryOperator<T> accumulator) {
+        ReducingConsumer<T> consumer = new ReducingConsumer<>(accumulator);
+        next(consumer);
+        return consumer.present ? TOptional.of(consumer.result) : TOptional.empty();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <U> U reduce(U identity, TBiFunction<U, ? super T, U> accumulator, TBinaryOperator<U> combiner) {
+        Object[] result = { identity };
+        next(e -> {
+            result[0] = accumulator.apply((U) result[0], e);
+            return true;
+        });
+        return (U) result[0];
+    }
+
+    @Override
+    public <R> R collect(TSupplier<R> supplier, TBiConsumer<R, ? super T> accumulator, TBiConsumer<R, R> combiner) {
+        R collection = supplier.get();
+        next(e -> {
+            accumulator.accept(collection, e);
+            return true;
+        });
+        return collection;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <R, A> R collect(TCollector<? super T, A, R> collector) {
+        A container = collector.supplier().get();
+        TBiConsumer<A, ? super T> accumulator = collector.accumulator();
+        next(e -> {
+            accumulator.accept(container, e);
+            return true;
+        });
+        if (collector.characteristics().contains(TCollector.Characteristics.IDENTITY_FINISH)) {
+            return (R) container;
+        }
+        return collector.finisher().apply(container);
+    }
+
+    @Override
+    public TOptional<T> min(TComparator<? super T> comparator) {
+        return reduce((a, b) -> comparator.compare(a, b) <= 0 ? a : b);
+    }
+
+    @Override
+    public TOptional<T> max(TComparator<? super T> comparator) {
+        return reduce((a, b) -> comparator.compare(a, b) >= 0 ? a : b);
+    }
+
+    @Override
+    public long count() {
+        long[] result = new long[1];
+        next(e -> {
+            result[0]++;
+            return true;
+        });
+        return result[0];
+    }
+
+    @Override
+    public boolean anyMatch(TPredicate<? super T> predicate) {
+        return next(e -> !predicate.test(e));
+    }
+
+    @Override
+    public boolean allMatch(TPredicate<? super T> predicate) {
+        return !next(predicate);
+    }
+
+    @Override
+    public boolean noneMatch(TPredicate<? super T> predicate) {
+        return !anyMatch(predicate);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public TOptional<T> findFirst() {
+        Object[] result = new Object[1];
+        if (next(e -> {
+            result[0] = e;
+            return false;
+        })) {
+            return TOptional.of((T) result[0]);
+        }
+        return TOptional.empty();
+    }
+
+    @Override
+    public TOptional<T> findAny() {
+        return findFirst();
+    }
+
+    @Override
+    public TIterator<T> iterator() {
+        return new TStreamIterator<>(this);
+    }
+
+    @Override
+    public TStream<T> sequential() {
+        return this;
+    }
+
+    @Override
+    public TStream<T> parallel() {
+        return this;
+    }
+
+    @Override
+    public TStream<T> unordered() {
+        return this;
+    }
+
+    @Override
+    public TStream<T> onClose(TRunnable closeHandler) {
+        addCloseHandler(closeHandler);
+        return this;
+    }
+
+    static class ArrayFillingConsumer<T> implements TPredicate<T> {
+        Object[] array;
+        int size;
+
+        ArrayFillingConsumer(int estimatedSize) {
+            array = new Object[estimatedSize >= 0 ? estimatedSize : 16];
+        }
+
+        @Override
+        public boolean test(T t) {
+            if (size == array.length) {
+                array = TArrays.copyOf(array, Math.max(array.length * 2, 16));
+            }
+            array[size++] = t;
+            return true;
+        }
+    }
+
+    static class ReducingConsumer<T> implements TPredicate<T> {
+        private TBinaryOperator<T> accumulator;
+        T result;
+        boolean present;
+
+        ReducingConsumer(TBinaryOperator<T> accumulator) {
+            this.accumulator = accumulator;
+        }
+
+        @Override
+        public boolean test(T t) {
+            if (present) {
+                result = accumulator.apply(result, t);
+            } else {
+                result = t;
+                present = true;
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.util.function.TDoublePredicate;
+
+public class TSkippingDoubleStreamImpl extends TSimpleDoubleStreamImpl {
+    private TSimpleDoubleStreamImpl sourceStream;
+    private long remaining;
+
+    TSkippingDoubleStreamImpl(TSimpleDoubleStreamImpl sourceStream, long skip) {
+        this.sourceStream = sourceStream;
+        remaining = skip;
+    }
+
+    @Override
+    public boolean next(TDoublePredicate consumer) {
+        if (remaining > 0) {
+            if (!sourceStream.next(e -> --remaining > 0)) {
+                return false;
+            }
+        }
+        return sourceStream.next(consumer);
+    }
+}
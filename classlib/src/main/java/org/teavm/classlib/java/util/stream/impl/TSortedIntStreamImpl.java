@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.util.TArrays;
+import org.teavm.classlib.java.util.function.TIntPredicate;
+
+public class TSortedIntStreamImpl extends TSimpleIntStreamImpl {
+    private TSimpleIntStreamImpl sourceStream;
+    private int[] array;
+    private int index;
+    private int size;
+
+    TSortedIntStreamImpl(TSimpleIntStreamImpl sourceStream) {
+        this.sourceStream = sourceStream;
+    }
+
+    @Override
+    public boolean next(TIntPredicate consumer) {
+        if (array == null) {
+            ArrayFillingConsumer elements = new ArrayFillingConsumer(sourceStream.estimateSize());
+            sourceStream.next(elements);
+            array = elements.array;
+            size = elements.size;
+            TArrays.sort(array, 0, size);
+            sourceStream = null;
+        }
+        while (index < size) {
+            if (!consumer.test(array[index++])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    int estimateSize() {
+        return array != null ? size - index : sourceStream.estimateSize();
+    }
+}
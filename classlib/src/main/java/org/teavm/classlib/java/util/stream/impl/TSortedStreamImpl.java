@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream.impl;
+
+import org.teavm.classlib.java.util.TArrays;
+import org.teavm.classlib.java.util.TComparator;
+import org.teavm.classlib.java.util.function.TPredicate;
+
+public class TSortedStreamImpl<T> extends TSimpleStreamImpl<T> {
+    private TSimpleStreamImpl<T> sourceStream;
+    private TComparator<? super T> comparator;
+    private T[] array;
+    private int index;
+    private int size;
+
+    TSortedStreamImpl(TSimpleStreamImpl<T> sourceStream, TComparator<? super T> comparator) {
+        this.sourceStream = sourceStream;
+        this.comparator = comparator;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public boolean next(TPredicate<? super T> consumer) {
+        if (array == null) {
+            ArrayFillingConsumer<T> elements = new ArrayFillingConsumer<>(sourceStream.estimateSize());
+            sourceStream.next(elements);
+            array = (T[]) elements.array;
+            size = elements.size;
+            if (comparator != null) {
+                TArrays.sort(array, 0, size, comparator);
+            } else {
+                TArrays.sort(array, 0, size);
+            }
+            sourceStream = null;
+        }
+        while (index < size) {
+            if (!consumer.test(array[index++])) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    int estimateSize() {
+        return array != null ? size - index : sourceStream.estimateSize();
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+
+/**
+ * <p>Transforms method {@code test(String, Object)} of class {@code test.Foo}, which concatenates its
+ * parameters like javac does.</p>
+ */
+public class StringConcatenationTransformerTest {
+    private static final ValueType BUILDER = ValueType.object(StringBuilder.class.getName());
+    private static final ValueType STRING = ValueType.object(String.class.getName());
+    private static final ValueType OBJECT = ValueType.object(Object.class.getName());
+    private static final MethodReference INIT = new MethodReference(StringBuilder.class, "<init>", void.class);
+    private static final MethodReference INIT_WITH_CAPACITY = new MethodReference(StringBuilder.class, "<init>",
+            int.class, void.class);
+    private static final MethodReference APPEND_STRING = new MethodReference(StringBuilder.class.getName(),
+            "append", STRING, BUILDER);
+    private static final MethodReference APPEND_OBJECT = new MethodReference(StringBuilder.class.getName(),
+            "append", OBJECT, BUILDER);
+    private static final MethodReference TO_STRING = new MethodReference(StringBuilder.class, "toString",
+            String.class);
+    private static final MethodReference VALUE_OF = new MethodReference(String.class, "valueOf", Object.class,
+            String.class);
+    private static final MethodReference CONSUME = new MethodReference("test.Foo", "consume", OBJECT,
+            ValueType.VOID);
+    private Program program = new Program();
+    private BasicBlock block;
+
+    public StringConcatenationTransformerTest() {
+        program.createVariable();
+        program.createVariable();
+        program.createVariable();
+        block = program.createBasicBlock();
+    }
+
+    @Test
+    public void convertsStringAndObjectOperandsWithValueOf() {
+        Variable builder = construct();
+        invoke(builder, INIT);
+        Variable value = invoke(builder, APPEND_STRING, program.variableAt(1));
+        value = invoke(value, APPEND_OBJECT, program.variableAt(2));
+        Variable result = invoke(value, TO_STRING);
+        exit(result);
+
+        transform();
+
+        List<InvokeInstruction> valueOfCalls = findInvocations(VALUE_OF);
+        assertEquals(2, valueOfCalls.size());
+        assertSame(program.variableAt(1), valueOfCalls.get(0).getArguments().get(0));
+        assertSame(program.variableAt(2), valueOfCalls.get(1).getArguments().get(0));
+        assertEquals(2, findInvocations(APPEND_STRING).size());
+        assertEquals(0, findInvocations(APPEND_OBJECT).size());
+        assertEquals(0, findInvocations(INIT).size());
+        assertEquals(1, findInvocations(INIT_WITH_CAPACITY).size());
+    }
+
+    @Test
+    public void leavesChainWithIntermediateValueUsedElsewhere() {
+        Variable builder = construct();
+        invoke(builder, INIT);
+        Variable value = invoke(builder, APPEND_STRING, program.variableAt(1));
+        invoke(null, CONSUME, value);
+        value = invoke(value, APPEND_OBJECT, program.variableAt(2));
+        exit(invoke(value, TO_STRING));
+        List<Instruction> original = new ArrayList<>(block.getInstructions());
+
+        transform();
+
+        assertEquals(original, block.getInstructions());
+    }
+
+    @Test
+    public void rewritesNestedConcatenation() {
+        Variable innerBuilder = construct();
+        invoke(innerBuilder, INIT);
+        Variable inner = invoke(innerBuilder, APPEND_STRING, program.variableAt(1));
+        inner = invoke(inner, APPEND_STRING, constant("-"));
+        Variable innerResult = invoke(inner, TO_STRING);
+
+        Variable outerBuilder = construct();
+        invoke(outerBuilder, INIT);
+        Variable outer = invoke(outerBuilder, APPEND_STRING, constant("("));
+        outer = invoke(outer, APPEND_STRING, innerResult);
+        outer = invoke(outer, APPEND_STRING, constant(")"));
+        exit(invoke(outer, TO_STRING));
+
+        transform();
+
+        assertEquals(2, findInvocations(INIT_WITH_CAPACITY).size());
+        assertEquals(0, findInvocations(INIT).size());
+        List<InvokeInstruction> toStringCalls = findInvocations(TO_STRING);
+        assertEquals(2, toStringCalls.size());
+        assertSame(innerResult, toStringCalls.get(0).getReceiver());
+        List<InvokeInstruction> valueOfCalls = findInvocations(VALUE_OF);
+        assertEquals(2, valueOfCalls.size());
+        assertSame(innerResult, valueOfCalls.get(1).getArguments().get(0));
+        int innerIndex = block.getInstructions().indexOf(toStringCalls.get(0));
+        int outerIndex = block.getInstructions().indexOf(valueOfCalls.get(1));
+        assertTrue("Inner result must be computed before it is appended", innerIndex < outerIndex);
+    }
+
+    private void transform() {
+        ClassHolder cls = new ClassHolder("test.Foo");
+        MethodHolder method = new MethodHolder("test", STRING, OBJECT, STRING);
+        method.setProgram(program);
+        cls.addMethod(method);
+        new StringConcatenationTransformer().transformClass(cls, null, null);
+    }
+
+    private Variable construct() {
+        ConstructInstruction construct = new ConstructInstruction();
+        construct.setType(StringBuilder.class.getName());
+        construct.setReceiver(program.createVariable());
+        block.getInstructions().add(construct);
+        return construct.getReceiver();
+    }
+
+    private Variable constant(String value) {
+        StringConstantInstruction constant = new StringConstantInstruction();
+        constant.setConstant(value);
+        constant.setReceiver(program.createVariable());
+        block.getInstructions().add(constant);
+        return constant.getReceiver();
+    }
+
+    private Variable invoke(Variable instance, MethodReference method, Variable... arguments) {
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(instance == null || method.getName().equals("<init>")
+                ? InvocationType.SPECIAL : InvocationType.VIRTUAL);
+        invoke.setInstance(instance);
+        invoke.setMethod(method);
+        for (Variable argument : arguments) {
+            invoke.getArguments().add(argument);
+        }
+        if (method.getReturnType() != ValueType.VOID) {
+            invoke.setReceiver(program.createVariable());
+        }
+        block.getInstructions().add(invoke);
+        return invoke.getReceiver();
+    }
+
+    private void exit(Variable value) {
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(value);
+        block.getInstructions().add(exit);
+    }
+
+    private List<InvokeInstruction> findInvocations(MethodReference method) {
+        List<InvokeInstruction> result = new ArrayList<>();
+        for (Instruction insn : block.getInstructions()) {
+            if (insn instanceof InvokeInstruction && ((InvokeInstruction) insn).getMethod().equals(method)) {
+                result.add((InvokeInstruction) insn);
+            }
+        }
+        return result;
+    }
+}
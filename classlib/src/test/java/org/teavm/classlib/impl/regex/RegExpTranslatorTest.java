@@ -0,0 +1,50 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.impl.regex;
+
+import static org.junit.Assert.*;
+import java.util.regex.Pattern;
+import org.junit.Test;
+
+public class RegExpTranslatorTest {
+    @Test
+    public void translatesCompatibleSyntaxAsIs() {
+        assertEquals("(\\d+)-(\\d+)", RegExpTranslator.translate("(\\d+)-(\\d+)", 0));
+        assertEquals("[a-f]+", RegExpTranslator.translate("[a-f]+", 0));
+    }
+
+    @Test
+    public void translatesLineTerminators() {
+        assertEquals("a[^\\n\\r\\u0085\\u2028\\u2029]b", RegExpTranslator.translate("a.b", 0));
+        assertEquals("a[\\s\\S]", RegExpTranslator.translate("a.", Pattern.DOTALL));
+        assertEquals("[\\t\\n\\u000B\\f\\r ]+", RegExpTranslator.translate("\\s+", 0));
+    }
+
+    @Test
+    public void translatesFlags() {
+        assertEquals("[aA][bB]", RegExpTranslator.translate("ab", Pattern.CASE_INSENSITIVE));
+        assertEquals("a\\.\\(", RegExpTranslator.translate("a.(", Pattern.LITERAL));
+    }
+
+    @Test
+    public void rejectsUnsupportedConstructs() {
+        assertNull(RegExpTranslator.translate("a\\b", 0));
+        assertNull(RegExpTranslator.translate("(a)\\1", 0));
+        assertNull(RegExpTranslator.translate("a++", 0));
+        assertNull(RegExpTranslator.translate("(?i)a", 0));
+        assertNull(RegExpTranslator.translate("\\p{L}", 0));
+    }
+}
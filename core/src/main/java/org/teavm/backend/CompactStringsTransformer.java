@@ -0,0 +1,76 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend;
+
+import org.teavm.diagnostics.Diagnostics;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassHolderTransformer;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.Program;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+
+/**
+ * Replaces reads of <code>String.compactStrings</code> with a constant, so that each backend gets only the
+ * string representation it supports, even when field optimization does not run. WebAssembly enables compact
+ * strings, i.e. stores Latin-1 strings one byte per character, and
+ * {@link org.teavm.backend.wasm.generate.WasmStringPool} lays out string constants accordingly. JavaScript
+ * disables them, so that Latin-1 branches of <code>String</code> are removed.
+ */
+public class CompactStringsTransformer implements ClassHolderTransformer {
+    private FieldReference compactStringsField = new FieldReference("java.lang.String", "compactStrings");
+    private boolean enabled;
+
+    public CompactStringsTransformer(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void transformClass(ClassHolder cls, ClassReaderSource innerSource, Diagnostics diagnostics) {
+        if (!cls.getName().equals("java.lang.String")) {
+            return;
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (method.getProgram() != null) {
+                patchProgram(method.getProgram());
+            }
+        }
+    }
+
+    private void patchProgram(Program program) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (int j = 0; j < block.getInstructions().size(); ++j) {
+                Instruction instruction = block.getInstructions().get(j);
+                if (!(instruction instanceof GetFieldInstruction)) {
+                    continue;
+                }
+                GetFieldInstruction getField = (GetFieldInstruction) instruction;
+                if (getField.getField().equals(compactStringsField)) {
+                    IntegerConstantInstruction replacement = new IntegerConstantInstruction();
+                    replacement.setConstant(enabled ? 1 : 0);
+                    replacement.setReceiver(getField.getReceiver());
+                    replacement.setLocation(instruction.getLocation());
+                    block.getInstructions().set(j, replacement);
+                }
+            }
+        }
+    }
+}
@@ -30,6 +30,7 @@ import org.teavm.ast.ClassNode;
 import org.teavm.ast.cache.EmptyRegularMethodNodeCache;
 import org.teavm.ast.cache.MethodNodeCache;
 import org.teavm.ast.decompilation.Decompiler;
+import org.teavm.backend.CompactStringsTransformer;
 import org.teavm.backend.javascript.codegen.AliasProvider;
 import org.teavm.backend.javascript.codegen.DefaultAliasProvider;
 import org.teavm.backend.javascript.codegen.DefaultNamingStrategy;
@@ -90,7 +91,9 @@ public class JavaScriptTarget implements TeaVMTarget, TeaVMJavaScriptHost {
 
     @Override
     public List<ClassHolderTransformer> getTransformers() {
-        return Collections.emptyList();
+        List<ClassHolderTransformer> transformers = new ArrayList<>();
+        transformers.add(new CompactStringsTransformer(false));
+        return transformers;
     }
 
     @Override
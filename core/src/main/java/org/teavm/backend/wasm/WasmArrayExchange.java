@@ -0,0 +1,123 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm;
+
+import org.teavm.interop.Address;
+import org.teavm.interop.Export;
+import org.teavm.interop.PinnedObjects;
+
+/**
+ * <p>Exports functions that let the host exchange primitive arrays with Java code without copying.
+ * The host allocates a pinned array, gets its data address and creates a typed array view over
+ * exported memory, for example {@code new Uint8Array(exports.memory.buffer, address, length)}.
+ * Java code takes the array by handle with {@link PinnedObjects#get(int)}. In the other direction,
+ * Java code pins its own array and passes the handle to the host.</p>
+ *
+ * <p>Memory never grows, so views stay valid as long as the array is pinned.</p>
+ *
+ * <p>These functions and the memory export are only emitted for JavaScript host and only when Java code uses
+ * {@link PinnedObjects}, so modules that don't exchange arrays don't pay for them.</p>
+ */
+public final class WasmArrayExchange {
+    private WasmArrayExchange() {
+    }
+
+    @Export(name = "sys$allocateByteArray")
+    public static int allocateByteArray(int size) {
+        return PinnedObjects.pin(new byte[size]);
+    }
+
+    @Export(name = "sys$allocateShortArray")
+    public static int allocateShortArray(int size) {
+        return PinnedObjects.pin(new short[size]);
+    }
+
+    @Export(name = "sys$allocateCharArray")
+    public static int allocateCharArray(int size) {
+        return PinnedObjects.pin(new char[size]);
+    }
+
+    @Export(name = "sys$allocateIntArray")
+    public static int allocateIntArray(int size) {
+        return PinnedObjects.pin(new int[size]);
+    }
+
+    @Export(name = "sys$allocateLongArray")
+    public static int allocateLongArray(int size) {
+        return PinnedObjects.pin(new long[size]);
+    }
+
+    @Export(name = "sys$allocateFloatArray")
+    public static int allocateFloatArray(int size) {
+        return PinnedObjects.pin(new float[size]);
+    }
+
+    @Export(name = "sys$allocateDoubleArray")
+    public static int allocateDoubleArray(int size) {
+        return PinnedObjects.pin(new double[size]);
+    }
+
+    @Export(name = "sys$arrayData")
+    public static int arrayData(int handle) {
+        Object array = PinnedObjects.get(handle);
+        if (array instanceof byte[]) {
+            return Address.ofData((byte[]) array).toInt();
+        } else if (array instanceof short[]) {
+            return Address.ofData((short[]) array).toInt();
+        } else if (array instanceof char[]) {
+            return Address.ofData((char[]) array).toInt();
+        } else if (array instanceof int[]) {
+            return Address.ofData((int[]) array).toInt();
+        } else if (array instanceof long[]) {
+            return Address.ofData((long[]) array).toInt();
+        } else if (array instanceof float[]) {
+            return Address.ofData((float[]) array).toInt();
+        } else if (array instanceof double[]) {
+            return Address.ofData((double[]) array).toInt();
+        } else if (array instanceof boolean[]) {
+            return Address.ofData((boolean[]) array).toInt();
+        }
+        throw new IllegalArgumentException("Not a primitive array: " + handle);
+    }
+
+    @Export(name = "sys$arrayLength")
+    public static int arrayLength(int handle) {
+        Object array = PinnedObjects.get(handle);
+        if (array instanceof byte[]) {
+            return ((byte[]) array).length;
+        } else if (array instanceof short[]) {
+            return ((short[]) array).length;
+        } else if (array instanceof char[]) {
+            return ((char[]) array).length;
+        } else if (array instanceof int[]) {
+            return ((int[]) array).length;
+        } else if (array instanceof long[]) {
+            return ((long[]) array).length;
+        } else if (array instanceof float[]) {
+            return ((float[]) array).length;
+        } else if (array instanceof double[]) {
+            return ((double[]) array).length;
+        } else if (array instanceof boolean[]) {
+            return ((boolean[]) array).length;
+        }
+        throw new IllegalArgumentException("Not a primitive array: " + handle);
+    }
+
+    @Export(name = "sys$unpin")
+    public static void unpin(int handle) {
+        PinnedObjects.unpin(handle);
+    }
+}
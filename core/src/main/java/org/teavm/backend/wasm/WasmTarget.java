@@ -18,6 +18,7 @@ package org.teavm.backend.wasm;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.Serializable;
 import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -27,7 +28,13 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import org.teavm.ast.decompilation.Decompiler;
+import org.teavm.backend.CompactStringsTransformer;
 import org.teavm.backend.wasm.binary.BinaryWriter;
+import org.teavm.backend.wasm.binary.DataArray;
+import org.teavm.backend.wasm.binary.DataPrimitives;
+import org.teavm.backend.wasm.binary.DataValue;
+import org.teavm.backend.wasm.generate.DispatchTargetFinder;
+import org.teavm.backend.wasm.generate.WasmArrayExchangeDependencyListener;
 import org.teavm.backend.wasm.generate.WasmClassGenerator;
 import org.teavm.backend.wasm.generate.WasmDependencyListener;
 import org.teavm.backend.wasm.generate.WasmGenerationContext;
@@ -74,11 +81,14 @@ import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.backend.wasm.render.WasmBinaryWriter;
 import org.teavm.backend.wasm.render.WasmCRenderer;
 import org.teavm.backend.wasm.render.WasmRenderer;
+import org.teavm.backend.wasm.transformation.BuiltinImportTransformation;
 import org.teavm.backend.wasm.transformation.IndirectCallTraceTransformation;
 import org.teavm.backend.wasm.transformation.MemoryAccessTraceTransformation;
+import org.teavm.backend.wasm.transformation.WasiTransformation;
 import org.teavm.dependency.ClassDependency;
 import org.teavm.dependency.DependencyChecker;
 import org.teavm.dependency.DependencyListener;
+import org.teavm.dependency.MethodDependency;
 import org.teavm.interop.Address;
 import org.teavm.interop.DelegateTo;
 import org.teavm.interop.Import;
@@ -107,6 +117,8 @@ import org.teavm.model.instructions.CloneArrayInstruction;
 import org.teavm.model.instructions.InitClassInstruction;
 import org.teavm.model.instructions.InvocationType;
 import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.lowlevel.BoundCheckInsertion;
+import org.teavm.model.lowlevel.CastCheckInsertion;
 import org.teavm.model.lowlevel.ClassInitializerEliminator;
 import org.teavm.model.lowlevel.ClassInitializerTransformer;
 import org.teavm.model.lowlevel.ShadowStackTransformer;
@@ -127,17 +139,24 @@ public class WasmTarget implements TeaVMTarget {
     private boolean debugging;
     private boolean wastEmitted;
     private boolean cEmitted;
+    private boolean boundsChecked;
+    private boolean castsChecked;
+    private BoundCheckInsertion boundCheckInsertion = new BoundCheckInsertion();
+    private CastCheckInsertion castCheckInsertion;
     private ClassInitializerEliminator classInitializerEliminator;
     private ClassInitializerTransformer classInitializerTransformer;
     private ShadowStackTransformer shadowStackTransformer;
     private MethodDescriptor clinitDescriptor = new MethodDescriptor("<clinit>", void.class);
     private WasmBinaryVersion version = WasmBinaryVersion.V_0xC;
+    private WasmHostEnvironment hostEnvironment = WasmHostEnvironment.JAVASCRIPT;
+    private WasmArrayExchangeDependencyListener arrayExchangeListener = new WasmArrayExchangeDependencyListener();
 
     @Override
     public void setController(TeaVMTargetController controller) {
         this.controller = controller;
         classInitializerEliminator = new ClassInitializerEliminator(controller.getUnprocessedClassSource());
         classInitializerTransformer = new ClassInitializerTransformer();
+        castCheckInsertion = new CastCheckInsertion(controller.getUnprocessedClassSource());
         shadowStackTransformer = new ShadowStackTransformer(controller.getUnprocessedClassSource());
     }
 
@@ -155,6 +174,7 @@ public class WasmTarget implements TeaVMTarget {
     public List<ClassHolderTransformer> getTransformers() {
         List<ClassHolderTransformer> transformers = new ArrayList<>();
         transformers.add(new ClassPatch());
+        transformers.add(new CompactStringsTransformer(true));
         transformers.add(new WasmDependencyListener());
         return transformers;
     }
@@ -163,6 +183,7 @@ public class WasmTarget implements TeaVMTarget {
     public List<DependencyListener> getDependencyListeners() {
         List<DependencyListener> listeners = new ArrayList<>();
         listeners.add(new WasmDependencyListener());
+        listeners.add(arrayExchangeListener);
         return listeners;
     }
 
@@ -190,6 +211,22 @@ public class WasmTarget implements TeaVMTarget {
         this.cEmitted = cEmitted;
     }
 
+    public boolean isBoundsChecked() {
+        return boundsChecked;
+    }
+
+    public void setBoundsChecked(boolean boundsChecked) {
+        this.boundsChecked = boundsChecked;
+    }
+
+    public boolean isCastsChecked() {
+        return castsChecked;
+    }
+
+    public void setCastsChecked(boolean castsChecked) {
+        this.castsChecked = castsChecked;
+    }
+
     public WasmBinaryVersion getVersion() {
         return version;
     }
@@ -198,6 +235,14 @@ public class WasmTarget implements TeaVMTarget {
         this.version = version;
     }
 
+    public WasmHostEnvironment getHostEnvironment() {
+        return hostEnvironment;
+    }
+
+    public void setHostEnvironment(WasmHostEnvironment hostEnvironment) {
+        this.hostEnvironment = hostEnvironment;
+    }
+
     @Override
     public void contributeDependencies(DependencyChecker dependencyChecker) {
         for (Class type : Arrays.asList(int.class, long.class, float.class, double.class)) {
@@ -245,7 +290,24 @@ public class WasmTarget implements TeaVMTarget {
         dependencyChecker.linkMethod(new MethodReference(ExceptionHandling.class, "catchException",
                 Throwable.class), null).use();
 
+        arrayExchangeListener.setEnabled(hostEnvironment == WasmHostEnvironment.JAVASCRIPT);
+
         dependencyChecker.linkField(new FieldReference("java.lang.Object", "monitor"), null);
+        dependencyChecker.linkField(new FieldReference("java.lang.ref.WeakReference", "gcNext"), null);
+
+        if (boundsChecked) {
+            MethodDependency exceptionDep = dependencyChecker.linkMethod(BoundCheckInsertion.EXCEPTION_CONSTRUCTOR,
+                    null);
+            exceptionDep.getVariable(0).propagate(dependencyChecker.getType(
+                    ArrayIndexOutOfBoundsException.class.getName()));
+            exceptionDep.use();
+        }
+        if (castsChecked) {
+            MethodDependency exceptionDep = dependencyChecker.linkMethod(CastCheckInsertion.EXCEPTION_CONSTRUCTOR,
+                    null);
+            exceptionDep.getVariable(0).propagate(dependencyChecker.getType(ClassCastException.class.getName()));
+            exceptionDep.use();
+        }
 
         ClassDependency runtimeClassDep = dependencyChecker.linkClass(RuntimeClass.class.getName(), null);
         ClassDependency runtimeObjectDep = dependencyChecker.linkClass(RuntimeObject.class.getName(), null);
@@ -270,6 +332,12 @@ public class WasmTarget implements TeaVMTarget {
             entryBlock.getInstructions().add(0, initInsn);
         }
 
+        if (boundsChecked) {
+            boundCheckInsertion.transform(program);
+        }
+        if (castsChecked) {
+            castCheckInsertion.apply(program, method);
+        }
         classInitializerEliminator.apply(program);
         classInitializerTransformer.transform(program);
         shadowStackTransformer.apply(program, method);
@@ -300,8 +368,9 @@ public class WasmTarget implements TeaVMTarget {
         Decompiler decompiler = new Decompiler(classes, controller.getClassLoader(), new HashSet<>(),
                 new HashSet<>());
         WasmStringPool stringPool = new WasmStringPool(classGenerator, binaryWriter);
+        DispatchTargetFinder dispatchTargetFinder = new DispatchTargetFinder(classes, vtableProvider, tagRegistry);
         WasmGenerationContext context = new WasmGenerationContext(classes, module, controller.getDiagnostics(),
-                vtableProvider, tagRegistry, stringPool);
+                vtableProvider, tagRegistry, stringPool, dispatchTargetFinder);
 
         context.addIntrinsic(new AddressIntrinsic(classGenerator));
         context.addIntrinsic(new StructureIntrinsic(classGenerator));
@@ -313,7 +382,7 @@ public class WasmTarget implements TeaVMTarget {
         context.addIntrinsic(new PlatformClassIntrinsic());
         context.addIntrinsic(new PlatformObjectIntrinsic(classGenerator));
         context.addIntrinsic(new ClassIntrinsic());
-        GCIntrinsic gcIntrinsic = new GCIntrinsic();
+        GCIntrinsic gcIntrinsic = new GCIntrinsic(classGenerator);
         context.addIntrinsic(gcIntrinsic);
         MutatorIntrinsic mutatorIntrinsic = new MutatorIntrinsic();
         context.addIntrinsic(mutatorIntrinsic);
@@ -325,10 +394,17 @@ public class WasmTarget implements TeaVMTarget {
         WasmGenerator generator = new WasmGenerator(decompiler, classes, context, classGenerator, binaryWriter);
 
         module.setMemorySize(128);
+        if (arrayExchangeListener.isMemoryUsed()) {
+            module.setMemoryExportName("memory");
+        }
         generateMethods(classes, context, generator, module);
         exceptionHandlingIntrinsic.postProcess(shadowStackTransformer.getCallSites());
-        generateIsSupertypeFunctions(tagRegistry, module, classGenerator);
+        generateIsSupertypeFunctions(tagRegistry, module, classGenerator, binaryWriter);
         classGenerator.postProcess();
+        int wasiScratchAddress = hostEnvironment == WasmHostEnvironment.WASI
+                ? binaryWriter.append(new DataArray(DataPrimitives.LONG, WasiTransformation.MEMORY_SIZE / 8)
+                        .createValue())
+                : 0;
         mutatorIntrinsic.setStaticGcRootsAddress(classGenerator.getStaticGcRootsAddress());
 
         WasmMemorySegment dataSegment = new WasmMemorySegment();
@@ -370,6 +446,17 @@ public class WasmTarget implements TeaVMTarget {
             module.getFunctionTable().add(function);
         }
 
+        new BuiltinImportTransformation(module).apply();
+        if (hostEnvironment == WasmHostEnvironment.WASI) {
+            TeaVMEntryPoint mainEntryPoint = controller.getEntryPoints().get("main");
+            String mainFunctionName = mainEntryPoint != null
+                    ? WasmMangling.mangleMethod(mainEntryPoint.getReference())
+                    : null;
+            String catchExceptionName = WasmMangling.mangleMethod(new MethodReference(ExceptionHandling.class,
+                    "catchException", Throwable.class));
+            new WasiTransformation(module, wasiScratchAddress, mainFunctionName, catchExceptionName).apply();
+        }
+
         new UnusedFunctionElimination(module).apply();
 
         if (Boolean.parseBoolean(System.getProperty("wasm.memoryTrace", "false"))) {
@@ -380,7 +467,11 @@ public class WasmTarget implements TeaVMTarget {
         }
 
         WasmBinaryWriter writer = new WasmBinaryWriter();
-        WasmBinaryRenderer renderer = new WasmBinaryRenderer(writer, version);
+        // WASI runtimes accept only MVP modules
+        WasmBinaryVersion binaryVersion = hostEnvironment == WasmHostEnvironment.WASI
+                ? WasmBinaryVersion.V_0x1
+                : version;
+        WasmBinaryRenderer renderer = new WasmBinaryRenderer(writer, binaryVersion);
         renderer.render(module);
 
         try (OutputStream output = buildTarget.createResource(outputName)) {
@@ -482,7 +573,7 @@ public class WasmTarget implements TeaVMTarget {
     }
 
     private void generateIsSupertypeFunctions(TagRegistry tagRegistry, WasmModule module,
-            WasmClassGenerator classGenerator) {
+            WasmClassGenerator classGenerator, BinaryWriter binaryWriter) {
         for (ValueType type : classGenerator.getRegisteredClasses()) {
             WasmFunction function = new WasmFunction(WasmMangling.mangleIsSupertype(type));
             function.getParameters().add(WasmType.INT32);
@@ -494,7 +585,8 @@ public class WasmTarget implements TeaVMTarget {
 
             if (type instanceof ValueType.Object) {
                 String className = ((ValueType.Object) type).getClassName();
-                generateIsClass(subtypeVar, classGenerator, tagRegistry, className, function.getBody());
+                generateIsClass(subtypeVar, classGenerator, tagRegistry, binaryWriter, className,
+                        function.getBody());
             } else if (type instanceof ValueType.Array) {
                 ValueType itemType = ((ValueType.Array) type).getItemType();
                 generateIsArray(subtypeVar, classGenerator, itemType, function.getBody());
@@ -508,7 +600,18 @@ public class WasmTarget implements TeaVMTarget {
     }
 
     private void generateIsClass(WasmLocal subtypeVar, WasmClassGenerator classGenerator, TagRegistry tagRegistry,
-            String className, List<WasmExpression> body) {
+            BinaryWriter binaryWriter, String className, List<WasmExpression> body) {
+        if (className.equals(Cloneable.class.getName()) || className.equals(Serializable.class.getName())) {
+            int itemOffset = classGenerator.getFieldOffset(new FieldReference(RuntimeClass.class.getName(),
+                    "itemType"));
+            WasmExpression itemExpression = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD,
+                    new WasmGetLocal(subtypeVar), new WasmInt32Constant(itemOffset));
+            itemExpression = new WasmLoadInt32(4, itemExpression, WasmInt32Subtype.INT32);
+            WasmConditional testArray = new WasmConditional(itemExpression);
+            testArray.getThenBlock().getBody().add(new WasmReturn(new WasmInt32Constant(1)));
+            body.add(testArray);
+        }
+
         List<TagRegistry.Range> ranges = tagRegistry.getRanges(className);
         if (ranges.isEmpty()) {
             body.add(new WasmReturn(new WasmInt32Constant(0)));
@@ -521,43 +624,52 @@ public class WasmTarget implements TeaVMTarget {
         tagExpression = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD, tagExpression,
                 new WasmInt32Constant(tagOffset));
         tagExpression = new WasmLoadInt32(4, tagExpression, WasmInt32Subtype.INT32);
-        body.add(new WasmSetLocal(subtypeVar, tagExpression));
 
         ranges.sort(Comparator.comparingInt(range -> range.lower));
-
         int lower = ranges.get(0).lower;
         int upper = ranges.get(ranges.size() - 1).upper;
 
-        WasmExpression lowerCondition = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LT_SIGNED,
-                new WasmGetLocal(subtypeVar), new WasmInt32Constant(lower));
-        WasmConditional testLower = new WasmConditional(lowerCondition);
-        testLower.getThenBlock().getBody().add(new WasmReturn(new WasmInt32Constant(0)));
-        body.add(testLower);
-
-        WasmExpression upperCondition = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.GT_SIGNED,
-                new WasmGetLocal(subtypeVar), new WasmInt32Constant(upper));
-        WasmConditional testUpper = new WasmConditional(upperCondition);
-        testUpper.getThenBlock().getBody().add(new WasmReturn(new WasmInt32Constant(0)));
-        body.add(testUpper);
-
-        for (int i = 1; i < ranges.size(); ++i) {
-            int lowerHole = ranges.get(i - 1).upper;
-            int upperHole = ranges.get(i).lower;
-
-            lowerCondition = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.GT_SIGNED,
-                    new WasmGetLocal(subtypeVar), new WasmInt32Constant(lowerHole));
-            testLower = new WasmConditional(lowerCondition);
-            body.add(testLower);
+        // Unsigned comparison of tag - lower rejects tags below lower as well
+        tagExpression = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SUB, tagExpression,
+                new WasmInt32Constant(lower));
+        body.add(new WasmSetLocal(subtypeVar, tagExpression));
+        WasmExpression inRange = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LT_UNSIGNED,
+                new WasmGetLocal(subtypeVar), new WasmInt32Constant(upper - lower));
+        if (ranges.size() == 1) {
+            body.add(new WasmReturn(inRange));
+            return;
+        }
 
-            upperCondition = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LT_SIGNED,
-                    new WasmGetLocal(subtypeVar), new WasmInt32Constant(upperHole));
-            testUpper = new WasmConditional(upperCondition);
-            testUpper.getThenBlock().getBody().add(new WasmReturn(new WasmInt32Constant(0)));
+        // Classes implementing an interface occupy several ranges. Instead of testing each range,
+        // look up a bit that corresponds to the tag in a bit set that covers all of them.
+        int bitSetAddress = binaryWriter.append(createTagBitSet(ranges, lower, upper));
+
+        WasmConditional testRange = new WasmConditional(new WasmIntBinary(WasmIntType.INT32,
+                WasmIntBinaryOperation.EQ, inRange, new WasmInt32Constant(0)));
+        testRange.getThenBlock().getBody().add(new WasmReturn(new WasmInt32Constant(0)));
+        body.add(testRange);
+
+        WasmExpression byteAddress = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SHR_UNSIGNED,
+                new WasmGetLocal(subtypeVar), new WasmInt32Constant(3));
+        byteAddress = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD, byteAddress,
+                new WasmInt32Constant(bitSetAddress));
+        WasmExpression bits = new WasmLoadInt32(1, byteAddress, WasmInt32Subtype.UINT8);
+        WasmExpression bitIndex = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.AND,
+                new WasmGetLocal(subtypeVar), new WasmInt32Constant(7));
+        bits = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SHR_UNSIGNED, bits, bitIndex);
+        bits = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.AND, bits, new WasmInt32Constant(1));
+        body.add(new WasmReturn(bits));
+    }
 
-            testLower.getThenBlock().getBody().add(testUpper);
+    private DataValue createTagBitSet(List<TagRegistry.Range> ranges, int lower, int upper) {
+        DataValue bitSet = new DataArray(DataPrimitives.BYTE, (upper - lower + 7) / 8).createValue();
+        for (TagRegistry.Range range : ranges) {
+            for (int tag = range.lower; tag < range.upper; ++tag) {
+                int index = tag - lower;
+                bitSet.setByte(index / 8, (byte) (bitSet.getByte(index / 8) | (1 << (index % 8))));
+            }
         }
-
-        body.add(new WasmReturn(new WasmInt32Constant(1)));
+        return bitSet;
     }
 
     private void generateIsArray(WasmLocal subtypeVar, WasmClassGenerator classGenerator, ValueType itemType,
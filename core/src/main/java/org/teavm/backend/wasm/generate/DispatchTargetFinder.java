@@ -0,0 +1,185 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.generate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.ListableClassReaderSource;
+import org.teavm.model.MethodReference;
+import org.teavm.model.classes.TagRegistry;
+import org.teavm.model.classes.VirtualTable;
+import org.teavm.model.classes.VirtualTableEntry;
+import org.teavm.model.classes.VirtualTableProvider;
+
+/**
+ * <p>Finds out which implementations a virtual call can actually reach, so that monomorphic and
+ * bimorphic call sites can be emitted as direct calls (possibly guarded by a class tag check)
+ * instead of an indirect call through the virtual table.</p>
+ *
+ * <p>Classes are taken from the linked class set, where implementations that dependency analysis
+ * never saw receiving a call are already stripped, so a class whose virtual table entry has no
+ * implementor is never a receiver.</p>
+ */
+public class DispatchTargetFinder {
+    private static final int MAX_TARGETS = 2;
+    private static final int MAX_GUARD_INTERVALS = 2;
+    private static final Set<String> ARRAY_SUPERTYPES = new HashSet<>(Arrays.asList("java.lang.Object",
+            "java.lang.Cloneable", "java.io.Serializable"));
+    private ListableClassReaderSource classSource;
+    private VirtualTableProvider vtableProvider;
+    private TagRegistry tagRegistry;
+    private Map<MethodReference, List<DispatchTarget>> cache = new HashMap<>();
+
+    public DispatchTargetFinder(ListableClassReaderSource classSource, VirtualTableProvider vtableProvider,
+            TagRegistry tagRegistry) {
+        this.classSource = classSource;
+        this.vtableProvider = vtableProvider;
+        this.tagRegistry = tagRegistry;
+    }
+
+    /**
+     * Returns dispatch targets of a virtual call.
+     *
+     * @return list of targets where all targets except the last one are guarded with tag intervals, or
+     * {@code null} if the call should be dispatched via virtual table.
+     */
+    public List<DispatchTarget> find(MethodReference method) {
+        return cache.computeIfAbsent(method, this::compute);
+    }
+
+    private List<DispatchTarget> compute(MethodReference method) {
+        if (ARRAY_SUPERTYPES.contains(method.getClassName())) {
+            return null;
+        }
+        List<TagRegistry.Range> receiverRanges = tagRegistry.getRanges(method.getClassName());
+        if (receiverRanges.isEmpty()) {
+            return null;
+        }
+
+        List<int[]> tagsAndIndexes = new ArrayList<>();
+        Map<MethodReference, Integer> implementorIndexes = new LinkedHashMap<>();
+        for (String className : classSource.getClassNames()) {
+            ClassReader cls = classSource.get(className);
+            if (cls == null || cls.hasModifier(ElementModifier.INTERFACE)
+                    || cls.hasModifier(ElementModifier.ABSTRACT)) {
+                continue;
+            }
+            List<TagRegistry.Range> ranges = tagRegistry.getRanges(className);
+            if (ranges.isEmpty()) {
+                continue;
+            }
+            int tag = ranges.get(0).lower;
+            if (!isInRanges(tag, receiverRanges)) {
+                continue;
+            }
+
+            VirtualTable vtable = vtableProvider.lookup(className);
+            VirtualTableEntry entry = vtable != null ? vtable.getEntries().get(method.getDescriptor()) : null;
+            if (entry == null) {
+                return null;
+            }
+            if (entry.getImplementor() == null) {
+                continue;
+            }
+
+            int index = implementorIndexes.computeIfAbsent(entry.getImplementor(), k -> implementorIndexes.size());
+            if (implementorIndexes.size() > MAX_TARGETS) {
+                return null;
+            }
+            tagsAndIndexes.add(new int[] { tag, index });
+        }
+
+        List<MethodReference> implementors = new ArrayList<>(implementorIndexes.keySet());
+        if (implementors.isEmpty()) {
+            return null;
+        }
+        if (implementors.size() == 1) {
+            return Collections.singletonList(new DispatchTarget(implementors.get(0), Collections.emptyList()));
+        }
+
+        tagsAndIndexes.sort((a, b) -> Integer.compare(a[0], b[0]));
+        List<List<Interval>> intervalsByImplementor = new ArrayList<>();
+        for (int i = 0; i < implementors.size(); ++i) {
+            intervalsByImplementor.add(new ArrayList<>());
+        }
+        Interval last = null;
+        int lastIndex = -1;
+        for (int[] tagAndIndex : tagsAndIndexes) {
+            if (tagAndIndex[1] == lastIndex) {
+                last.upper = tagAndIndex[0];
+            } else {
+                last = new Interval(tagAndIndex[0], tagAndIndex[0]);
+                lastIndex = tagAndIndex[1];
+                intervalsByImplementor.get(lastIndex).add(last);
+            }
+        }
+
+        int guarded = intervalsByImplementor.get(0).size() <= intervalsByImplementor.get(1).size() ? 0 : 1;
+        List<Interval> guard = intervalsByImplementor.get(guarded);
+        if (guard.size() > MAX_GUARD_INTERVALS) {
+            return null;
+        }
+
+        return Arrays.asList(new DispatchTarget(implementors.get(guarded), guard),
+                new DispatchTarget(implementors.get(1 - guarded), Collections.emptyList()));
+    }
+
+    private static boolean isInRanges(int tag, List<TagRegistry.Range> ranges) {
+        for (TagRegistry.Range range : ranges) {
+            if (tag >= range.lower && tag < range.upper) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static class DispatchTarget {
+        private final MethodReference implementor;
+        private final List<Interval> tagIntervals;
+
+        DispatchTarget(MethodReference implementor, List<Interval> tagIntervals) {
+            this.implementor = implementor;
+            this.tagIntervals = Collections.unmodifiableList(tagIntervals);
+        }
+
+        public MethodReference getImplementor() {
+            return implementor;
+        }
+
+        public List<Interval> getTagIntervals() {
+            return tagIntervals;
+        }
+    }
+
+    public static class Interval {
+        public int lower;
+        public int upper;
+
+        Interval(int lower, int upper) {
+            this.lower = lower;
+            this.upper = upper;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.generate;
+
+import java.util.Arrays;
+import org.teavm.backend.wasm.WasmArrayExchange;
+import org.teavm.dependency.AbstractDependencyListener;
+import org.teavm.dependency.DependencyAgent;
+import org.teavm.dependency.MethodDependency;
+import org.teavm.interop.Address;
+import org.teavm.interop.PinnedObjects;
+import org.teavm.model.CallLocation;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Links functions of {@link WasmArrayExchange} only when Java code exchanges arrays with JavaScript host,
+ * i.e. when it uses {@link PinnedObjects}. Memory is exported when Java code takes addresses of array data
+ * with {@code Address.ofData}, since that's the only way for the host to see the data.</p>
+ */
+public class WasmArrayExchangeDependencyListener extends AbstractDependencyListener {
+    private boolean enabled = true;
+    private boolean exchangeUsed;
+    private boolean memoryUsed;
+
+    public void setEnabled(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public boolean isMemoryUsed() {
+        return memoryUsed;
+    }
+
+    @Override
+    public void methodReached(DependencyAgent agent, MethodDependency method, CallLocation location) {
+        if (!enabled) {
+            return;
+        }
+        MethodReference methodRef = method.getReference();
+        if (methodRef.getClassName().equals(Address.class.getName()) && methodRef.getName().equals("ofData")) {
+            memoryUsed = true;
+        } else if (methodRef.getClassName().equals(PinnedObjects.class.getName()) && !exchangeUsed) {
+            exchangeUsed = true;
+            memoryUsed = true;
+            linkExchange(agent);
+        }
+    }
+
+    private void linkExchange(DependencyAgent agent) {
+        for (String name : Arrays.asList("allocateByteArray", "allocateShortArray", "allocateCharArray",
+                "allocateIntArray", "allocateLongArray", "allocateFloatArray", "allocateDoubleArray",
+                "arrayData", "arrayLength")) {
+            agent.linkMethod(new MethodReference(WasmArrayExchange.class, name, int.class, int.class), null).use();
+        }
+        agent.linkMethod(new MethodReference(WasmArrayExchange.class, "unpin", int.class, void.class), null).use();
+    }
+}
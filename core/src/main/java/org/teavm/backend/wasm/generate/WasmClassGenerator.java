@@ -75,6 +75,10 @@ public class WasmClassGenerator {
     private IntegerArray staticGcRoots = new IntegerArray(1);
     private int staticGcRootsAddress;
 
+    private static final String WEAK_REFERENCE_CLASS = "java.lang.ref.WeakReference";
+    private static final FieldReference WEAK_REFERENCE_VALUE = new FieldReference(WEAK_REFERENCE_CLASS, "value");
+    private static final FieldReference WEAK_REFERENCE_GC_NEXT = new FieldReference(WEAK_REFERENCE_CLASS, "gcNext");
+
     private static final int CLASS_SIZE = 1;
     private static final int CLASS_FLAGS = 2;
     private static final int CLASS_TAG = 3;
@@ -207,6 +211,9 @@ public class WasmClassGenerator {
         header.setInt(CLASS_IS_INSTANCE, functionTable.size());
         functionTable.add(WasmMangling.mangleIsSupertype(ValueType.object(name)));
         header.setAddress(CLASS_PARENT, parentPtr);
+        if (!binaryData.isInferface && classSource.isSuperType(WEAK_REFERENCE_CLASS, name).orElse(false)) {
+            header.setInt(CLASS_FLAGS, RuntimeClass.WEAK_REFERENCE);
+        }
 
         if (vtable != null) {
             fillVirtualTable(vtable, array);
@@ -238,6 +245,8 @@ public class WasmClassGenerator {
                 .filter(field -> isReferenceType(field.getType()))
                 .filter(field -> !field.getOwnerName().equals("java.lang.Object")
                         && !field.getName().equals("monitor"))
+                .filter(field -> !field.getReference().equals(WEAK_REFERENCE_VALUE)
+                        && !field.getReference().equals(WEAK_REFERENCE_GC_NEXT))
                 .map(field -> field.getReference())
                 .collect(Collectors.toList());
     }
@@ -311,6 +320,13 @@ public class WasmClassGenerator {
         return data.fieldLayout.get(field.getFieldName());
     }
 
+    public boolean hasField(FieldReference field) {
+        ValueType type = ValueType.object(field.getClassName());
+        addClass(type);
+        ClassBinaryData data = binaryDataMap.get(type);
+        return data.fieldLayout.containsKey(field.getFieldName());
+    }
+
     public int getClassSize(String className) {
         ValueType type = ValueType.object(className);
         addClass(type);
@@ -372,7 +388,11 @@ public class WasmClassGenerator {
             int desiredAlignment = getDesiredAlignment(field.getType());
             if (field.hasModifier(ElementModifier.STATIC)) {
                 DataType type = asDataType(field.getType());
-                data.fieldLayout.put(field.getName(), binaryWriter.append(type.createValue()));
+                DataValue value = type.createValue();
+                if (field.getInitialValue() instanceof Number) {
+                    setInitialValue(value, field.getType(), (Number) field.getInitialValue());
+                }
+                data.fieldLayout.put(field.getName(), binaryWriter.append(value));
             } else {
                 int offset = align(data.size, desiredAlignment);
                 data.fieldLayout.put(field.getName(), offset);
@@ -384,6 +404,34 @@ public class WasmClassGenerator {
         }
     }
 
+    private static void setInitialValue(DataValue value, ValueType type, Number initialValue) {
+        if (!(type instanceof ValueType.Primitive)) {
+            return;
+        }
+        switch (((ValueType.Primitive) type).getKind()) {
+            case BOOLEAN:
+            case BYTE:
+                value.setByte(0, initialValue.byteValue());
+                break;
+            case SHORT:
+            case CHARACTER:
+                value.setShort(0, initialValue.shortValue());
+                break;
+            case INTEGER:
+                value.setInt(0, initialValue.intValue());
+                break;
+            case LONG:
+                value.setLong(0, initialValue.longValue());
+                break;
+            case FLOAT:
+                value.setFloat(0, initialValue.floatValue());
+                break;
+            case DOUBLE:
+                value.setDouble(0, initialValue.doubleValue());
+                break;
+        }
+    }
+
     private static DataType asDataType(ValueType type) {
         if (type instanceof ValueType.Primitive) {
             switch (((ValueType.Primitive) type).getKind()) {
@@ -43,18 +43,21 @@ public class WasmGenerationContext {
     private VirtualTableProvider vtableProvider;
     private TagRegistry tagRegistry;
     private WasmStringPool stringPool;
+    private DispatchTargetFinder dispatchTargetFinder;
     private Map<MethodReference, ImportedMethod> importedMethods = new HashMap<>();
     private List<WasmIntrinsic> intrinsics = new ArrayList<>();
     private Map<MethodReference, WasmIntrinsicHolder> intrinsicCache = new HashMap<>();
 
     public WasmGenerationContext(ClassReaderSource classSource, WasmModule module, Diagnostics diagnostics,
-            VirtualTableProvider vtableProvider, TagRegistry tagRegistry, WasmStringPool stringPool) {
+            VirtualTableProvider vtableProvider, TagRegistry tagRegistry, WasmStringPool stringPool,
+            DispatchTargetFinder dispatchTargetFinder) {
         this.classSource = classSource;
         this.module = module;
         this.diagnostics = diagnostics;
         this.vtableProvider = vtableProvider;
         this.tagRegistry = tagRegistry;
         this.stringPool = stringPool;
+        this.dispatchTargetFinder = dispatchTargetFinder;
     }
 
     public void addIntrinsic(WasmIntrinsic intrinsic) {
@@ -123,6 +126,10 @@ public class WasmGenerationContext {
         return tagRegistry;
     }
 
+    public DispatchTargetFinder getDispatchTargetFinder() {
+        return dispatchTargetFinder;
+    }
+
     public WasmStringPool getStringPool() {
         return stringPool;
     }
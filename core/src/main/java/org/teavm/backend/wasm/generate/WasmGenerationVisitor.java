@@ -18,7 +18,6 @@ package org.teavm.backend.wasm.generate;
 import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Comparator;
 import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -868,6 +867,13 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
 
             result = block;
         } else {
+            List<DispatchTargetFinder.DispatchTarget> dispatchTargets = context.getDispatchTargetFinder()
+                    .find(expr.getMethod());
+            if (dispatchTargets != null && canCallDirectly(dispatchTargets)) {
+                generateDirectVirtualCall(expr, dispatchTargets);
+                return;
+            }
+
             accept(expr.getArguments().get(0));
             WasmExpression instance = result;
             WasmBlock block = new WasmBlock(false);
@@ -908,6 +914,100 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
         }
     }
 
+    private boolean canCallDirectly(List<DispatchTargetFinder.DispatchTarget> targets) {
+        for (DispatchTargetFinder.DispatchTarget target : targets) {
+            if (context.getIntrinsic(target.getImplementor()) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void generateDirectVirtualCall(InvocationExpr expr, List<DispatchTargetFinder.DispatchTarget> targets) {
+        MethodReference method = expr.getMethod();
+        WasmType returnType = WasmGeneratorUtil.mapType(method.getReturnType());
+
+        if (targets.size() == 1) {
+            WasmCall call = createDirectCall(targets.get(0).getImplementor());
+            for (Expr argument : expr.getArguments()) {
+                accept(argument);
+                call.getArguments().add(result);
+            }
+            call.setLocation(expr.getLocation());
+            result = call;
+            return;
+        }
+
+        WasmBlock block = new WasmBlock(false);
+        block.setType(returnType);
+        block.setLocation(expr.getLocation());
+
+        List<WasmLocal> argumentVars = new ArrayList<>();
+        for (int i = 0; i < expr.getArguments().size(); ++i) {
+            WasmType type = i == 0 ? WasmType.INT32 : WasmGeneratorUtil.mapType(method.parameterType(i - 1));
+            WasmLocal var = getTemporary(type);
+            accept(expr.getArguments().get(i));
+            block.getBody().add(new WasmSetLocal(var, result));
+            argumentVars.add(var);
+        }
+
+        WasmLocal tagVar = getTemporary(WasmType.INT32);
+        block.getBody().add(new WasmSetLocal(tagVar, generateTagLoad(new WasmGetLocal(argumentVars.get(0)))));
+
+        WasmExpression condition = null;
+        for (DispatchTargetFinder.Interval interval : targets.get(0).getTagIntervals()) {
+            WasmExpression intervalCondition = generateTagInInterval(tagVar, interval.lower, interval.upper);
+            condition = condition == null ? intervalCondition : new WasmIntBinary(WasmIntType.INT32,
+                    WasmIntBinaryOperation.OR, condition, intervalCondition);
+        }
+
+        WasmConditional conditional = new WasmConditional(condition);
+        conditional.setType(returnType);
+        conditional.getThenBlock().getBody().add(createDirectCall(targets.get(0).getImplementor(), argumentVars));
+        conditional.getElseBlock().getBody().add(createDirectCall(targets.get(1).getImplementor(), argumentVars));
+        block.getBody().add(conditional);
+
+        releaseTemporary(tagVar);
+        for (WasmLocal var : argumentVars) {
+            releaseTemporary(var);
+        }
+        result = block;
+    }
+
+    private WasmCall createDirectCall(MethodReference method) {
+        WasmCall call = new WasmCall(WasmMangling.mangleMethod(method));
+        if (context.getImportedMethod(method) != null) {
+            call.setImported(true);
+        }
+        return call;
+    }
+
+    private WasmCall createDirectCall(MethodReference method, List<WasmLocal> arguments) {
+        WasmCall call = createDirectCall(method);
+        for (WasmLocal argument : arguments) {
+            call.getArguments().add(new WasmGetLocal(argument));
+        }
+        return call;
+    }
+
+    private WasmExpression generateTagLoad(WasmExpression instance) {
+        int tagOffset = classGenerator.getFieldOffset(tagField);
+        WasmExpression tagPtr = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD,
+                getReferenceToClass(instance), new WasmInt32Constant(tagOffset));
+        return new WasmLoadInt32(4, tagPtr, WasmInt32Subtype.INT32);
+    }
+
+    private WasmExpression generateTagInInterval(WasmLocal tagVar, int lower, int upper) {
+        if (lower == upper) {
+            return new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.EQ, new WasmGetLocal(tagVar),
+                    new WasmInt32Constant(lower));
+        }
+        WasmExpression offset = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SUB,
+                new WasmGetLocal(tagVar), new WasmInt32Constant(lower));
+        return new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LE_UNSIGNED, offset,
+                new WasmInt32Constant(upper - lower));
+    }
+
     private void generateAllocStack(Expr sizeExpr) {
         if (stackVariable != null) {
             throw new IllegalStateException("Call to ShadowStack.allocStack must be done only once");
@@ -1194,58 +1294,55 @@ class WasmGenerationVisitor implements StatementVisitor, ExprVisitor {
     public void visit(InstanceOfExpr expr) {
         accept(expr.getExpr());
 
-        if (expr.getType() instanceof ValueType.Object) {
-            ValueType.Object cls = (ValueType.Object) expr.getType();
-            List<TagRegistry.Range> ranges = context.getTagRegistry().getRanges(cls.getClassName());
-            ranges.sort(Comparator.comparingInt(range -> range.lower));
+        WasmBlock block = new WasmBlock(false);
+        block.setType(WasmType.INT32);
+        block.setLocation(expr.getLocation());
 
-            WasmBlock block = new WasmBlock(false);
-            block.setType(WasmType.INT32);
-            block.setLocation(expr.getLocation());
-
-            WasmLocal tagVar = getTemporary(WasmType.INT32);
-            int tagOffset = classGenerator.getFieldOffset(tagField);
-            WasmExpression tagPtr = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD,
-                    getReferenceToClass(result), new WasmInt32Constant(tagOffset));
-            block.getBody().add(new WasmSetLocal(tagVar, new WasmLoadInt32(4, tagPtr, WasmInt32Subtype.INT32)));
-
-            WasmExpression lowerThanMinCond = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LT_SIGNED,
-                    new WasmGetLocal(tagVar), new WasmInt32Constant(ranges.get(0).lower));
-            WasmBranch lowerThanMin = new WasmBranch(lowerThanMinCond, block);
-            lowerThanMin.setResult(new WasmInt32Constant(0));
-            block.getBody().add(new WasmDrop(lowerThanMin));
-
-            WasmExpression upperThanMaxCond = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.GT_SIGNED,
-                    new WasmGetLocal(tagVar), new WasmInt32Constant(ranges.get(ranges.size() - 1).upper));
-            WasmBranch upperThanMax = new WasmBranch(upperThanMaxCond, block);
-            upperThanMax.setResult(new WasmInt32Constant(0));
-            block.getBody().add(new WasmDrop(upperThanMax));
-
-            for (int i = 1; i < ranges.size(); ++i) {
-                WasmExpression upperThanExcluded = new WasmIntBinary(WasmIntType.INT32,
-                        WasmIntBinaryOperation.GT_SIGNED, new WasmGetLocal(tagVar),
-                        new WasmInt32Constant(ranges.get(i - 1).upper));
-                WasmConditional conditional = new WasmConditional(upperThanExcluded);
-                WasmExpression lowerThanExcluded = new WasmIntBinary(WasmIntType.INT32,
-                        WasmIntBinaryOperation.LT_SIGNED, new WasmGetLocal(tagVar),
-                        new WasmInt32Constant(ranges.get(i).lower));
-
-                WasmBranch branch = new WasmBranch(lowerThanExcluded, block);
-                branch.setResult(new WasmInt32Constant(0));
-                conditional.getThenBlock().getBody().add(new WasmDrop(branch));
-
-                block.getBody().add(conditional);
-            }
+        WasmLocal valueVar = getTemporary(WasmType.INT32);
+        block.getBody().add(new WasmSetLocal(valueVar, result));
 
-            block.getBody().add(new WasmInt32Constant(1));
-            releaseTemporary(tagVar);
+        WasmExpression isNullCond = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.EQ,
+                new WasmGetLocal(valueVar), new WasmInt32Constant(0));
+        WasmBranch ifNull = new WasmBranch(isNullCond, block);
+        ifNull.setResult(new WasmInt32Constant(0));
+        block.getBody().add(new WasmDrop(ifNull));
 
-            result = block;
-        } else if (expr.getType() instanceof ValueType.Array) {
-            throw new UnsupportedOperationException();
-        } else {
+        block.getBody().add(generateInstanceOf(new WasmGetLocal(valueVar), expr.getType()));
+        releaseTemporary(valueVar);
+
+        result = block;
+    }
+
+    private WasmExpression generateInstanceOf(WasmExpression instance, ValueType type) {
+        if (type instanceof ValueType.Object) {
+            String className = ((ValueType.Object) type).getClassName();
+            if (className.equals("java.lang.Object")) {
+                return new WasmInt32Constant(1);
+            }
+            List<TagRegistry.Range> ranges = context.getTagRegistry().getRanges(className);
+            if (ranges.isEmpty() && !isArraySupertype(className)) {
+                return new WasmInt32Constant(0);
+            }
+            if (ranges.size() == 1 && !isArraySupertype(className)) {
+                TagRegistry.Range range = ranges.get(0);
+                WasmExpression offset = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SUB,
+                        generateTagLoad(instance), new WasmInt32Constant(range.lower));
+                return new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LT_UNSIGNED, offset,
+                        new WasmInt32Constant(range.upper - range.lower));
+            }
+        } else if (!(type instanceof ValueType.Array)) {
             throw new AssertionError();
         }
+
+        // Interfaces and arrays are tested by functions generated along with class metadata
+        classGenerator.getClassPointer(type);
+        WasmCall call = new WasmCall(WasmMangling.mangleIsSupertype(type));
+        call.getArguments().add(getReferenceToClass(instance));
+        return call;
+    }
+
+    private static boolean isArraySupertype(String className) {
+        return className.equals("java.lang.Cloneable") || className.equals("java.io.Serializable");
     }
 
     @Override
@@ -21,11 +21,20 @@ import org.teavm.backend.wasm.binary.BinaryWriter;
 import org.teavm.backend.wasm.binary.DataArray;
 import org.teavm.backend.wasm.binary.DataPrimitives;
 import org.teavm.backend.wasm.binary.DataStructure;
+import org.teavm.backend.wasm.binary.DataType;
 import org.teavm.backend.wasm.binary.DataValue;
+import org.teavm.model.FieldReference;
 import org.teavm.model.ValueType;
 import org.teavm.runtime.RuntimeObject;
 
+/**
+ * Lays out string constants in memory. Strings that consist of Latin-1 characters are stored in compact
+ * form (see {@link org.teavm.backend.CompactStringsTransformer}). Fields are placed at offsets computed by
+ * {@link WasmClassGenerator}, since fields that are never read may be removed from the string class.
+ */
 public class WasmStringPool {
+    private static final String STRING_CLASS = String.class.getName();
+    private static final byte LATIN1 = 1;
     private WasmClassGenerator classGenerator;
     private BinaryWriter binaryWriter;
     private Map<String, Integer> stringMap = new HashMap<>();
@@ -33,11 +42,6 @@ public class WasmStringPool {
             DataPrimitives.INT, /* class pointer */
             DataPrimitives.ADDRESS, /* monitor */
             DataPrimitives.INT /* size */);
-    private DataStructure stringType = new DataStructure((byte) 0,
-            DataPrimitives.INT, /* class pointer */
-            DataPrimitives.ADDRESS, /* monitor */
-            DataPrimitives.ADDRESS, /* characters */
-            DataPrimitives.INT /* hash code */);
 
     public WasmStringPool(WasmClassGenerator classGenerator, BinaryWriter binaryWriter) {
         this.classGenerator = classGenerator;
@@ -46,26 +50,63 @@ public class WasmStringPool {
 
     public int getStringPointer(String value) {
         return stringMap.computeIfAbsent(value, str -> {
-            DataArray charactersType = new DataArray(DataPrimitives.SHORT, str.length());
+            boolean latin1 = isLatin1(str);
+            DataType componentType = latin1 ? DataPrimitives.BYTE : DataPrimitives.SHORT;
+            DataArray charactersType = new DataArray(componentType, str.length());
             DataStructure wrapperType = new DataStructure((byte) 0, arrayHeaderType, charactersType);
             DataValue wrapper = wrapperType.createValue();
             DataValue header = wrapper.getValue(0);
             DataValue characters = wrapper.getValue(1);
 
-            int classPointer = classGenerator.getClassPointer(ValueType.arrayOf(ValueType.CHARACTER));
+            ValueType arrayType = ValueType.arrayOf(latin1 ? ValueType.BYTE : ValueType.CHARACTER);
+            int classPointer = classGenerator.getClassPointer(arrayType);
             header.setInt(0, (classPointer >>> 3) | RuntimeObject.GC_MARKED);
             header.setInt(2, str.length());
             for (int i = 0; i < str.length(); ++i) {
-                characters.setShort(i, (short) str.charAt(i));
+                if (latin1) {
+                    characters.setByte(i, (byte) str.charAt(i));
+                } else {
+                    characters.setShort(i, (short) str.charAt(i));
+                }
             }
 
-            DataValue stringObject = stringType.createValue();
+            int size = classGenerator.getClassSize(STRING_CLASS);
+            DataValue stringObject = new DataArray(DataPrimitives.INT, (size - 1) / 4 + 1).createValue();
             int stringPointer = binaryWriter.append(stringObject);
-            classPointer = classGenerator.getClassPointer(ValueType.object(String.class.getName()));
+            classPointer = classGenerator.getClassPointer(ValueType.object(STRING_CLASS));
             stringObject.setInt(0, (classPointer >>> 3) | RuntimeObject.GC_MARKED);
-            stringObject.setAddress(2, binaryWriter.append(wrapper));
+            int charactersPointer = binaryWriter.append(wrapper);
+            if (latin1) {
+                setField(stringObject, "latin1", charactersPointer, 4);
+                setField(stringObject, "coder", LATIN1, 1);
+            } else {
+                setField(stringObject, "characters", charactersPointer, 4);
+            }
 
             return stringPointer;
         });
     }
+
+    private static boolean isLatin1(String str) {
+        for (int i = 0; i < str.length(); ++i) {
+            if (str.charAt(i) > 0xFF) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void setField(DataValue object, String name, int value, int size) {
+        FieldReference field = new FieldReference(STRING_CLASS, name);
+        if (!classGenerator.hasField(field)) {
+            return;
+        }
+        int offset = classGenerator.getFieldOffset(field);
+        if (size == 4) {
+            object.setInt(offset / 4, value);
+        } else {
+            int shift = (offset % 4) * 8;
+            object.setInt(offset / 4, object.getInt(offset / 4) | ((value & 0xFF) << shift));
+        }
+    }
 }
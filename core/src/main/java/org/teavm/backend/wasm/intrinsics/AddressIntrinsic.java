@@ -42,6 +42,7 @@ import org.teavm.backend.wasm.model.expression.WasmStoreInt64;
 import org.teavm.interop.Address;
 import org.teavm.model.MethodReference;
 import org.teavm.model.ValueType;
+import org.teavm.runtime.RuntimeArray;
 
 public class AddressIntrinsic implements WasmIntrinsic {
     private WasmClassGenerator classGenerator;
@@ -68,6 +69,12 @@ public class AddressIntrinsic implements WasmIntrinsic {
             case "fromInt":
             case "ofObject":
                 return manager.generate(invocation.getArguments().get(0));
+            case "ofData": {
+                WasmExpression array = manager.generate(invocation.getArguments().get(0));
+                int base = classGenerator.getClassSize(RuntimeArray.class.getName());
+                return new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD, array,
+                        new WasmInt32Constant(base));
+            }
             case "fromLong": {
                 WasmExpression value = manager.generate(invocation.getArguments().get(0));
                 return new WasmConversion(WasmType.INT64, WasmType.INT32, false, value);
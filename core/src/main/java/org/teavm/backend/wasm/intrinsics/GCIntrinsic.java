@@ -18,13 +18,24 @@ package org.teavm.backend.wasm.intrinsics;
 import java.util.ArrayList;
 import java.util.List;
 import org.teavm.ast.InvocationExpr;
+import org.teavm.backend.wasm.generate.WasmClassGenerator;
 import org.teavm.backend.wasm.model.expression.WasmExpression;
 import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
 import org.teavm.backend.wasm.model.expression.WasmInt64Constant;
+import org.teavm.model.FieldReference;
 import org.teavm.model.MethodReference;
 import org.teavm.runtime.GC;
 
 public class GCIntrinsic implements WasmIntrinsic {
+    private static final FieldReference WEAK_REFERENCE_VALUE = new FieldReference("java.lang.ref.WeakReference",
+            "value");
+    private static final FieldReference WEAK_REFERENCE_GC_NEXT = new FieldReference(
+            "java.lang.ref.WeakReference", "gcNext");
+    private static final FieldReference REFERENCE_QUEUE = new FieldReference("java.lang.ref.Reference", "queue");
+    private static final FieldReference REFERENCE_NEXT = new FieldReference("java.lang.ref.Reference", "next");
+    private static final FieldReference REFERENCE_QUEUE_HEAD = new FieldReference("java.lang.ref.ReferenceQueue",
+            "head");
+    private WasmClassGenerator classGenerator;
     private List<WasmInt32Constant> heapAddressExpressions = new ArrayList<>();
     private List<WasmInt64Constant> availableBytesExpressions = new ArrayList<>();
     private List<WasmInt32Constant> gcStorageAddressExpressions = new ArrayList<>();
@@ -33,6 +44,10 @@ public class GCIntrinsic implements WasmIntrinsic {
     private List<WasmInt32Constant> regionsAddressExpressions = new ArrayList<>();
     private List<WasmInt32Constant> regionMaxCountExpressions = new ArrayList<>();
 
+    public GCIntrinsic(WasmClassGenerator classGenerator) {
+        this.classGenerator = classGenerator;
+    }
+
     public void setHeapAddress(int address) {
         for (WasmInt32Constant constant : heapAddressExpressions) {
             constant.setValue(address);
@@ -89,6 +104,11 @@ public class GCIntrinsic implements WasmIntrinsic {
             case "regionsAddress":
             case "regionMaxCount":
             case "regionSize":
+            case "weakReferenceValueOffset":
+            case "weakReferenceGcNextOffset":
+            case "referenceQueueOffset":
+            case "referenceNextOffset":
+            case "referenceQueueHeadOffset":
                 return true;
             default:
                 return false;
@@ -117,6 +137,16 @@ public class GCIntrinsic implements WasmIntrinsic {
             case "regionSize":
                 list = regionSizeExpressions;
                 break;
+            case "weakReferenceValueOffset":
+                return new WasmInt32Constant(classGenerator.getFieldOffset(WEAK_REFERENCE_VALUE));
+            case "weakReferenceGcNextOffset":
+                return new WasmInt32Constant(classGenerator.getFieldOffset(WEAK_REFERENCE_GC_NEXT));
+            case "referenceQueueOffset":
+                return new WasmInt32Constant(classGenerator.getFieldOffset(REFERENCE_QUEUE));
+            case "referenceNextOffset":
+                return new WasmInt32Constant(classGenerator.getFieldOffset(REFERENCE_NEXT));
+            case "referenceQueueHeadOffset":
+                return new WasmInt32Constant(classGenerator.getFieldOffset(REFERENCE_QUEUE_HEAD));
             case "availableBytes": {
                 WasmInt64Constant constant = new WasmInt64Constant(0);
                 availableBytesExpressions.add(constant);
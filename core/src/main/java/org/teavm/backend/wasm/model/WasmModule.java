@@ -23,6 +23,7 @@ import java.util.Map;
 
 public class WasmModule {
     private int memorySize;
+    private String memoryExportName;
     private List<WasmMemorySegment> segments = new ArrayList<>();
     private Map<String, WasmFunction> functions = new LinkedHashMap<>();
     private Map<String, WasmFunction> readonlyFunctions = Collections.unmodifiableMap(functions);
@@ -68,6 +69,14 @@ public class WasmModule {
         this.memorySize = memorySize;
     }
 
+    public String getMemoryExportName() {
+        return memoryExportName;
+    }
+
+    public void setMemoryExportName(String memoryExportName) {
+        this.memoryExportName = memoryExportName;
+    }
+
     public WasmFunction getStartFunction() {
         return startFunction;
     }
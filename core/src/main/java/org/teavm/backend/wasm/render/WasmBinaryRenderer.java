@@ -40,10 +40,14 @@ public class WasmBinaryRenderer {
     private static final int SECTION_CODE = 10;
     private static final int SECTION_DATA = 11;
 
+    private static final int NAME_SUBSECTION_FUNCTIONS = 1;
+
     private static final int EXTERNAL_KIND_FUNCTION = 0;
+    private static final int EXTERNAL_KIND_MEMORY = 2;
 
     private WasmBinaryWriter output;
     private WasmBinaryVersion version;
+    private boolean mvp;
     private List<WasmSignature> signatures = new ArrayList<>();
     private Map<WasmSignature, Integer> signatureIndexes = new HashMap<>();
     private Map<String, Integer> importIndexes = new HashMap<>();
@@ -51,21 +55,30 @@ public class WasmBinaryRenderer {
 
     public WasmBinaryRenderer(WasmBinaryWriter output, WasmBinaryVersion version) {
         this.output = output;
-        this.version = version;
+
+        // MVP encodes code and sections as 0xD does and differs only in version number and name section
+        mvp = version == WasmBinaryVersion.V_0x1;
+        this.version = mvp ? WasmBinaryVersion.V_0xD : version;
     }
 
     public void render(WasmModule module) {
         output.writeInt32(0x6d736100);
-        switch (version) {
-            case V_0xB:
-                output.writeInt32(0xB);
-                break;
-            case V_0xC:
-                output.writeInt32(0xC);
-                break;
-            case V_0xD:
-                output.writeInt32(0xD);
-                break;
+        if (mvp) {
+            output.writeInt32(1);
+        } else {
+            switch (version) {
+                case V_0xB:
+                    output.writeInt32(0xB);
+                    break;
+                case V_0xC:
+                    output.writeInt32(0xC);
+                    break;
+                case V_0xD:
+                    output.writeInt32(0xD);
+                    break;
+                default:
+                    break;
+            }
         }
 
         renderSignatures(module);
@@ -219,13 +232,14 @@ public class WasmBinaryRenderer {
         List<WasmFunction> functions = module.getFunctions().values().stream()
                 .filter(function -> function.getExportName() != null)
                 .collect(Collectors.toList());
-        if (functions.isEmpty()) {
+        boolean memoryExported = module.getMemoryExportName() != null && version != WasmBinaryVersion.V_0xB;
+        if (functions.isEmpty() && !memoryExported) {
             return;
         }
 
         WasmBinaryWriter section = new WasmBinaryWriter();
 
-        section.writeLEB(functions.size());
+        section.writeLEB(functions.size() + (memoryExported ? 1 : 0));
         for (WasmFunction function : functions) {
             int functionIndex = functionIndexes.get(function.getName());
             if (version == WasmBinaryVersion.V_0xB) {
@@ -239,6 +253,11 @@ public class WasmBinaryRenderer {
                 section.writeLEB(functionIndex);
             }
         }
+        if (memoryExported) {
+            section.writeAsciiString(module.getMemoryExportName());
+            section.writeByte(EXTERNAL_KIND_MEMORY);
+            section.writeLEB(0);
+        }
 
         writeSection(SECTION_EXPORT, "export", section.getData());
     }
@@ -382,11 +401,23 @@ public class WasmBinaryRenderer {
                 .filter(function -> function.getImportName() == null)
                 .collect(Collectors.toList());
 
-        section.writeLEB(functions.size());
-
-        for (WasmFunction function : functions) {
-            section.writeAsciiString(function.getName());
-            section.writeLEB(0);
+        if (mvp) {
+            WasmBinaryWriter functionNames = new WasmBinaryWriter();
+            functionNames.writeLEB(functions.size());
+            for (WasmFunction function : functions) {
+                functionNames.writeLEB(functionIndexes.get(function.getName()));
+                functionNames.writeAsciiString(function.getName());
+            }
+            byte[] data = functionNames.getData();
+            section.writeByte(NAME_SUBSECTION_FUNCTIONS);
+            section.writeLEB(data.length);
+            section.writeBytes(data);
+        } else {
+            section.writeLEB(functions.size());
+            for (WasmFunction function : functions) {
+                section.writeAsciiString(function.getName());
+                section.writeLEB(0);
+            }
         }
 
         writeSection(SECTION_UNKNOWN, "name", section.getData());
@@ -111,6 +111,9 @@ public class WasmRenderer {
             visitor.close();
         }
         visitor.close().lf();
+        if (module.getMemoryExportName() != null) {
+            visitor.open().append("export \"" + module.getMemoryExportName() + "\" memory").close().lf();
+        }
     }
 
     public void renderImport(WasmFunction function) {
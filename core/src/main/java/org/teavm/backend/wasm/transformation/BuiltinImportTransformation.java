@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.transformation;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.teavm.backend.wasm.model.WasmFunction;
+import org.teavm.backend.wasm.model.WasmModule;
+import org.teavm.backend.wasm.model.WasmType;
+import org.teavm.backend.wasm.model.expression.WasmExpression;
+import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
+import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
+import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
+import org.teavm.backend.wasm.model.expression.WasmFloatBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmFloatType;
+import org.teavm.backend.wasm.model.expression.WasmFloatUnary;
+import org.teavm.backend.wasm.model.expression.WasmFloatUnaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmGetLocal;
+import org.teavm.backend.wasm.model.expression.WasmReturn;
+
+/**
+ * Replaces imported functions that have exact WebAssembly counterparts, like {@code math.sqrt} or
+ * {@code runtime.isNaN}, with functions implemented by these instructions, so that they don't require
+ * a call to the host.
+ */
+public class BuiltinImportTransformation {
+    private WasmModule module;
+
+    public BuiltinImportTransformation(WasmModule module) {
+        this.module = module;
+    }
+
+    public void apply() {
+        List<WasmFunction> functions = new ArrayList<>(module.getFunctions().values());
+        boolean changed = false;
+        for (WasmFunction function : functions) {
+            if (function.getImportName() != null && bind(function)) {
+                changed = true;
+            }
+        }
+        if (changed) {
+            ImportedCalls.update(module);
+        }
+    }
+
+    private boolean bind(WasmFunction function) {
+        String module = function.getImportModule();
+        String name = function.getImportName();
+        if ("math".equals(module)) {
+            switch (name) {
+                case "sqrt":
+                    return bindUnary(function, WasmFloatUnaryOperation.SQRT);
+                case "ceil":
+                    return bindUnary(function, WasmFloatUnaryOperation.CEIL);
+                case "floor":
+                    return bindUnary(function, WasmFloatUnaryOperation.FLOOR);
+            }
+        } else if ("runtime".equals(module)) {
+            switch (name) {
+                case "isNaN":
+                    return bindIsNaN(function);
+                case "isFinite":
+                    return bindIsFinite(function);
+                case "getNaN":
+                    return bindGetNaN(function);
+            }
+        }
+        return false;
+    }
+
+    private boolean bindUnary(WasmFunction function, WasmFloatUnaryOperation operation) {
+        WasmFloatType type = getSingleFloatParameter(function);
+        if (type == null || function.getResult() != function.getParameters().get(0)) {
+            return false;
+        }
+        ImportedCalls.define(function);
+        WasmExpression argument = new WasmGetLocal(function.getLocalVariables().get(0));
+        function.getBody().add(new WasmReturn(new WasmFloatUnary(type, operation, argument)));
+        return true;
+    }
+
+    private boolean bindIsNaN(WasmFunction function) {
+        WasmFloatType type = getSingleFloatParameter(function);
+        if (type == null || function.getResult() != WasmType.INT32) {
+            return false;
+        }
+        ImportedCalls.define(function);
+        WasmExpression first = new WasmGetLocal(function.getLocalVariables().get(0));
+        WasmExpression second = new WasmGetLocal(function.getLocalVariables().get(0));
+        function.getBody().add(new WasmReturn(new WasmFloatBinary(type, WasmFloatBinaryOperation.NE,
+                first, second)));
+        return true;
+    }
+
+    private boolean bindIsFinite(WasmFunction function) {
+        WasmFloatType type = getSingleFloatParameter(function);
+        if (type == null || function.getResult() != WasmType.INT32) {
+            return false;
+        }
+        ImportedCalls.define(function);
+        WasmExpression abs = new WasmFloatUnary(type, WasmFloatUnaryOperation.ABS,
+                new WasmGetLocal(function.getLocalVariables().get(0)));
+        WasmExpression infinity = type == WasmFloatType.FLOAT32
+                ? new WasmFloat32Constant(Float.POSITIVE_INFINITY)
+                : new WasmFloat64Constant(Double.POSITIVE_INFINITY);
+        // NaN compares false to anything, so it is not finite as expected
+        function.getBody().add(new WasmReturn(new WasmFloatBinary(type, WasmFloatBinaryOperation.LT,
+                abs, infinity)));
+        return true;
+    }
+
+    private boolean bindGetNaN(WasmFunction function) {
+        if (!function.getParameters().isEmpty()) {
+            return false;
+        }
+        WasmExpression nan;
+        if (function.getResult() == WasmType.FLOAT32) {
+            nan = new WasmFloat32Constant(Float.NaN);
+        } else if (function.getResult() == WasmType.FLOAT64) {
+            nan = new WasmFloat64Constant(Double.NaN);
+        } else {
+            return false;
+        }
+        ImportedCalls.define(function);
+        function.getBody().add(new WasmReturn(nan));
+        return true;
+    }
+
+    private static WasmFloatType getSingleFloatParameter(WasmFunction function) {
+        if (function.getParameters().size() != 1) {
+            return null;
+        }
+        switch (function.getParameters().get(0)) {
+            case FLOAT32:
+                return WasmFloatType.FLOAT32;
+            case FLOAT64:
+                return WasmFloatType.FLOAT64;
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.transformation;
+
+import org.teavm.backend.wasm.model.WasmFunction;
+import org.teavm.backend.wasm.model.WasmLocal;
+import org.teavm.backend.wasm.model.WasmModule;
+import org.teavm.backend.wasm.model.expression.WasmCall;
+import org.teavm.backend.wasm.model.expression.WasmDefaultExpressionVisitor;
+import org.teavm.backend.wasm.model.expression.WasmExpression;
+
+final class ImportedCalls {
+    private ImportedCalls() {
+    }
+
+    static void define(WasmFunction function) {
+        function.setImportName(null);
+        function.setImportModule(null);
+        for (int i = 0; i < function.getParameters().size(); ++i) {
+            function.add(new WasmLocal(function.getParameters().get(i)));
+        }
+    }
+
+    static void update(WasmModule module) {
+        WasmDefaultExpressionVisitor visitor = new WasmDefaultExpressionVisitor() {
+            @Override
+            public void visit(WasmCall expression) {
+                super.visit(expression);
+                WasmFunction function = module.getFunctions().get(expression.getFunctionName());
+                if (function != null) {
+                    expression.setImported(function.getImportName() != null);
+                }
+            }
+        };
+        for (WasmFunction function : module.getFunctions().values()) {
+            for (WasmExpression part : function.getBody()) {
+                part.acceptVisitor(visitor);
+            }
+        }
+    }
+}
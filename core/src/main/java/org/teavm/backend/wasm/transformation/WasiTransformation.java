@@ -0,0 +1,363 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.backend.wasm.transformation;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.teavm.backend.wasm.model.WasmFunction;
+import org.teavm.backend.wasm.model.WasmLocal;
+import org.teavm.backend.wasm.model.WasmModule;
+import org.teavm.backend.wasm.model.WasmType;
+import org.teavm.backend.wasm.model.expression.WasmCall;
+import org.teavm.backend.wasm.model.expression.WasmConditional;
+import org.teavm.backend.wasm.model.expression.WasmConversion;
+import org.teavm.backend.wasm.model.expression.WasmDrop;
+import org.teavm.backend.wasm.model.expression.WasmExpression;
+import org.teavm.backend.wasm.model.expression.WasmFloat32Constant;
+import org.teavm.backend.wasm.model.expression.WasmFloat64Constant;
+import org.teavm.backend.wasm.model.expression.WasmFloatBinary;
+import org.teavm.backend.wasm.model.expression.WasmFloatBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmFloatType;
+import org.teavm.backend.wasm.model.expression.WasmGetLocal;
+import org.teavm.backend.wasm.model.expression.WasmInt32Constant;
+import org.teavm.backend.wasm.model.expression.WasmInt32Subtype;
+import org.teavm.backend.wasm.model.expression.WasmInt64Constant;
+import org.teavm.backend.wasm.model.expression.WasmInt64Subtype;
+import org.teavm.backend.wasm.model.expression.WasmIntBinary;
+import org.teavm.backend.wasm.model.expression.WasmIntBinaryOperation;
+import org.teavm.backend.wasm.model.expression.WasmIntType;
+import org.teavm.backend.wasm.model.expression.WasmLoadInt32;
+import org.teavm.backend.wasm.model.expression.WasmLoadInt64;
+import org.teavm.backend.wasm.model.expression.WasmReturn;
+import org.teavm.backend.wasm.model.expression.WasmSetLocal;
+import org.teavm.backend.wasm.model.expression.WasmStoreInt32;
+
+/**
+ * <p>Binds runtime imports to WASI functions, so that the module can run in a standalone
+ * WebAssembly runtime without host JavaScript. Console output is buffered up to the end of line and
+ * goes to {@code fd_write}, time to {@code clock_time_get} and random numbers to {@code random_get}.
+ * Character case conversion is implemented in place for Latin-1 characters.</p>
+ *
+ * <p>Also exports memory and {@code _start} function, which calls {@code main} entry point
+ * and exits with non-zero code if it threw an exception.</p>
+ */
+public class WasiTransformation {
+    public static final String WASI_MODULE = "wasi_snapshot_preview1";
+    private static final int CLOCK_REALTIME = 0;
+    private static final int STDOUT = 1;
+    private static final int SCRATCH_SIZE = 16;
+    private static final int OUTPUT_BUFFER_SIZE = 256;
+
+    /**
+     * Size of memory this transformation needs at scratch address: arguments to WASI functions, then
+     * length and contents of console output buffer.
+     */
+    public static final int MEMORY_SIZE = SCRATCH_SIZE + 8 + OUTPUT_BUFFER_SIZE;
+
+    private WasmModule module;
+    private int scratchAddress;
+    private String mainFunctionName;
+    private String catchExceptionFunctionName;
+    private WasmFunction fdWrite;
+    private WasmFunction clockTimeGet;
+    private WasmFunction randomGet;
+    private WasmFunction procExit;
+    private WasmFunction flushOutput;
+
+    /**
+     * @param scratchAddress address of {@link #MEMORY_SIZE} bytes of memory, aligned by 8, used to pass
+     * arguments to WASI and to buffer console output.
+     */
+    public WasiTransformation(WasmModule module, int scratchAddress, String mainFunctionName,
+            String catchExceptionFunctionName) {
+        this.module = module;
+        this.scratchAddress = scratchAddress;
+        this.mainFunctionName = mainFunctionName;
+        this.catchExceptionFunctionName = catchExceptionFunctionName;
+    }
+
+    public void apply() {
+        List<WasmFunction> functions = new ArrayList<>(module.getFunctions().values());
+        for (WasmFunction function : functions) {
+            if (function.getImportName() != null) {
+                bind(function);
+            }
+        }
+        generateStart();
+        module.setMemoryExportName("memory");
+        ImportedCalls.update(module);
+    }
+
+    private void bind(WasmFunction function) {
+        String module = function.getImportModule();
+        String name = function.getImportName();
+        if ("runtime".equals(module)) {
+            switch (name) {
+                case "putchar":
+                    bindPutchar(function);
+                    break;
+                case "currentTimeMillis":
+                    bindCurrentTimeMillis(function);
+                    break;
+                case "towlower":
+                    bindToLowerCase(function);
+                    break;
+                case "towupper":
+                    bindToUpperCase(function);
+                    break;
+            }
+        } else if ("math".equals(module) && name.equals("random")) {
+            bindRandom(function);
+        }
+    }
+
+    private void bindPutchar(WasmFunction function) {
+        ImportedCalls.define(function);
+        List<WasmExpression> body = function.getBody();
+        WasmLocal value = function.getLocalVariables().get(0);
+        WasmLocal length = new WasmLocal(WasmType.INT32, "length");
+        function.add(length);
+
+        body.add(new WasmSetLocal(length, new WasmLoadInt32(4, new WasmInt32Constant(outputLengthAddress()),
+                WasmInt32Subtype.INT32)));
+        WasmExpression address = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD,
+                new WasmInt32Constant(outputBufferAddress()), new WasmGetLocal(length));
+        body.add(new WasmStoreInt32(1, address, new WasmGetLocal(value), WasmInt32Subtype.INT8));
+        body.add(new WasmSetLocal(length, new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD,
+                new WasmGetLocal(length), new WasmInt32Constant(1))));
+        body.add(new WasmStoreInt32(4, new WasmInt32Constant(outputLengthAddress()), new WasmGetLocal(length),
+                WasmInt32Subtype.INT32));
+
+        WasmExpression lineEnd = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.EQ,
+                new WasmGetLocal(value), new WasmInt32Constant('\n'));
+        WasmExpression full = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.GE_UNSIGNED,
+                new WasmGetLocal(length), new WasmInt32Constant(OUTPUT_BUFFER_SIZE));
+        WasmConditional flush = new WasmConditional(new WasmIntBinary(WasmIntType.INT32,
+                WasmIntBinaryOperation.OR, lineEnd, full));
+        flush.getThenBlock().getBody().add(new WasmCall(getFlushOutput().getName()));
+        body.add(flush);
+    }
+
+    /**
+     * Writes buffered console output with a single <code>fd_write</code> call.
+     */
+    private WasmFunction getFlushOutput() {
+        if (flushOutput != null) {
+            return flushOutput;
+        }
+        flushOutput = new WasmFunction("wasi$flushOutput");
+        module.add(flushOutput);
+        WasmLocal length = new WasmLocal(WasmType.INT32, "length");
+        flushOutput.add(length);
+        List<WasmExpression> body = flushOutput.getBody();
+        int iovec = scratchAddress;
+        int written = scratchAddress + 8;
+
+        body.add(new WasmSetLocal(length, new WasmLoadInt32(4, new WasmInt32Constant(outputLengthAddress()),
+                WasmInt32Subtype.INT32)));
+        WasmConditional nonEmpty = new WasmConditional(new WasmIntBinary(WasmIntType.INT32,
+                WasmIntBinaryOperation.NE, new WasmGetLocal(length), new WasmInt32Constant(0)));
+        List<WasmExpression> write = nonEmpty.getThenBlock().getBody();
+        write.add(new WasmStoreInt32(4, new WasmInt32Constant(iovec), new WasmInt32Constant(outputBufferAddress()),
+                WasmInt32Subtype.INT32));
+        write.add(new WasmStoreInt32(4, new WasmInt32Constant(iovec + 4), new WasmGetLocal(length),
+                WasmInt32Subtype.INT32));
+
+        WasmCall call = new WasmCall(getFdWrite().getName(), true);
+        call.getArguments().add(new WasmInt32Constant(STDOUT));
+        call.getArguments().add(new WasmInt32Constant(iovec));
+        call.getArguments().add(new WasmInt32Constant(1));
+        call.getArguments().add(new WasmInt32Constant(written));
+        write.add(new WasmDrop(call));
+        write.add(new WasmStoreInt32(4, new WasmInt32Constant(outputLengthAddress()), new WasmInt32Constant(0),
+                WasmInt32Subtype.INT32));
+        body.add(nonEmpty);
+
+        return flushOutput;
+    }
+
+    private int outputLengthAddress() {
+        return scratchAddress + SCRATCH_SIZE;
+    }
+
+    private int outputBufferAddress() {
+        return scratchAddress + SCRATCH_SIZE + 8;
+    }
+
+    private void bindCurrentTimeMillis(WasmFunction function) {
+        ImportedCalls.define(function);
+        List<WasmExpression> body = function.getBody();
+
+        WasmCall call = new WasmCall(getClockTimeGet().getName(), true);
+        call.getArguments().add(new WasmInt32Constant(CLOCK_REALTIME));
+        call.getArguments().add(new WasmInt64Constant(1000000));
+        call.getArguments().add(new WasmInt32Constant(scratchAddress));
+        body.add(new WasmDrop(call));
+
+        WasmExpression nanos = new WasmLoadInt64(8, new WasmInt32Constant(scratchAddress), WasmInt64Subtype.INT64);
+        WasmExpression millis = new WasmIntBinary(WasmIntType.INT64, WasmIntBinaryOperation.DIV_UNSIGNED, nanos,
+                new WasmInt64Constant(1000000));
+        body.add(new WasmReturn(new WasmConversion(WasmType.INT64, WasmType.FLOAT64, true, millis)));
+    }
+
+    private void bindRandom(WasmFunction function) {
+        ImportedCalls.define(function);
+        List<WasmExpression> body = function.getBody();
+
+        WasmCall call = new WasmCall(getRandomGet().getName(), true);
+        call.getArguments().add(new WasmInt32Constant(scratchAddress));
+        call.getArguments().add(new WasmInt32Constant(8));
+        body.add(new WasmDrop(call));
+
+        // Take 53 random bits and scale them into [0, 1)
+        WasmExpression bits = new WasmLoadInt64(8, new WasmInt32Constant(scratchAddress), WasmInt64Subtype.INT64);
+        bits = new WasmIntBinary(WasmIntType.INT64, WasmIntBinaryOperation.SHR_UNSIGNED, bits,
+                new WasmInt64Constant(11));
+        WasmExpression value = new WasmConversion(WasmType.INT64, WasmType.FLOAT64, true, bits);
+        value = new WasmFloatBinary(WasmFloatType.FLOAT64, WasmFloatBinaryOperation.MUL, value,
+                new WasmFloat64Constant(1.0 / (1L << 53)));
+        body.add(new WasmReturn(value));
+    }
+
+    private void bindToLowerCase(WasmFunction function) {
+        ImportedCalls.define(function);
+        WasmLocal codePoint = function.getLocalVariables().get(0);
+        List<WasmExpression> body = function.getBody();
+        body.add(returnShiftedIfInRange(codePoint, 'A', 'Z', -1, 32));
+        body.add(returnShiftedIfInRange(codePoint, 0xC0, 0xDE, 0xD7, 32));
+        body.add(new WasmReturn(new WasmGetLocal(codePoint)));
+    }
+
+    private void bindToUpperCase(WasmFunction function) {
+        ImportedCalls.define(function);
+        WasmLocal codePoint = function.getLocalVariables().get(0);
+        List<WasmExpression> body = function.getBody();
+        body.add(returnShiftedIfInRange(codePoint, 'a', 'z', -1, -32));
+        body.add(returnShiftedIfInRange(codePoint, 0xE0, 0xFE, 0xF7, -32));
+        body.add(returnIfEqual(codePoint, 0xFF, 0x178));
+        body.add(returnIfEqual(codePoint, 0xB5, 0x39C));
+        body.add(new WasmReturn(new WasmGetLocal(codePoint)));
+    }
+
+    private WasmExpression returnShiftedIfInRange(WasmLocal codePoint, int lower, int upper, int except,
+            int shift) {
+        WasmExpression offset = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.SUB,
+                new WasmGetLocal(codePoint), new WasmInt32Constant(lower));
+        WasmExpression condition = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.LE_UNSIGNED,
+                offset, new WasmInt32Constant(upper - lower));
+        if (except >= 0) {
+            WasmExpression notExcluded = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.NE,
+                    new WasmGetLocal(codePoint), new WasmInt32Constant(except));
+            condition = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.AND, condition, notExcluded);
+        }
+        WasmConditional conditional = new WasmConditional(condition);
+        WasmExpression shifted = new WasmIntBinary(WasmIntType.INT32, WasmIntBinaryOperation.ADD,
+                new WasmGetLocal(codePoint), new WasmInt32Constant(shift));
+        conditional.getThenBlock().getBody().add(new WasmReturn(shifted));
+        return conditional;
+    }
+
+    private WasmExpression returnIfEqual(WasmLocal codePoint, int value, int result) {
+        WasmConditional conditional = new WasmConditional(new WasmIntBinary(WasmIntType.INT32,
+                WasmIntBinaryOperation.EQ, new WasmGetLocal(codePoint), new WasmInt32Constant(value)));
+        conditional.getThenBlock().getBody().add(new WasmReturn(new WasmInt32Constant(result)));
+        return conditional;
+    }
+
+    private void generateStart() {
+        WasmFunction mainFunction = mainFunctionName != null ? module.getFunctions().get(mainFunctionName) : null;
+        if (mainFunction == null) {
+            return;
+        }
+
+        WasmFunction function = new WasmFunction("wasi$start");
+        function.setExportName("_start");
+        module.add(function);
+
+        WasmCall callMain = new WasmCall(mainFunction.getName());
+        for (WasmType parameter : mainFunction.getParameters()) {
+            callMain.getArguments().add(zero(parameter));
+        }
+        function.getBody().add(mainFunction.getResult() != null ? new WasmDrop(callMain) : callMain);
+        if (flushOutput != null) {
+            function.getBody().add(new WasmCall(flushOutput.getName()));
+        }
+
+        if (module.getFunctions().containsKey(catchExceptionFunctionName)) {
+            WasmCall catchException = new WasmCall(catchExceptionFunctionName);
+            WasmConditional exceptionThrown = new WasmConditional(catchException);
+            WasmCall exit = new WasmCall(getProcExit().getName(), true);
+            exit.getArguments().add(new WasmInt32Constant(1));
+            exceptionThrown.getThenBlock().getBody().add(exit);
+            function.getBody().add(exceptionThrown);
+        }
+    }
+
+    private static WasmExpression zero(WasmType type) {
+        switch (type) {
+            case INT64:
+                return new WasmInt64Constant(0);
+            case FLOAT32:
+                return new WasmFloat32Constant(0);
+            case FLOAT64:
+                return new WasmFloat64Constant(0);
+            default:
+                return new WasmInt32Constant(0);
+        }
+    }
+
+    private WasmFunction getFdWrite() {
+        if (fdWrite == null) {
+            fdWrite = createImport("fd_write", WasmType.INT32, WasmType.INT32, WasmType.INT32, WasmType.INT32,
+                    WasmType.INT32);
+        }
+        return fdWrite;
+    }
+
+    private WasmFunction getClockTimeGet() {
+        if (clockTimeGet == null) {
+            clockTimeGet = createImport("clock_time_get", WasmType.INT32, WasmType.INT32, WasmType.INT64,
+                    WasmType.INT32);
+        }
+        return clockTimeGet;
+    }
+
+    private WasmFunction getRandomGet() {
+        if (randomGet == null) {
+            randomGet = createImport("random_get", WasmType.INT32, WasmType.INT32, WasmType.INT32);
+        }
+        return randomGet;
+    }
+
+    private WasmFunction getProcExit() {
+        if (procExit == null) {
+            procExit = createImport("proc_exit", null, WasmType.INT32);
+        }
+        return procExit;
+    }
+
+    private WasmFunction createImport(String name, WasmType result, WasmType... parameters) {
+        WasmFunction function = new WasmFunction("wasi$" + name);
+        function.setImportModule(WASI_MODULE);
+        function.setImportName(name);
+        function.setResult(result);
+        for (WasmType parameter : parameters) {
+            function.getParameters().add(parameter);
+        }
+        module.add(function);
+        return function;
+    }
+}
@@ -25,4 +25,13 @@ import org.teavm.model.emit.ValueEmitter;
 @FunctionalInterface
 public interface BootstrapMethodSubstitutor {
     ValueEmitter substitute(DynamicCallSite callSite, ProgramEmitter pe);
+
+    /**
+     * <p>Tells whether the code produced by this substitutor depends only on the call site itself, so that
+     * the calling method can be taken from the program cache. Otherwise, the calling method is marked
+     * with {@link org.teavm.cache.NoCache}.</p>
+     */
+    default boolean isCacheable() {
+        return false;
+    }
 }
@@ -198,7 +198,7 @@ class DependencyGraphBuilder {
             return;
         }
         ProgramEmitter pe = ProgramEmitter.create(program, dependencyChecker.getClassSource());
-        boolean hasIndy = false;
+        boolean cacheable = true;
         for (int i = 0; i < program.basicBlockCount(); ++i) {
             BasicBlock block = program.basicBlockAt(i);
             for (int j = 0; j < block.getInstructions().size(); ++j) {
@@ -212,6 +212,7 @@ class DependencyGraphBuilder {
                 BootstrapMethodSubstitutor substitutor = dependencyChecker.bootstrapMethodSubstitutors
                         .get(bootstrapMethod);
                 if (substitutor == null) {
+                    cacheable = false;
                     NullConstantInstruction nullInsn = new NullConstantInstruction();
                     nullInsn.setReceiver(indy.getReceiver());
                     nullInsn.setLocation(indy.getLocation());
@@ -221,8 +222,10 @@ class DependencyGraphBuilder {
                             + "method {{m0}} was not found", bootstrapMethod);
                     continue;
                 }
+                if (!substitutor.isCacheable()) {
+                    cacheable = false;
+                }
 
-                hasIndy = true;
                 BasicBlock splitBlock = program.createBasicBlock();
                 List<Instruction> splitInstructions = block.getInstructions().subList(j + 1,
                         block.getInstructions().size());
@@ -249,7 +252,7 @@ class DependencyGraphBuilder {
                 for (int k = 0; k < indy.getArguments().size(); ++k) {
                     arguments.add(pe.var(indy.getArguments().get(k), indy.getMethod().parameterType(k)));
                 }
-                DynamicCallSite callSite = new DynamicCallSite(indy.getMethod(),
+                DynamicCallSite callSite = new DynamicCallSite(methodDep.getReference(), indy.getMethod(),
                         indy.getInstance() != null ? pe.var(indy.getInstance(),
                                 ValueType.object(methodDep.getMethod().getOwnerName())) : null,
                         arguments, indy.getBootstrapMethod(), indy.getBootstrapArguments(),
@@ -265,7 +268,7 @@ class DependencyGraphBuilder {
             }
         }
 
-        if (hasIndy && methodDep.method.getAnnotations().get(NoCache.class.getName()) == null) {
+        if (!cacheable && methodDep.method.getAnnotations().get(NoCache.class.getName()) == null) {
             methodDep.method.getAnnotations().add(new AnnotationHolder(NoCache.class.getName()));
         }
     }
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import org.teavm.model.MethodDescriptor;
 import org.teavm.model.MethodHandle;
+import org.teavm.model.MethodReference;
 import org.teavm.model.RuntimeConstant;
 import org.teavm.model.emit.ValueEmitter;
 
@@ -28,6 +29,7 @@ import org.teavm.model.emit.ValueEmitter;
  * @author Alexey Andreev
  */
 public class DynamicCallSite {
+    private MethodReference caller;
     private MethodDescriptor calledMethod;
     private ValueEmitter instance;
     private List<ValueEmitter> arguments;
@@ -35,8 +37,10 @@ public class DynamicCallSite {
     private List<RuntimeConstant> bootstrapArguments;
     private DependencyAgent agent;
 
-    DynamicCallSite(MethodDescriptor calledMethod, ValueEmitter instance, List<ValueEmitter> arguments,
-            MethodHandle bootstrapMethod, List<RuntimeConstant> bootstrapArguments, DependencyAgent agent) {
+    DynamicCallSite(MethodReference caller, MethodDescriptor calledMethod, ValueEmitter instance,
+            List<ValueEmitter> arguments, MethodHandle bootstrapMethod, List<RuntimeConstant> bootstrapArguments,
+            DependencyAgent agent) {
+        this.caller = caller;
         this.calledMethod = calledMethod;
         this.instance = instance;
         this.arguments = Collections.unmodifiableList(new ArrayList<>(arguments));
@@ -45,6 +49,10 @@ public class DynamicCallSite {
         this.agent = agent;
     }
 
+    public MethodReference getCaller() {
+        return caller;
+    }
+
     public MethodDescriptor getCalledMethod() {
         return calledMethod;
     }
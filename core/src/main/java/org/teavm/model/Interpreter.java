@@ -67,9 +67,10 @@ public class Interpreter {
         try {
             while (true) {
                 int instructionIndex = 0;
+                BasicBlockReader block = currentBlock;
                 try {
-                    while (instructionIndex < currentBlock.instructionCount()) {
-                        currentBlock.readInstruction(instructionIndex++, reader);
+                    while (currentBlock == block && instructionIndex < block.instructionCount()) {
+                        block.readInstruction(instructionIndex++, reader);
                     }
                 } catch (RuntimeException e) {
                     if (!pickExceptionHandler(e)) {
@@ -97,6 +98,54 @@ public class Interpreter {
         }
     }
 
+    /**
+     * Reads field value. By default reads field of a JVM class with the same name, subclasses may override
+     * this to keep field values elsewhere.
+     *
+     * @param instance object which field is read, {@code null} for static fields.
+     */
+    protected Object getFieldValue(Object instance, FieldReference field) {
+        Field jvmField = getJvmField(field);
+        try {
+            return jvmField.get(instance);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Can't get field value: " + field);
+        }
+    }
+
+    /**
+     * Writes field value. By default writes field of a JVM class with the same name.
+     *
+     * @param instance object which field is written, {@code null} for static fields.
+     */
+    protected void setFieldValue(Object instance, FieldReference field, Object value) {
+        Field jvmField = getJvmField(field);
+        try {
+            jvmField.set(instance, value);
+        } catch (IllegalAccessException e) {
+            throw new RuntimeException("Can't set field value: " + field);
+        }
+    }
+
+    private Field getJvmField(FieldReference field) {
+        Class<?> cls;
+        try {
+            cls = Class.forName(field.getClassName(), false, classLoader);
+        } catch (ClassNotFoundException e) {
+            throw new RuntimeException("Class not found: " + field.getClassName());
+        }
+
+        Field jvmField;
+        try {
+            jvmField = cls.getDeclaredField(field.getFieldName());
+        } catch (NoSuchFieldException e) {
+            throw new RuntimeException("Field not found: " + field);
+        }
+
+        jvmField.setAccessible(true);
+        return jvmField;
+    }
+
     private boolean pickExceptionHandler(Throwable e) {
         for (TryCatchBlockReader tryCatch : currentBlock.readTryCatchBlocks()) {
             Class<?> exceptionType;
@@ -571,7 +620,7 @@ public class Interpreter {
         @Override
         public void exit(VariableReader valueToReturn) {
             state = State.EXITED;
-            result = variables[valueToReturn.getIndex()];
+            result = valueToReturn != null ? variables[valueToReturn.getIndex()] : null;
         }
 
         @Override
@@ -625,48 +674,14 @@ public class Interpreter {
         @Override
         public void getField(VariableReader receiver, VariableReader instance, FieldReference field,
                 ValueType fieldType) {
-            Field jvmField = getJvmField(field);
-
             Object jvmInstance = instance != null ? variables[instance.getIndex()] : null;
-            Object result;
-            try {
-                result = jvmField.get(jvmInstance);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Can't get field value: " + field);
-            }
-
-            variables[receiver.getIndex()] = result;
+            variables[receiver.getIndex()] = getFieldValue(jvmInstance, field);
         }
 
         @Override
         public void putField(VariableReader instance, FieldReference field, VariableReader value, ValueType fieldType) {
-            Field jvmField = getJvmField(field);
-
             Object jvmInstance = instance != null ? variables[instance.getIndex()] : null;
-            try {
-                jvmField.set(jvmInstance, variables[value.getIndex()]);
-            } catch (IllegalAccessException e) {
-                throw new RuntimeException("Can't get field value: " + field);
-            }
-        }
-
-        private Field getJvmField(FieldReference field) {
-            Class<?> cls;
-            try {
-                cls = Class.forName(field.getClassName(), false, classLoader);
-            } catch (ClassNotFoundException e) {
-                throw new RuntimeException("Class not found: " + field.getClassName());
-            }
-
-            Field jvmField;
-            try {
-                jvmField = cls.getDeclaredField(field.getFieldName());
-            } catch (NoSuchFieldException e) {
-                throw new RuntimeException("Field not found: " + field);
-            }
-
-            jvmField.setAccessible(true);
-            return jvmField;
+            setFieldValue(jvmInstance, field, variables[value.getIndex()]);
         }
 
         @Override
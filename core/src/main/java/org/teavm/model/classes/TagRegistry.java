@@ -58,8 +58,7 @@ public class TagRegistry {
         Map<String, Range> simpleRanges = new HashMap<>();
         int current = 0;
         for (String root : roots) {
-            assignRange(current, hierarchy, root, simpleRanges);
-            ++current;
+            current = assignRange(current, hierarchy, root, simpleRanges);
         }
 
         for (String className : classSource.getClassNames()) {
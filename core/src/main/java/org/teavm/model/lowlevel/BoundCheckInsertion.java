@@ -0,0 +1,177 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.lowlevel;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.TextLocation;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ArrayLengthInstruction;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BinaryOperation;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.GetElementInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.NumericOperandType;
+import org.teavm.model.instructions.PutElementInstruction;
+import org.teavm.model.instructions.RaiseInstruction;
+import org.teavm.model.instructions.UnwrapArrayInstruction;
+import org.teavm.model.optimization.ArrayIndexAnalyzer;
+import org.teavm.model.util.BasicBlockSplitter;
+
+/**
+ * Inserts explicit array bound checks that throw {@link ArrayIndexOutOfBoundsException} before element
+ * accesses, except for accesses that {@link ArrayIndexAnalyzer} proves to be safe. Targets that map array
+ * access directly to memory reads and writes rely on this transformation to get Java semantics.
+ */
+public class BoundCheckInsertion {
+    public static final MethodReference EXCEPTION_CONSTRUCTOR = new MethodReference(
+            ArrayIndexOutOfBoundsException.class, "<init>", void.class);
+
+    public void transform(Program program) {
+        Map<Variable, Variable> unwrappedArrays = new HashMap<>();
+        Set<Instruction> accessesToCheck = new HashSet<>();
+
+        ArrayIndexAnalyzer analyzer = new ArrayIndexAnalyzer(program);
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Instruction instruction : block.getInstructions()) {
+                if (instruction instanceof UnwrapArrayInstruction) {
+                    UnwrapArrayInstruction unwrap = (UnwrapArrayInstruction) instruction;
+                    unwrappedArrays.put(unwrap.getReceiver(), unwrap.getArray());
+                } else if (instruction instanceof GetElementInstruction) {
+                    GetElementInstruction access = (GetElementInstruction) instruction;
+                    if (!analyzer.isInBounds(block, access.getArray(), access.getIndex())) {
+                        accessesToCheck.add(access);
+                    }
+                } else if (instruction instanceof PutElementInstruction) {
+                    PutElementInstruction access = (PutElementInstruction) instruction;
+                    if (!analyzer.isInBounds(block, access.getArray(), access.getIndex())) {
+                        accessesToCheck.add(access);
+                    }
+                }
+            }
+        }
+        if (accessesToCheck.isEmpty()) {
+            return;
+        }
+
+        BasicBlockSplitter splitter = new BasicBlockSplitter(program);
+        int basicBlockCount = program.basicBlockCount();
+        for (int i = 0; i < basicBlockCount; ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            List<Instruction> instructions = block.getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction instruction = instructions.get(j);
+                if (!accessesToCheck.contains(instruction)) {
+                    continue;
+                }
+
+                Variable array;
+                Variable index;
+                if (instruction instanceof GetElementInstruction) {
+                    array = ((GetElementInstruction) instruction).getArray();
+                    index = ((GetElementInstruction) instruction).getIndex();
+                } else {
+                    array = ((PutElementInstruction) instruction).getArray();
+                    index = ((PutElementInstruction) instruction).getIndex();
+                }
+                Variable wrappedArray = unwrappedArrays.get(array);
+                if (wrappedArray == null) {
+                    continue;
+                }
+
+                BasicBlock continueBlock = splitter.split(instruction);
+                BasicBlock upperCheckBlock = splitter.createBasicBlock(block);
+                BasicBlock throwBlock = splitter.createBasicBlock(block);
+
+                createLowerCheck(block, index, upperCheckBlock, throwBlock, instruction.getLocation());
+                createUpperCheck(program, upperCheckBlock, wrappedArray, index, continueBlock, throwBlock,
+                        instruction.getLocation());
+                createThrow(program, throwBlock, instruction.getLocation());
+
+                block = continueBlock;
+                instructions = block.getInstructions();
+                j = 0;
+            }
+        }
+        splitter.fixProgram();
+    }
+
+    private void createLowerCheck(BasicBlock block, Variable index, BasicBlock next, BasicBlock throwBlock,
+            TextLocation location) {
+        BranchingInstruction branching = new BranchingInstruction(BranchingCondition.LESS);
+        branching.setOperand(index);
+        branching.setConsequent(throwBlock);
+        branching.setAlternative(next);
+        branching.setLocation(location);
+        block.getInstructions().add(branching);
+    }
+
+    private void createUpperCheck(Program program, BasicBlock block, Variable array, Variable index,
+            BasicBlock next, BasicBlock throwBlock, TextLocation location) {
+        ArrayLengthInstruction length = new ArrayLengthInstruction();
+        length.setArray(array);
+        length.setReceiver(program.createVariable());
+        length.setLocation(location);
+        block.getInstructions().add(length);
+
+        // index is non-negative here, so index - length can't overflow
+        BinaryInstruction difference = new BinaryInstruction(BinaryOperation.SUBTRACT, NumericOperandType.INT);
+        difference.setFirstOperand(index);
+        difference.setSecondOperand(length.getReceiver());
+        difference.setReceiver(program.createVariable());
+        difference.setLocation(location);
+        block.getInstructions().add(difference);
+
+        BranchingInstruction branching = new BranchingInstruction(BranchingCondition.GREATER_OR_EQUAL);
+        branching.setOperand(difference.getReceiver());
+        branching.setConsequent(throwBlock);
+        branching.setAlternative(next);
+        branching.setLocation(location);
+        block.getInstructions().add(branching);
+    }
+
+    private void createThrow(Program program, BasicBlock block, TextLocation location) {
+        ConstructInstruction construct = new ConstructInstruction();
+        construct.setType(ArrayIndexOutOfBoundsException.class.getName());
+        construct.setReceiver(program.createVariable());
+        construct.setLocation(location);
+        block.getInstructions().add(construct);
+
+        InvokeInstruction init = new InvokeInstruction();
+        init.setType(InvocationType.SPECIAL);
+        init.setMethod(EXCEPTION_CONSTRUCTOR);
+        init.setInstance(construct.getReceiver());
+        init.setLocation(location);
+        block.getInstructions().add(init);
+
+        RaiseInstruction raise = new RaiseInstruction();
+        raise.setException(construct.getReceiver());
+        raise.setLocation(location);
+        block.getInstructions().add(raise);
+    }
+}
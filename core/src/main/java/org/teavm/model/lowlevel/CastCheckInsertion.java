@@ -0,0 +1,172 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.lowlevel;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.interop.Address;
+import org.teavm.interop.Function;
+import org.teavm.interop.Structure;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.TextLocation;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.CastInstruction;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.IsInstanceInstruction;
+import org.teavm.model.instructions.RaiseInstruction;
+import org.teavm.model.util.BasicBlockSplitter;
+
+/**
+ * Inserts type checks before reference casts, so that a failed cast throws {@link ClassCastException}.
+ * Casts in unmanaged methods and casts to structures, addresses and functions are left as is, since they
+ * reinterpret memory rather than convert Java references.
+ */
+public class CastCheckInsertion {
+    public static final MethodReference EXCEPTION_CONSTRUCTOR = new MethodReference(
+            ClassCastException.class, "<init>", void.class);
+    private ClassReaderSource classSource;
+    private ManagedMethodRepository managedMethodRepository;
+    private Map<String, Boolean> checkableClasses = new HashMap<>();
+
+    public CastCheckInsertion(ClassReaderSource classSource) {
+        this.classSource = classSource;
+        managedMethodRepository = new ManagedMethodRepository(classSource);
+    }
+
+    public void apply(Program program, MethodReader method) {
+        if (!managedMethodRepository.isManaged(method.getReference())) {
+            return;
+        }
+
+        BasicBlockSplitter splitter = new BasicBlockSplitter(program);
+        int basicBlockCount = program.basicBlockCount();
+        for (int i = 0; i < basicBlockCount; ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            List<Instruction> instructions = block.getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction instruction = instructions.get(j);
+                if (!(instruction instanceof CastInstruction)) {
+                    continue;
+                }
+                CastInstruction cast = (CastInstruction) instruction;
+                if (!needsCheck(cast.getTargetType())) {
+                    continue;
+                }
+
+                BasicBlock continueBlock = splitter.split(cast);
+                BasicBlock checkBlock = splitter.createBasicBlock(block);
+                BasicBlock throwBlock = splitter.createBasicBlock(block);
+
+                createNullCheck(block, cast.getValue(), continueBlock, checkBlock, cast.getLocation());
+                createTypeCheck(program, checkBlock, cast, continueBlock, throwBlock);
+                createThrow(program, throwBlock, cast.getLocation());
+
+                block = continueBlock;
+                instructions = block.getInstructions();
+                j = 0;
+            }
+        }
+        splitter.fixProgram();
+    }
+
+    private boolean needsCheck(ValueType type) {
+        while (type instanceof ValueType.Array) {
+            type = ((ValueType.Array) type).getItemType();
+        }
+        if (!(type instanceof ValueType.Object)) {
+            return true;
+        }
+        String className = ((ValueType.Object) type).getClassName();
+        if (className.equals("java.lang.Object")) {
+            return false;
+        }
+        return checkableClasses.computeIfAbsent(className, this::isCheckable);
+    }
+
+    private boolean isCheckable(String className) {
+        while (className != null) {
+            if (className.equals(Structure.class.getName()) || className.equals(Address.class.getName())
+                    || className.equals(Function.class.getName())) {
+                return false;
+            }
+            ClassReader cls = classSource.get(className);
+            if (cls == null) {
+                return false;
+            }
+            className = cls.getParent();
+        }
+        return true;
+    }
+
+    private void createNullCheck(BasicBlock block, Variable value, BasicBlock continueBlock, BasicBlock checkBlock,
+            TextLocation location) {
+        BranchingInstruction branching = new BranchingInstruction(BranchingCondition.NULL);
+        branching.setOperand(value);
+        branching.setConsequent(continueBlock);
+        branching.setAlternative(checkBlock);
+        branching.setLocation(location);
+        block.getInstructions().add(branching);
+    }
+
+    private void createTypeCheck(Program program, BasicBlock block, CastInstruction cast, BasicBlock continueBlock,
+            BasicBlock throwBlock) {
+        IsInstanceInstruction isInstance = new IsInstanceInstruction();
+        isInstance.setValue(cast.getValue());
+        isInstance.setType(cast.getTargetType());
+        isInstance.setReceiver(program.createVariable());
+        isInstance.setLocation(cast.getLocation());
+        block.getInstructions().add(isInstance);
+
+        BranchingInstruction branching = new BranchingInstruction(BranchingCondition.EQUAL);
+        branching.setOperand(isInstance.getReceiver());
+        branching.setConsequent(throwBlock);
+        branching.setAlternative(continueBlock);
+        branching.setLocation(cast.getLocation());
+        block.getInstructions().add(branching);
+    }
+
+    private void createThrow(Program program, BasicBlock block, TextLocation location) {
+        ConstructInstruction construct = new ConstructInstruction();
+        construct.setType(ClassCastException.class.getName());
+        construct.setReceiver(program.createVariable());
+        construct.setLocation(location);
+        block.getInstructions().add(construct);
+
+        InvokeInstruction init = new InvokeInstruction();
+        init.setType(InvocationType.SPECIAL);
+        init.setMethod(EXCEPTION_CONSTRUCTOR);
+        init.setInstance(construct.getReceiver());
+        init.setLocation(location);
+        block.getInstructions().add(init);
+
+        RaiseInstruction raise = new RaiseInstruction();
+        raise.setException(construct.getReceiver());
+        raise.setLocation(location);
+        block.getInstructions().add(raise);
+    }
+}
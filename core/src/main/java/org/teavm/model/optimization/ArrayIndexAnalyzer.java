@@ -0,0 +1,306 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.common.DominatorTree;
+import org.teavm.common.Graph;
+import org.teavm.common.GraphUtils;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ArrayLengthInstruction;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BinaryOperation;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.NumericOperandType;
+import org.teavm.model.instructions.UnwrapArrayInstruction;
+import org.teavm.model.util.DefinitionExtractor;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Proves that array indexes stay within array bounds. The analysis recognizes canonical counting loops,
+ * i.e. an index that starts at a non-negative value, is incremented by one and is compared against the
+ * length of the very array being accessed in a condition that dominates the access.</p>
+ *
+ * <p>The analysis expects program to be in SSA form.</p>
+ */
+public class ArrayIndexAnalyzer {
+    private Program program;
+    private Graph cfg;
+    private DominatorTree domTree;
+    private Instruction[] definitions;
+    private Phi[] phiDefinitions;
+    private BasicBlock[] definitionBlocks;
+    private Map<Variable, Boolean> phiResults = new HashMap<>();
+    private List<Variable> evaluatedPhis = new ArrayList<>();
+
+    public ArrayIndexAnalyzer(Program program) {
+        this.program = program;
+        cfg = ProgramUtils.buildControlFlowGraph(program);
+        domTree = GraphUtils.buildDominatorTree(cfg);
+        definitions = new Instruction[program.variableCount()];
+        phiDefinitions = new Phi[program.variableCount()];
+        definitionBlocks = new BasicBlock[program.variableCount()];
+
+        DefinitionExtractor defExtractor = new DefinitionExtractor();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            if (block == null) {
+                continue;
+            }
+            for (Phi phi : block.getPhis()) {
+                phiDefinitions[phi.getReceiver().getIndex()] = phi;
+                definitionBlocks[phi.getReceiver().getIndex()] = block;
+            }
+            for (Instruction insn : block.getInstructions()) {
+                insn.acceptVisitor(defExtractor);
+                for (Variable var : defExtractor.getDefinedVariables()) {
+                    definitions[var.getIndex()] = insn;
+                    definitionBlocks[var.getIndex()] = block;
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks whether access to array element is always in bounds.
+     *
+     * @param block block where access occurs.
+     * @param array unwrapped array, as consumed by element access instructions.
+     * @param index index of an element.
+     */
+    public boolean isInBounds(BasicBlock block, Variable array, Variable index) {
+        Instruction arrayDefinition = definitions[array.getIndex()];
+        if (!(arrayDefinition instanceof UnwrapArrayInstruction)) {
+            return false;
+        }
+        Variable wrappedArray = ((UnwrapArrayInstruction) arrayDefinition).getArray();
+
+        phiResults.clear();
+        evaluatedPhis.clear();
+        return isNonNegative(index) && isLessThanLength(block, index, wrappedArray);
+    }
+
+    private boolean isLessThanLength(BasicBlock block, Variable index, Variable array) {
+        int current = block.getIndex();
+        while (true) {
+            int dominator = domTree.immediateDominatorOf(current);
+            if (dominator < 0) {
+                return false;
+            }
+            if (cfg.incomingEdgesCount(current) == 1
+                    && guardsUpperBound(program.basicBlockAt(dominator), current, index, array)) {
+                return true;
+            }
+            current = dominator;
+        }
+    }
+
+    private boolean guardsUpperBound(BasicBlock block, int target, Variable index, Variable array) {
+        if (!(block.getLastInstruction() instanceof BranchingInstruction)) {
+            return false;
+        }
+        BranchingInstruction branching = (BranchingInstruction) block.getLastInstruction();
+        int consequent = branching.getConsequent().getIndex();
+        int alternative = branching.getAlternative().getIndex();
+        if (consequent == alternative) {
+            return false;
+        }
+
+        Instruction conditionDefinition = definitions[branching.getOperand().getIndex()];
+        if (!(conditionDefinition instanceof BinaryInstruction)) {
+            return false;
+        }
+        BinaryInstruction comparison = (BinaryInstruction) conditionDefinition;
+        if (comparison.getOperation() != BinaryOperation.COMPARE
+                || comparison.getOperandType() != NumericOperandType.INT) {
+            return false;
+        }
+
+        if (comparison.getFirstOperand() == index && isLengthOf(comparison.getSecondOperand(), array)) {
+            // compare(index, length) < 0
+            switch (branching.getCondition()) {
+                case LESS:
+                    return consequent == target;
+                case GREATER_OR_EQUAL:
+                    return alternative == target;
+                default:
+                    return false;
+            }
+        } else if (comparison.getSecondOperand() == index && isLengthOf(comparison.getFirstOperand(), array)) {
+            // compare(length, index) > 0
+            switch (branching.getCondition()) {
+                case GREATER:
+                    return consequent == target;
+                case LESS_OR_EQUAL:
+                    return alternative == target;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    private boolean isLengthOf(Variable length, Variable array) {
+        Instruction definition = definitions[length.getIndex()];
+        return definition instanceof ArrayLengthInstruction
+                && ((ArrayLengthInstruction) definition).getArray() == array;
+    }
+
+    private boolean isNonNegative(Variable var) {
+        Phi phi = phiDefinitions[var.getIndex()];
+        if (phi != null) {
+            Boolean known = phiResults.get(var);
+            if (known != null) {
+                return known;
+            }
+
+            // Assume phi is non-negative while following loop back edges. If the assumption is disproved,
+            // forget everything that was derived from it.
+            int start = evaluatedPhis.size();
+            phiResults.put(var, true);
+            evaluatedPhis.add(var);
+            for (Incoming incoming : phi.getIncomings()) {
+                if (!isNonNegative(incoming.getValue())) {
+                    for (Variable derived : evaluatedPhis.subList(start, evaluatedPhis.size())) {
+                        phiResults.remove(derived);
+                    }
+                    evaluatedPhis.subList(start, evaluatedPhis.size()).clear();
+                    phiResults.put(var, false);
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        Instruction definition = definitions[var.getIndex()];
+        if (definition instanceof IntegerConstantInstruction) {
+            return ((IntegerConstantInstruction) definition).getConstant() >= 0;
+        } else if (definition instanceof ArrayLengthInstruction) {
+            return true;
+        } else if (definition instanceof BinaryInstruction) {
+            BinaryInstruction binary = (BinaryInstruction) definition;
+            if (binary.getOperandType() != NumericOperandType.INT) {
+                return false;
+            }
+            switch (binary.getOperation()) {
+                case ADD:
+                    return isNonNegativeIncrement(binary, binary.getFirstOperand(), binary.getSecondOperand())
+                            || isNonNegativeIncrement(binary, binary.getSecondOperand(), binary.getFirstOperand());
+                case AND:
+                    return isNonNegative(binary.getFirstOperand()) || isNonNegative(binary.getSecondOperand());
+                case SHIFT_RIGHT_UNSIGNED: {
+                    Integer shift = getConstant(binary.getSecondOperand());
+                    return (shift != null && (shift & 31) != 0) || isNonNegative(binary.getFirstOperand());
+                }
+                case SHIFT_RIGHT:
+                    return isNonNegative(binary.getFirstOperand());
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    /*
+     * value + 1 does not overflow when value is known to be less than some other int, i.e. when the addition
+     * is dominated by a successful comparison.
+     */
+    private boolean isNonNegativeIncrement(BinaryInstruction insn, Variable value, Variable increment) {
+        Integer constant = getConstant(increment);
+        if (constant == null || constant < 0 || constant > 1) {
+            return false;
+        }
+        if (!isNonNegative(value)) {
+            return false;
+        }
+        return constant == 0 || isBoundedFromAbove(definitionBlocks[insn.getReceiver().getIndex()], value);
+    }
+
+    private boolean isBoundedFromAbove(BasicBlock block, Variable value) {
+        int current = block.getIndex();
+        while (true) {
+            int dominator = domTree.immediateDominatorOf(current);
+            if (dominator < 0) {
+                return false;
+            }
+            if (cfg.incomingEdgesCount(current) == 1
+                    && guardsLessThan(program.basicBlockAt(dominator), current, value)) {
+                return true;
+            }
+            current = dominator;
+        }
+    }
+
+    private boolean guardsLessThan(BasicBlock block, int target, Variable value) {
+        if (!(block.getLastInstruction() instanceof BranchingInstruction)) {
+            return false;
+        }
+        BranchingInstruction branching = (BranchingInstruction) block.getLastInstruction();
+        if (branching.getConsequent() == branching.getAlternative()) {
+            return false;
+        }
+        Instruction conditionDefinition = definitions[branching.getOperand().getIndex()];
+        if (!(conditionDefinition instanceof BinaryInstruction)) {
+            return false;
+        }
+        BinaryInstruction comparison = (BinaryInstruction) conditionDefinition;
+        if (comparison.getOperation() != BinaryOperation.COMPARE
+                || comparison.getOperandType() != NumericOperandType.INT) {
+            return false;
+        }
+        boolean taken = branching.getConsequent().getIndex() == target;
+        if (!taken && branching.getAlternative().getIndex() != target) {
+            return false;
+        }
+        if (comparison.getFirstOperand() == value) {
+            switch (branching.getCondition()) {
+                case LESS:
+                    return taken;
+                case GREATER_OR_EQUAL:
+                    return !taken;
+                default:
+                    return false;
+            }
+        } else if (comparison.getSecondOperand() == value) {
+            switch (branching.getCondition()) {
+                case GREATER:
+                    return taken;
+                case LESS_OR_EQUAL:
+                    return !taken;
+                default:
+                    return false;
+            }
+        }
+        return false;
+    }
+
+    private Integer getConstant(Variable var) {
+        Instruction definition = definitions[var.getIndex()];
+        if (definition instanceof IntegerConstantInstruction) {
+            return ((IntegerConstantInstruction) definition).getConstant();
+        }
+        return null;
+    }
+}
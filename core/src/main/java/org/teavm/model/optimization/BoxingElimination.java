@@ -0,0 +1,334 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.instructions.EmptyInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Cancels boxing followed by unboxing, i.e. replaces {@code Integer.valueOf(x).intValue()} with {@code x}.
+ * Boxed values are tracked through assignments and phis, so that values boxed on different paths (or in
+ * inlined methods) and unboxed after join are handled as well. In this case a phi of primitive values
+ * is introduced.</p>
+ *
+ * <p>{@code valueOf} methods of wrapper classes either allocate or take an instance from a cache, neither
+ * of them is observable, so boxing is removed if its result is no longer used.</p>
+ */
+public class BoxingElimination implements MethodOptimization {
+    private static final Map<String, BoxType> BOX_TYPES = new HashMap<>();
+    private static final Object UNKNOWN = new Object();
+    private static final Object NOT_BOXED = new Object();
+
+    static {
+        addBoxType(Boolean.class, boolean.class, "booleanValue", false);
+        addBoxType(Byte.class, byte.class, "byteValue", true);
+        addBoxType(Short.class, short.class, "shortValue", true);
+        addBoxType(Character.class, char.class, "charValue", false);
+        addBoxType(Integer.class, int.class, "intValue", true);
+        addBoxType(Long.class, long.class, "longValue", true);
+        addBoxType(Float.class, float.class, "floatValue", true);
+        addBoxType(Double.class, double.class, "doubleValue", true);
+    }
+
+    private Program program;
+    private BoxType[] boxTypes;
+    private Variable[] primitiveValues;
+    private List<Phi> phis;
+    private AssignInstruction[] copies;
+    private Map<Phi, Phi> primitivePhis = new LinkedHashMap<>();
+
+    private static void addBoxType(Class<?> wrapper, Class<?> primitive, String unboxMethod, boolean number) {
+        BoxType type = new BoxType();
+        type.valueOf = new MethodReference(wrapper, "valueOf", primitive, wrapper);
+        type.unboxMethod = unboxMethod;
+        type.primitive = ValueType.parse(primitive);
+        type.number = number;
+        BOX_TYPES.put(wrapper.getName(), type);
+    }
+
+    @Override
+    public boolean optimize(MethodReader method, Program program) {
+        this.program = program;
+        boxTypes = new BoxType[program.variableCount()];
+        primitiveValues = new Variable[program.variableCount()];
+        try {
+            if (!findBoxedValues() || !hasUnboxing()) {
+                return false;
+            }
+            createPrimitiveValues();
+            replaceUnboxing();
+            removeUnusedBoxing();
+            return true;
+        } finally {
+            this.program = null;
+            boxTypes = null;
+            primitiveValues = null;
+            phis = null;
+            copies = null;
+            primitivePhis.clear();
+        }
+    }
+
+    /*
+     * Optimistic analysis: copies and phis are assumed to carry boxed values (UNKNOWN) until some of their
+     * inputs proves otherwise (NOT_BOXED). Values only move down, so iteration terminates.
+     */
+    private boolean findBoxedValues() {
+        Object[] states = new Object[program.variableCount()];
+        copies = new AssignInstruction[program.variableCount()];
+        phis = new ArrayList<>();
+        Arrays.fill(states, NOT_BOXED);
+        boolean found = false;
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Phi phi : block.getPhis()) {
+                states[phi.getReceiver().getIndex()] = UNKNOWN;
+                phis.add(phi);
+            }
+            for (Instruction insn : block.getInstructions()) {
+                BoxType type = getBoxing(insn);
+                if (type != null) {
+                    InvokeInstruction invoke = (InvokeInstruction) insn;
+                    states[invoke.getReceiver().getIndex()] = type;
+                    primitiveValues[invoke.getReceiver().getIndex()] = invoke.getArguments().get(0);
+                    found = true;
+                } else if (insn instanceof AssignInstruction) {
+                    AssignInstruction assign = (AssignInstruction) insn;
+                    states[assign.getReceiver().getIndex()] = UNKNOWN;
+                    copies[assign.getReceiver().getIndex()] = assign;
+                }
+            }
+        }
+        if (!found) {
+            return false;
+        }
+
+        boolean changed;
+        do {
+            changed = false;
+            for (AssignInstruction copy : copies) {
+                if (copy != null) {
+                    changed |= update(states, copy.getReceiver(), states[copy.getAssignee().getIndex()]);
+                }
+            }
+            for (Phi phi : phis) {
+                Object state = UNKNOWN;
+                for (Incoming incoming : phi.getIncomings()) {
+                    state = meet(state, states[incoming.getValue().getIndex()]);
+                }
+                changed |= update(states, phi.getReceiver(), state);
+            }
+        } while (changed);
+
+        boolean boxedValueFound = false;
+        for (int i = 0; i < states.length; ++i) {
+            if (states[i] instanceof BoxType) {
+                boxTypes[i] = (BoxType) states[i];
+                boxedValueFound = true;
+            }
+        }
+        return boxedValueFound;
+    }
+
+    /*
+     * Only called when some unboxing is going to be replaced, so that analysis alone never changes the program.
+     */
+    private void createPrimitiveValues() {
+        // Phis in a cycle depend on each other, so create all of them first and fill incomings afterwards
+        for (Phi phi : phis) {
+            if (boxTypes[phi.getReceiver().getIndex()] != null) {
+                Phi primitivePhi = new Phi();
+                primitivePhi.setReceiver(program.createVariable());
+                primitivePhis.put(phi, primitivePhi);
+                primitiveValues[phi.getReceiver().getIndex()] = primitivePhi.getReceiver();
+            }
+        }
+        for (AssignInstruction copy : copies) {
+            if (copy != null && boxTypes[copy.getReceiver().getIndex()] != null) {
+                resolveCopy(copy, copies);
+            }
+        }
+        for (Map.Entry<Phi, Phi> entry : primitivePhis.entrySet()) {
+            for (Incoming incoming : entry.getKey().getIncomings()) {
+                Incoming primitiveIncoming = new Incoming();
+                primitiveIncoming.setSource(incoming.getSource());
+                primitiveIncoming.setValue(primitiveValues[incoming.getValue().getIndex()]);
+                entry.getValue().getIncomings().add(primitiveIncoming);
+            }
+            entry.getKey().getBasicBlock().getPhis().add(entry.getValue());
+        }
+    }
+
+    private static boolean update(Object[] states, Variable var, Object state) {
+        Object newState = meet(states[var.getIndex()], state);
+        if (newState == states[var.getIndex()]) {
+            return false;
+        }
+        states[var.getIndex()] = newState;
+        return true;
+    }
+
+    private static Object meet(Object a, Object b) {
+        if (a == UNKNOWN) {
+            return b;
+        } else if (b == UNKNOWN) {
+            return a;
+        } else {
+            return a == b ? a : NOT_BOXED;
+        }
+    }
+
+    private Variable resolveCopy(AssignInstruction copy, AssignInstruction[] copies) {
+        int receiver = copy.getReceiver().getIndex();
+        if (primitiveValues[receiver] == null) {
+            int source = copy.getAssignee().getIndex();
+            primitiveValues[receiver] = primitiveValues[source] != null
+                    ? primitiveValues[source]
+                    : resolveCopy(copies[source], copies);
+        }
+        return primitiveValues[receiver];
+    }
+
+    private boolean hasUnboxing() {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (isUnboxingOfBoxedValue(insn)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    private boolean isUnboxingOfBoxedValue(Instruction insn) {
+        if (!(insn instanceof InvokeInstruction)) {
+            return false;
+        }
+        InvokeInstruction invoke = (InvokeInstruction) insn;
+        if (invoke.getInstance() == null || !invoke.getArguments().isEmpty()) {
+            return false;
+        }
+        BoxType type = boxTypes[invoke.getInstance().getIndex()];
+        return type != null && isUnboxing(invoke.getMethod(), type);
+    }
+
+    private void replaceUnboxing() {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            List<Instruction> instructions = program.basicBlockAt(i).getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction insn = instructions.get(j);
+                if (!isUnboxingOfBoxedValue(insn)) {
+                    continue;
+                }
+                InvokeInstruction invoke = (InvokeInstruction) insn;
+                Variable primitive = primitiveValues[invoke.getInstance().getIndex()];
+
+                Instruction replacement;
+                if (invoke.getReceiver() != null) {
+                    AssignInstruction assign = new AssignInstruction();
+                    assign.setAssignee(primitive);
+                    assign.setReceiver(invoke.getReceiver());
+                    replacement = assign;
+                } else {
+                    replacement = new EmptyInstruction();
+                }
+                replacement.setLocation(invoke.getLocation());
+                instructions.set(j, replacement);
+            }
+        }
+    }
+
+    private boolean isUnboxing(MethodReference method, BoxType type) {
+        if (!method.getName().equals(type.unboxMethod) || method.parameterCount() != 0
+                || !method.getReturnType().equals(type.primitive)) {
+            return false;
+        }
+        String className = method.getClassName();
+        return className.equals(type.valueOf.getClassName())
+                || (type.number && className.equals(Number.class.getName()));
+    }
+
+    private void removeUnusedBoxing() {
+        int[] useCounts = ProgramUtils.getUseCounts(program);
+
+        // Boxed phis that are not used any longer keep their incomings alive, remove them first
+        boolean changed;
+        do {
+            changed = false;
+            for (Phi phi : primitivePhis.keySet()) {
+                BasicBlock block = phi.getBasicBlock();
+                if (block == null || useCounts[phi.getReceiver().getIndex()] > 0) {
+                    continue;
+                }
+                for (Incoming incoming : phi.getIncomings()) {
+                    useCounts[incoming.getValue().getIndex()]--;
+                }
+                block.getPhis().remove(phi);
+                changed = true;
+            }
+        } while (changed);
+
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            List<Instruction> instructions = program.basicBlockAt(i).getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction insn = instructions.get(j);
+                if (getBoxing(insn) != null && useCounts[((InvokeInstruction) insn).getReceiver().getIndex()] == 0) {
+                    EmptyInstruction nop = new EmptyInstruction();
+                    nop.setLocation(insn.getLocation());
+                    instructions.set(j, nop);
+                }
+            }
+        }
+    }
+
+    private static BoxType getBoxing(Instruction insn) {
+        if (!(insn instanceof InvokeInstruction)) {
+            return null;
+        }
+        InvokeInstruction invoke = (InvokeInstruction) insn;
+        if (invoke.getType() != InvocationType.SPECIAL || invoke.getInstance() != null
+                || invoke.getReceiver() == null) {
+            return null;
+        }
+        BoxType type = BOX_TYPES.get(invoke.getMethod().getClassName());
+        return type != null && type.valueOf.equals(invoke.getMethod()) ? type : null;
+    }
+
+    static class BoxType {
+        MethodReference valueOf;
+        String unboxMethod;
+        ValueType primitive;
+        boolean number;
+    }
+}
@@ -15,26 +15,77 @@
  */
 package org.teavm.model.optimization;
 
-import java.util.HashSet;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import org.teavm.dependency.DependencyInfo;
 import org.teavm.dependency.MethodDependencyInfo;
 import org.teavm.dependency.ValueDependencyInfo;
 import org.teavm.model.*;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
 import org.teavm.model.instructions.InvocationType;
 import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.IsInstanceInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.profile.CallSites;
+import org.teavm.model.profile.ExecutionProfile;
+import org.teavm.model.util.InstructionTransitionExtractor;
 
 /**
+ * <p>Replaces virtual calls with direct ones, using receiver types that dependency analysis has found.
+ * Call sites with a single implementation become direct calls. When type switches are enabled, call sites with
+ * a few implementations become a chain of type checks, each followed by a direct call, with virtual call
+ * as a fallback. Direct calls can be inlined afterwards.</p>
+ *
+ * <p>Type checks are made only against classes, never against interfaces, so that JavaScript backend renders
+ * each of them as a single native <code>instanceof</code> rather than a walk over supertypes.</p>
  *
  * @author Alexey Andreev
  */
 public class Devirtualization {
+    private static final int MAX_IMPLEMENTATIONS = 4;
+    private static final long MIN_RECEIVER_SAMPLES = 100;
+    private static final double DOMINANT_RECEIVER_RATIO = 0.9;
     private DependencyInfo dependency;
     private ClassReaderSource classSource;
+    private ExecutionProfile profile;
+    private CallSites callSites;
+    private boolean typeSwitchEnabled;
 
     public Devirtualization(DependencyInfo dependency, ClassReaderSource classSource) {
+        this(dependency, classSource, null, null);
+    }
+
+    /**
+     * @param profile execution profile. When a call site has several possible implementations, but profile shows
+     * that almost all calls go to a single one, the call to this implementation is made direct under a type check.
+     * May be {@code null}.
+     * @param callSites names of call sites in the profile. Must be provided along with the profile.
+     */
+    public Devirtualization(DependencyInfo dependency, ClassReaderSource classSource, ExecutionProfile profile,
+            CallSites callSites) {
         this.dependency = dependency;
         this.classSource = classSource;
+        this.profile = profile != null && callSites != null ? profile : null;
+        this.callSites = callSites;
+    }
+
+    public boolean isTypeSwitchEnabled() {
+        return typeSwitchEnabled;
+    }
+
+    /**
+     * Enables type switches for call sites with several implementations. Type switch makes code larger
+     * and only pays off when direct calls get inlined, so it's disabled by default.
+     */
+    public void setTypeSwitchEnabled(boolean typeSwitchEnabled) {
+        this.typeSwitchEnabled = typeSwitchEnabled;
     }
 
     public void apply(MethodHolder method) {
@@ -43,6 +94,7 @@ public class Devirtualization {
             return;
         }
         Program program = method.getProgram();
+        List<GuardedCall> guardedCalls = new ArrayList<>();
         for (int i = 0; i < program.basicBlockCount(); ++i) {
             BasicBlock block = program.basicBlockAt(i);
             for (Instruction insn : block.getInstructions()) {
@@ -53,33 +105,263 @@ public class Devirtualization {
                 if (invoke.getType() != InvocationType.VIRTUAL) {
                     continue;
                 }
+                String callSite = profile != null ? callSites.get(invoke) : null;
                 ValueDependencyInfo var = methodDep.getVariable(invoke.getInstance().getIndex());
                 Set<MethodReference> implementations = getImplementations(var.getTypes(),
                         invoke.getMethod());
                 if (implementations.size() == 1) {
                     invoke.setType(InvocationType.SPECIAL);
                     invoke.setMethod(implementations.iterator().next());
+                } else if (implementations.size() > 1 && block.getTryCatchBlocks().isEmpty()) {
+                    GuardedCall guardedCall = null;
+                    if (typeSwitchEnabled && implementations.size() <= MAX_IMPLEMENTATIONS) {
+                        guardedCall = createTypeSwitch(callSite, var.getTypes(), invoke, implementations);
+                    }
+                    if (guardedCall == null && callSite != null) {
+                        guardedCall = findDominantReceiver(callSite, var.getTypes(), invoke);
+                    }
+                    if (guardedCall != null) {
+                        guardedCalls.add(guardedCall);
+                    }
                 }
             }
         }
+
+        // Process calls backwards, so that splitting a block does not move calls that are not processed yet
+        for (int i = guardedCalls.size() - 1; i >= 0; --i) {
+            guardCall(program, guardedCalls.get(i));
+        }
     }
 
     private Set<MethodReference> getImplementations(String[] classNames, MethodReference ref) {
-        Set<MethodReference> methods = new HashSet<>();
+        Set<MethodReference> methods = new LinkedHashSet<>();
         for (String className : classNames) {
-            if (className.startsWith("[")) {
-                className = "java.lang.Object";
+            MethodReference implementation = getImplementation(className, ref);
+            if (implementation != null) {
+                methods.add(implementation);
+            }
+        }
+        return methods;
+    }
+
+    private MethodReference getImplementation(String className, MethodReference ref) {
+        if (className.startsWith("[")) {
+            className = "java.lang.Object";
+        }
+        ClassReader cls = classSource.get(className);
+        if (cls == null || !classSource.isSuperType(ref.getClassName(), cls.getName()).orElse(false)) {
+            return null;
+        }
+        MethodDependencyInfo methodDep = dependency.getMethodImplementation(new MethodReference(
+                className, ref.getDescriptor()));
+        return methodDep != null ? methodDep.getReference() : null;
+    }
+
+    /*
+     * Each implementation except the last one is guarded by a type check against the class that declares it.
+     * Subclasses are checked before their superclasses, so that a check catches exactly receivers that
+     * resolve to the implementation. Remaining receivers go through virtual dispatch.
+     */
+    private GuardedCall createTypeSwitch(String callSite, String[] classNames, InvokeInstruction invoke,
+            Set<MethodReference> implementations) {
+        Map<String, Long> receivers = callSite != null ? profile.getReceivers(callSite) : Collections.emptyMap();
+        Map<MethodReference, Long> frequencies = new HashMap<>();
+        Map<MethodReference, Integer> depths = new HashMap<>();
+        for (MethodReference implementation : implementations) {
+            ClassReader cls = classSource.get(implementation.getClassName());
+            if (cls == null || cls.hasModifier(ElementModifier.INTERFACE)) {
+                return null;
+            }
+            depths.put(implementation, getDepth(cls));
+        }
+        for (Map.Entry<String, Long> receiver : receivers.entrySet()) {
+            MethodReference implementation = getImplementation(receiver.getKey(), invoke.getMethod());
+            if (implementation != null) {
+                frequencies.merge(implementation, receiver.getValue(), Long::sum);
             }
-            ClassReader cls = classSource.get(className);
-            if (cls == null || !classSource.isSuperType(ref.getClassName(), cls.getName()).orElse(false)) {
+        }
+
+        List<MethodReference> order = new ArrayList<>(implementations);
+        order.sort(Comparator.comparing((MethodReference m) -> -depths.get(m))
+                .thenComparing(m -> -frequencies.getOrDefault(m, 0L)));
+
+        GuardedCall guardedCall = new GuardedCall();
+        guardedCall.invoke = invoke;
+        for (MethodReference implementation : order.subList(0, order.size() - 1)) {
+            guardedCall.guards.add(new Guard(implementation.getClassName(), implementation));
+        }
+
+        for (String className : classNames) {
+            MethodReference implementation = getImplementation(className, invoke.getMethod());
+            if (implementation == null) {
                 continue;
             }
-            MethodDependencyInfo methodDep = dependency.getMethodImplementation(new MethodReference(
-                    className, ref.getDescriptor()));
-            if (methodDep != null) {
-                methods.add(methodDep.getReference());
+            String receiverClass = className.startsWith("[") ? "java.lang.Object" : className;
+            for (Guard guard : guardedCall.guards) {
+                if (classSource.isSuperType(guard.className, receiverClass).orElse(false)) {
+                    if (!guard.implementation.equals(implementation)) {
+                        return null;
+                    }
+                    break;
+                }
             }
         }
-        return methods;
+
+        return guardedCall;
+    }
+
+    private int getDepth(ClassReader cls) {
+        int depth = 0;
+        while (cls != null && cls.getParent() != null) {
+            ++depth;
+            cls = classSource.get(cls.getParent());
+        }
+        return depth;
+    }
+
+    private GuardedCall findDominantReceiver(String callSite, String[] classNames, InvokeInstruction invoke) {
+        Map<String, Long> receivers = profile.getReceivers(callSite);
+        long total = 0;
+        String dominantClass = null;
+        long dominantCount = 0;
+        for (Map.Entry<String, Long> entry : receivers.entrySet()) {
+            total += entry.getValue();
+            if (entry.getValue() > dominantCount) {
+                dominantClass = entry.getKey();
+                dominantCount = entry.getValue();
+            }
+        }
+        if (dominantClass == null || total < MIN_RECEIVER_SAMPLES
+                || dominantCount < total * DOMINANT_RECEIVER_RATIO || dominantClass.startsWith("[")) {
+            return null;
+        }
+
+        MethodReference implementation = getImplementation(dominantClass, invoke.getMethod());
+        if (implementation == null) {
+            return null;
+        }
+
+        // Type check accepts subclasses as well, so all of them must share the implementation
+        for (String className : classNames) {
+            if (!className.startsWith("[") && classSource.isSuperType(dominantClass, className).orElse(false)
+                    && !implementation.equals(getImplementation(className, invoke.getMethod()))) {
+                return null;
+            }
+        }
+
+        GuardedCall guardedCall = new GuardedCall();
+        guardedCall.invoke = invoke;
+        guardedCall.guards.add(new Guard(dominantClass, implementation));
+        return guardedCall;
+    }
+
+    private void guardCall(Program program, GuardedCall guardedCall) {
+        InvokeInstruction invoke = guardedCall.invoke;
+        BasicBlock block = invoke.getBasicBlock();
+        List<Instruction> instructions = block.getInstructions();
+        int index = instructions.indexOf(invoke);
+        TextLocation location = invoke.getLocation();
+
+        BasicBlock joinBlock = program.createBasicBlock();
+        List<Instruction> tail = instructions.subList(index + 1, instructions.size());
+        List<Instruction> tailCopy = new ArrayList<>(tail);
+        tail.clear();
+        instructions.remove(index);
+        joinBlock.getInstructions().addAll(tailCopy);
+        updatePhiSources(block, joinBlock);
+
+        Variable receiver = invoke.getReceiver();
+        Phi phi = null;
+        if (receiver != null) {
+            phi = new Phi();
+            phi.setReceiver(receiver);
+            joinBlock.getPhis().add(phi);
+        }
+
+        BasicBlock checkBlock = block;
+        for (Guard guard : guardedCall.guards) {
+            BasicBlock directBlock = program.createBasicBlock();
+            BasicBlock nextBlock = program.createBasicBlock();
+
+            IsInstanceInstruction isInstance = new IsInstanceInstruction();
+            isInstance.setValue(invoke.getInstance());
+            isInstance.setType(ValueType.object(guard.className));
+            isInstance.setReceiver(program.createVariable());
+            isInstance.setLocation(location);
+            checkBlock.getInstructions().add(isInstance);
+
+            BranchingInstruction branching = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+            branching.setOperand(isInstance.getReceiver());
+            branching.setConsequent(directBlock);
+            branching.setAlternative(nextBlock);
+            branching.setLocation(location);
+            checkBlock.getInstructions().add(branching);
+
+            InvokeInstruction directInvoke = new InvokeInstruction();
+            directInvoke.setType(InvocationType.SPECIAL);
+            directInvoke.setMethod(guard.implementation);
+            directInvoke.setInstance(invoke.getInstance());
+            directInvoke.getArguments().addAll(invoke.getArguments());
+            directInvoke.setLocation(location);
+            directBlock.getInstructions().add(directInvoke);
+            completeCall(program, directBlock, directInvoke, joinBlock, phi);
+
+            checkBlock = nextBlock;
+        }
+
+        checkBlock.getInstructions().add(invoke);
+        completeCall(program, checkBlock, invoke, joinBlock, phi);
+    }
+
+    private void completeCall(Program program, BasicBlock block, InvokeInstruction invoke, BasicBlock joinBlock,
+            Phi phi) {
+        if (phi != null) {
+            invoke.setReceiver(program.createVariable());
+            Incoming incoming = new Incoming();
+            incoming.setSource(block);
+            incoming.setValue(invoke.getReceiver());
+            phi.getIncomings().add(incoming);
+        }
+
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(joinBlock);
+        jump.setLocation(invoke.getLocation());
+        block.getInstructions().add(jump);
+    }
+
+    private void updatePhiSources(BasicBlock oldSource, BasicBlock newSource) {
+        Instruction lastInsn = newSource.getLastInstruction();
+        if (lastInsn == null) {
+            return;
+        }
+        InstructionTransitionExtractor transitionExtractor = new InstructionTransitionExtractor();
+        lastInsn.acceptVisitor(transitionExtractor);
+        if (transitionExtractor.getTargets() == null) {
+            return;
+        }
+        for (BasicBlock target : transitionExtractor.getTargets()) {
+            for (Phi phi : target.getPhis()) {
+                for (Incoming incoming : phi.getIncomings()) {
+                    if (incoming.getSource() == oldSource) {
+                        incoming.setSource(newSource);
+                    }
+                }
+            }
+        }
+    }
+
+    static class GuardedCall {
+        InvokeInstruction invoke;
+        List<Guard> guards = new ArrayList<>();
+    }
+
+    static class Guard {
+        String className;
+        MethodReference implementation;
+
+        Guard(String className, MethodReference implementation) {
+            this.className = className;
+            this.implementation = implementation;
+        }
     }
 }
@@ -0,0 +1,326 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldHolder;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Instruction;
+import org.teavm.model.ListableClassHolderSource;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.DoubleConstantInstruction;
+import org.teavm.model.instructions.FloatConstantInstruction;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.InitClassInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.LongConstantInstruction;
+import org.teavm.model.instructions.NullConstantInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+
+/**
+ * <p>Whole-program optimization of fields, applied to linked classes. Reads of a field that provably always
+ * holds the same constant are replaced with the constant. After that fields that are never read are removed
+ * together with all writes to them, which makes objects smaller in both backends.</p>
+ *
+ * <p>A field holds a constant when every write stores the same constant, and this constant is equal to
+ * the field's initial value. Only fields accessed exclusively by code of linked methods are considered.
+ * Fields of classes with native methods are left as is, since generators may access them directly, as well
+ * as fields of structures, which define memory layout, and fields of references, which are updated by
+ * garbage collector. Instance fields of strings are never folded, since backends lay out string constants
+ * directly, bypassing constructors.</p>
+ */
+public class FieldOptimization {
+    private static final String[] EXCLUDED_PACKAGES = { "org.teavm.runtime.", "org.teavm.interop.",
+            "org.teavm.platform.", "org.teavm.jso.", "java.lang.ref." };
+    private static final String STRING_CLASS = "java.lang.String";
+    private static final Object NON_CONSTANT = new Object();
+    private static final Object NULL = new Object();
+    private ListableClassHolderSource classes;
+    private Set<FieldReference> accessedFields = new HashSet<>();
+    private Set<FieldReference> readFields = new HashSet<>();
+    private Map<FieldReference, Object> writtenValues = new HashMap<>();
+    private Map<FieldReference, Object> constantFields = new HashMap<>();
+
+    public FieldOptimization(ListableClassHolderSource classes) {
+        this.classes = classes;
+    }
+
+    public void apply() {
+        forEachProgram(this::collectAccesses);
+        findConstantFields();
+        if (!constantFields.isEmpty()) {
+            readFields.clear();
+            forEachProgram(this::foldConstantFields);
+        }
+
+        Set<FieldReference> unusedFields = new HashSet<>();
+        for (String className : classes.getClassNames()) {
+            ClassHolder cls = classes.get(className);
+            if (!isOptimizable(cls)) {
+                continue;
+            }
+            for (FieldHolder field : cls.getFields().toArray(new FieldHolder[0])) {
+                FieldReference fieldRef = field.getReference();
+                if (accessedFields.contains(fieldRef) && !readFields.contains(fieldRef)
+                        && !field.getAnnotations().all().iterator().hasNext()) {
+                    unusedFields.add(fieldRef);
+                    cls.removeField(field);
+                }
+            }
+        }
+        if (!unusedFields.isEmpty()) {
+            forEachProgram((program, method) -> removeWrites(program, method, unusedFields));
+        }
+    }
+
+    private void forEachProgram(ProgramConsumer consumer) {
+        for (String className : classes.getClassNames()) {
+            ClassHolder cls = classes.get(className);
+            for (MethodHolder method : cls.getMethods()) {
+                if (method.getProgram() != null) {
+                    consumer.accept(method.getProgram(), method);
+                }
+            }
+        }
+    }
+
+    private void collectAccesses(Program program, MethodHolder method) {
+        Map<Integer, Object> constants = new HashMap<>();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                Object constant = getConstant(insn);
+                if (constant != null) {
+                    constants.put(getConstantReceiver(insn), constant);
+                }
+            }
+        }
+
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (insn instanceof GetFieldInstruction) {
+                    FieldReference fieldRef = ((GetFieldInstruction) insn).getField();
+                    accessedFields.add(fieldRef);
+                    readFields.add(fieldRef);
+                } else if (insn instanceof PutFieldInstruction) {
+                    PutFieldInstruction putField = (PutFieldInstruction) insn;
+                    accessedFields.add(putField.getField());
+                    Object value = constants.getOrDefault(putField.getValue().getIndex(), NON_CONSTANT);
+                    writtenValues.merge(putField.getField(), value,
+                            (a, b) -> Objects.equals(a, b) ? a : NON_CONSTANT);
+                }
+            }
+        }
+    }
+
+    private void findConstantFields() {
+        for (String className : classes.getClassNames()) {
+            ClassHolder cls = classes.get(className);
+            if (!isOptimizable(cls)) {
+                continue;
+            }
+            for (FieldHolder field : cls.getFields()) {
+                FieldReference fieldRef = field.getReference();
+                if (!readFields.contains(fieldRef)) {
+                    continue;
+                }
+                if (className.equals(STRING_CLASS) && !field.hasModifier(ElementModifier.STATIC)) {
+                    continue;
+                }
+                Object initialValue = getInitialValue(field);
+                if (initialValue == null) {
+                    continue;
+                }
+                Object writtenValue = writtenValues.get(fieldRef);
+                if (writtenValue == null || writtenValue.equals(initialValue)) {
+                    constantFields.put(fieldRef, initialValue);
+                }
+            }
+        }
+    }
+
+    private Object getInitialValue(FieldHolder field) {
+        Object value = field.getInitialValue();
+        ValueType type = field.getType();
+        if (!field.hasModifier(ElementModifier.STATIC) && value != null) {
+            return null;
+        }
+        if (!(type instanceof ValueType.Primitive)) {
+            if (value == null) {
+                return NULL;
+            }
+            return value instanceof String ? value : null;
+        }
+        if (value != null && !(value instanceof Number)) {
+            return null;
+        }
+        Number number = value != null ? (Number) value : 0;
+        switch (((ValueType.Primitive) type).getKind()) {
+            case LONG:
+                return number.longValue();
+            case FLOAT:
+                return number.floatValue();
+            case DOUBLE:
+                return number.doubleValue();
+            default:
+                return number.intValue();
+        }
+    }
+
+    private void foldConstantFields(Program program, MethodHolder method) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            List<Instruction> instructions = program.basicBlockAt(i).getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction insn = instructions.get(j);
+                if (!(insn instanceof GetFieldInstruction)) {
+                    continue;
+                }
+                GetFieldInstruction getField = (GetFieldInstruction) insn;
+                Object value = constantFields.get(getField.getField());
+                if (value == null) {
+                    readFields.add(getField.getField());
+                    continue;
+                }
+                Instruction constant = createConstant(getField, value);
+                constant.setLocation(getField.getLocation());
+                instructions.set(j, constant);
+            }
+        }
+    }
+
+    private Instruction createConstant(GetFieldInstruction getField, Object value) {
+        if (value == NULL) {
+            NullConstantInstruction insn = new NullConstantInstruction();
+            insn.setReceiver(getField.getReceiver());
+            return insn;
+        } else if (value instanceof String) {
+            StringConstantInstruction insn = new StringConstantInstruction();
+            insn.setConstant((String) value);
+            insn.setReceiver(getField.getReceiver());
+            return insn;
+        } else if (value instanceof Long) {
+            LongConstantInstruction insn = new LongConstantInstruction();
+            insn.setConstant((Long) value);
+            insn.setReceiver(getField.getReceiver());
+            return insn;
+        } else if (value instanceof Float) {
+            FloatConstantInstruction insn = new FloatConstantInstruction();
+            insn.setConstant((Float) value);
+            insn.setReceiver(getField.getReceiver());
+            return insn;
+        } else if (value instanceof Double) {
+            DoubleConstantInstruction insn = new DoubleConstantInstruction();
+            insn.setConstant((Double) value);
+            insn.setReceiver(getField.getReceiver());
+            return insn;
+        } else {
+            IntegerConstantInstruction insn = new IntegerConstantInstruction();
+            insn.setConstant((Integer) value);
+            insn.setReceiver(getField.getReceiver());
+            return insn;
+        }
+    }
+
+    private void removeWrites(Program program, MethodHolder method, Set<FieldReference> unusedFields) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            List<Instruction> instructions = block.getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction insn = instructions.get(j);
+                if (!(insn instanceof PutFieldInstruction)) {
+                    continue;
+                }
+                PutFieldInstruction putField = (PutFieldInstruction) insn;
+                FieldReference fieldRef = putField.getField();
+                if (!unusedFields.contains(fieldRef)) {
+                    continue;
+                }
+                if (putField.getInstance() == null && !fieldRef.getClassName().equals(method.getOwnerName())) {
+                    InitClassInstruction initClass = new InitClassInstruction();
+                    initClass.setClassName(fieldRef.getClassName());
+                    initClass.setLocation(putField.getLocation());
+                    instructions.set(j, initClass);
+                } else {
+                    instructions.remove(j--);
+                }
+            }
+        }
+    }
+
+    private boolean isOptimizable(ClassHolder cls) {
+        for (String prefix : EXCLUDED_PACKAGES) {
+            if (cls.getName().startsWith(prefix)) {
+                return false;
+            }
+        }
+        if (classes.isSuperType("org.teavm.interop.Structure", cls.getName()).orElse(false)) {
+            return false;
+        }
+        for (MethodHolder method : cls.getMethods()) {
+            if (method.hasModifier(ElementModifier.NATIVE)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static Object getConstant(Instruction insn) {
+        if (insn instanceof IntegerConstantInstruction) {
+            return ((IntegerConstantInstruction) insn).getConstant();
+        } else if (insn instanceof LongConstantInstruction) {
+            return ((LongConstantInstruction) insn).getConstant();
+        } else if (insn instanceof FloatConstantInstruction) {
+            return ((FloatConstantInstruction) insn).getConstant();
+        } else if (insn instanceof DoubleConstantInstruction) {
+            return ((DoubleConstantInstruction) insn).getConstant();
+        } else if (insn instanceof StringConstantInstruction) {
+            return ((StringConstantInstruction) insn).getConstant();
+        } else if (insn instanceof NullConstantInstruction) {
+            return NULL;
+        }
+        return null;
+    }
+
+    private static int getConstantReceiver(Instruction insn) {
+        if (insn instanceof IntegerConstantInstruction) {
+            return ((IntegerConstantInstruction) insn).getReceiver().getIndex();
+        } else if (insn instanceof LongConstantInstruction) {
+            return ((LongConstantInstruction) insn).getReceiver().getIndex();
+        } else if (insn instanceof FloatConstantInstruction) {
+            return ((FloatConstantInstruction) insn).getReceiver().getIndex();
+        } else if (insn instanceof DoubleConstantInstruction) {
+            return ((DoubleConstantInstruction) insn).getReceiver().getIndex();
+        } else if (insn instanceof StringConstantInstruction) {
+            return ((StringConstantInstruction) insn).getReceiver().getIndex();
+        } else {
+            return ((NullConstantInstruction) insn).getReceiver().getIndex();
+        }
+    }
+
+    private interface ProgramConsumer {
+        void accept(Program program, MethodHolder method);
+    }
+}
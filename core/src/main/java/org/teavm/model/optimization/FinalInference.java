@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.Instruction;
+import org.teavm.model.ListableClassHolderSource;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+
+/**
+ * <p>Finds classes and methods that are effectively final in the linked program, i.e. classes that have no
+ * subclasses and methods that are not overridden by any class. Such classes get {@link ElementModifier#FINAL}
+ * modifier and virtual calls of such methods become direct calls.</p>
+ *
+ * <p>Unlike {@link Devirtualization}, this does not depend on receiver types found by dependency analysis,
+ * so it also works when receiver types are imprecise.</p>
+ */
+public class FinalInference {
+    private ListableClassHolderSource classes;
+    private Set<String> classesWithSubclasses = new HashSet<>();
+    private Set<MethodReference> overriddenMethods = new HashSet<>();
+
+    public FinalInference(ListableClassHolderSource classes) {
+        this.classes = classes;
+    }
+
+    public void apply() {
+        for (String className : classes.getClassNames()) {
+            ClassHolder cls = classes.get(className);
+            if (cls.getParent() != null && !cls.getParent().equals(cls.getName())) {
+                classesWithSubclasses.add(cls.getParent());
+            }
+            for (MethodHolder method : cls.getMethods()) {
+                if (isVirtual(method)) {
+                    markOverridden(cls, method);
+                }
+            }
+        }
+
+        for (String className : classes.getClassNames()) {
+            ClassHolder cls = classes.get(className);
+            if (!cls.hasModifier(ElementModifier.INTERFACE) && !cls.hasModifier(ElementModifier.ABSTRACT)
+                    && !classesWithSubclasses.contains(cls.getName())) {
+                cls.getModifiers().add(ElementModifier.FINAL);
+            }
+        }
+
+        for (String className : classes.getClassNames()) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                if (method.getProgram() != null) {
+                    makeCallsDirect(method.getProgram());
+                }
+            }
+        }
+    }
+
+    private void markOverridden(ClassReader cls, MethodReader method) {
+        String parentName = cls.getParent();
+        while (parentName != null) {
+            ClassReader parent = classes.get(parentName);
+            if (parent == null) {
+                break;
+            }
+            MethodReader parentMethod = parent.getMethod(method.getDescriptor());
+            if (parentMethod != null && !overriddenMethods.add(parentMethod.getReference())) {
+                break;
+            }
+            if (parentName.equals(parent.getParent())) {
+                break;
+            }
+            parentName = parent.getParent();
+        }
+    }
+
+    private void makeCallsDirect(Program program) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Instruction insn : block.getInstructions()) {
+                if (!(insn instanceof InvokeInstruction)) {
+                    continue;
+                }
+                InvokeInstruction invoke = (InvokeInstruction) insn;
+                if (invoke.getType() == InvocationType.VIRTUAL && isEffectivelyFinal(invoke.getMethod())) {
+                    invoke.setType(InvocationType.SPECIAL);
+                }
+            }
+        }
+    }
+
+    private boolean isEffectivelyFinal(MethodReference methodRef) {
+        ClassReader cls = classes.get(methodRef.getClassName());
+        if (cls == null || cls.hasModifier(ElementModifier.INTERFACE)) {
+            return false;
+        }
+        MethodReader method = cls.getMethod(methodRef.getDescriptor());
+        return method != null && isVirtual(method) && !method.hasModifier(ElementModifier.ABSTRACT)
+                && !overriddenMethods.contains(methodRef);
+    }
+
+    private static boolean isVirtual(MethodReader method) {
+        return !method.hasModifier(ElementModifier.STATIC) && !method.getName().equals("<init>")
+                && !method.getName().equals("<clinit>");
+    }
+}
@@ -0,0 +1,335 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import com.carrotsearch.hppc.IntOpenHashSet;
+import com.carrotsearch.hppc.IntSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.common.DominatorTree;
+import org.teavm.common.Graph;
+import org.teavm.common.GraphUtils;
+import org.teavm.common.Loop;
+import org.teavm.common.LoopGraph;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.instructions.BinaryBranchingInstruction;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BinaryOperation;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.NumericOperandType;
+import org.teavm.model.util.DefinitionExtractor;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Finds loops of a program and their basic induction variables, i.e. integer phis in loop header that take
+ * some value on entry to the loop and are incremented by a constant on each iteration.</p>
+ *
+ * <p>Also evaluates simple integer expressions that depend on an induction variable, which allows to find out
+ * which way a branch goes on each iteration, and therefore how many times loop is executed.</p>
+ */
+class InductionVariableAnalyzer {
+    private Program program;
+    private Graph cfg;
+    private LoopGraph loopGraph;
+    private DominatorTree dom;
+    private Instruction[] definitions;
+    private Phi[] phiDefinitions;
+    private List<LoopInfo> loops = new ArrayList<>();
+
+    InductionVariableAnalyzer(Program program) {
+        this.program = program;
+        cfg = ProgramUtils.buildControlFlowGraph(program);
+        loopGraph = new LoopGraph(cfg);
+        dom = GraphUtils.buildDominatorTree(cfg);
+        findDefinitions();
+        findLoops();
+    }
+
+    private void findDefinitions() {
+        definitions = new Instruction[program.variableCount()];
+        phiDefinitions = new Phi[program.variableCount()];
+        DefinitionExtractor defExtractor = new DefinitionExtractor();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Phi phi : block.getPhis()) {
+                phiDefinitions[phi.getReceiver().getIndex()] = phi;
+            }
+            for (Instruction insn : block.getInstructions()) {
+                insn.acceptVisitor(defExtractor);
+                for (Variable var : defExtractor.getDefinedVariables()) {
+                    definitions[var.getIndex()] = insn;
+                }
+            }
+        }
+    }
+
+    private void findLoops() {
+        Map<Loop, LoopInfo> loopMap = new LinkedHashMap<>();
+        for (int node = 0; node < cfg.size(); ++node) {
+            Loop loop = loopGraph.loopAt(node);
+            boolean nested = false;
+            while (loop != null) {
+                LoopInfo info = loopMap.computeIfAbsent(loop, k -> new LoopInfo(k.getHead()));
+                info.nodeSet.add(node);
+                if (nested) {
+                    info.innermost = false;
+                }
+                nested = true;
+                loop = loop.getParent();
+            }
+        }
+        for (LoopInfo info : loopMap.values()) {
+            info.nodes = info.nodeSet.toArray();
+            Arrays.sort(info.nodes);
+            loops.add(info);
+        }
+    }
+
+    Graph getControlFlowGraph() {
+        return cfg;
+    }
+
+    DominatorTree getDominatorTree() {
+        return dom;
+    }
+
+    List<LoopInfo> getLoops() {
+        return loops;
+    }
+
+    List<InductionVariable> getInductionVariables(LoopInfo loop) {
+        List<InductionVariable> result = new ArrayList<>();
+        BasicBlock head = program.basicBlockAt(loop.head);
+        for (Phi phi : head.getPhis()) {
+            InductionVariable iv = getInductionVariable(loop, phi);
+            if (iv != null) {
+                result.add(iv);
+            }
+        }
+        return result;
+    }
+
+    private InductionVariable getInductionVariable(LoopInfo loop, Phi phi) {
+        Incoming entry = null;
+        Variable next = null;
+        for (Incoming incoming : phi.getIncomings()) {
+            if (loop.contains(incoming.getSource().getIndex())) {
+                Variable value = resolve(incoming.getValue());
+                if (next != null && next != value) {
+                    return null;
+                }
+                next = value;
+            } else {
+                if (entry != null) {
+                    return null;
+                }
+                entry = incoming;
+            }
+        }
+        if (entry == null || next == null || !(definitions[next.getIndex()] instanceof BinaryInstruction)) {
+            return null;
+        }
+
+        BinaryInstruction increment = (BinaryInstruction) definitions[next.getIndex()];
+        if (increment.getOperandType() != NumericOperandType.INT
+                || !loop.contains(increment.getBasicBlock().getIndex())) {
+            return null;
+        }
+        Variable receiver = phi.getReceiver();
+        Integer step;
+        switch (increment.getOperation()) {
+            case ADD:
+                if (resolve(increment.getFirstOperand()) == receiver) {
+                    step = getConstant(increment.getSecondOperand());
+                } else if (resolve(increment.getSecondOperand()) == receiver) {
+                    step = getConstant(increment.getFirstOperand());
+                } else {
+                    return null;
+                }
+                break;
+            case SUBTRACT:
+                if (resolve(increment.getFirstOperand()) != receiver) {
+                    return null;
+                }
+                step = getConstant(increment.getSecondOperand());
+                if (step != null) {
+                    step = -step;
+                }
+                break;
+            default:
+                return null;
+        }
+        if (step == null) {
+            return null;
+        }
+
+        InductionVariable iv = new InductionVariable();
+        iv.phi = phi;
+        iv.entry = entry.getSource();
+        iv.initial = entry.getValue();
+        iv.next = next;
+        iv.increment = increment;
+        iv.step = step;
+        return iv;
+    }
+
+    /**
+     * Follows assignments and phis with single input, which may remain after other optimizations.
+     */
+    Variable resolve(Variable var) {
+        for (int i = 0; i < definitions.length; ++i) {
+            Instruction definition = definitions[var.getIndex()];
+            Phi phi = phiDefinitions[var.getIndex()];
+            if (definition instanceof AssignInstruction) {
+                var = ((AssignInstruction) definition).getAssignee();
+            } else if (phi != null && phi.getIncomings().size() == 1) {
+                var = phi.getIncomings().get(0).getValue();
+            } else {
+                break;
+            }
+        }
+        return var;
+    }
+
+    Integer getConstant(Variable var) {
+        Instruction definition = definitions[resolve(var).getIndex()];
+        return definition instanceof IntegerConstantInstruction
+                ? ((IntegerConstantInstruction) definition).getConstant()
+                : null;
+    }
+
+    /**
+     * Evaluates integer variable, given that induction variable has specified value at loop header
+     * on current iteration.
+     *
+     * @return value or {@code null}, if value can't be evaluated.
+     */
+    Integer evaluate(Variable var, InductionVariable iv, int value) {
+        var = resolve(var);
+        if (var == iv.phi.getReceiver()) {
+            return value;
+        } else if (var == iv.next) {
+            return value + iv.step;
+        }
+
+        Instruction definition = definitions[var.getIndex()];
+        if (definition instanceof IntegerConstantInstruction) {
+            return ((IntegerConstantInstruction) definition).getConstant();
+        } else if (definition instanceof BinaryInstruction) {
+            BinaryInstruction binary = (BinaryInstruction) definition;
+            if (binary.getOperandType() != NumericOperandType.INT
+                    || binary.getOperation() != BinaryOperation.COMPARE) {
+                return null;
+            }
+            Integer first = evaluate(binary.getFirstOperand(), iv, value);
+            Integer second = first != null ? evaluate(binary.getSecondOperand(), iv, value) : null;
+            return second != null ? Integer.compare(first, second) : null;
+        }
+        return null;
+    }
+
+    /**
+     * Determines where branching instruction jumps, given that induction variable has specified value
+     * at loop header on current iteration.
+     *
+     * @return jump target or {@code null}, if it can't be determined.
+     */
+    BasicBlock evaluateBranch(Instruction insn, InductionVariable iv, int value) {
+        if (insn instanceof BranchingInstruction) {
+            BranchingInstruction branch = (BranchingInstruction) insn;
+            Boolean condition = null;
+            Integer operand = evaluate(branch.getOperand(), iv, value);
+            if (operand != null) {
+                switch (branch.getCondition()) {
+                    case EQUAL:
+                        condition = operand == 0;
+                        break;
+                    case NOT_EQUAL:
+                        condition = operand != 0;
+                        break;
+                    case LESS:
+                        condition = operand < 0;
+                        break;
+                    case LESS_OR_EQUAL:
+                        condition = operand <= 0;
+                        break;
+                    case GREATER:
+                        condition = operand > 0;
+                        break;
+                    case GREATER_OR_EQUAL:
+                        condition = operand >= 0;
+                        break;
+                    default:
+                        break;
+                }
+            }
+            if (condition != null) {
+                return condition ? branch.getConsequent() : branch.getAlternative();
+            }
+        } else if (insn instanceof BinaryBranchingInstruction) {
+            BinaryBranchingInstruction branch = (BinaryBranchingInstruction) insn;
+            Integer first = evaluate(branch.getFirstOperand(), iv, value);
+            Integer second = first != null ? evaluate(branch.getSecondOperand(), iv, value) : null;
+            if (second != null) {
+                switch (branch.getCondition()) {
+                    case EQUAL:
+                        return first.intValue() == second.intValue() ? branch.getConsequent()
+                                : branch.getAlternative();
+                    case NOT_EQUAL:
+                        return first.intValue() != second.intValue() ? branch.getConsequent()
+                                : branch.getAlternative();
+                    default:
+                        break;
+                }
+            }
+        }
+        return null;
+    }
+
+    static class LoopInfo {
+        final int head;
+        final IntSet nodeSet = new IntOpenHashSet();
+        int[] nodes;
+        boolean innermost = true;
+
+        LoopInfo(int head) {
+            this.head = head;
+        }
+
+        boolean contains(int node) {
+            return nodeSet.contains(node);
+        }
+    }
+
+    static class InductionVariable {
+        Phi phi;
+        BasicBlock entry;
+        Variable initial;
+        Variable next;
+        BinaryInstruction increment;
+        int step;
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.List;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.MethodReader;
+import org.teavm.model.Program;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.optimization.InductionVariableAnalyzer.InductionVariable;
+import org.teavm.model.optimization.InductionVariableAnalyzer.LoopInfo;
+
+/**
+ * <p>Merges induction variables of a loop that always have equal values, i.e. start with the same value and have
+ * the same step, like {@code i} and {@code j} in {@code for (i = 0, j = 0; i < n; ++i, ++j)}. This is also
+ * the case for variables introduced by {@link StrengthReduction}.</p>
+ *
+ * <p>Duplicate variable becomes a copy of the remaining one, so that its increment computes the same value as
+ * increment of the remaining variable and is eliminated by {@link GlobalValueNumbering}.</p>
+ */
+public class InductionVariableSimplification implements MethodOptimization {
+    @Override
+    public boolean optimize(MethodReader method, Program program) {
+        InductionVariableAnalyzer analyzer = new InductionVariableAnalyzer(program);
+        boolean changed = false;
+        for (LoopInfo loop : analyzer.getLoops()) {
+            List<InductionVariable> inductionVariables = analyzer.getInductionVariables(loop);
+            boolean[] merged = new boolean[inductionVariables.size()];
+            for (int i = 0; i < inductionVariables.size(); ++i) {
+                if (merged[i]) {
+                    continue;
+                }
+                InductionVariable iv = inductionVariables.get(i);
+                for (int j = i + 1; j < inductionVariables.size(); ++j) {
+                    InductionVariable duplicate = inductionVariables.get(j);
+                    if (!merged[j] && isSame(analyzer, iv, duplicate)) {
+                        merge(iv, duplicate);
+                        merged[j] = true;
+                        changed = true;
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    private boolean isSame(InductionVariableAnalyzer analyzer, InductionVariable first, InductionVariable second) {
+        if (first.step != second.step) {
+            return false;
+        }
+        if (analyzer.resolve(first.initial) == analyzer.resolve(second.initial)) {
+            return true;
+        }
+        Integer firstInitial = analyzer.getConstant(first.initial);
+        return firstInitial != null && firstInitial.equals(analyzer.getConstant(second.initial));
+    }
+
+    private void merge(InductionVariable iv, InductionVariable duplicate) {
+        BasicBlock head = duplicate.phi.getBasicBlock();
+        head.getPhis().remove(duplicate.phi);
+
+        AssignInstruction copy = new AssignInstruction();
+        copy.setAssignee(iv.phi.getReceiver());
+        copy.setReceiver(duplicate.phi.getReceiver());
+        head.getInstructions().add(0, copy);
+    }
+}
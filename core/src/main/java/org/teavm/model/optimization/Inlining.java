@@ -18,17 +18,24 @@ package org.teavm.model.optimization;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 import org.teavm.model.BasicBlock;
 import org.teavm.model.ClassReader;
 import org.teavm.model.ClassReaderSource;
 import org.teavm.model.Incoming;
 import org.teavm.model.Instruction;
+import org.teavm.model.ListableClassHolderSource;
+import org.teavm.model.MethodHolder;
 import org.teavm.model.MethodReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.Phi;
 import org.teavm.model.Program;
+import org.teavm.model.TryCatchBlock;
 import org.teavm.model.instructions.AssignInstruction;
 import org.teavm.model.instructions.BinaryBranchingInstruction;
 import org.teavm.model.instructions.BranchingInstruction;
@@ -39,6 +46,7 @@ import org.teavm.model.instructions.InvocationType;
 import org.teavm.model.instructions.InvokeInstruction;
 import org.teavm.model.instructions.JumpInstruction;
 import org.teavm.model.instructions.SwitchInstruction;
+import org.teavm.model.profile.ExecutionProfile;
 import org.teavm.model.util.BasicBlockMapper;
 import org.teavm.model.util.InstructionTransitionExtractor;
 import org.teavm.model.util.InstructionVariableMapper;
@@ -47,9 +55,106 @@ import org.teavm.model.util.ProgramUtils;
 public class Inlining {
     private static final int DEFAULT_THRESHOLD = 15;
     private static final int MAX_DEPTH = 5;
+    private static final long HOT_CALL_COUNT = 10000;
+    private static final int HOT_THRESHOLD_FACTOR = 3;
+    private static final int COLD_THRESHOLD = 3;
+    private ExecutionProfile profile;
+    private Map<Program, List<PlanEntry>> plans;
+
+    public Inlining() {
+    }
+
+    /**
+     * @param profile execution profile. Methods that are called often are inlined even if they are
+     * relatively large, methods that were never called are inlined only when they are trivial.
+     * May be {@code null}.
+     */
+    public Inlining(ExecutionProfile profile) {
+        this.profile = profile != null && !profile.isEmpty() ? profile : null;
+    }
+
+    /**
+     * Limits total size of code that inlining is allowed to add to the whole program. All call sites are ranked
+     * before any method is transformed: frequently called methods go first when profile is available, then
+     * call sites that add less code. Each call site is charged for the code it adds, including calls inlined into
+     * it transitively. Plans of admitted call sites are kept and executed by {@link #apply(Program, ClassReaderSource)}
+     * as they are, with copies of callee programs taken before any of them was transformed. So inlined code is
+     * exactly the code that was charged, and the result does not depend on the order in which methods are processed.
+     *
+     * @param classes classes which methods are going to be processed.
+     * @param percent maximum growth, relative to total size of the methods.
+     */
+    public void limitCodeGrowth(ListableClassHolderSource classes, int percent) {
+        long totalComplexity = 0;
+        List<Candidate> candidates = new ArrayList<>();
+        Map<Program, List<PlanEntry>> fullPlans = new IdentityHashMap<>();
+        for (String className : classes.getClassNames()) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                Program program = method.getProgram();
+                if (program == null) {
+                    continue;
+                }
+                totalComplexity += getComplexity(program);
+                List<PlanEntry> plan = buildPlan(program, classes, 0);
+                fullPlans.put(program, plan);
+                for (PlanEntry entry : plan) {
+                    Candidate candidate = new Candidate();
+                    candidate.caller = method.getReference().toString();
+                    candidate.entry = entry;
+                    InvokeInstruction invoke = (InvokeInstruction) program.basicBlockAt(entry.targetBlock)
+                            .getInstructions().get(entry.targetInstruction);
+                    candidate.callCount = profile != null ? profile.getCallCount(invoke.getMethod()) : 0;
+                    candidate.growth = getTotalGrowth(entry);
+                    candidates.add(candidate);
+                }
+            }
+        }
+
+        candidates.sort(Comparator.comparingLong((Candidate candidate) -> -candidate.callCount)
+                .thenComparingLong(candidate -> candidate.growth)
+                .thenComparing(candidate -> candidate.caller)
+                .thenComparingInt(candidate -> candidate.entry.targetBlock)
+                .thenComparingInt(candidate -> candidate.entry.targetInstruction));
+
+        long remainingGrowth = totalComplexity * percent / 100;
+        Set<PlanEntry> admittedEntries = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (Candidate candidate : candidates) {
+            if (candidate.growth > remainingGrowth) {
+                continue;
+            }
+            remainingGrowth -= Math.max(0, candidate.growth);
+            admittedEntries.add(candidate.entry);
+        }
+
+        plans = new IdentityHashMap<>();
+        for (Map.Entry<Program, List<PlanEntry>> fullPlan : fullPlans.entrySet()) {
+            List<PlanEntry> plan = fullPlan.getValue().stream()
+                    .filter(admittedEntries::contains)
+                    .collect(Collectors.toList());
+            if (!plan.isEmpty()) {
+                plans.put(fullPlan.getKey(), plan);
+            }
+        }
+    }
+
+    private long getTotalGrowth(PlanEntry entry) {
+        long growth = entry.growth;
+        for (PlanEntry innerEntry : entry.innerPlan) {
+            growth += getTotalGrowth(innerEntry);
+        }
+        return growth;
+    }
 
     public void apply(Program program, ClassReaderSource classSource) {
-        List<PlanEntry> plan = buildPlan(program, classSource, 0);
+        List<PlanEntry> plan;
+        if (plans != null) {
+            plan = plans.remove(program);
+            if (plan == null) {
+                plan = Collections.emptyList();
+            }
+        } else {
+            plan = buildPlan(program, classSource, 0);
+        }
         execPlan(program, plan, 0);
         new UnreachableBasicBlockEliminator().optimize(program);
     }
@@ -172,7 +277,7 @@ public class Inlining {
 
         for (int i = program.basicBlockCount() - 1; i >= 0; --i) {
             BasicBlock block = program.basicBlockAt(i);
-            if (!block.getTryCatchBlocks().isEmpty()) {
+            if (!canSplit(block)) {
                 continue;
             }
             List<Instruction> instructions = block.getInstructions();
@@ -185,7 +290,6 @@ public class Inlining {
                 if (invoke.getType() == InvocationType.VIRTUAL) {
                     continue;
                 }
-
                 MethodReader invokedMethod = getMethod(classSource, invoke.getMethod());
                 if (invokedMethod == null || invokedMethod.getProgram() == null
                         || invokedMethod.getProgram().basicBlockCount() == 0) {
@@ -197,7 +301,16 @@ public class Inlining {
                 if (ownComplexity < DEFAULT_THRESHOLD) {
                     complexityThreshold += DEFAULT_THRESHOLD;
                 }
-                if (getComplexity(invokedProgram) > complexityThreshold) {
+                if (profile != null) {
+                    long callCount = profile.getCallCount(invokedMethod.getReference());
+                    if (callCount >= HOT_CALL_COUNT) {
+                        complexityThreshold *= HOT_THRESHOLD_FACTOR;
+                    } else if (callCount == 0) {
+                        complexityThreshold = Math.min(complexityThreshold, COLD_THRESHOLD);
+                    }
+                }
+                int invokedComplexity = getComplexity(invokedProgram);
+                if (invokedComplexity > complexityThreshold) {
                     continue;
                 }
 
@@ -205,6 +318,7 @@ public class Inlining {
                 entry.targetBlock = i;
                 entry.targetInstruction = j;
                 entry.program = invokedProgram;
+                entry.growth = invokedComplexity - getInvocationComplexity(invoke);
                 entry.innerPlan.addAll(buildPlan(invokedProgram, classSource, depth + 1));
                 plan.add(entry);
             }
@@ -213,28 +327,48 @@ public class Inlining {
         return plan;
     }
 
+    /*
+     * Inlined blocks get try/catch blocks of the call site, so exceptions thrown by inlined code reach the same
+     * handlers. This is only correct when handlers don't depend on which of the blocks has thrown, i.e. there are
+     * no joints and no phi inputs from the block.
+     */
+    private boolean canSplit(BasicBlock block) {
+        for (TryCatchBlock tryCatch : block.getTryCatchBlocks()) {
+            if (!tryCatch.getJoints().isEmpty()) {
+                return false;
+            }
+            for (Phi phi : tryCatch.getHandler().getPhis()) {
+                for (Incoming incoming : phi.getIncomings()) {
+                    if (incoming.getSource() == block) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return true;
+    }
+
     private MethodReader getMethod(ClassReaderSource classSource, MethodReference methodRef) {
         ClassReader cls = classSource.get(methodRef.getClassName());
         return cls != null ? cls.getMethod(methodRef.getDescriptor()) : null;
     }
 
+    private int getInvocationComplexity(InvokeInstruction invoke) {
+        int count = invoke.getArguments().size() + 1;
+        if (invoke.getInstance() != null) {
+            count++;
+        }
+        return count;
+    }
+
     private int getComplexity(Program program) {
         int complexity = 0;
         for (int i = 0; i < program.basicBlockCount(); ++i) {
             BasicBlock block = program.basicBlockAt(i);
             List<Instruction> instructions = block.getInstructions();
             int nopCount = (int) instructions.stream().filter(insn -> insn instanceof EmptyInstruction).count();
-            int invokeCount = instructions.stream().mapToInt(insn -> {
-                if (!(insn instanceof InvokeInstruction)) {
-                    return 0;
-                }
-                InvokeInstruction invoke = (InvokeInstruction) insn;
-                int count = invoke.getArguments().size();
-                if (invoke.getInstance() != null) {
-                    count++;
-                }
-                return count + 1;
-            }).sum();
+            int invokeCount = instructions.stream().mapToInt(insn -> insn instanceof InvokeInstruction
+                    ? getInvocationComplexity((InvokeInstruction) insn) : 0).sum();
             complexity += instructions.size() - 1 - nopCount + invokeCount;
             Instruction lastInsn = block.getLastInstruction();
             if (lastInsn instanceof SwitchInstruction) {
@@ -250,6 +384,14 @@ public class Inlining {
         int targetBlock;
         int targetInstruction;
         Program program;
+        int growth;
         final List<PlanEntry> innerPlan = new ArrayList<>();
     }
+
+    private static class Candidate {
+        String caller;
+        PlanEntry entry;
+        long callCount;
+        long growth;
+    }
 }
@@ -0,0 +1,274 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+import org.teavm.common.DominatorTree;
+import org.teavm.common.Graph;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReader;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.TryCatchBlock;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.optimization.InductionVariableAnalyzer.InductionVariable;
+import org.teavm.model.optimization.InductionVariableAnalyzer.LoopInfo;
+import org.teavm.model.util.BasicBlockMapper;
+import org.teavm.model.util.InstructionCopyReader;
+import org.teavm.model.util.InstructionTransitionExtractor;
+import org.teavm.model.util.PhiUpdater;
+
+/**
+ * <p>Fully unrolls small loops that run a number of iterations known at compile time, like
+ * {@code for (int i = 0; i < 4; ++i)}. Loop is copied once per iteration and the branch that leaves the loop
+ * is replaced by a jump in each copy, so that the resulting code has no condition checks and induction
+ * variable becomes a constant in each copy.</p>
+ *
+ * <p>Only innermost loops without exception handlers are considered. There should be a single branch that
+ * leaves the loop, it must be executed exactly once per iteration (i.e. dominate all back edges) and its
+ * condition must depend only on an induction variable with constant initial value.</p>
+ */
+public class LoopUnrolling implements MethodOptimization {
+    private static final int MAX_ITERATIONS = 16;
+    private static final int MAX_UNROLLED_SIZE = 128;
+
+    @Override
+    public boolean optimize(MethodReader method, Program program) {
+        boolean affected = false;
+
+        // Copies of loop share variables, so SSA form is rebuilt after each loop
+        while (unrollLoop(program)) {
+            affected = true;
+            Variable[] inputs = new Variable[method.parameterCount() + 1];
+            for (int i = 0; i < inputs.length; ++i) {
+                inputs[i] = program.variableAt(i);
+            }
+            new UnreachableBasicBlockEliminator().optimize(program);
+            new PhiUpdater().updatePhis(program, inputs);
+        }
+        return affected;
+    }
+
+    private boolean unrollLoop(Program program) {
+        InductionVariableAnalyzer analyzer = new InductionVariableAnalyzer(program);
+        for (LoopInfo loop : analyzer.getLoops()) {
+            UnrolledLoop unrolledLoop = analyze(program, analyzer, loop);
+            if (unrolledLoop != null) {
+                unroll(program, unrolledLoop);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private UnrolledLoop analyze(Program program, InductionVariableAnalyzer analyzer, LoopInfo loop) {
+        if (!loop.innermost) {
+            return null;
+        }
+        Graph cfg = analyzer.getControlFlowGraph();
+        DominatorTree dom = analyzer.getDominatorTree();
+
+        int size = 0;
+        int exitingNode = -1;
+        for (int node : loop.nodes) {
+            BasicBlock block = program.basicBlockAt(node);
+            if (!block.getTryCatchBlocks().isEmpty() || block.getExceptionVariable() != null) {
+                return null;
+            }
+            size += block.instructionCount();
+            for (int successor : cfg.outgoingEdges(node)) {
+                if (!loop.contains(successor)) {
+                    if (exitingNode >= 0 && exitingNode != node) {
+                        return null;
+                    }
+                    exitingNode = node;
+                }
+            }
+            if (node != loop.head) {
+                for (int predecessor : cfg.incomingEdges(node)) {
+                    if (!loop.contains(predecessor)) {
+                        return null;
+                    }
+                }
+            }
+        }
+        if (exitingNode < 0) {
+            return null;
+        }
+
+        for (int predecessor : cfg.incomingEdges(loop.head)) {
+            if (loop.contains(predecessor)) {
+                if (!dom.dominates(exitingNode, predecessor)) {
+                    return null;
+                }
+            } else {
+                for (TryCatchBlock tryCatch : program.basicBlockAt(predecessor).getTryCatchBlocks()) {
+                    if (tryCatch.getHandler().getIndex() == loop.head) {
+                        return null;
+                    }
+                }
+            }
+        }
+
+        Instruction exitBranch = program.basicBlockAt(exitingNode).getLastInstruction();
+        for (InductionVariable iv : analyzer.getInductionVariables(loop)) {
+            Integer initial = analyzer.getConstant(iv.initial);
+            if (initial == null) {
+                continue;
+            }
+            int value = initial;
+            for (int iteration = 0; iteration <= MAX_ITERATIONS; ++iteration) {
+                BasicBlock target = analyzer.evaluateBranch(exitBranch, iv, value);
+                if (target == null) {
+                    break;
+                }
+                if (!loop.contains(target.getIndex())) {
+                    if ((iteration + 1) * size > MAX_UNROLLED_SIZE) {
+                        return null;
+                    }
+                    UnrolledLoop result = new UnrolledLoop();
+                    result.loop = loop;
+                    result.iterations = iteration;
+                    result.exitingNode = exitingNode;
+                    result.exitTarget = target.getIndex();
+                    result.continueTarget = getOtherTarget(exitBranch, target);
+                    return result.continueTarget >= 0 ? result : null;
+                }
+                value += iv.step;
+            }
+        }
+        return null;
+    }
+
+    private int getOtherTarget(Instruction branch, BasicBlock target) {
+        InstructionTransitionExtractor transitionExtractor = new InstructionTransitionExtractor();
+        branch.acceptVisitor(transitionExtractor);
+        for (BasicBlock successor : transitionExtractor.getTargets()) {
+            if (successor != target) {
+                return successor.getIndex();
+            }
+        }
+        return -1;
+    }
+
+    private void unroll(Program program, UnrolledLoop unrolledLoop) {
+        LoopInfo loop = unrolledLoop.loop;
+        int copyCount = unrolledLoop.iterations + 1;
+        int[][] copies = new int[copyCount][program.basicBlockCount()];
+        for (int[] copy : copies) {
+            for (int node : loop.nodes) {
+                copy[node] = program.createBasicBlock().getIndex();
+            }
+        }
+
+        InstructionCopyReader copier = new InstructionCopyReader(program);
+        for (int i = 0; i < copyCount; ++i) {
+            int iteration = i;
+
+            // Back edges lead to the next copy. Back edges of the last copy remain, but they are unreachable
+            IntUnaryOperator mapping = node -> {
+                if (!loop.contains(node)) {
+                    return node;
+                } else if (node == loop.head) {
+                    return iteration < unrolledLoop.iterations ? copies[iteration + 1][node] : node;
+                } else {
+                    return copies[iteration][node];
+                }
+            };
+            BasicBlockMapper blockMapper = new BasicBlockMapper(mapping);
+
+            for (int node : loop.nodes) {
+                BasicBlock sourceBlock = program.basicBlockAt(node);
+                BasicBlock targetBlock = program.basicBlockAt(copies[iteration][node]);
+
+                copier.resetLocation();
+                for (int j = 0; j < sourceBlock.instructionCount(); ++j) {
+                    sourceBlock.readInstruction(j, copier);
+                    Instruction insn = copier.getCopy();
+                    insn.acceptVisitor(blockMapper);
+                    targetBlock.getInstructions().add(insn);
+                }
+                if (node == unrolledLoop.exitingNode) {
+                    List<Instruction> instructions = targetBlock.getInstructions();
+                    JumpInstruction jump = new JumpInstruction();
+                    jump.setTarget(program.basicBlockAt(iteration < unrolledLoop.iterations
+                            ? mapping.applyAsInt(unrolledLoop.continueTarget)
+                            : unrolledLoop.exitTarget));
+                    jump.setLocation(sourceBlock.getLastInstruction().getLocation());
+                    instructions.set(instructions.size() - 1, jump);
+                }
+
+                for (Phi phi : sourceBlock.getPhis()) {
+                    Phi phiCopy = new Phi();
+                    phiCopy.setReceiver(phi.getReceiver());
+                    for (Incoming incoming : phi.getIncomings()) {
+                        int source = incoming.getSource().getIndex();
+                        if (node == loop.head) {
+                            if (loop.contains(source) == (iteration == 0)) {
+                                continue;
+                            }
+                            if (iteration > 0) {
+                                source = copies[iteration - 1][source];
+                            }
+                        } else {
+                            source = copies[iteration][source];
+                        }
+                        Incoming incomingCopy = new Incoming();
+                        incomingCopy.setSource(program.basicBlockAt(source));
+                        incomingCopy.setValue(incoming.getValue());
+                        phiCopy.getIncomings().add(incomingCopy);
+                    }
+                    targetBlock.getPhis().add(phiCopy);
+                }
+            }
+        }
+
+        BasicBlock exitingBlock = program.basicBlockAt(unrolledLoop.exitingNode);
+        BasicBlock lastExitingBlock = program.basicBlockAt(copies[copyCount - 1][unrolledLoop.exitingNode]);
+        for (Phi phi : program.basicBlockAt(unrolledLoop.exitTarget).getPhis()) {
+            for (Incoming incoming : phi.getIncomings().toArray(new Incoming[0])) {
+                if (incoming.getSource() == exitingBlock) {
+                    Incoming incomingCopy = new Incoming();
+                    incomingCopy.setSource(lastExitingBlock);
+                    incomingCopy.setValue(incoming.getValue());
+                    phi.getIncomings().add(incomingCopy);
+                }
+            }
+        }
+
+        BasicBlockMapper entryMapper = new BasicBlockMapper(node -> node == loop.head ? copies[0][node] : node);
+        for (int i = 0; i < copies[0].length; ++i) {
+            if (!loop.contains(i)) {
+                Instruction last = program.basicBlockAt(i).getLastInstruction();
+                if (last != null) {
+                    last.acceptVisitor(entryMapper);
+                }
+            }
+        }
+    }
+
+    static class UnrolledLoop {
+        LoopInfo loop;
+        int iterations;
+        int exitingNode;
+        int exitTarget;
+        int continueTarget;
+    }
+}
@@ -0,0 +1,331 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReader;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.DoubleConstantInstruction;
+import org.teavm.model.instructions.EmptyInstruction;
+import org.teavm.model.instructions.FloatConstantInstruction;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.InitClassInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.LongConstantInstruction;
+import org.teavm.model.instructions.NullCheckInstruction;
+import org.teavm.model.instructions.NullConstantInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+import org.teavm.model.util.PhiUpdater;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Replaces objects that never escape the method with a set of local variables, one per field.
+ * An object does not escape when all it is used for is reading and writing its fields, possibly via
+ * copies produced by assignments and null checks. Usually such objects appear after their constructors
+ * and methods get inlined.</p>
+ *
+ * <p>Allocation is replaced by class initialization and by initialization of field variables with
+ * default values, field access becomes assignment. Since field variables are assigned many times, SSA
+ * form is rebuilt afterwards.</p>
+ */
+public class ScalarReplacement implements MethodOptimization {
+    private static final MethodReference OBJECT_CONSTRUCTOR = new MethodReference("java.lang.Object",
+            "<init>", ValueType.VOID);
+
+    @Override
+    public boolean optimize(MethodReader method, Program program) {
+        Candidate[] candidates = findCandidates(program);
+        if (candidates == null) {
+            return false;
+        }
+        markEscaping(program, candidates);
+        if (!collectFields(program, candidates)) {
+            return false;
+        }
+
+        replace(program, candidates);
+
+        Variable[] arguments = new Variable[method.parameterCount() + 1];
+        for (int i = 0; i < arguments.length; ++i) {
+            arguments[i] = program.variableAt(i);
+        }
+        new PhiUpdater().updatePhis(program, arguments);
+        return true;
+    }
+
+    private Candidate[] findCandidates(Program program) {
+        Candidate[] candidates = new Candidate[program.variableCount()];
+        boolean found = false;
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (insn instanceof ConstructInstruction) {
+                    ConstructInstruction construct = (ConstructInstruction) insn;
+                    candidates[construct.getReceiver().getIndex()] = new Candidate(construct);
+                    found = true;
+                }
+            }
+        }
+        if (!found) {
+            return null;
+        }
+
+        // Propagate candidates to their copies. Program is in SSA form, so each copy is defined once
+        boolean changed;
+        do {
+            changed = false;
+            for (int i = 0; i < program.basicBlockCount(); ++i) {
+                for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                    Variable source = getCopySource(insn);
+                    if (source == null) {
+                        continue;
+                    }
+                    Variable receiver = getCopyReceiver(insn);
+                    Candidate candidate = candidates[source.getIndex()];
+                    if (candidate != null && candidates[receiver.getIndex()] == null) {
+                        candidates[receiver.getIndex()] = candidate;
+                        changed = true;
+                    }
+                }
+            }
+        } while (changed);
+
+        return candidates;
+    }
+
+    private void markEscaping(Program program, Candidate[] candidates) {
+        ProgramUtils.forEachUse(program, (insn, var) -> {
+            if (candidates[var.getIndex()] != null && !isNonEscapingUse(insn, var, candidates)) {
+                candidates[var.getIndex()].escaping = true;
+            }
+        });
+    }
+
+    private static boolean isNonEscapingUse(Instruction insn, Variable var, Candidate[] candidates) {
+        if (insn instanceof GetFieldInstruction) {
+            return ((GetFieldInstruction) insn).getFieldType() != null;
+        } else if (insn instanceof PutFieldInstruction) {
+            PutFieldInstruction putField = (PutFieldInstruction) insn;
+            return putField.getFieldType() != null && var != putField.getValue();
+        }
+        return getCopySource(insn) != null || isObjectConstructorCall(insn, candidates);
+    }
+
+    private boolean collectFields(Program program, Candidate[] candidates) {
+        boolean found = false;
+        for (Candidate candidate : candidates) {
+            if (candidate != null && !candidate.escaping) {
+                found = true;
+                break;
+            }
+        }
+        if (!found) {
+            return false;
+        }
+
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                Candidate candidate;
+                FieldReference field;
+                ValueType type;
+                if (insn instanceof GetFieldInstruction) {
+                    GetFieldInstruction getField = (GetFieldInstruction) insn;
+                    candidate = getReplaceable(candidates, getField.getInstance());
+                    field = getField.getField();
+                    type = getField.getFieldType();
+                } else if (insn instanceof PutFieldInstruction) {
+                    PutFieldInstruction putField = (PutFieldInstruction) insn;
+                    candidate = getReplaceable(candidates, putField.getInstance());
+                    field = putField.getField();
+                    type = putField.getFieldType();
+                } else {
+                    continue;
+                }
+                if (candidate != null && !candidate.fields.containsKey(field)) {
+                    candidate.fields.put(field, new FieldVariable(program.createVariable(), type));
+                }
+            }
+        }
+        return true;
+    }
+
+    private void replace(Program program, Candidate[] candidates) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            List<Instruction> instructions = block.getInstructions();
+            for (int j = 0; j < instructions.size(); ++j) {
+                Instruction insn = instructions.get(j);
+                List<Instruction> replacement = null;
+                if (insn instanceof ConstructInstruction) {
+                    Candidate candidate = getReplaceable(candidates, ((ConstructInstruction) insn).getReceiver());
+                    if (candidate != null) {
+                        replacement = initialize(candidate);
+                    }
+                } else if (insn instanceof GetFieldInstruction) {
+                    GetFieldInstruction getField = (GetFieldInstruction) insn;
+                    Candidate candidate = getReplaceable(candidates, getField.getInstance());
+                    if (candidate != null) {
+                        AssignInstruction assign = new AssignInstruction();
+                        assign.setAssignee(candidate.fields.get(getField.getField()).variable);
+                        assign.setReceiver(getField.getReceiver());
+                        replacement = single(assign);
+                    }
+                } else if (insn instanceof PutFieldInstruction) {
+                    PutFieldInstruction putField = (PutFieldInstruction) insn;
+                    Candidate candidate = getReplaceable(candidates, putField.getInstance());
+                    if (candidate != null) {
+                        AssignInstruction assign = new AssignInstruction();
+                        assign.setAssignee(putField.getValue());
+                        assign.setReceiver(candidate.fields.get(putField.getField()).variable);
+                        replacement = single(assign);
+                    }
+                } else {
+                    Variable source = getCopySource(insn);
+                    if (source == null && insn instanceof InvokeInstruction) {
+                        source = ((InvokeInstruction) insn).getInstance();
+                    }
+                    if (source != null && getReplaceable(candidates, source) != null) {
+                        replacement = single(new EmptyInstruction());
+                    }
+                }
+
+                if (replacement != null) {
+                    for (Instruction newInsn : replacement) {
+                        newInsn.setLocation(insn.getLocation());
+                    }
+                    instructions.set(j, replacement.get(0));
+                    instructions.addAll(j + 1, replacement.subList(1, replacement.size()));
+                    j += replacement.size() - 1;
+                }
+            }
+        }
+    }
+
+    private List<Instruction> initialize(Candidate candidate) {
+        List<Instruction> result = new ArrayList<>();
+        InitClassInstruction initClass = new InitClassInstruction();
+        initClass.setClassName(candidate.construct.getType());
+        result.add(initClass);
+
+        for (FieldVariable field : candidate.fields.values()) {
+            result.add(createDefaultValue(field.type, field.variable));
+        }
+        return result;
+    }
+
+    private static Instruction createDefaultValue(ValueType type, Variable receiver) {
+        if (type instanceof ValueType.Primitive) {
+            switch (((ValueType.Primitive) type).getKind()) {
+                case LONG: {
+                    LongConstantInstruction insn = new LongConstantInstruction();
+                    insn.setReceiver(receiver);
+                    return insn;
+                }
+                case FLOAT: {
+                    FloatConstantInstruction insn = new FloatConstantInstruction();
+                    insn.setReceiver(receiver);
+                    return insn;
+                }
+                case DOUBLE: {
+                    DoubleConstantInstruction insn = new DoubleConstantInstruction();
+                    insn.setReceiver(receiver);
+                    return insn;
+                }
+                default: {
+                    IntegerConstantInstruction insn = new IntegerConstantInstruction();
+                    insn.setReceiver(receiver);
+                    return insn;
+                }
+            }
+        }
+        NullConstantInstruction insn = new NullConstantInstruction();
+        insn.setReceiver(receiver);
+        return insn;
+    }
+
+    private static List<Instruction> single(Instruction insn) {
+        List<Instruction> result = new ArrayList<>(1);
+        result.add(insn);
+        return result;
+    }
+
+    private static Candidate getReplaceable(Candidate[] candidates, Variable var) {
+        if (var == null) {
+            return null;
+        }
+        Candidate candidate = candidates[var.getIndex()];
+        return candidate != null && !candidate.escaping ? candidate : null;
+    }
+
+    private static boolean isObjectConstructorCall(Instruction insn, Candidate[] candidates) {
+        if (!(insn instanceof InvokeInstruction)) {
+            return false;
+        }
+        InvokeInstruction invoke = (InvokeInstruction) insn;
+        return invoke.getType() == InvocationType.SPECIAL && invoke.getMethod().equals(OBJECT_CONSTRUCTOR)
+                && invoke.getReceiver() == null && invoke.getInstance() != null
+                && candidates[invoke.getInstance().getIndex()] != null;
+    }
+
+    private static Variable getCopySource(Instruction insn) {
+        if (insn instanceof AssignInstruction) {
+            return ((AssignInstruction) insn).getAssignee();
+        } else if (insn instanceof NullCheckInstruction) {
+            return ((NullCheckInstruction) insn).getValue();
+        }
+        return null;
+    }
+
+    private static Variable getCopyReceiver(Instruction insn) {
+        if (insn instanceof AssignInstruction) {
+            return ((AssignInstruction) insn).getReceiver();
+        } else {
+            return ((NullCheckInstruction) insn).getReceiver();
+        }
+    }
+
+    static class Candidate {
+        ConstructInstruction construct;
+        boolean escaping;
+        Map<FieldReference, FieldVariable> fields = new LinkedHashMap<>();
+
+        Candidate(ConstructInstruction construct) {
+            this.construct = construct;
+        }
+    }
+
+    static class FieldVariable {
+        Variable variable;
+        ValueType type;
+
+        FieldVariable(Variable variable, ValueType type) {
+            this.variable = variable;
+            this.type = type;
+        }
+    }
+}
@@ -0,0 +1,240 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.teavm.common.Graph;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ClassReader;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldHolder;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Instruction;
+import org.teavm.model.InterpretException;
+import org.teavm.model.Interpreter;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.instructions.BinaryBranchingInstruction;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.CastIntegerInstruction;
+import org.teavm.model.instructions.CastNumberInstruction;
+import org.teavm.model.instructions.DoubleConstantInstruction;
+import org.teavm.model.instructions.EmptyInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.FloatConstantInstruction;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.LongConstantInstruction;
+import org.teavm.model.instructions.NegateInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+import org.teavm.model.instructions.SwitchInstruction;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Runs static initializers at build time with {@link Interpreter} and turns their results into initial
+ * values of static fields. After that the initializer is removed, so the class needs no initialization
+ * checks at all.</p>
+ *
+ * <p>Only initializers that compute primitive values of the class's own static fields are evaluated, i.e.
+ * they contain no calls, no allocations, no access to other classes and no loops. Initializers that build
+ * arrays or objects, including tables of constants, are left as is and run at startup, since field initial
+ * values are limited to primitives and strings. Function pointers are never evaluated either: in Wasm they are
+ * indexes into the table used by {@code call_indirect}, and their values are only known when the table is built.
+ * Class initialization also triggers initialization of superclasses, so a class is processed only when
+ * none of its superclasses has an initializer.</p>
+ */
+public class StaticInitializerEvaluation {
+    private static final MethodDescriptor CLINIT = new MethodDescriptor("<clinit>", void.class);
+    private ClassReaderSource classSource;
+    private ClassLoader classLoader;
+
+    public StaticInitializerEvaluation(ClassReaderSource classSource, ClassLoader classLoader) {
+        this.classSource = classSource;
+        this.classLoader = classLoader;
+    }
+
+    /**
+     * Tries to evaluate static initializer of a class.
+     *
+     * @return whether initializer was evaluated and removed.
+     */
+    public boolean apply(ClassHolder cls) {
+        MethodHolder clinit = cls.getMethod(CLINIT);
+        if (clinit == null || clinit.getProgram() == null || !superclassesHaveNoInitializers(cls)) {
+            return false;
+        }
+        Program program = clinit.getProgram();
+        if (!isEvaluable(cls, program)) {
+            return false;
+        }
+
+        Map<String, Object> values = new HashMap<>();
+        for (FieldHolder field : cls.getFields()) {
+            if (field.hasModifier(ElementModifier.STATIC) && field.getType() instanceof ValueType.Primitive) {
+                Object value = field.getInitialValue();
+                values.put(field.getName(), value != null ? value : defaultValue(field.getType()));
+            }
+        }
+
+        Interpreter interpreter = new Interpreter(classLoader) {
+            @Override
+            protected Object getFieldValue(Object instance, FieldReference field) {
+                return values.get(field.getFieldName());
+            }
+
+            @Override
+            protected void setFieldValue(Object instance, FieldReference field, Object value) {
+                values.put(field.getFieldName(), value);
+            }
+        };
+        try {
+            interpreter.interpret(program, new Object[0]);
+        } catch (InterpretException | RuntimeException e) {
+            return false;
+        }
+
+        for (FieldHolder field : cls.getFields()) {
+            Object value = values.get(field.getName());
+            if (value != null) {
+                field.setInitialValue(normalize(field.getType(), (Number) value));
+            }
+        }
+        cls.removeMethod(clinit);
+        return true;
+    }
+
+    private boolean superclassesHaveNoInitializers(ClassReader cls) {
+        while (cls.getParent() != null && !cls.getParent().equals(cls.getName())) {
+            cls = classSource.get(cls.getParent());
+            if (cls == null || cls.getMethod(CLINIT) != null) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean isEvaluable(ClassHolder cls, Program program) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            if (!block.getTryCatchBlocks().isEmpty()) {
+                return false;
+            }
+            for (Instruction insn : block.getInstructions()) {
+                if (insn instanceof GetFieldInstruction) {
+                    GetFieldInstruction getField = (GetFieldInstruction) insn;
+                    if (getField.getInstance() != null || !isOwnPrimitiveField(cls, getField.getField())) {
+                        return false;
+                    }
+                } else if (insn instanceof PutFieldInstruction) {
+                    PutFieldInstruction putField = (PutFieldInstruction) insn;
+                    if (putField.getInstance() != null || !isOwnPrimitiveField(cls, putField.getField())) {
+                        return false;
+                    }
+                } else if (!isPure(insn)) {
+                    return false;
+                }
+            }
+        }
+
+        return isAcyclic(ProgramUtils.buildControlFlowGraph(program));
+    }
+
+    private static boolean isPure(Instruction insn) {
+        return insn instanceof EmptyInstruction
+                || insn instanceof IntegerConstantInstruction
+                || insn instanceof LongConstantInstruction
+                || insn instanceof FloatConstantInstruction
+                || insn instanceof DoubleConstantInstruction
+                || insn instanceof BinaryInstruction
+                || insn instanceof NegateInstruction
+                || insn instanceof AssignInstruction
+                || insn instanceof CastNumberInstruction
+                || insn instanceof CastIntegerInstruction
+                || insn instanceof BranchingInstruction
+                || insn instanceof BinaryBranchingInstruction
+                || insn instanceof JumpInstruction
+                || insn instanceof SwitchInstruction
+                || insn instanceof ExitInstruction;
+    }
+
+    private static boolean isOwnPrimitiveField(ClassHolder cls, FieldReference fieldRef) {
+        return isOwnStaticField(cls, fieldRef)
+                && cls.getField(fieldRef.getFieldName()).getType() instanceof ValueType.Primitive;
+    }
+
+    private static boolean isOwnStaticField(ClassHolder cls, FieldReference fieldRef) {
+        if (!fieldRef.getClassName().equals(cls.getName())) {
+            return false;
+        }
+        FieldHolder field = cls.getField(fieldRef.getFieldName());
+        return field != null && field.hasModifier(ElementModifier.STATIC);
+    }
+
+    private static boolean isAcyclic(Graph graph) {
+        int[] incomingCounts = new int[graph.size()];
+        int[] queue = new int[graph.size()];
+        int head = 0;
+        int tail = 0;
+        for (int i = 0; i < graph.size(); ++i) {
+            incomingCounts[i] = graph.incomingEdgesCount(i);
+            if (incomingCounts[i] == 0) {
+                queue[tail++] = i;
+            }
+        }
+        while (head < tail) {
+            for (int next : graph.outgoingEdges(queue[head++])) {
+                if (--incomingCounts[next] == 0) {
+                    queue[tail++] = next;
+                }
+            }
+        }
+        return tail == graph.size();
+    }
+
+    private static Object defaultValue(ValueType type) {
+        switch (((ValueType.Primitive) type).getKind()) {
+            case LONG:
+                return 0L;
+            case FLOAT:
+                return 0F;
+            case DOUBLE:
+                return 0.0;
+            default:
+                return 0;
+        }
+    }
+
+    private static Object normalize(ValueType type, Number value) {
+        switch (((ValueType.Primitive) type).getKind()) {
+            case LONG:
+                return value.longValue();
+            case FLOAT:
+                return value.floatValue();
+            case DOUBLE:
+                return value.doubleValue();
+            default:
+                return value.intValue();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodReader;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BinaryOperation;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.NumericOperandType;
+import org.teavm.model.optimization.InductionVariableAnalyzer.InductionVariable;
+import org.teavm.model.optimization.InductionVariableAnalyzer.LoopInfo;
+
+/**
+ * <p>Replaces multiplication of an induction variable by a constant, like {@code i * 3} in
+ * {@code for (i = 0; i < n; ++i) a[i * 3] = 0}, with a new induction variable, which is initialized
+ * with the product before loop and incremented by {@code step * 3} after original variable gets incremented.</p>
+ *
+ * <p>Integer arithmetic wraps around, so the new variable equals to the product on every iteration, including
+ * the case of overflow.</p>
+ */
+public class StrengthReduction implements MethodOptimization {
+    @Override
+    public boolean optimize(MethodReader method, Program program) {
+        InductionVariableAnalyzer analyzer = new InductionVariableAnalyzer(program);
+        List<Reduction> reductions = new ArrayList<>();
+        for (LoopInfo loop : analyzer.getLoops()) {
+            Map<Variable, InductionVariable> inductionVariables = new HashMap<>();
+            for (InductionVariable iv : analyzer.getInductionVariables(loop)) {
+                inductionVariables.put(iv.phi.getReceiver(), iv);
+            }
+            if (inductionVariables.isEmpty()) {
+                continue;
+            }
+            for (int node : loop.nodes) {
+                for (Instruction insn : program.basicBlockAt(node).getInstructions()) {
+                    Reduction reduction = getReduction(analyzer, inductionVariables, insn);
+                    if (reduction != null) {
+                        reduction.loop = loop;
+                        reductions.add(reduction);
+                    }
+                }
+            }
+        }
+        if (reductions.isEmpty()) {
+            return false;
+        }
+
+        Map<InductionVariable, Map<Integer, Variable>> reducedVariables = new HashMap<>();
+        for (Reduction reduction : reductions) {
+            Variable reduced = reducedVariables.computeIfAbsent(reduction.inductionVariable, k -> new HashMap<>())
+                    .computeIfAbsent(reduction.factor, k -> createInductionVariable(program, reduction));
+            AssignInstruction assign = new AssignInstruction();
+            assign.setAssignee(reduced);
+            assign.setReceiver(reduction.multiplication.getReceiver());
+            assign.setLocation(reduction.multiplication.getLocation());
+            List<Instruction> instructions = reduction.multiplication.getBasicBlock().getInstructions();
+            instructions.set(instructions.indexOf(reduction.multiplication), assign);
+        }
+        return true;
+    }
+
+    private Reduction getReduction(InductionVariableAnalyzer analyzer,
+            Map<Variable, InductionVariable> inductionVariables, Instruction insn) {
+        if (!(insn instanceof BinaryInstruction)) {
+            return null;
+        }
+        BinaryInstruction binary = (BinaryInstruction) insn;
+        if (binary.getOperation() != BinaryOperation.MULTIPLY || binary.getOperandType() != NumericOperandType.INT) {
+            return null;
+        }
+
+        InductionVariable iv = inductionVariables.get(analyzer.resolve(binary.getFirstOperand()));
+        Integer factor = analyzer.getConstant(binary.getSecondOperand());
+        if (iv == null || factor == null) {
+            iv = inductionVariables.get(analyzer.resolve(binary.getSecondOperand()));
+            factor = analyzer.getConstant(binary.getFirstOperand());
+        }
+        if (iv == null || factor == null || factor == 0 || factor == 1) {
+            return null;
+        }
+
+        Reduction reduction = new Reduction();
+        reduction.multiplication = binary;
+        reduction.inductionVariable = iv;
+        reduction.factor = factor;
+        return reduction;
+    }
+
+    private Variable createInductionVariable(Program program, Reduction reduction) {
+        InductionVariable iv = reduction.inductionVariable;
+        Variable reduced = program.createVariable();
+
+        List<Instruction> entryInstructions = iv.entry.getInstructions();
+        List<Instruction> initialization = new ArrayList<>();
+        Variable factor = constant(program, initialization, reduction.factor);
+        BinaryInstruction initialValue = new BinaryInstruction(BinaryOperation.MULTIPLY, NumericOperandType.INT);
+        initialValue.setFirstOperand(iv.initial);
+        initialValue.setSecondOperand(factor);
+        initialValue.setReceiver(program.createVariable());
+        initialization.add(initialValue);
+        Variable step = constant(program, initialization, iv.step * reduction.factor);
+        entryInstructions.addAll(entryInstructions.size() - 1, initialization);
+
+        List<Instruction> incrementInstructions = iv.increment.getBasicBlock().getInstructions();
+        BinaryInstruction nextValue = new BinaryInstruction(BinaryOperation.ADD, NumericOperandType.INT);
+        nextValue.setFirstOperand(reduced);
+        nextValue.setSecondOperand(step);
+        nextValue.setReceiver(program.createVariable());
+        nextValue.setLocation(iv.increment.getLocation());
+        incrementInstructions.add(incrementInstructions.indexOf(iv.increment) + 1, nextValue);
+
+        Phi phi = new Phi();
+        phi.setReceiver(reduced);
+        for (Incoming incoming : iv.phi.getIncomings()) {
+            Incoming reducedIncoming = new Incoming();
+            reducedIncoming.setSource(incoming.getSource());
+            reducedIncoming.setValue(reduction.loop.contains(incoming.getSource().getIndex())
+                    ? nextValue.getReceiver()
+                    : initialValue.getReceiver());
+            phi.getIncomings().add(reducedIncoming);
+        }
+        iv.phi.getBasicBlock().getPhis().add(phi);
+
+        return reduced;
+    }
+
+    private Variable constant(Program program, List<Instruction> instructions, int value) {
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setConstant(value);
+        constant.setReceiver(program.createVariable());
+        instructions.add(constant);
+        return constant.getReceiver();
+    }
+
+    static class Reduction {
+        LoopInfo loop;
+        BinaryInstruction multiplication;
+        InductionVariable inductionVariable;
+        int factor;
+    }
+}
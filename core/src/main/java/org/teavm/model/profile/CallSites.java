@@ -0,0 +1,66 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.profile;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.Program;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+
+/**
+ * <p>Names of virtual call sites, as they appear in {@link ExecutionProfile}.</p>
+ *
+ * <p>Names should be assigned right after linking, before any transformation. They stay attached to invocations
+ * when optimizations like static initializer evaluation or final class inference change the rest of the program,
+ * so instrumented and optimizing builds of the same code agree on them. Invocations created later
+ * have no name.</p>
+ */
+public class CallSites {
+    private Map<InvokeInstruction, String> names = new IdentityHashMap<>();
+
+    public void assign(MethodHolder method) {
+        Program program = method.getProgram();
+        if (program == null) {
+            return;
+        }
+        Map<MethodDescriptor, Integer> indexes = new HashMap<>();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Instruction insn : block.getInstructions()) {
+                if (!(insn instanceof InvokeInstruction)) {
+                    continue;
+                }
+                InvokeInstruction invoke = (InvokeInstruction) insn;
+                if (invoke.getType() != InvocationType.VIRTUAL) {
+                    continue;
+                }
+                MethodDescriptor callee = invoke.getMethod().getDescriptor();
+                int index = indexes.merge(callee, 1, Integer::sum) - 1;
+                names.put(invoke, ExecutionProfile.callSiteName(method.getReference(), callee, index));
+            }
+        }
+    }
+
+    public String get(InvokeInstruction invoke) {
+        return names.get(invoke);
+    }
+}
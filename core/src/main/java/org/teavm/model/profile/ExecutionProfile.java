@@ -0,0 +1,121 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.profile;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+
+/**
+ * <p>Execution statistics collected by a program built with {@link ProfileInstrumentation}: how many times
+ * each method was called and which classes were seen as receivers at each virtual call site.</p>
+ *
+ * <p>Profile is stored as text, one counter per line:</p>
+ *
+ * <pre>
+ * call &lt;method reference&gt; &lt;count&gt;
+ * receiver &lt;call site&gt; &lt;class name&gt; &lt;count&gt;
+ * </pre>
+ *
+ * <p>Unrecognized lines are ignored, so it's safe to feed the whole output of the instrumented program.
+ * Counters that occur several times are summed up, which allows to merge profiles of several runs.</p>
+ */
+public class ExecutionProfile {
+    static final String CALL = "call";
+    static final String RECEIVER = "receiver";
+    private Map<MethodReference, Long> callCounts = new HashMap<>();
+    private Map<String, Map<String, Long>> receiverCounts = new HashMap<>();
+
+    /**
+     * Builds name of a virtual call site, as it appears in a profile. Use {@link CallSites} to get names
+     * of invocations in a program.
+     *
+     * @param caller method that contains the call site.
+     * @param callee method that is called.
+     * @param index index of the call among {@code VIRTUAL} invocations of the same callee in the caller, in order
+     * of basic blocks and instructions, as they are right after linking.
+     */
+    public static String callSiteName(MethodReference caller, MethodDescriptor callee, int index) {
+        return caller + "#" + callee + "#" + index;
+    }
+
+    public boolean isEmpty() {
+        return callCounts.isEmpty() && receiverCounts.isEmpty();
+    }
+
+    public long getCallCount(MethodReference method) {
+        return callCounts.getOrDefault(method, 0L);
+    }
+
+    public void addCalls(MethodReference method, long count) {
+        callCounts.merge(method, count, Long::sum);
+    }
+
+    public Map<String, Long> getReceivers(String callSite) {
+        Map<String, Long> receivers = receiverCounts.get(callSite);
+        return receivers != null ? Collections.unmodifiableMap(receivers) : Collections.emptyMap();
+    }
+
+    public void addReceiver(String callSite, String className, long count) {
+        receiverCounts.computeIfAbsent(callSite, k -> new LinkedHashMap<>()).merge(className, count, Long::sum);
+    }
+
+    public static ExecutionProfile read(Reader reader) throws IOException {
+        ExecutionProfile profile = new ExecutionProfile();
+        BufferedReader lineReader = new BufferedReader(reader);
+        String line;
+        while ((line = lineReader.readLine()) != null) {
+            String[] parts = line.trim().split(" +");
+            try {
+                if (parts.length == 3 && parts[0].equals(CALL)) {
+                    MethodReference method = MethodReference.parseIfPossible(parts[1]);
+                    if (method != null) {
+                        profile.addCalls(method, Long.parseLong(parts[2]));
+                    }
+                } else if (parts.length == 4 && parts[0].equals(RECEIVER)) {
+                    profile.addReceiver(parts[1], parts[2], Long.parseLong(parts[3]));
+                }
+            } catch (NumberFormatException e) {
+                // Not a profile line
+            }
+        }
+        return profile;
+    }
+
+    public void write(Writer writer) throws IOException {
+        PrintWriter out = new PrintWriter(writer);
+        for (Map.Entry<MethodReference, Long> entry : callCounts.entrySet()) {
+            out.println(CALL + " " + entry.getKey() + " " + entry.getValue());
+        }
+        for (Map.Entry<String, Map<String, Long>> site : receiverCounts.entrySet()) {
+            for (Map.Entry<String, Long> entry : site.getValue().entrySet()) {
+                out.println(RECEIVER + " " + site.getKey() + " " + entry.getKey() + " " + entry.getValue());
+            }
+        }
+        out.flush();
+        if (out.checkError()) {
+            throw new IOException("Error writing execution profile");
+        }
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.profile;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import org.teavm.dependency.DependencyChecker;
+import org.teavm.dependency.MethodDependency;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassReaderSource;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.TextLocation;
+import org.teavm.model.TryCatchBlock;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+import org.teavm.model.lowlevel.ManagedMethodRepository;
+import org.teavm.model.util.BasicBlockMapper;
+import org.teavm.model.util.ProgramUtils;
+import org.teavm.runtime.ExecutionProfiler;
+
+/**
+ * <p>Instruments methods to collect {@link ExecutionProfile}. Each method counts its invocations, each virtual
+ * call site counts classes of its receivers, and entry points print collected counters to standard output
+ * before they return.</p>
+ *
+ * <p>Call sites are identified by names from {@link CallSites}, so that optimizing build finds them even
+ * if programs were changed after names had been assigned. Invocations without a name are not counted.</p>
+ */
+public class ProfileInstrumentation {
+    private static final MethodReference COUNT_METHOD = new MethodReference(ExecutionProfiler.class,
+            "count", String.class, void.class);
+    private static final MethodReference COUNT_RECEIVER_METHOD = new MethodReference(ExecutionProfiler.class,
+            "countReceiver", String.class, Object.class, void.class);
+    private static final MethodReference DUMP_METHOD = new MethodReference(ExecutionProfiler.class,
+            "dump", void.class);
+    private ManagedMethodRepository managedMethodRepository;
+    private Set<MethodReference> entryPoints;
+    private CallSites callSites;
+
+    public ProfileInstrumentation(ClassReaderSource classSource, Collection<MethodReference> entryPoints,
+            CallSites callSites) {
+        managedMethodRepository = new ManagedMethodRepository(classSource);
+        this.entryPoints = new HashSet<>(entryPoints);
+        this.callSites = callSites;
+    }
+
+    public static void contributeDependencies(DependencyChecker dependencyChecker) {
+        MethodDependency count = dependencyChecker.linkMethod(COUNT_METHOD, null);
+        count.getVariable(1).propagate(dependencyChecker.getType("java.lang.String"));
+        count.use();
+
+        MethodDependency countReceiver = dependencyChecker.linkMethod(COUNT_RECEIVER_METHOD, null);
+        countReceiver.getVariable(1).propagate(dependencyChecker.getType("java.lang.String"));
+        countReceiver.getVariable(2).propagate(dependencyChecker.getType("java.lang.Object"));
+        countReceiver.use();
+
+        dependencyChecker.linkMethod(DUMP_METHOD, null).use();
+    }
+
+    public void apply(MethodHolder method) {
+        Program program = method.getProgram();
+        MethodReference methodRef = method.getReference();
+        if (program == null || program.basicBlockCount() == 0
+                || methodRef.getClassName().equals(ExecutionProfiler.class.getName())
+                || !managedMethodRepository.isManaged(methodRef)) {
+            return;
+        }
+
+        boolean entryPoint = entryPoints.contains(methodRef);
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            List<Instruction> instructions = new ArrayList<>();
+            for (Instruction insn : block.getInstructions()) {
+                if (insn instanceof InvokeInstruction) {
+                    String callSite = callSites.get((InvokeInstruction) insn);
+                    if (callSite != null) {
+                        Variable callSiteVar = emitString(program, instructions, callSite, insn.getLocation());
+                        emitCall(instructions, COUNT_RECEIVER_METHOD, insn.getLocation(), callSiteVar,
+                                ((InvokeInstruction) insn).getInstance());
+                    }
+                } else if (insn instanceof ExitInstruction && entryPoint) {
+                    emitCall(instructions, DUMP_METHOD, insn.getLocation());
+                }
+                instructions.add(insn);
+            }
+            block.getInstructions().clear();
+            block.getInstructions().addAll(instructions);
+        }
+
+        List<Instruction> prologue = new ArrayList<>();
+        Variable key = emitString(program, prologue, ExecutionProfile.CALL + " " + methodRef, null);
+        emitCall(prologue, COUNT_METHOD, null, key);
+        getEntryBlock(program).getInstructions().addAll(0, prologue);
+    }
+
+    /*
+     * Entry block may be a loop header as well. Counter put there would count loop iterations as calls,
+     * so in this case the body of the entry block is moved to a new block, which becomes the loop header.
+     */
+    private BasicBlock getEntryBlock(Program program) {
+        BasicBlock entry = program.basicBlockAt(0);
+        if (ProgramUtils.buildControlFlowGraph(program).incomingEdgesCount(0) == 0) {
+            return entry;
+        }
+
+        BasicBlock header = program.createBasicBlock();
+        List<Instruction> instructions = new ArrayList<>(entry.getInstructions());
+        entry.getInstructions().clear();
+        header.getInstructions().addAll(instructions);
+        List<Phi> phis = new ArrayList<>(entry.getPhis());
+        entry.getPhis().clear();
+        header.getPhis().addAll(phis);
+        List<TryCatchBlock> tryCatches = new ArrayList<>(entry.getTryCatchBlocks());
+        entry.getTryCatchBlocks().clear();
+        header.getTryCatchBlocks().addAll(tryCatches);
+        header.setExceptionVariable(entry.getExceptionVariable());
+        entry.setExceptionVariable(null);
+
+        int headerIndex = header.getIndex();
+        new BasicBlockMapper(index -> index == 0 ? headerIndex : index).transform(program);
+
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(header);
+        entry.getInstructions().add(jump);
+        return entry;
+    }
+
+    private Variable emitString(Program program, List<Instruction> instructions, String value,
+            TextLocation location) {
+        StringConstantInstruction constant = new StringConstantInstruction();
+        constant.setConstant(value);
+        constant.setReceiver(program.createVariable());
+        constant.setLocation(location);
+        instructions.add(constant);
+        return constant.getReceiver();
+    }
+
+    private void emitCall(List<Instruction> instructions, MethodReference method, TextLocation location,
+            Variable... arguments) {
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(InvocationType.SPECIAL);
+        invoke.setMethod(method);
+        for (Variable argument : arguments) {
+            invoke.getArguments().add(argument);
+        }
+        invoke.setLocation(location);
+        instructions.add(invoke);
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+
+/**
+ * <p>Splits basic blocks, so that new control flow can be inserted in the middle of a block, for example
+ * a check that either continues execution or throws an exception.</p>
+ *
+ * <p>Once all blocks are split, {@link #fixProgram()} must be called. It makes phis that had incomings from
+ * a split block take them from the part that ends with the original terminating instruction. Phis that refer
+ * to new blocks should be added after that.</p>
+ */
+public class BasicBlockSplitter {
+    private Program program;
+    private int[] originals;
+    private int[] lastParts;
+
+    public BasicBlockSplitter(Program program) {
+        this.program = program;
+        originals = new int[program.basicBlockCount()];
+        lastParts = new int[program.basicBlockCount()];
+        for (int i = 0; i < originals.length; ++i) {
+            originals[i] = i;
+            lastParts[i] = i;
+        }
+    }
+
+    /**
+     * Moves the given instruction and all subsequent instructions of its block to a new block, protected by
+     * the same try/catch blocks. The original block is left without terminating instruction, it's up
+     * to the caller to add one.
+     *
+     * @return the new block, which starts with the given instruction.
+     */
+    public BasicBlock split(Instruction instruction) {
+        BasicBlock block = instruction.getBasicBlock();
+        List<Instruction> instructions = block.getInstructions();
+        List<Instruction> instructionsToMove = instructions.subList(instructions.indexOf(instruction),
+                instructions.size());
+        List<Instruction> instructionsToMoveCopy = new ArrayList<>(instructionsToMove);
+        instructionsToMove.clear();
+
+        BasicBlock continueBlock = createBasicBlock(block);
+        continueBlock.getInstructions().addAll(instructionsToMoveCopy);
+
+        int original = originals[block.getIndex()];
+        originals[continueBlock.getIndex()] = original;
+        if (lastParts[original] == block.getIndex()) {
+            lastParts[original] = continueBlock.getIndex();
+        }
+        return continueBlock;
+    }
+
+    /**
+     * Creates an empty block protected by the same try/catch blocks as the given one.
+     */
+    public BasicBlock createBasicBlock(BasicBlock like) {
+        BasicBlock block = program.createBasicBlock();
+        block.getTryCatchBlocks().addAll(ProgramUtils.copyTryCatches(like, program));
+        int index = block.getIndex();
+        if (index >= originals.length) {
+            int capacity = Math.max(index + 1, originals.length * 2);
+            originals = Arrays.copyOf(originals, capacity);
+            lastParts = Arrays.copyOf(lastParts, capacity);
+        }
+        originals[index] = index;
+        lastParts[index] = index;
+        return block;
+    }
+
+    public void fixProgram() {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Phi phi : program.basicBlockAt(i).getPhis()) {
+                for (Incoming incoming : phi.getIncomings()) {
+                    int source = incoming.getSource().getIndex();
+                    incoming.setSource(program.basicBlockAt(lastParts[source]));
+                }
+            }
+        }
+    }
+}
@@ -18,6 +18,7 @@ package org.teavm.model.util;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.function.BiConsumer;
 import org.teavm.common.Graph;
 import org.teavm.common.GraphBuilder;
 import org.teavm.model.BasicBlock;
@@ -193,4 +194,39 @@ public final class ProgramUtils {
         }
         return places;
     }
+
+    public static int[] getUseCounts(Program program) {
+        int[] useCounts = new int[program.variableCount()];
+        forEachUse(program, (insn, var) -> useCounts[var.getIndex()]++);
+        return useCounts;
+    }
+
+    /**
+     * Reports every use of every variable: arguments of instructions, inputs of phis and sources of try/catch
+     * joints. Instruction is {@code null} for the latter two.
+     */
+    public static void forEachUse(Program program, BiConsumer<Instruction, Variable> consumer) {
+        UsageExtractor usageExtractor = new UsageExtractor();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            for (Phi phi : block.getPhis()) {
+                for (Incoming incoming : phi.getIncomings()) {
+                    consumer.accept(null, incoming.getValue());
+                }
+            }
+            for (Instruction insn : block.getInstructions()) {
+                insn.acceptVisitor(usageExtractor);
+                for (Variable var : usageExtractor.getUsedVariables()) {
+                    consumer.accept(insn, var);
+                }
+            }
+            for (TryCatchBlock tryCatch : block.getTryCatchBlocks()) {
+                for (TryCatchJoint joint : tryCatch.getJoints()) {
+                    for (Variable var : joint.getSourceVariables()) {
+                        consumer.accept(null, var);
+                    }
+                }
+            }
+        }
+    }
 }
@@ -158,7 +158,16 @@ public class ClasspathResourceMapper implements Mapper<String, ClassHolder>, Cla
                 }
             }
         }
-        return getOriginalModificationDate(className);
+        Date date = getOriginalModificationDate(className);
+        if (date == null) {
+            // Lambda implementations generated during build have no class files, they are named
+            // after the class they are generated from, which may contain "$$" itself (e.g. Scala's Foo$$anonfun$1)
+            int generatedIndex = className.lastIndexOf("$$Lambda$");
+            if (generatedIndex > 0) {
+                return getModificationDate(className.substring(0, generatedIndex));
+            }
+        }
+        return date;
     }
 
     private Date getOriginalModificationDate(String className) {
@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.runtime;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects counters in programs built with profile instrumentation. Profiler itself runs instrumented
+ * code (strings, maps, output), so it ignores events produced while it's busy.
+ */
+public final class ExecutionProfiler {
+    private static Map<String, long[]> counters;
+    private static boolean busy;
+
+    private ExecutionProfiler() {
+    }
+
+    public static void count(String key) {
+        if (busy) {
+            return;
+        }
+        busy = true;
+        try {
+            increment(key);
+        } finally {
+            busy = false;
+        }
+    }
+
+    public static void countReceiver(String callSite, Object receiver) {
+        if (busy || receiver == null) {
+            return;
+        }
+        busy = true;
+        try {
+            increment("receiver " + callSite + " " + receiver.getClass().getName());
+        } finally {
+            busy = false;
+        }
+    }
+
+    private static void increment(String key) {
+        if (counters == null) {
+            counters = new HashMap<>();
+        }
+        long[] counter = counters.get(key);
+        if (counter == null) {
+            counter = new long[1];
+            counters.put(key, counter);
+        }
+        counter[0]++;
+    }
+
+    /**
+     * Prints collected counters to standard output and resets them.
+     */
+    public static void dump() {
+        if (busy || counters == null) {
+            return;
+        }
+        busy = true;
+        try {
+            for (Map.Entry<String, long[]> entry : counters.entrySet()) {
+                System.out.println(entry.getKey() + " " + entry.getValue()[0]);
+            }
+            counters = null;
+        } finally {
+            busy = false;
+        }
+    }
+}
@@ -31,6 +31,7 @@ public final class GC {
     static FreeChunkHolder currentChunkPointer;
     static int freeChunks;
     static int freeMemory = (int) availableBytes();
+    static RuntimeObject firstWeakReference;
 
     static native Address gcStorageAddress();
 
@@ -46,6 +47,16 @@ public final class GC {
 
     private static native int regionSize();
 
+    private static native int weakReferenceValueOffset();
+
+    private static native int weakReferenceGcNextOffset();
+
+    private static native int referenceQueueOffset();
+
+    private static native int referenceNextOffset();
+
+    private static native int referenceQueueHeadOffset();
+
     public static int getFreeMemory() {
         return freeMemory;
     }
@@ -109,6 +120,7 @@ public final class GC {
 
     public static boolean collectGarbage(int size) {
         mark();
+        processWeakReferences();
         sweep();
         updateFreeMemory();
         return true;
@@ -116,6 +128,7 @@ public final class GC {
 
     private static void mark() {
         Allocator.fillZero(regionsAddress().toAddress(), regionMaxCount() * Structure.sizeOf(Region.class));
+        firstWeakReference = null;
 
         Address staticRoots = Mutator.getStaticGCRoots();
         int staticCount = staticRoots.getInt();
@@ -162,6 +175,11 @@ public final class GC {
             }
 
             RuntimeClass cls = RuntimeClass.getClass(object);
+            if ((cls.flags & RuntimeClass.WEAK_REFERENCE) != 0) {
+                object.toAddress().add(weakReferenceGcNextOffset()).putAddress(firstWeakReference != null
+                        ? firstWeakReference.toAddress() : null);
+                firstWeakReference = object;
+            }
             if (cls.itemType == null) {
                 while (cls != null) {
                     Address layout = cls.layout;
@@ -194,6 +212,44 @@ public final class GC {
         }
     }
 
+    /*
+     * Referents of weak references are not traced by mark phase. Instead, mark phase links every marked weak
+     * reference into a list through a field that is not traced either. Here we walk this list, clear weak
+     * references whose referents were not marked and append them to their queues. Queues are reachable from
+     * the references, so they are marked as well. References are linked exactly as TReferenceQueue does.
+     */
+    private static void processWeakReferences() {
+        RuntimeObject reference = firstWeakReference;
+        firstWeakReference = null;
+        while (reference != null) {
+            Address nextPtr = reference.toAddress().add(weakReferenceGcNextOffset());
+            RuntimeObject next = nextPtr.getAddress().toStructure();
+            nextPtr.putAddress(null);
+            processWeakReference(reference);
+            reference = next;
+        }
+    }
+
+    private static void processWeakReference(RuntimeObject reference) {
+        Address valuePtr = reference.toAddress().add(weakReferenceValueOffset());
+        RuntimeObject value = valuePtr.getAddress().toStructure();
+        if (value == null || isMarked(value)) {
+            return;
+        }
+        valuePtr.putAddress(null);
+
+        Address queuePtr = reference.toAddress().add(referenceQueueOffset());
+        RuntimeObject queue = queuePtr.getAddress().toStructure();
+        if (queue == null) {
+            return;
+        }
+        queuePtr.putAddress(null);
+        Address headPtr = queue.toAddress().add(referenceQueueHeadOffset());
+        Address head = headPtr.getAddress();
+        reference.toAddress().add(referenceNextOffset()).putAddress(head != null ? head : reference.toAddress());
+        headPtr.putAddress(reference.toAddress());
+    }
+
     private static void sweep() {
         FreeChunkHolder freeChunkPtr = gcStorageAddress().toStructure();
         freeChunks = 0;
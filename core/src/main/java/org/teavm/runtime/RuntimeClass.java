@@ -21,6 +21,7 @@ import org.teavm.interop.Unmanaged;
 public class RuntimeClass extends RuntimeJavaObject {
     public static final int INITIALIZED = 1;
     public static final int PRIMITIVE = 2;
+    public static final int WEAK_REFERENCE = 4;
 
     public int size;
     public int flags;
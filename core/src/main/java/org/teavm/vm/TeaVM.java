@@ -50,17 +50,28 @@ import org.teavm.model.MutableClassHolderSource;
 import org.teavm.model.Program;
 import org.teavm.model.ProgramCache;
 import org.teavm.model.optimization.ArrayUnwrapMotion;
+import org.teavm.model.optimization.BoxingElimination;
 import org.teavm.model.optimization.ClassInitElimination;
 import org.teavm.model.optimization.ConstantConditionElimination;
 import org.teavm.model.optimization.Devirtualization;
+import org.teavm.model.optimization.FieldOptimization;
+import org.teavm.model.optimization.FinalInference;
 import org.teavm.model.optimization.GlobalValueNumbering;
+import org.teavm.model.optimization.InductionVariableSimplification;
 import org.teavm.model.optimization.Inlining;
 import org.teavm.model.optimization.LoopInvariantMotion;
 import org.teavm.model.optimization.LoopInversion;
+import org.teavm.model.optimization.LoopUnrolling;
 import org.teavm.model.optimization.MethodOptimization;
 import org.teavm.model.optimization.RedundantJumpElimination;
+import org.teavm.model.optimization.ScalarReplacement;
+import org.teavm.model.optimization.StaticInitializerEvaluation;
+import org.teavm.model.optimization.StrengthReduction;
 import org.teavm.model.optimization.UnreachableBasicBlockElimination;
 import org.teavm.model.optimization.UnusedVariableElimination;
+import org.teavm.model.profile.CallSites;
+import org.teavm.model.profile.ExecutionProfile;
+import org.teavm.model.profile.ProfileInstrumentation;
 import org.teavm.model.util.ListingBuilder;
 import org.teavm.model.util.MissingItemsProcessor;
 import org.teavm.model.util.ModelUtils;
@@ -100,6 +111,7 @@ import org.teavm.vm.spi.TeaVMPlugin;
  * @author Alexey Andreev
  */
 public class TeaVM implements TeaVMHost, ServiceRepository {
+    private static final int MAX_INLINING_CODE_GROWTH = 100;
     private final ClassReaderSource classSource;
     private final DependencyChecker dependencyChecker;
     private final AccumulationDiagnostics diagnostics = new AccumulationDiagnostics();
@@ -113,6 +125,8 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
     private ProgramCache programCache;
     private boolean incremental;
     private TeaVMOptimizationLevel optimizationLevel = TeaVMOptimizationLevel.SIMPLE;
+    private boolean profileInstrumented;
+    private ExecutionProfile profile;
     private TeaVMProgressListener progressListener;
     private boolean cancelled;
     private ListableClassHolderSource writtenClasses;
@@ -210,6 +224,30 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         this.optimizationLevel = optimizationLevel;
     }
 
+    public boolean isProfileInstrumented() {
+        return profileInstrumented;
+    }
+
+    /**
+     * Makes generated program collect {@link ExecutionProfile}. Profile is printed to standard output when
+     * an entry point returns.
+     */
+    public void setProfileInstrumented(boolean profileInstrumented) {
+        this.profileInstrumented = profileInstrumented;
+    }
+
+    public ExecutionProfile getProfile() {
+        return profile;
+    }
+
+    /**
+     * Specifies execution profile, collected by instrumented build of the same program, to guide
+     * devirtualization and inlining.
+     */
+    public void setProfile(ExecutionProfile profile) {
+        this.profile = profile;
+    }
+
     public TeaVMProgressListener getProgressListener() {
         return progressListener;
     }
@@ -342,6 +380,9 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
 
         dependencyChecker.setInterruptor(() -> progressListener.progressReached(0) == TeaVMProgressFeedback.CONTINUE);
         target.contributeDependencies(dependencyChecker);
+        if (profileInstrumented) {
+            ProfileInstrumentation.contributeDependencies(dependencyChecker);
+        }
         dependencyChecker.processDependencies();
         if (wasCancelled() || !diagnostics.getSevereProblems().isEmpty()) {
             return;
@@ -358,11 +399,21 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             return;
         }
 
+        CallSites callSites = null;
+        if (profileInstrumented || profile != null) {
+            callSites = assignCallSites(classSet);
+        }
+        if (profileInstrumented) {
+            instrumentProfile(classSet, callSites);
+        }
+
         // Optimize and allocate registers
         reportPhase(TeaVMPhase.OPTIMIZATION, 1);
 
         if (!incremental) {
-            devirtualize(classSet, dependencyChecker);
+            evaluateStaticInitializers(classSet);
+            optimizeClassesAndFields(classSet);
+            devirtualize(classSet, dependencyChecker, callSites);
             if (wasCancelled()) {
                 return;
             }
@@ -416,11 +467,57 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         }
     }
 
-    private void devirtualize(ListableClassHolderSource classes, DependencyInfo dependency) {
+    private void evaluateStaticInitializers(ListableClassHolderSource classes) {
+        StaticInitializerEvaluation evaluation = new StaticInitializerEvaluation(classes, classLoader);
+        boolean changed;
+        do {
+            changed = false;
+            for (String className : classes.getClassNames()) {
+                if (evaluation.apply(classes.get(className))) {
+                    changed = true;
+                }
+            }
+        } while (changed && !wasCancelled());
+    }
+
+    private void optimizeClassesAndFields(ListableClassHolderSource classes) {
+        if (optimizationLevel == TeaVMOptimizationLevel.SIMPLE || wasCancelled()) {
+            return;
+        }
+        new FieldOptimization(classes).apply();
+        new FinalInference(classes).apply();
+    }
+
+    private CallSites assignCallSites(ListableClassHolderSource classes) {
+        CallSites callSites = new CallSites();
+        for (String className : classes.getClassNames()) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                callSites.assign(method);
+            }
+        }
+        return callSites;
+    }
+
+    private void instrumentProfile(ListableClassHolderSource classes, CallSites callSites) {
+        List<MethodReference> entryPointMethods = new ArrayList<>();
+        for (TeaVMEntryPoint entryPoint : entryPoints.values()) {
+            entryPointMethods.add(entryPoint.getReference());
+        }
+        ProfileInstrumentation instrumentation = new ProfileInstrumentation(classes, entryPointMethods, callSites);
+        for (String className : classes.getClassNames()) {
+            ClassHolder cls = classes.get(className);
+            for (MethodHolder method : cls.getMethods()) {
+                instrumentation.apply(method);
+            }
+        }
+    }
+
+    private void devirtualize(ListableClassHolderSource classes, DependencyInfo dependency, CallSites callSites) {
         if (wasCancelled()) {
             return;
         }
-        Devirtualization devirtualization = new Devirtualization(dependency, classes);
+        Devirtualization devirtualization = new Devirtualization(dependency, classes, profile, callSites);
+        devirtualization.setTypeSwitchEnabled(optimizationLevel != TeaVMOptimizationLevel.SIMPLE);
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
             for (final MethodHolder method : cls.getMethods()) {
@@ -438,12 +535,14 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
         if (optimizationLevel != TeaVMOptimizationLevel.FULL) {
             return;
         }
-        Inlining inlining = new Inlining();
+        Inlining inlining = new Inlining(profile);
+        inlining.limitCodeGrowth(classes, MAX_INLINING_CODE_GROWTH);
         for (String className : classes.getClassNames()) {
             ClassHolder cls = classes.get(className);
             for (MethodHolder method : cls.getMethods()) {
                 if (method.getProgram() != null) {
                     inlining.apply(method.getProgram(), classes);
+                    new ScalarReplacement().optimize(method, method.getProgram());
                     new UnusedVariableElimination().optimize(method, method.getProgram());
                 }
             }
@@ -513,10 +612,16 @@ public class TeaVM implements TeaVMHost, ServiceRepository {
             optimizations.add(new LoopInversion());
             optimizations.add(new LoopInvariantMotion());
         }
+        if (optimizationLevel == TeaVMOptimizationLevel.FULL) {
+            optimizations.add(new InductionVariableSimplification());
+            optimizations.add(new StrengthReduction());
+            optimizations.add(new LoopUnrolling());
+        }
         optimizations.add(new GlobalValueNumbering(optimizationLevel == TeaVMOptimizationLevel.SIMPLE));
         if (optimizationLevel.ordinal() >= TeaVMOptimizationLevel.ADVANCED.ordinal()) {
             optimizations.add(new ConstantConditionElimination());
             optimizations.add(new RedundantJumpElimination());
+            optimizations.add(new BoxingElimination());
             optimizations.add(new UnusedVariableElimination());
         }
         optimizations.add(new ClassInitElimination());
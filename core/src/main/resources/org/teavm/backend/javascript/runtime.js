@@ -118,6 +118,18 @@ if (typeof 'ArrayBuffer' !== 'undefined') {
     $rt_createDoubleArray = function(sz) { return $rt_createNumericArray($rt_doublecls(), sz); };
     $rt_createCharArray = function(sz) { return $rt_createNumericArray($rt_charcls(), sz); }
 }
+function $rt_arrayData(array) {
+    return array !== null ? array.data : null;
+}
+function $rt_wrapTypedArray(cls, type, data) {
+    if (data === null || data === void 0) {
+        return null;
+    }
+    if (!(data instanceof type)) {
+        data = new type(data);
+    }
+    return $rt_createNumericArray(cls, data);
+}
 function $rt_arraycls(cls) {
     var result = cls.$array;
     if (result === null) {
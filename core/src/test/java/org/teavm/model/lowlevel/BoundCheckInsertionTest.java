@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.lowlevel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.teavm.common.Graph;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.TryCatchBlock;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ArrayElementType;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.GetElementInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.RaiseInstruction;
+import org.teavm.model.instructions.UnwrapArrayInstruction;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Transforms program of a method {@code int test(int[] array, int index)} that reads
+ * {@code array[index]} twice in block 0 and passes the first value to a phi in block 1.
+ * Block 0 is protected by try/catch block with handler in block 2.</p>
+ */
+public class BoundCheckInsertionTest {
+    private Program program;
+    private List<GetElementInstruction> accesses = new ArrayList<>();
+    private Phi phi;
+
+    @Test
+    public void guardsEachAccess() {
+        createProgram();
+        new BoundCheckInsertion().transform(program);
+
+        assertEquals("Each access must get a continuation, upper check and throw block",
+                3 + 2 * 3, program.basicBlockCount());
+        Graph cfg = ProgramUtils.buildControlFlowGraph(program);
+        int raiseCount = 0;
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            BasicBlock block = program.basicBlockAt(i);
+            Instruction last = block.getInstructions().get(block.getInstructions().size() - 1);
+            assertTrue("Block " + i + " must end with terminating instruction", last instanceof JumpInstruction
+                    || last instanceof BranchingInstruction || last instanceof ExitInstruction
+                    || last instanceof RaiseInstruction);
+            if (last instanceof RaiseInstruction) {
+                ++raiseCount;
+            }
+            if (i != 1 && i != 2) {
+                assertEquals("Block " + i + " must be protected", 1, block.getTryCatchBlocks().size());
+            }
+        }
+        assertEquals(2, raiseCount);
+
+        for (GetElementInstruction access : accesses) {
+            BasicBlock block = access.getBasicBlock();
+            assertSame("Access must start its block", access, block.getInstructions().get(0));
+            int[] predecessors = cfg.incomingEdges(block.getIndex());
+            assertEquals(1, predecessors.length);
+            List<Instruction> checkInstructions = program.basicBlockAt(predecessors[0]).getInstructions();
+            BranchingInstruction upperCheck = (BranchingInstruction) checkInstructions.get(
+                    checkInstructions.size() - 1);
+            assertEquals(BranchingCondition.GREATER_OR_EQUAL, upperCheck.getCondition());
+        }
+    }
+
+    @Test
+    public void redirectsPhiToLastPart() {
+        createProgram();
+        new BoundCheckInsertion().transform(program);
+
+        BasicBlock source = phi.getIncomings().get(0).getSource();
+        assertSame(accesses.get(1).getBasicBlock(), source);
+        List<Instruction> instructions = source.getInstructions();
+        JumpInstruction jump = (JumpInstruction) instructions.get(instructions.size() - 1);
+        assertSame(phi.getBasicBlock(), jump.getTarget());
+    }
+
+    @Test
+    public void keepsProgramWithoutAccesses() {
+        program = new Program();
+        program.createVariable();
+        BasicBlock block = program.createBasicBlock();
+        block.getInstructions().add(new ExitInstruction());
+
+        new BoundCheckInsertion().transform(program);
+        assertEquals(1, program.basicBlockCount());
+    }
+
+    private void createProgram() {
+        program = new Program();
+        program.createVariable();
+        Variable array = program.createVariable();
+        Variable index = program.createVariable();
+        BasicBlock block = program.createBasicBlock();
+        BasicBlock join = program.createBasicBlock();
+        BasicBlock handler = program.createBasicBlock();
+
+        UnwrapArrayInstruction unwrap = new UnwrapArrayInstruction(ArrayElementType.INT);
+        unwrap.setArray(array);
+        unwrap.setReceiver(program.createVariable());
+        block.getInstructions().add(unwrap);
+
+        accesses.clear();
+        for (int i = 0; i < 2; ++i) {
+            GetElementInstruction access = new GetElementInstruction(ArrayElementType.INT);
+            access.setArray(unwrap.getReceiver());
+            access.setIndex(index);
+            access.setReceiver(program.createVariable());
+            block.getInstructions().add(access);
+            accesses.add(access);
+        }
+
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(join);
+        block.getInstructions().add(jump);
+
+        TryCatchBlock tryCatch = new TryCatchBlock();
+        tryCatch.setHandler(handler);
+        block.getTryCatchBlocks().add(tryCatch);
+
+        phi = new Phi();
+        phi.setReceiver(program.createVariable());
+        Incoming incoming = new Incoming();
+        incoming.setSource(block);
+        incoming.setValue(accesses.get(0).getReceiver());
+        phi.getIncomings().add(incoming);
+        join.getPhis().add(phi);
+
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(phi.getReceiver());
+        join.getInstructions().add(exit);
+        handler.getInstructions().add(new ExitInstruction());
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.lowlevel;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.util.List;
+import org.junit.Test;
+import org.teavm.common.Graph;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.CastInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IsInstanceInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.RaiseInstruction;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Transforms program of a method {@code Object test(Object value)} that casts {@code value} in block 0
+ * and passes the result to a phi in block 1.</p>
+ */
+public class CastCheckInsertionTest {
+    private static final String FOO = "test.Foo";
+    private MutableClassHolderSource classSource = new MutableClassHolderSource();
+    private MethodHolder method;
+    private CastInstruction cast;
+    private Phi phi;
+
+    public CastCheckInsertionTest() {
+        ClassHolder object = new ClassHolder("java.lang.Object");
+        object.setParent(null);
+        classSource.putClassHolder(object);
+        ClassHolder foo = new ClassHolder(FOO);
+        foo.setParent("java.lang.Object");
+        classSource.putClassHolder(foo);
+    }
+
+    @Test
+    public void guardsCast() {
+        createMethod(ValueType.object(FOO));
+        Program program = method.getProgram();
+        new CastCheckInsertion(classSource).apply(program, method);
+
+        assertEquals("Cast must get a continuation, type check and throw block", 5, program.basicBlockCount());
+        BasicBlock block = cast.getBasicBlock();
+        assertSame("Cast must start its block", cast, block.getInstructions().get(0));
+        Graph cfg = ProgramUtils.buildControlFlowGraph(program);
+        int[] predecessors = cfg.incomingEdges(block.getIndex());
+        assertEquals("Cast is reached from null check and from type check", 2, predecessors.length);
+
+        BranchingInstruction nullCheck = (BranchingInstruction) lastInstruction(program.basicBlockAt(0));
+        assertEquals(BranchingCondition.NULL, nullCheck.getCondition());
+        assertSame(block, nullCheck.getConsequent());
+        BasicBlock checkBlock = nullCheck.getAlternative();
+        assertTrue(checkBlock.getInstructions().get(0) instanceof IsInstanceInstruction);
+        BranchingInstruction typeCheck = (BranchingInstruction) lastInstruction(checkBlock);
+        assertSame(block, typeCheck.getAlternative());
+        assertTrue(lastInstruction(typeCheck.getConsequent()) instanceof RaiseInstruction);
+
+        assertSame("Phi must take value from the block that jumps to it", block,
+                phi.getIncomings().get(0).getSource());
+    }
+
+    @Test
+    public void keepsCastToObject() {
+        createMethod(ValueType.object("java.lang.Object"));
+        Program program = method.getProgram();
+        new CastCheckInsertion(classSource).apply(program, method);
+
+        assertEquals(2, program.basicBlockCount());
+        assertSame(program.basicBlockAt(0), phi.getIncomings().get(0).getSource());
+    }
+
+    private void createMethod(ValueType targetType) {
+        Program program = new Program();
+        program.createVariable();
+        BasicBlock block = program.createBasicBlock();
+        BasicBlock join = program.createBasicBlock();
+
+        cast = new CastInstruction();
+        cast.setValue(program.createVariable());
+        cast.setTargetType(targetType);
+        cast.setReceiver(program.createVariable());
+        block.getInstructions().add(cast);
+
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(join);
+        block.getInstructions().add(jump);
+
+        phi = new Phi();
+        phi.setReceiver(program.createVariable());
+        Incoming incoming = new Incoming();
+        incoming.setSource(block);
+        incoming.setValue(cast.getReceiver());
+        phi.getIncomings().add(incoming);
+        join.getPhis().add(phi);
+
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(phi.getReceiver());
+        join.getInstructions().add(exit);
+
+        ClassHolder cls = new ClassHolder("test.Test");
+        method = new MethodHolder("test", ValueType.object("java.lang.Object"),
+                ValueType.object("java.lang.Object"));
+        method.setProgram(program);
+        cls.addMethod(method);
+    }
+
+    private static Instruction lastInstruction(BasicBlock block) {
+        List<Instruction> instructions = block.getInstructions();
+        return instructions.get(instructions.size() - 1);
+    }
+}
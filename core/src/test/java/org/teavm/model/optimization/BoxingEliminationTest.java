@@ -0,0 +1,138 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.util.ListingBuilder;
+
+/**
+ * <p>Builds programs of a method {@code Object test(int n)}, where variable 1 holds {@code n}, that box
+ * one of two constants depending on {@code n} and merge boxed values with a phi.</p>
+ */
+public class BoxingEliminationTest {
+    private static final MethodHolder METHOD = new MethodHolder("test", ValueType.INTEGER,
+            ValueType.object("java.lang.Object"));
+    private static final MethodReference VALUE_OF = new MethodReference(Integer.class, "valueOf", int.class,
+            Integer.class);
+    private static final MethodReference INT_VALUE = new MethodReference(Integer.class, "intValue", int.class);
+    private Program program;
+
+    @Test
+    public void replacesUnboxingOfPhi() {
+        Variable boxed = createProgram();
+        Variable unboxed = unbox(boxed);
+        exit(unboxed);
+
+        assertTrue(new BoxingElimination().optimize(METHOD, program));
+        String listing = new ListingBuilder().buildListing(program, "");
+        assertFalse("Unboxing must be eliminated:\n" + listing, listing.contains("intValue"));
+        assertFalse("Boxing must be eliminated:\n" + listing, listing.contains("valueOf"));
+        assertEquals("Boxed phi must be replaced by primitive one", 1, program.basicBlockAt(3).getPhis().size());
+    }
+
+    @Test
+    public void keepsProgramWithoutUnboxing() {
+        Variable boxed = createProgram();
+        exit(boxed);
+        int variableCount = program.variableCount();
+        String listing = new ListingBuilder().buildListing(program, "");
+
+        assertFalse(new BoxingElimination().optimize(METHOD, program));
+        assertEquals(variableCount, program.variableCount());
+        assertEquals(1, program.basicBlockAt(3).getPhis().size());
+        assertEquals(listing, new ListingBuilder().buildListing(program, ""));
+    }
+
+    private Variable createProgram() {
+        program = new Program();
+        program.createVariable();
+        Variable n = program.createVariable();
+        BasicBlock entry = program.createBasicBlock();
+        BasicBlock first = program.createBasicBlock();
+        BasicBlock second = program.createBasicBlock();
+        BasicBlock join = program.createBasicBlock();
+
+        BranchingInstruction branching = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+        branching.setOperand(n);
+        branching.setConsequent(first);
+        branching.setAlternative(second);
+        entry.getInstructions().add(branching);
+
+        Phi phi = new Phi();
+        phi.setReceiver(program.createVariable());
+        join.getPhis().add(phi);
+        box(first, 23, join, phi);
+        box(second, 42, join, phi);
+        return phi.getReceiver();
+    }
+
+    private void box(BasicBlock block, int value, BasicBlock join, Phi phi) {
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setConstant(value);
+        constant.setReceiver(program.createVariable());
+        block.getInstructions().add(constant);
+
+        InvokeInstruction valueOf = new InvokeInstruction();
+        valueOf.setType(InvocationType.SPECIAL);
+        valueOf.setMethod(VALUE_OF);
+        valueOf.getArguments().add(constant.getReceiver());
+        valueOf.setReceiver(program.createVariable());
+        block.getInstructions().add(valueOf);
+
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(join);
+        block.getInstructions().add(jump);
+
+        Incoming incoming = new Incoming();
+        incoming.setSource(block);
+        incoming.setValue(valueOf.getReceiver());
+        phi.getIncomings().add(incoming);
+    }
+
+    private Variable unbox(Variable boxed) {
+        InvokeInstruction intValue = new InvokeInstruction();
+        intValue.setType(InvocationType.VIRTUAL);
+        intValue.setMethod(INT_VALUE);
+        intValue.setInstance(boxed);
+        intValue.setReceiver(program.createVariable());
+        program.basicBlockAt(3).getInstructions().add(intValue);
+        return intValue.getReceiver();
+    }
+
+    private void exit(Variable value) {
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(value);
+        program.basicBlockAt(3).getInstructions().add(exit);
+    }
+}
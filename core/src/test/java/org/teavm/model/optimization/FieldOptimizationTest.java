@@ -0,0 +1,208 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldHolder;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.InitClassInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+
+/**
+ * <p>Optimizes fields of class {@code test.Foo}, which are accessed by methods of {@code test.Foo} itself and
+ * by static method {@code test.Bar.run()}.</p>
+ */
+public class FieldOptimizationTest {
+    private static final String FOO = "test.Foo";
+    private static final String BAR = "test.Bar";
+    private MutableClassHolderSource classes = new MutableClassHolderSource();
+    private ClassHolder foo = new ClassHolder(FOO);
+    private ClassHolder bar = new ClassHolder(BAR);
+
+    public FieldOptimizationTest() {
+        ClassHolder object = new ClassHolder("java.lang.Object");
+        object.setParent(null);
+        classes.putClassHolder(object);
+        classes.putClassHolder(foo);
+        classes.putClassHolder(bar);
+    }
+
+    @Test
+    public void removesWriteOnlyFields() {
+        addField("count", false);
+        addField("total", true);
+        Program update = addMethod(foo, "update", false);
+        putField(update, update.variableAt(0), "count", update.variableAt(1));
+        Program run = addMethod(bar, "run", true);
+        putField(run, null, "total", run.variableAt(1));
+
+        new FieldOptimization(classes).apply();
+
+        assertNull(foo.getField("count"));
+        assertNull(foo.getField("total"));
+        assertNull(find(update, PutFieldInstruction.class));
+        assertNull(find(run, PutFieldInstruction.class));
+        InitClassInstruction initClass = find(run, InitClassInstruction.class);
+        assertNotNull("Write to static field of other class must still initialize the class", initClass);
+        assertEquals(FOO, initClass.getClassName());
+    }
+
+    @Test
+    public void foldsFieldWrittenWithDefaultValue() {
+        addField("value", false);
+        Program constructor = addMethod(foo, "<init>", false);
+        putField(constructor, constructor.variableAt(0), "value", constant(constructor, 0));
+        Program get = addMethod(foo, "get", false);
+        getField(get, "value");
+
+        new FieldOptimization(classes).apply();
+
+        assertNull(find(get, GetFieldInstruction.class));
+        assertNotNull(find(get, IntegerConstantInstruction.class));
+        assertNull(foo.getField("value"));
+    }
+
+    @Test
+    public void keepsFieldWrittenWithOtherConstant() {
+        addField("value", false);
+        Program constructor = addMethod(foo, "<init>", false);
+        putField(constructor, constructor.variableAt(0), "value", constant(constructor, 5));
+        Program get = addMethod(foo, "get", false);
+        getField(get, "value");
+
+        new FieldOptimization(classes).apply();
+
+        assertNotNull("Field must not be folded to its default value", find(get, GetFieldInstruction.class));
+        assertNotNull(find(constructor, PutFieldInstruction.class));
+        assertNotNull(foo.getField("value"));
+    }
+
+    @Test
+    public void skipsClassWithNativeMethods() {
+        addField("value", false);
+        addField("count", false);
+        Program get = addMethod(foo, "get", false);
+        getField(get, "value");
+        Program update = addMethod(foo, "update", false);
+        putField(update, update.variableAt(0), "count", update.variableAt(1));
+        MethodHolder nativeMethod = new MethodHolder("nativeMethod", ValueType.VOID);
+        nativeMethod.getModifiers().add(ElementModifier.NATIVE);
+        foo.addMethod(nativeMethod);
+
+        new FieldOptimization(classes).apply();
+
+        assertNotNull(find(get, GetFieldInstruction.class));
+        assertNotNull(find(update, PutFieldInstruction.class));
+        assertNotNull(foo.getField("value"));
+        assertNotNull(foo.getField("count"));
+    }
+
+    @Test
+    public void keepsFieldsThatAreRead() {
+        addField("count", false);
+        Program update = addMethod(foo, "update", false);
+        putField(update, update.variableAt(0), "count", update.variableAt(1));
+        Program get = addMethod(foo, "get", false);
+        getField(get, "count");
+
+        new FieldOptimization(classes).apply();
+
+        assertNotNull(foo.getField("count"));
+        assertNotNull(find(update, PutFieldInstruction.class));
+        assertNotNull(find(get, GetFieldInstruction.class));
+    }
+
+    private void addField(String name, boolean isStatic) {
+        FieldHolder field = new FieldHolder(name);
+        field.setType(ValueType.INTEGER);
+        if (isStatic) {
+            field.getModifiers().add(ElementModifier.STATIC);
+        }
+        foo.addField(field);
+    }
+
+    private Program addMethod(ClassHolder cls, String name, boolean isStatic) {
+        Program program = new Program();
+        program.createVariable();
+        program.createVariable();
+        program.createBasicBlock();
+        MethodHolder method = new MethodHolder(name, ValueType.INTEGER, ValueType.VOID);
+        if (isStatic) {
+            method.getModifiers().add(ElementModifier.STATIC);
+        }
+        method.setProgram(program);
+        cls.addMethod(method);
+        return program;
+    }
+
+    private Variable constant(Program program, int value) {
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setConstant(value);
+        constant.setReceiver(program.createVariable());
+        program.basicBlockAt(0).getInstructions().add(constant);
+        return constant.getReceiver();
+    }
+
+    private void putField(Program program, Variable instance, String field, Variable value) {
+        PutFieldInstruction putField = new PutFieldInstruction();
+        putField.setInstance(instance);
+        putField.setField(new FieldReference(FOO, field));
+        putField.setFieldType(ValueType.INTEGER);
+        putField.setValue(value);
+        BasicBlock block = program.basicBlockAt(0);
+        block.getInstructions().add(putField);
+        block.getInstructions().add(new ExitInstruction());
+    }
+
+    private void getField(Program program, String field) {
+        GetFieldInstruction getField = new GetFieldInstruction();
+        getField.setInstance(program.variableAt(0));
+        getField.setField(new FieldReference(FOO, field));
+        getField.setFieldType(ValueType.INTEGER);
+        getField.setReceiver(program.createVariable());
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(getField.getReceiver());
+        BasicBlock block = program.basicBlockAt(0);
+        block.getInstructions().add(getField);
+        block.getInstructions().add(exit);
+    }
+
+    private static <T extends Instruction> T find(Program program, Class<T> type) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (type.isInstance(insn)) {
+                    return type.cast(insn);
+                }
+            }
+        }
+        return null;
+    }
+}
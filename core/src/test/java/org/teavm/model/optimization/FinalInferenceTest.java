@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+
+/**
+ * <p>Infers final classes and methods in hierarchy {@code test.Base <- test.Derived}, where {@code test.Derived}
+ * overrides {@code foo()} and inherits {@code bar()}. Calls are made from {@code test.Caller.run()}.</p>
+ */
+public class FinalInferenceTest {
+    private MutableClassHolderSource classes = new MutableClassHolderSource();
+    private ClassHolder base = new ClassHolder("test.Base");
+    private ClassHolder derived = new ClassHolder("test.Derived");
+    private Program caller = new Program();
+
+    public FinalInferenceTest() {
+        ClassHolder object = new ClassHolder("java.lang.Object");
+        object.setParent(null);
+        classes.putClassHolder(object);
+
+        base.addMethod(createMethod("foo"));
+        base.addMethod(createMethod("bar"));
+        classes.putClassHolder(base);
+        derived.setParent(base.getName());
+        derived.addMethod(createMethod("foo"));
+        classes.putClassHolder(derived);
+
+        caller.createVariable();
+        caller.createBasicBlock();
+        ClassHolder callerClass = new ClassHolder("test.Caller");
+        MethodHolder run = new MethodHolder("run", ValueType.VOID);
+        run.getModifiers().add(ElementModifier.STATIC);
+        run.setProgram(caller);
+        callerClass.addMethod(run);
+        classes.putClassHolder(callerClass);
+    }
+
+    @Test
+    public void keepsOverriddenMethodVirtual() {
+        InvokeInstruction invoke = invoke(base.getName(), "foo");
+        new FinalInference(classes).apply();
+        assertEquals(InvocationType.VIRTUAL, invoke.getType());
+    }
+
+    @Test
+    public void makesCallOfNotOverriddenMethodDirect() {
+        InvokeInstruction baseInvoke = invoke(base.getName(), "bar");
+        InvokeInstruction derivedInvoke = invoke(derived.getName(), "foo");
+        new FinalInference(classes).apply();
+        assertEquals(InvocationType.SPECIAL, baseInvoke.getType());
+        assertEquals(InvocationType.SPECIAL, derivedInvoke.getType());
+    }
+
+    @Test
+    public void marksLeafClassesFinal() {
+        new FinalInference(classes).apply();
+        assertFalse(base.hasModifier(ElementModifier.FINAL));
+        assertTrue(derived.hasModifier(ElementModifier.FINAL));
+    }
+
+    private MethodHolder createMethod(String name) {
+        Program program = new Program();
+        program.createVariable();
+        program.createBasicBlock().getInstructions().add(new ExitInstruction());
+        MethodHolder method = new MethodHolder(name, ValueType.VOID);
+        method.setProgram(program);
+        return method;
+    }
+
+    private InvokeInstruction invoke(String className, String methodName) {
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(InvocationType.VIRTUAL);
+        invoke.setMethod(new MethodReference(className, methodName, ValueType.VOID));
+        invoke.setInstance(caller.createVariable());
+        BasicBlock block = caller.basicBlockAt(0);
+        block.getInstructions().add(invoke);
+        return invoke;
+    }
+}
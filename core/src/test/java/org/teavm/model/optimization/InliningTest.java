@@ -0,0 +1,156 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.util.ListingBuilder;
+
+/**
+ * <p>Inlines calls to {@code test.Callee.big()} and {@code test.Callee.small()}, each of them made from its own
+ * class, under a code growth budget that fits any one of the calls, but not both of them.</p>
+ *
+ * <p>Also inlines a chain of calls {@code test.Outer -> test.Middle.middle() -> test.Leaf.leaf()}, where
+ * {@code middle()} gets too large to be inlined once {@code leaf()} is inlined into it.</p>
+ */
+public class InliningTest {
+    private static final String CALLEE = "test.Callee";
+    private static final int GROWTH_PERCENT = 42;
+
+    @Test
+    public void prefersSmallerCallee() {
+        MutableClassHolderSource classes = new MutableClassHolderSource();
+        classes.putClassHolder(createCaller("test.BigCaller", "big"));
+        classes.putClassHolder(createCaller("test.SmallCaller", "small"));
+        classes.putClassHolder(createCallee());
+        inline(classes);
+
+        assertFalse(isInlined(classes, "test.BigCaller", "big"));
+        assertTrue(isInlined(classes, "test.SmallCaller", "small"));
+    }
+
+    @Test
+    public void doesNotDependOnOrderOfClasses() {
+        MutableClassHolderSource classes = new MutableClassHolderSource();
+        classes.putClassHolder(createCallee());
+        classes.putClassHolder(createCaller("test.SmallCaller", "small"));
+        classes.putClassHolder(createCaller("test.BigCaller", "big"));
+        inline(classes);
+
+        assertFalse(isInlined(classes, "test.BigCaller", "big"));
+        assertTrue(isInlined(classes, "test.SmallCaller", "small"));
+    }
+
+    @Test
+    public void inlinesCalleeAsCharged() {
+        MutableClassHolderSource classes = new MutableClassHolderSource();
+        ClassHolder leaf = new ClassHolder("test.Leaf");
+        leaf.addMethod(createMethod("leaf", createConstants(15)));
+        classes.putClassHolder(leaf);
+        ClassHolder middle = new ClassHolder("test.Middle");
+        Program middleProgram = createConstants(15);
+        middleProgram.basicBlockAt(0).getInstructions().add(15, createInvoke("test.Leaf", "leaf"));
+        middle.addMethod(createMethod("middle", middleProgram));
+        classes.putClassHolder(middle);
+        classes.putClassHolder(createCaller("test.Outer", "test.Middle", "middle"));
+        inline(classes, 200);
+
+        assertTrue(isInlined(classes, "test.Middle", "leaf"));
+        assertTrue("Call admitted by code growth limit must be inlined", isInlined(classes, "test.Outer", "middle"));
+    }
+
+    private void inline(MutableClassHolderSource classes) {
+        inline(classes, GROWTH_PERCENT);
+    }
+
+    private void inline(MutableClassHolderSource classes, int growthPercent) {
+        Inlining inlining = new Inlining();
+        inlining.limitCodeGrowth(classes, growthPercent);
+        for (String className : classes.getClassNames()) {
+            for (MethodHolder method : classes.get(className).getMethods()) {
+                inlining.apply(method.getProgram(), classes);
+            }
+        }
+    }
+
+    private boolean isInlined(MutableClassHolderSource classes, String className, String calleeName) {
+        Program program = classes.get(className).getMethods().iterator().next().getProgram();
+        String listing = new ListingBuilder().buildListing(program, "");
+        return !listing.contains(calleeName);
+    }
+
+    private ClassHolder createCaller(String className, String calleeName) {
+        return createCaller(className, CALLEE, calleeName);
+    }
+
+    private ClassHolder createCaller(String className, String calleeClassName, String calleeName) {
+        Program program = new Program();
+        program.createVariable();
+        BasicBlock block = program.createBasicBlock();
+        block.getInstructions().add(createInvoke(calleeClassName, calleeName));
+        block.getInstructions().add(new ExitInstruction());
+
+        ClassHolder cls = new ClassHolder(className);
+        cls.addMethod(createMethod("test", program));
+        return cls;
+    }
+
+    private InvokeInstruction createInvoke(String className, String methodName) {
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(InvocationType.SPECIAL);
+        invoke.setMethod(new MethodReference(className, methodName, ValueType.VOID));
+        return invoke;
+    }
+
+    private ClassHolder createCallee() {
+        ClassHolder cls = new ClassHolder(CALLEE);
+        cls.addMethod(createMethod("big", createConstants(6)));
+        cls.addMethod(createMethod("small", createConstants(2)));
+        return cls;
+    }
+
+    private Program createConstants(int count) {
+        Program program = new Program();
+        program.createVariable();
+        BasicBlock block = program.createBasicBlock();
+        for (int i = 0; i < count; ++i) {
+            IntegerConstantInstruction constant = new IntegerConstantInstruction();
+            constant.setConstant(i);
+            constant.setReceiver(program.createVariable());
+            block.getInstructions().add(constant);
+        }
+        block.getInstructions().add(new ExitInstruction());
+        return program;
+    }
+
+    private MethodHolder createMethod(String name, Program program) {
+        MethodHolder method = new MethodHolder(name, ValueType.VOID);
+        method.setProgram(program);
+        return method;
+    }
+}
@@ -0,0 +1,618 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.AssignInstruction;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BinaryOperation;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.EmptyInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.NumericOperandType;
+import org.teavm.model.optimization.InductionVariableAnalyzer.InductionVariable;
+import org.teavm.model.optimization.InductionVariableAnalyzer.LoopInfo;
+import org.teavm.model.util.ListingBuilder;
+import org.teavm.model.util.ProgramUtils;
+
+/**
+ * <p>Builds programs of a method {@code int test(int n)}, where variable 1 holds {@code n}, applies loop
+ * optimizations to them and checks both shape of the resulting program and its result, computed
+ * by a small interpreter, for several values of {@code n}.</p>
+ */
+public class LoopOptimizationTest {
+    private static final MethodHolder METHOD = new MethodHolder("test", ValueType.INTEGER, ValueType.INTEGER);
+    private static final int[] ARGUMENTS = { -1, 0, 1, 2, 5, 17 };
+    private Program program;
+
+    @Test
+    public void findsCountedLoop() {
+        countedLoop(0, 4, 1);
+        InductionVariableAnalyzer analyzer = new InductionVariableAnalyzer(program);
+
+        assertEquals(1, analyzer.getLoops().size());
+        LoopInfo loop = analyzer.getLoops().get(0);
+        assertEquals(1, loop.head);
+        assertTrue(loop.innermost);
+        assertTrue(loop.contains(1) && loop.contains(2) && !loop.contains(0) && !loop.contains(3));
+
+        List<InductionVariable> inductionVariables = analyzer.getInductionVariables(loop);
+        assertEquals("Only i is an induction variable", 1, inductionVariables.size());
+        InductionVariable iv = inductionVariables.get(0);
+        assertSame(program.variableAt(6), iv.phi.getReceiver());
+        assertEquals(1, iv.step);
+        assertEquals(Integer.valueOf(0), analyzer.getConstant(iv.initial));
+
+        Instruction exitBranch = program.basicBlockAt(1).getLastInstruction();
+        assertSame(program.basicBlockAt(2), analyzer.evaluateBranch(exitBranch, iv, 3));
+        assertSame(program.basicBlockAt(3), analyzer.evaluateBranch(exitBranch, iv, 4));
+    }
+
+    @Test
+    public void findsNonUnitStrides() {
+        countedLoop(0, 10, 3);
+        InductionVariableAnalyzer analyzer = new InductionVariableAnalyzer(program);
+        assertEquals(3, analyzer.getInductionVariables(analyzer.getLoops().get(0)).get(0).step);
+
+        countedLoop(10, 0, -2);
+        analyzer = new InductionVariableAnalyzer(program);
+        assertEquals(-2, analyzer.getInductionVariables(analyzer.getLoops().get(0)).get(0).step);
+    }
+
+    @Test
+    public void doesNotEvaluateBranchOnUnknownBound() {
+        loopToN(1, 0);
+        InductionVariableAnalyzer analyzer = new InductionVariableAnalyzer(program);
+        InductionVariable iv = analyzer.getInductionVariables(analyzer.getLoops().get(0)).get(0);
+        assertNull(analyzer.evaluateBranch(program.basicBlockAt(1).getLastInstruction(), iv, 0));
+    }
+
+    @Test
+    public void unrollsCountedLoop() {
+        countedLoop(0, 4, 1);
+        int[] expected = run();
+
+        assertTrue(new LoopUnrolling().optimize(METHOD, program));
+        assertNoLoops();
+        assertResults(expected);
+    }
+
+    @Test
+    public void unrollsLoopWithNonUnitStride() {
+        countedLoop(0, 10, 3);
+        int[] expected = run();
+
+        assertTrue(new LoopUnrolling().optimize(METHOD, program));
+        assertNoLoops();
+        assertResults(expected);
+
+        countedLoop(10, 0, -2);
+        expected = run();
+
+        assertTrue(new LoopUnrolling().optimize(METHOD, program));
+        assertNoLoops();
+        assertResults(expected);
+    }
+
+    @Test
+    public void unrollsLoopWithoutIterations() {
+        countedLoop(5, 5, 1);
+        int[] expected = run();
+
+        assertTrue(new LoopUnrolling().optimize(METHOD, program));
+        assertNoLoops();
+        assertResults(expected);
+    }
+
+    @Test
+    public void keepsLoopWithTooManyIterations() {
+        countedLoop(0, 100, 1);
+        String listing = listing();
+
+        assertFalse(new LoopUnrolling().optimize(METHOD, program));
+        assertEquals(listing, listing());
+    }
+
+    @Test
+    public void keepsLoopWithUnknownTripCount() {
+        loopToN(1, 0);
+        String listing = listing();
+
+        assertFalse(new LoopUnrolling().optimize(METHOD, program));
+        assertEquals(listing, listing());
+    }
+
+    @Test
+    public void keepsLoopWithEarlyExit() {
+        loopWithEarlyExit();
+        String listing = listing();
+
+        assertFalse(new LoopUnrolling().optimize(METHOD, program));
+        assertEquals(listing, listing());
+    }
+
+    @Test
+    public void reducesMultiplication() {
+        loopToN(2, 3);
+        int[] expected = run();
+
+        assertTrue(new StrengthReduction().optimize(METHOD, program));
+        assertEquals(0, countMultiplications(1, 2));
+        assertEquals("Reduced variable must be in loop header", 3, program.basicBlockAt(1).getPhis().size());
+        assertResults(expected);
+        assertFalse("Nothing left to reduce", new StrengthReduction().optimize(METHOD, program));
+    }
+
+    @Test
+    public void reducesMultiplicationInLoopWithEarlyExit() {
+        loopWithEarlyExit();
+        int[] expected = run();
+
+        assertTrue(new StrengthReduction().optimize(METHOD, program));
+        assertEquals(0, countMultiplications(1, 2, 3));
+        assertResults(expected);
+    }
+
+    @Test
+    public void doesNotReduceMultiplicationByOne() {
+        loopToN(1, 1);
+        assertFalse(new StrengthReduction().optimize(METHOD, program));
+    }
+
+    @Test
+    public void mergesEqualInductionVariables() {
+        twoInductionVariables(1, 1);
+        int[] expected = run();
+
+        assertTrue(new InductionVariableSimplification().optimize(METHOD, program));
+        assertEquals(2, program.basicBlockAt(1).getPhis().size());
+        assertTrue(program.basicBlockAt(1).getInstructions().get(0) instanceof AssignInstruction);
+        assertResults(expected);
+    }
+
+    @Test
+    public void mergesReducedInductionVariable() {
+        // for (i = 0, j = 0; i < n; ++i, j += 3) s += i * 3 + j: after strength reduction i * 3 and j are equal
+        twoInductionVariables(3, 3);
+        int[] expected = run();
+
+        assertTrue(new StrengthReduction().optimize(METHOD, program));
+        new GlobalValueNumbering(false).optimize(METHOD, program);
+        assertTrue(new InductionVariableSimplification().optimize(METHOD, program));
+        assertEquals(3, program.basicBlockAt(1).getPhis().size());
+        assertResults(expected);
+    }
+
+    @Test
+    public void keepsInductionVariablesWithDifferentSteps() {
+        twoInductionVariables(1, 2);
+        String listing = listing();
+
+        assertFalse(new InductionVariableSimplification().optimize(METHOD, program));
+        assertEquals(listing, listing());
+    }
+
+    @Test
+    public void fullLevelExecutesFewerInstructions() {
+        countedLoop(0, 4, 1);
+        assertFewerInstructions();
+
+        countedLoop(0, 10, 3);
+        assertFewerInstructions();
+
+        twoInductionVariables(3, 3);
+        assertFewerInstructions();
+    }
+
+    private void assertFewerInstructions() {
+        Program original = ProgramUtils.copy(program);
+        optimize(false);
+        int[] expected = run();
+        long advanced = executedInstructions();
+
+        program = original;
+        optimize(true);
+        assertResults(expected);
+        long full = executedInstructions();
+
+        assertTrue("Expected fewer than " + advanced + " instructions, was " + full + ":\n" + listing(),
+                full < advanced);
+    }
+
+    /**
+     * Runs passes of {@code TeaVM} pipeline for ADVANCED or FULL level, except for those that need
+     * class source or don't affect these programs.
+     */
+    private void optimize(boolean full) {
+        List<MethodOptimization> optimizations = new ArrayList<>();
+        if (full) {
+            optimizations.add(new InductionVariableSimplification());
+            optimizations.add(new StrengthReduction());
+            optimizations.add(new LoopUnrolling());
+        }
+        optimizations.add(new GlobalValueNumbering(false));
+        optimizations.add(new ConstantConditionElimination());
+        optimizations.add(new RedundantJumpElimination());
+        optimizations.add(new UnusedVariableElimination());
+        optimizations.add(new UnreachableBasicBlockElimination());
+
+        // Some optimizations skip methods without program
+        MethodHolder method = new MethodHolder(METHOD.getDescriptor());
+        method.setProgram(ProgramUtils.copy(program));
+
+        boolean changed;
+        do {
+            changed = false;
+            for (MethodOptimization optimization : optimizations) {
+                changed |= optimization.optimize(method, program);
+            }
+        } while (changed);
+    }
+
+    /**
+     * <pre>
+     * s = 0;
+     * for (i = from; step > 0 ? i < to : i > to; i += step) s = s * 31 + i;
+     * return s + n;
+     * </pre>
+     */
+    private void countedLoop(int from, int to, int step) {
+        createProgram(14, 4);
+        constant(0, 2, from);
+        constant(0, 3, to);
+        constant(0, 4, step);
+        constant(0, 5, 0);
+        constant(0, 12, 31);
+        jump(0, 1);
+
+        phi(1, 6, 0, 2, 2, 8);
+        phi(1, 7, 0, 5, 2, 10);
+        binary(1, BinaryOperation.COMPARE, 9, 6, 3);
+        branch(1, step > 0 ? BranchingCondition.GREATER_OR_EQUAL : BranchingCondition.LESS_OR_EQUAL, 9, 3, 2);
+
+        binary(2, BinaryOperation.MULTIPLY, 11, 7, 12);
+        binary(2, BinaryOperation.ADD, 10, 11, 6);
+        binary(2, BinaryOperation.ADD, 8, 6, 4);
+        jump(2, 1);
+
+        binary(3, BinaryOperation.ADD, 13, 7, 1);
+        exit(3, 13);
+    }
+
+    /**
+     * <pre>
+     * s = 0;
+     * for (i = 0; i < n; i += step) s += i * factor;
+     * return s;
+     * </pre>
+     */
+    private void loopToN(int step, int factor) {
+        createProgram(12, 4);
+        constant(0, 2, 0);
+        constant(0, 3, step);
+        constant(0, 4, factor);
+        jump(0, 1);
+
+        phi(1, 5, 0, 2, 2, 7);
+        phi(1, 6, 0, 2, 2, 9);
+        binary(1, BinaryOperation.COMPARE, 10, 5, 1);
+        branch(1, BranchingCondition.GREATER_OR_EQUAL, 10, 3, 2);
+
+        binary(2, BinaryOperation.MULTIPLY, 8, 5, 4);
+        binary(2, BinaryOperation.ADD, 9, 6, 8);
+        binary(2, BinaryOperation.ADD, 7, 5, 3);
+        jump(2, 1);
+
+        exit(3, 6);
+    }
+
+    /**
+     * <pre>
+     * s = 0;
+     * for (i = 0; i < 8; i += 2) {
+     *     if (s > n) break;
+     *     s += i * 3;
+     * }
+     * return s;
+     * </pre>
+     */
+    private void loopWithEarlyExit() {
+        createProgram(14, 5);
+        constant(0, 2, 0);
+        constant(0, 3, 8);
+        constant(0, 4, 2);
+        constant(0, 5, 3);
+        jump(0, 1);
+
+        phi(1, 6, 0, 2, 3, 8);
+        phi(1, 7, 0, 2, 3, 10);
+        binary(1, BinaryOperation.COMPARE, 11, 6, 3);
+        branch(1, BranchingCondition.GREATER_OR_EQUAL, 11, 4, 2);
+
+        binary(2, BinaryOperation.COMPARE, 12, 7, 1);
+        branch(2, BranchingCondition.GREATER, 12, 4, 3);
+
+        binary(3, BinaryOperation.MULTIPLY, 9, 6, 5);
+        binary(3, BinaryOperation.ADD, 10, 7, 9);
+        binary(3, BinaryOperation.ADD, 8, 6, 4);
+        jump(3, 1);
+
+        exit(4, 7);
+    }
+
+    /**
+     * <pre>
+     * s = 0;
+     * for (i = 0, j = 0; i < n; i += 1, j += step) s = s + i * factor + j;
+     * return s;
+     * </pre>
+     */
+    private void twoInductionVariables(int factor, int step) {
+        createProgram(17, 4);
+        constant(0, 2, 0);
+        constant(0, 3, 1);
+        constant(0, 4, step);
+        constant(0, 5, factor);
+        jump(0, 1);
+
+        phi(1, 6, 0, 2, 2, 9);
+        phi(1, 7, 0, 2, 2, 10);
+        phi(1, 8, 0, 2, 2, 13);
+        binary(1, BinaryOperation.COMPARE, 14, 6, 1);
+        branch(1, BranchingCondition.GREATER_OR_EQUAL, 14, 3, 2);
+
+        binary(2, BinaryOperation.MULTIPLY, 11, 6, 5);
+        binary(2, BinaryOperation.ADD, 12, 8, 11);
+        binary(2, BinaryOperation.ADD, 13, 12, 7);
+        binary(2, BinaryOperation.ADD, 9, 6, 3);
+        binary(2, BinaryOperation.ADD, 10, 7, 4);
+        jump(2, 1);
+
+        exit(3, 8);
+    }
+
+    private void createProgram(int variableCount, int blockCount) {
+        program = new Program();
+        for (int i = 0; i < variableCount; ++i) {
+            program.createVariable();
+        }
+        for (int i = 0; i < blockCount; ++i) {
+            program.createBasicBlock();
+        }
+    }
+
+    private void constant(int block, int receiver, int value) {
+        IntegerConstantInstruction insn = new IntegerConstantInstruction();
+        insn.setConstant(value);
+        insn.setReceiver(program.variableAt(receiver));
+        program.basicBlockAt(block).getInstructions().add(insn);
+    }
+
+    private void binary(int block, BinaryOperation operation, int receiver, int first, int second) {
+        BinaryInstruction insn = new BinaryInstruction(operation, NumericOperandType.INT);
+        insn.setFirstOperand(program.variableAt(first));
+        insn.setSecondOperand(program.variableAt(second));
+        insn.setReceiver(program.variableAt(receiver));
+        program.basicBlockAt(block).getInstructions().add(insn);
+    }
+
+    private void branch(int block, BranchingCondition condition, int operand, int consequent, int alternative) {
+        BranchingInstruction insn = new BranchingInstruction(condition);
+        insn.setOperand(program.variableAt(operand));
+        insn.setConsequent(program.basicBlockAt(consequent));
+        insn.setAlternative(program.basicBlockAt(alternative));
+        program.basicBlockAt(block).getInstructions().add(insn);
+    }
+
+    private void jump(int block, int target) {
+        JumpInstruction insn = new JumpInstruction();
+        insn.setTarget(program.basicBlockAt(target));
+        program.basicBlockAt(block).getInstructions().add(insn);
+    }
+
+    private void exit(int block, int value) {
+        ExitInstruction insn = new ExitInstruction();
+        insn.setValueToReturn(program.variableAt(value));
+        program.basicBlockAt(block).getInstructions().add(insn);
+    }
+
+    private void phi(int block, int receiver, int... incomings) {
+        Phi phi = new Phi();
+        phi.setReceiver(program.variableAt(receiver));
+        for (int i = 0; i < incomings.length; i += 2) {
+            Incoming incoming = new Incoming();
+            incoming.setSource(program.basicBlockAt(incomings[i]));
+            incoming.setValue(program.variableAt(incomings[i + 1]));
+            phi.getIncomings().add(incoming);
+        }
+        program.basicBlockAt(block).getPhis().add(phi);
+    }
+
+    private String listing() {
+        return new ListingBuilder().buildListing(program, "");
+    }
+
+    private void assertNoLoops() {
+        assertTrue("No loops expected:\n" + listing(), new InductionVariableAnalyzer(program).getLoops().isEmpty());
+    }
+
+    private int countMultiplications(int... blocks) {
+        int count = 0;
+        for (int block : blocks) {
+            for (Instruction insn : program.basicBlockAt(block).getInstructions()) {
+                if (insn instanceof BinaryInstruction
+                        && ((BinaryInstruction) insn).getOperation() == BinaryOperation.MULTIPLY) {
+                    ++count;
+                }
+            }
+        }
+        return count;
+    }
+
+    private void assertResults(int[] expected) {
+        int[] actual = run();
+        for (int i = 0; i < ARGUMENTS.length; ++i) {
+            assertEquals("Result for n = " + ARGUMENTS[i] + " of:\n" + listing(), expected[i], actual[i]);
+        }
+    }
+
+    private int[] run() {
+        int[] results = new int[ARGUMENTS.length];
+        for (int i = 0; i < ARGUMENTS.length; ++i) {
+            results[i] = new Interpreter(ProgramUtils.copy(program)).run(ARGUMENTS[i]);
+        }
+        return results;
+    }
+
+    private long executedInstructions() {
+        long count = 0;
+        for (int argument : ARGUMENTS) {
+            Interpreter interpreter = new Interpreter(ProgramUtils.copy(program));
+            interpreter.run(argument);
+            count += interpreter.executed;
+        }
+        return count;
+    }
+
+    /**
+     * Executes integer programs built by this test.
+     */
+    static class Interpreter {
+        private static final int MAX_STEPS = 10000;
+        private Program program;
+        private int[] variables;
+        long executed;
+
+        Interpreter(Program program) {
+            this.program = program;
+            variables = new int[program.variableCount()];
+        }
+
+        int run(int argument) {
+            variables[1] = argument;
+            BasicBlock previous = null;
+            BasicBlock block = program.basicBlockAt(0);
+            for (int step = 0; step < MAX_STEPS; ++step) {
+                int[] phiValues = new int[block.getPhis().size()];
+                for (int i = 0; i < phiValues.length; ++i) {
+                    phiValues[i] = variables[incomingValue(block.getPhis().get(i), previous)];
+                }
+                for (int i = 0; i < phiValues.length; ++i) {
+                    variables[block.getPhis().get(i).getReceiver().getIndex()] = phiValues[i];
+                }
+
+                BasicBlock next = null;
+                for (Instruction insn : block.getInstructions()) {
+                    if (insn instanceof EmptyInstruction) {
+                        continue;
+                    }
+                    ++executed;
+                    if (insn instanceof IntegerConstantInstruction) {
+                        IntegerConstantInstruction constant = (IntegerConstantInstruction) insn;
+                        variables[constant.getReceiver().getIndex()] = constant.getConstant();
+                    } else if (insn instanceof AssignInstruction) {
+                        AssignInstruction assign = (AssignInstruction) insn;
+                        variables[assign.getReceiver().getIndex()] = variables[assign.getAssignee().getIndex()];
+                    } else if (insn instanceof BinaryInstruction) {
+                        BinaryInstruction binary = (BinaryInstruction) insn;
+                        variables[binary.getReceiver().getIndex()] = evaluate(binary);
+                    } else if (insn instanceof BranchingInstruction) {
+                        BranchingInstruction branch = (BranchingInstruction) insn;
+                        next = test(branch.getCondition(), variables[branch.getOperand().getIndex()])
+                                ? branch.getConsequent()
+                                : branch.getAlternative();
+                    } else if (insn instanceof JumpInstruction) {
+                        next = ((JumpInstruction) insn).getTarget();
+                    } else if (insn instanceof ExitInstruction) {
+                        return variables[((ExitInstruction) insn).getValueToReturn().getIndex()];
+                    } else {
+                        fail("Unexpected instruction " + insn.getClass().getSimpleName());
+                    }
+                }
+                previous = block;
+                block = next;
+            }
+            fail("Program does not terminate");
+            return 0;
+        }
+
+        private int incomingValue(Phi phi, BasicBlock source) {
+            for (Incoming incoming : phi.getIncomings()) {
+                if (incoming.getSource() == source) {
+                    return incoming.getValue().getIndex();
+                }
+            }
+            fail("No incoming from block " + (source != null ? source.getIndex() : -1));
+            return 0;
+        }
+
+        private int evaluate(BinaryInstruction insn) {
+            int a = variables[insn.getFirstOperand().getIndex()];
+            int b = variables[insn.getSecondOperand().getIndex()];
+            switch (insn.getOperation()) {
+                case ADD:
+                    return a + b;
+                case SUBTRACT:
+                    return a - b;
+                case MULTIPLY:
+                    return a * b;
+                case COMPARE:
+                    return Integer.compare(a, b);
+                default:
+                    fail("Unexpected operation " + insn.getOperation());
+                    return 0;
+            }
+        }
+
+        private boolean test(BranchingCondition condition, int value) {
+            switch (condition) {
+                case EQUAL:
+                    return value == 0;
+                case NOT_EQUAL:
+                    return value != 0;
+                case LESS:
+                    return value < 0;
+                case LESS_OR_EQUAL:
+                    return value <= 0;
+                case GREATER:
+                    return value > 0;
+                case GREATER_OR_EQUAL:
+                    return value >= 0;
+                default:
+                    fail("Unexpected condition " + condition);
+                    return false;
+            }
+        }
+    }
+}
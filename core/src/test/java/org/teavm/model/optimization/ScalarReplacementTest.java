@@ -0,0 +1,272 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.FieldReference;
+import org.teavm.model.Incoming;
+import org.teavm.model.Instruction;
+import org.teavm.model.InterpretException;
+import org.teavm.model.Interpreter;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.TryCatchBlock;
+import org.teavm.model.TryCatchJoint;
+import org.teavm.model.ValueType;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.BinaryInstruction;
+import org.teavm.model.instructions.BinaryOperation;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.ConstructInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.GetFieldInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.NullConstantInstruction;
+import org.teavm.model.instructions.NumericOperandType;
+import org.teavm.model.instructions.PutFieldInstruction;
+
+/**
+ * <p>Replaces instances of {@link Point} allocated by method {@code test(I)I}. Programs that are transformed
+ * are run with {@link Interpreter} to check they compute the same value.</p>
+ */
+public class ScalarReplacementTest {
+    private static final String POINT = Point.class.getName();
+    private static final FieldReference X = new FieldReference(POINT, "x");
+    private static final FieldReference NEXT = new FieldReference(POINT, "next");
+    private Program program = new Program();
+    private MethodHolder method = new MethodHolder("test", ValueType.INTEGER, ValueType.INTEGER);
+
+    public ScalarReplacementTest() {
+        program.createVariable();
+        program.createVariable();
+        method.setProgram(program);
+    }
+
+    @Test
+    public void replacesObjectInsideLoop() {
+        BasicBlock entry = program.createBasicBlock();
+        BasicBlock loop = program.createBasicBlock();
+        BasicBlock exit = program.createBasicBlock();
+
+        Variable point = construct(entry);
+        putField(entry, point, X, constant(entry, 0));
+        jump(entry, loop);
+
+        Variable next = binary(loop, BinaryOperation.ADD, getField(loop, point, X), constant(loop, 1));
+        putField(loop, point, X, next);
+        BranchingInstruction branch = new BranchingInstruction(BranchingCondition.LESS);
+        branch.setOperand(binary(loop, BinaryOperation.SUBTRACT, next, constant(loop, 10)));
+        branch.setConsequent(loop);
+        branch.setAlternative(exit);
+        loop.getInstructions().add(branch);
+
+        exit(exit, getField(exit, point, X));
+
+        assertTrue(new ScalarReplacement().optimize(method, program));
+        assertNull(find(ConstructInstruction.class));
+        assertNull(find(GetFieldInstruction.class));
+        assertNull(find(PutFieldInstruction.class));
+        assertFalse("Field variable must be merged at loop header", loop.getPhis().isEmpty());
+        assertEquals(10, interpret());
+    }
+
+    @Test
+    public void readOfUnwrittenFieldYieldsDefaultValue() {
+        BasicBlock block = program.createBasicBlock();
+        Variable point = construct(block);
+        getField(block, point, NEXT, ValueType.object("java.lang.Object"));
+        exit(block, getField(block, point, X));
+
+        assertTrue(new ScalarReplacement().optimize(method, program));
+        assertNull(find(ConstructInstruction.class));
+        assertNotNull(find(NullConstantInstruction.class));
+        assertEquals(0, interpret());
+    }
+
+    @Test
+    public void leavesObjectEscapingThroughCall() {
+        BasicBlock block = program.createBasicBlock();
+        Variable point = construct(block);
+        putField(block, point, X, constant(block, 1));
+        InvokeInstruction invoke = new InvokeInstruction();
+        invoke.setType(InvocationType.SPECIAL);
+        invoke.setMethod(new MethodReference("test.Foo", "consume", ValueType.object("java.lang.Object"),
+                ValueType.VOID));
+        invoke.getArguments().add(point);
+        block.getInstructions().add(invoke);
+        exit(block, getField(block, point, X));
+
+        assertLeftAsIs();
+    }
+
+    @Test
+    public void leavesObjectEscapingThroughPhi() {
+        BasicBlock entry = program.createBasicBlock();
+        BasicBlock first = program.createBasicBlock();
+        BasicBlock second = program.createBasicBlock();
+        BasicBlock joint = program.createBasicBlock();
+
+        Variable firstPoint = construct(entry);
+        Variable secondPoint = construct(entry);
+        BranchingInstruction branch = new BranchingInstruction(BranchingCondition.EQUAL);
+        branch.setOperand(program.variableAt(1));
+        branch.setConsequent(first);
+        branch.setAlternative(second);
+        entry.getInstructions().add(branch);
+        jump(first, joint);
+        jump(second, joint);
+
+        Phi phi = new Phi();
+        phi.setReceiver(program.createVariable());
+        phi.getIncomings().add(incoming(first, firstPoint));
+        phi.getIncomings().add(incoming(second, secondPoint));
+        joint.getPhis().add(phi);
+        exit(joint, getField(joint, phi.getReceiver(), X));
+
+        assertLeftAsIs();
+    }
+
+    @Test
+    public void leavesObjectEscapingThroughTryCatchJoint() {
+        BasicBlock entry = program.createBasicBlock();
+        BasicBlock handler = program.createBasicBlock();
+
+        Variable point = construct(entry);
+        putField(entry, point, X, constant(entry, 1));
+        exit(entry, getField(entry, point, X));
+
+        TryCatchBlock tryCatch = new TryCatchBlock();
+        tryCatch.setHandler(handler);
+        TryCatchJoint joint = new TryCatchJoint();
+        joint.setReceiver(program.createVariable());
+        joint.getSourceVariables().add(point);
+        tryCatch.getJoints().add(joint);
+        entry.getTryCatchBlocks().add(tryCatch);
+        exit(handler, getField(handler, joint.getReceiver(), X));
+
+        assertLeftAsIs();
+    }
+
+    private void assertLeftAsIs() {
+        assertFalse(new ScalarReplacement().optimize(method, program));
+        assertNotNull(find(ConstructInstruction.class));
+        assertNotNull(find(GetFieldInstruction.class));
+    }
+
+    private Variable construct(BasicBlock block) {
+        ConstructInstruction construct = new ConstructInstruction();
+        construct.setType(POINT);
+        construct.setReceiver(program.createVariable());
+        block.getInstructions().add(construct);
+        return construct.getReceiver();
+    }
+
+    private Variable constant(BasicBlock block, int value) {
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setConstant(value);
+        constant.setReceiver(program.createVariable());
+        block.getInstructions().add(constant);
+        return constant.getReceiver();
+    }
+
+    private Variable binary(BasicBlock block, BinaryOperation operation, Variable first, Variable second) {
+        BinaryInstruction insn = new BinaryInstruction(operation, NumericOperandType.INT);
+        insn.setFirstOperand(first);
+        insn.setSecondOperand(second);
+        insn.setReceiver(program.createVariable());
+        block.getInstructions().add(insn);
+        return insn.getReceiver();
+    }
+
+    private Variable getField(BasicBlock block, Variable instance, FieldReference field) {
+        return getField(block, instance, field, ValueType.INTEGER);
+    }
+
+    private Variable getField(BasicBlock block, Variable instance, FieldReference field, ValueType type) {
+        GetFieldInstruction getField = new GetFieldInstruction();
+        getField.setInstance(instance);
+        getField.setField(field);
+        getField.setFieldType(type);
+        getField.setReceiver(program.createVariable());
+        block.getInstructions().add(getField);
+        return getField.getReceiver();
+    }
+
+    private void putField(BasicBlock block, Variable instance, FieldReference field, Variable value) {
+        PutFieldInstruction putField = new PutFieldInstruction();
+        putField.setInstance(instance);
+        putField.setField(field);
+        putField.setFieldType(ValueType.INTEGER);
+        putField.setValue(value);
+        block.getInstructions().add(putField);
+    }
+
+    private void jump(BasicBlock block, BasicBlock target) {
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(target);
+        block.getInstructions().add(jump);
+    }
+
+    private void exit(BasicBlock block, Variable value) {
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(value);
+        block.getInstructions().add(exit);
+    }
+
+    private static Incoming incoming(BasicBlock source, Variable value) {
+        Incoming incoming = new Incoming();
+        incoming.setSource(source);
+        incoming.setValue(value);
+        return incoming;
+    }
+
+    private <T extends Instruction> T find(Class<T> type) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (type.isInstance(insn)) {
+                    return type.cast(insn);
+                }
+            }
+        }
+        return null;
+    }
+
+    private Object interpret() {
+        try {
+            return new Interpreter(ScalarReplacementTest.class.getClassLoader()).interpret(program,
+                    new Object[] { null, 0 });
+        } catch (InterpretException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static class Point {
+        int x;
+        Object next;
+    }
+}
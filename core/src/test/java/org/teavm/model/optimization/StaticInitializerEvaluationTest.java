@@ -0,0 +1,150 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.ElementModifier;
+import org.teavm.model.FieldHolder;
+import org.teavm.model.FieldReference;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MutableClassHolderSource;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.ConstructArrayInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.PutFieldInstruction;
+
+/**
+ * <p>Evaluates initializer of class {@code test.Foo} that stores a value into its static field
+ * {@code value}.</p>
+ */
+public class StaticInitializerEvaluationTest {
+    private static final String CLASS_NAME = "test.Foo";
+    private MutableClassHolderSource classSource = new MutableClassHolderSource();
+    private ClassHolder cls;
+
+    public StaticInitializerEvaluationTest() {
+        ClassHolder object = new ClassHolder("java.lang.Object");
+        object.setParent(null);
+        classSource.putClassHolder(object);
+    }
+
+    @Test
+    public void evaluatesPrimitiveInitializer() {
+        Program program = createClass(ValueType.INTEGER);
+        IntegerConstantInstruction constant = constant(program, 23);
+        putField(program, ValueType.INTEGER, constant);
+
+        assertTrue(evaluation().apply(cls));
+        assertEquals(23, cls.getField("value").getInitialValue());
+        assertNull(cls.getMethod(new MethodHolder("<clinit>", ValueType.VOID).getDescriptor()));
+    }
+
+    @Test
+    public void evaluatesBranchingInitializer() {
+        Program program = createClass(ValueType.INTEGER);
+        BasicBlock entry = program.basicBlockAt(0);
+        BasicBlock consequent = program.createBasicBlock();
+        BasicBlock alternative = program.createBasicBlock();
+        BranchingInstruction branch = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+        branch.setOperand(constant(program, 1).getReceiver());
+        branch.setConsequent(consequent);
+        branch.setAlternative(alternative);
+        entry.getInstructions().add(branch);
+        putField(program, consequent, ValueType.INTEGER, constant(program, consequent, 42));
+        putField(program, alternative, ValueType.INTEGER, constant(program, alternative, 24));
+
+        assertTrue(evaluation().apply(cls));
+        assertEquals(42, cls.getField("value").getInitialValue());
+    }
+
+    @Test
+    public void leavesTableInitializer() {
+        ValueType arrayType = ValueType.arrayOf(ValueType.INTEGER);
+        Program program = createClass(arrayType);
+        IntegerConstantInstruction size = constant(program, 3);
+        ConstructArrayInstruction array = new ConstructArrayInstruction();
+        array.setItemType(ValueType.INTEGER);
+        array.setSize(size.getReceiver());
+        array.setReceiver(program.createVariable());
+        program.basicBlockAt(0).getInstructions().add(array);
+        PutFieldInstruction putField = new PutFieldInstruction();
+        putField.setField(new FieldReference(CLASS_NAME, "value"));
+        putField.setFieldType(arrayType);
+        putField.setValue(array.getReceiver());
+        program.basicBlockAt(0).getInstructions().add(putField);
+        program.basicBlockAt(0).getInstructions().add(new ExitInstruction());
+
+        assertFalse(evaluation().apply(cls));
+        assertNotNull(cls.getMethod(new MethodHolder("<clinit>", ValueType.VOID).getDescriptor()));
+    }
+
+    private StaticInitializerEvaluation evaluation() {
+        return new StaticInitializerEvaluation(classSource, StaticInitializerEvaluationTest.class.getClassLoader());
+    }
+
+    private Program createClass(ValueType fieldType) {
+        cls = new ClassHolder(CLASS_NAME);
+        FieldHolder field = new FieldHolder("value");
+        field.setType(fieldType);
+        field.getModifiers().add(ElementModifier.STATIC);
+        cls.addField(field);
+
+        Program program = new Program();
+        program.createBasicBlock();
+        MethodHolder clinit = new MethodHolder("<clinit>", ValueType.VOID);
+        clinit.getModifiers().add(ElementModifier.STATIC);
+        clinit.setProgram(program);
+        cls.addMethod(clinit);
+        classSource.putClassHolder(cls);
+        return program;
+    }
+
+    private IntegerConstantInstruction constant(Program program, int value) {
+        return constant(program, program.basicBlockAt(0), value);
+    }
+
+    private IntegerConstantInstruction constant(Program program, BasicBlock block, int value) {
+        IntegerConstantInstruction constant = new IntegerConstantInstruction();
+        constant.setConstant(value);
+        constant.setReceiver(program.createVariable());
+        block.getInstructions().add(constant);
+        return constant;
+    }
+
+    private void putField(Program program, ValueType type, IntegerConstantInstruction constant) {
+        putField(program, program.basicBlockAt(0), type, constant);
+    }
+
+    private void putField(Program program, BasicBlock block, ValueType type, IntegerConstantInstruction constant) {
+        PutFieldInstruction putField = new PutFieldInstruction();
+        putField.setField(new FieldReference(CLASS_NAME, "value"));
+        putField.setFieldType(type);
+        putField.setValue(constant.getReceiver());
+        block.getInstructions().add(putField);
+        block.getInstructions().add(new ExitInstruction());
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.profile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+import org.teavm.common.Graph;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.ClassHolder;
+import org.teavm.model.Instruction;
+import org.teavm.model.MethodHolder;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ValueType;
+import org.teavm.model.instructions.BranchingCondition;
+import org.teavm.model.instructions.BranchingInstruction;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.InvocationType;
+import org.teavm.model.instructions.InvokeInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+import org.teavm.model.instructions.StringConstantInstruction;
+import org.teavm.model.util.ProgramUtils;
+import org.teavm.runtime.ExecutionProfiler;
+
+/**
+ * <p>Instruments programs of a method {@code static void test(Object x)}, which loops while
+ * {@code x.hashCode() != 0}, calling {@code x.toString()} on each iteration. Entry block of the program
+ * is the loop header.</p>
+ */
+public class ProfileInstrumentationTest {
+    private static final MethodReference HASH_CODE = new MethodReference(Object.class, "hashCode", int.class);
+    private static final MethodReference TO_STRING = new MethodReference(Object.class, "toString", String.class);
+    private static final MethodReference COUNT = new MethodReference(ExecutionProfiler.class, "count",
+            String.class, void.class);
+
+    @Test
+    public void countsCallOutsideOfLoop() {
+        MethodHolder method = createMethod(createProgram());
+        CallSites callSites = new CallSites();
+        callSites.assign(method);
+        instrument(method, callSites);
+
+        Program program = method.getProgram();
+        Graph cfg = ProgramUtils.buildControlFlowGraph(program);
+        int countBlocks = 0;
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            if (!findInvocations(program.basicBlockAt(i), COUNT).isEmpty()) {
+                assertEquals("Call counter must be in entry block", 0, i);
+                ++countBlocks;
+            }
+        }
+        assertEquals(1, countBlocks);
+        assertEquals("Entry block must have no predecessors", 0, cfg.incomingEdgesCount(0));
+
+        BasicBlock header = findInvocations(program, HASH_CODE).get(0).getBasicBlock();
+        assertEquals("Loop header is entered from prologue and from back edge", 2,
+                cfg.incomingEdgesCount(header.getIndex()));
+    }
+
+    @Test
+    public void keepsCallSiteNamesAfterTransformation() {
+        MethodHolder instrumented = createMethod(createProgram());
+        CallSites instrumentedSites = new CallSites();
+        instrumentedSites.assign(instrumented);
+        instrument(instrumented, instrumentedSites);
+        String profiledName = findReceiverCounterName(instrumented.getProgram(), TO_STRING);
+        assertNotNull(profiledName);
+
+        MethodHolder optimized = createMethod(createProgram());
+        CallSites optimizedSites = new CallSites();
+        optimizedSites.assign(optimized);
+
+        // Same as FinalInference and devirtualization do with the first call
+        InvokeInstruction hashCode = findInvocations(optimized.getProgram(), HASH_CODE).get(0);
+        hashCode.setType(InvocationType.SPECIAL);
+
+        InvokeInstruction toString = findInvocations(optimized.getProgram(), TO_STRING).get(0);
+        assertEquals(profiledName, optimizedSites.get(toString));
+        assertNotEquals(profiledName, optimizedSites.get(hashCode));
+    }
+
+    private void instrument(MethodHolder method, CallSites callSites) {
+        new ProfileInstrumentation(name -> null, Collections.emptyList(), callSites).apply(method);
+    }
+
+    private String findReceiverCounterName(Program program, MethodReference callee) {
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            String lastString = null;
+            for (Instruction insn : program.basicBlockAt(i).getInstructions()) {
+                if (insn instanceof StringConstantInstruction) {
+                    lastString = ((StringConstantInstruction) insn).getConstant();
+                } else if (insn instanceof InvokeInstruction
+                        && ((InvokeInstruction) insn).getMethod().equals(callee)) {
+                    return lastString;
+                }
+            }
+        }
+        return null;
+    }
+
+    private List<InvokeInstruction> findInvocations(Program program, MethodReference method) {
+        List<InvokeInstruction> result = new ArrayList<>();
+        for (int i = 0; i < program.basicBlockCount(); ++i) {
+            result.addAll(findInvocations(program.basicBlockAt(i), method));
+        }
+        return result;
+    }
+
+    private List<InvokeInstruction> findInvocations(BasicBlock block, MethodReference method) {
+        List<InvokeInstruction> result = new ArrayList<>();
+        for (Instruction insn : block.getInstructions()) {
+            if (insn instanceof InvokeInstruction && ((InvokeInstruction) insn).getMethod().equals(method)) {
+                result.add((InvokeInstruction) insn);
+            }
+        }
+        return result;
+    }
+
+    private MethodHolder createMethod(Program program) {
+        ClassHolder cls = new ClassHolder("Test");
+        MethodHolder method = new MethodHolder("test", ValueType.object("java.lang.Object"), ValueType.VOID);
+        cls.addMethod(method);
+        method.setProgram(program);
+        return method;
+    }
+
+    private Program createProgram() {
+        Program program = new Program();
+        program.createVariable();
+        program.createVariable();
+        BasicBlock header = program.createBasicBlock();
+        BasicBlock body = program.createBasicBlock();
+        BasicBlock exit = program.createBasicBlock();
+
+        InvokeInstruction hashCode = new InvokeInstruction();
+        hashCode.setType(InvocationType.VIRTUAL);
+        hashCode.setMethod(HASH_CODE);
+        hashCode.setInstance(program.variableAt(1));
+        hashCode.setReceiver(program.createVariable());
+        header.getInstructions().add(hashCode);
+
+        BranchingInstruction branching = new BranchingInstruction(BranchingCondition.NOT_EQUAL);
+        branching.setOperand(hashCode.getReceiver());
+        branching.setConsequent(body);
+        branching.setAlternative(exit);
+        header.getInstructions().add(branching);
+
+        InvokeInstruction toString = new InvokeInstruction();
+        toString.setType(InvocationType.VIRTUAL);
+        toString.setMethod(TO_STRING);
+        toString.setInstance(program.variableAt(1));
+        body.getInstructions().add(toString);
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(header);
+        body.getInstructions().add(jump);
+
+        exit.getInstructions().add(new ExitInstruction());
+        return program;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import org.junit.Test;
+import org.teavm.model.BasicBlock;
+import org.teavm.model.Incoming;
+import org.teavm.model.Phi;
+import org.teavm.model.Program;
+import org.teavm.model.TryCatchBlock;
+import org.teavm.model.Variable;
+import org.teavm.model.instructions.ExitInstruction;
+import org.teavm.model.instructions.IntegerConstantInstruction;
+import org.teavm.model.instructions.JumpInstruction;
+
+/**
+ * <p>Splits program where block 0 defines two constants and jumps to block 1, which merges the first constant
+ * with a phi. Block 0 is protected by try/catch block with handler in block 2.</p>
+ */
+public class BasicBlockSplitterTest {
+    private Program program;
+    private IntegerConstantInstruction first;
+    private IntegerConstantInstruction second;
+    private JumpInstruction jump;
+    private Phi phi;
+
+    @Test
+    public void movesTailToNewBlock() {
+        createProgram();
+        BasicBlockSplitter splitter = new BasicBlockSplitter(program);
+        BasicBlock tail = splitter.split(second);
+        addJump(program.basicBlockAt(0), tail);
+        splitter.fixProgram();
+
+        assertEquals(4, program.basicBlockCount());
+        assertEquals(2, program.basicBlockAt(0).getInstructions().size());
+        assertSame(first, program.basicBlockAt(0).getInstructions().get(0));
+        assertSame(tail, second.getBasicBlock());
+        assertSame(tail, jump.getBasicBlock());
+        assertEquals("New block must be protected by the same try/catch", 1, tail.getTryCatchBlocks().size());
+        assertSame(program.basicBlockAt(2), tail.getTryCatchBlocks().get(0).getHandler());
+        assertSame("Phi must take value from the block that jumps to it", tail,
+                phi.getIncomings().get(0).getSource());
+    }
+
+    @Test
+    public void tracksLastPartOfRepeatedlySplitBlock() {
+        createProgram();
+        BasicBlockSplitter splitter = new BasicBlockSplitter(program);
+        BasicBlock middle = splitter.split(second);
+        BasicBlock tail = splitter.split(jump);
+        BasicBlock unrelated = splitter.createBasicBlock(program.basicBlockAt(0));
+        addJump(program.basicBlockAt(0), middle);
+        addJump(middle, tail);
+        exit(unrelated, null);
+        splitter.fixProgram();
+
+        assertEquals(6, program.basicBlockCount());
+        assertEquals(1, unrelated.getTryCatchBlocks().size());
+        assertSame(tail, jump.getBasicBlock());
+        assertSame(tail, phi.getIncomings().get(0).getSource());
+    }
+
+    private void createProgram() {
+        program = new Program();
+        BasicBlock block = program.createBasicBlock();
+        BasicBlock join = program.createBasicBlock();
+        BasicBlock handler = program.createBasicBlock();
+
+        first = new IntegerConstantInstruction();
+        first.setConstant(23);
+        first.setReceiver(program.createVariable());
+        block.getInstructions().add(first);
+
+        second = new IntegerConstantInstruction();
+        second.setConstant(42);
+        second.setReceiver(program.createVariable());
+        block.getInstructions().add(second);
+
+        jump = new JumpInstruction();
+        jump.setTarget(join);
+        block.getInstructions().add(jump);
+
+        TryCatchBlock tryCatch = new TryCatchBlock();
+        tryCatch.setHandler(handler);
+        block.getTryCatchBlocks().add(tryCatch);
+
+        phi = new Phi();
+        phi.setReceiver(program.createVariable());
+        Incoming incoming = new Incoming();
+        incoming.setSource(block);
+        incoming.setValue(first.getReceiver());
+        phi.getIncomings().add(incoming);
+        join.getPhis().add(phi);
+        exit(join, phi.getReceiver());
+        exit(handler, null);
+    }
+
+    private void addJump(BasicBlock block, BasicBlock target) {
+        JumpInstruction jump = new JumpInstruction();
+        jump.setTarget(target);
+        block.getInstructions().add(jump);
+    }
+
+    private void exit(BasicBlock block, Variable value) {
+        ExitInstruction exit = new ExitInstruction();
+        exit.setValueToReturn(value);
+        block.getInstructions().add(exit);
+    }
+}
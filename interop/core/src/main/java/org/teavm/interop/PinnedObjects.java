@@ -0,0 +1,72 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.interop;
+
+/**
+ * <p>Keeps objects alive while they are referenced from outside of Java code, for example when
+ * the host reads or writes array data obtained via {@link Address#ofData(byte[])}. Garbage
+ * collector never moves objects, so the address of a pinned object stays valid until it is
+ * unpinned.</p>
+ *
+ * <p>Pinned objects are identified by integer handles that can be passed to the host.</p>
+ */
+public final class PinnedObjects {
+    private static Object[] objects = new Object[16];
+    private static int[] nextFree = new int[16];
+    private static int firstFree = -1;
+    private static int count;
+
+    private PinnedObjects() {
+    }
+
+    public static int pin(Object object) {
+        if (object == null) {
+            throw new NullPointerException();
+        }
+        int handle;
+        if (firstFree >= 0) {
+            handle = firstFree;
+            firstFree = nextFree[handle];
+        } else {
+            if (count == objects.length) {
+                int newLength = objects.length * 2;
+                Object[] newObjects = new Object[newLength];
+                int[] newNextFree = new int[newLength];
+                System.arraycopy(objects, 0, newObjects, 0, count);
+                System.arraycopy(nextFree, 0, newNextFree, 0, count);
+                objects = newObjects;
+                nextFree = newNextFree;
+            }
+            handle = count++;
+        }
+        objects[handle] = object;
+        return handle;
+    }
+
+    public static Object get(int handle) {
+        if (handle < 0 || handle >= count || objects[handle] == null) {
+            throw new IllegalArgumentException("Invalid handle: " + handle);
+        }
+        return objects[handle];
+    }
+
+    public static void unpin(int handle) {
+        get(handle);
+        objects[handle] = null;
+        nextFree[handle] = firstFree;
+        firstFree = handle;
+    }
+}
@@ -32,6 +32,9 @@ public abstract class ArrayBufferView implements JSObject {
     @JSProperty
     public abstract int getByteLength();
 
+    @JSProperty
+    public abstract int getByteOffset();
+
     @JSProperty
     public abstract ArrayBuffer getBuffer();
 }
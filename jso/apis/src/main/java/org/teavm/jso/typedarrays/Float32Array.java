@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 /**
@@ -37,4 +38,17 @@ public abstract class Float32Array extends ArrayBufferView {
 
     @JSBody(params = { "buffer", "offset", "length" }, script = "return new Float32Array(buffer, offset, length);")
     public static native Float32Array create(ArrayBuffer buffer, int offset, int length);
+
+    public abstract Float32Array subarray(int begin, int end);
+
+    @JSBody(params = "array", script = "return array;")
+    public static native Float32Array fromJavaArray(@JSByRef float[] array);
+
+    @JSBody(params = { "array", "offset", "length" },
+            script = "return array.subarray(offset, offset + length);")
+    public static native Float32Array fromJavaArray(@JSByRef float[] array, int offset, int length);
+
+    @JSBody(params = {}, script = "return this;")
+    @JSByRef
+    public final native float[] toJavaArray();
 }
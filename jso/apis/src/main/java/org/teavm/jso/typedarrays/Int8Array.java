@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 /**
@@ -37,4 +38,17 @@ public abstract class Int8Array extends ArrayBufferView {
 
     @JSBody(params = { "buffer", "offset", "length" }, script = "return new Int8Array(buffer, offset, length);")
     public static native Int8Array create(ArrayBuffer buffer, int offset, int length);
+
+    public abstract Int8Array subarray(int begin, int end);
+
+    @JSBody(params = "array", script = "return array;")
+    public static native Int8Array fromJavaArray(@JSByRef byte[] array);
+
+    @JSBody(params = { "array", "offset", "length" },
+            script = "return array.subarray(offset, offset + length);")
+    public static native Int8Array fromJavaArray(@JSByRef byte[] array, int offset, int length);
+
+    @JSBody(params = {}, script = "return this;")
+    @JSByRef
+    public final native byte[] toJavaArray();
 }
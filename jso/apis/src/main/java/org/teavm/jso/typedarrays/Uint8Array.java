@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 /**
@@ -37,4 +38,17 @@ public abstract class Uint8Array extends ArrayBufferView {
 
     @JSBody(params = { "buffer", "offset", "length" }, script = "return new Uint8Array(buffer, offset, length);")
     public static native Uint8Array create(ArrayBuffer buffer, int offset, int length);
+
+    public abstract Uint8Array subarray(int begin, int end);
+
+    @JSBody(params = "array", script = "return new Uint8Array(array.buffer, array.byteOffset, array.length);")
+    public static native Uint8Array fromJavaArray(@JSByRef byte[] array);
+
+    @JSBody(params = { "array", "offset", "length" },
+            script = "return new Uint8Array(array.buffer, array.byteOffset + offset, length);")
+    public static native Uint8Array fromJavaArray(@JSByRef byte[] array, int offset, int length);
+
+    @JSBody(params = {}, script = "return new Int8Array(this.buffer, this.byteOffset, this.length);")
+    @JSByRef
+    public final native byte[] toJavaArray();
 }
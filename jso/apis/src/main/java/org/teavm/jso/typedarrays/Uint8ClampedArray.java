@@ -16,6 +16,7 @@
 package org.teavm.jso.typedarrays;
 
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSIndexer;
 
 /**
@@ -38,4 +39,17 @@ public abstract class Uint8ClampedArray extends ArrayBufferView {
     @JSBody(params = { "buffer", "offset", "length" }, script = "return new "
             + "Uint8ClampedArray(buffer, offset, length);")
     public static native Uint8ClampedArray create(ArrayBuffer buffer, int offset, int length);
+
+    public abstract Uint8ClampedArray subarray(int begin, int end);
+
+    @JSBody(params = "array", script = "return new Uint8ClampedArray(array.buffer, array.byteOffset, array.length);")
+    public static native Uint8ClampedArray fromJavaArray(@JSByRef byte[] array);
+
+    @JSBody(params = { "array", "offset", "length" },
+            script = "return new Uint8ClampedArray(array.buffer, array.byteOffset + offset, length);")
+    public static native Uint8ClampedArray fromJavaArray(@JSByRef byte[] array, int offset, int length);
+
+    @JSBody(params = {}, script = "return new Int8Array(this.buffer, this.byteOffset, this.length);")
+    @JSByRef
+    public final native byte[] toJavaArray();
 }
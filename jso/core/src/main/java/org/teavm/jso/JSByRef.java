@@ -0,0 +1,46 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.jso;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * <p>Marks parameter or return value of a native JavaScript method as passed by reference. Parameters and return
+ * values of array types are normally copied to and from JavaScript arrays. When marked with this annotation,
+ * primitive arrays are passed as typed arrays that share memory with Java arrays, without copying.</p>
+ *
+ * <p>Only single-dimension arrays of <code>byte</code>, <code>short</code>, <code>char</code>, <code>int</code>,
+ * <code>float</code> and <code>double</code> can be passed by reference. They correspond to
+ * <code>Int8Array</code>, <code>Int16Array</code>, <code>Uint16Array</code>, <code>Int32Array</code>,
+ * <code>Float32Array</code> and <code>Float64Array</code>. <code>null</code> is passed as is in both directions.
+ * When JavaScript code returns a typed array of exactly this type, the Java array shares its memory. Any other
+ * array-like value, for example <code>Uint8Array</code> returned as <code>byte[]</code>, is copied into a new
+ * typed array of the expected type.</p>
+ *
+ * <p>Example:</p>
+ *
+ * <pre>
+ * {@literal @}JSBody(params = "data", script = "gl.bufferData(gl.ARRAY_BUFFER, data, gl.STATIC_DRAW);")
+ * static native void upload({@literal @}JSByRef float[] data);
+ * </pre>
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.PARAMETER, ElementType.METHOD })
+public @interface JSByRef {
+}
@@ -81,6 +81,33 @@ final class JS {
     @PluggableDependency(JSNativeGenerator.class)
     public static native String unwrapString(JSObject value);
 
+    @InjectedBy(JSNativeGenerator.class)
+    public static native JSObject arrayData(Object array);
+
+    @InjectedBy(JSNativeGenerator.class)
+    @PluggableDependency(JSNativeGenerator.class)
+    public static native byte[] dataToByteArray(JSObject array);
+
+    @InjectedBy(JSNativeGenerator.class)
+    @PluggableDependency(JSNativeGenerator.class)
+    public static native short[] dataToShortArray(JSObject array);
+
+    @InjectedBy(JSNativeGenerator.class)
+    @PluggableDependency(JSNativeGenerator.class)
+    public static native char[] dataToCharArray(JSObject array);
+
+    @InjectedBy(JSNativeGenerator.class)
+    @PluggableDependency(JSNativeGenerator.class)
+    public static native int[] dataToIntArray(JSObject array);
+
+    @InjectedBy(JSNativeGenerator.class)
+    @PluggableDependency(JSNativeGenerator.class)
+    public static native float[] dataToFloatArray(JSObject array);
+
+    @InjectedBy(JSNativeGenerator.class)
+    @PluggableDependency(JSNativeGenerator.class)
+    public static native double[] dataToDoubleArray(JSObject array);
+
     public static <T extends JSObject> JSArray<T> wrap(T[] array) {
         JSArray<T> result = JSArray.create(array.length);
         for (int i = 0; i < array.length; ++i) {
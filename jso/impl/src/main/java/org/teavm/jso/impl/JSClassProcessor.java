@@ -36,6 +36,7 @@ import org.teavm.cache.NoCache;
 import org.teavm.diagnostics.Diagnostics;
 import org.teavm.interop.Sync;
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSFunctor;
 import org.teavm.jso.JSIndexer;
 import org.teavm.jso.JSMethod;
@@ -383,12 +384,12 @@ class JSClassProcessor {
         }
         for (int k = 0; k < invoke.getArguments().size(); ++k) {
             Variable arg = wrapArgument(callLocation, invoke.getArguments().get(k),
-                    method.parameterType(k));
+                    method.parameterType(k), isParameterByRef(method, k));
             newInvoke.getArguments().add(arg);
         }
         replacement.add(newInvoke);
         if (result != null) {
-            result = unwrap(callLocation, result, method.getResultType());
+            result = unwrap(callLocation, result, method.getResultType(), isResultByRef(method));
             copyVar(result, invoke.getReceiver(), invoke.getLocation());
         }
 
@@ -412,7 +413,7 @@ class JSClassProcessor {
             Variable result = invoke.getReceiver() != null ? program.createVariable() : null;
             addPropertyGet(propertyName, invoke.getInstance(), result, invoke.getLocation());
             if (result != null) {
-                result = unwrap(callLocation, result, method.getResultType());
+                result = unwrap(callLocation, result, method.getResultType(), isResultByRef(method));
                 copyVar(result, invoke.getReceiver(), invoke.getLocation());
             }
             return true;
@@ -426,7 +427,7 @@ class JSClassProcessor {
                 propertyName = cutPrefix(method.getName(), 3);
             }
             Variable wrapped = wrapArgument(callLocation, invoke.getArguments().get(0),
-                    method.parameterType(0));
+                    method.parameterType(0), isParameterByRef(method, 0));
             addPropertySet(propertyName, invoke.getInstance(), wrapped, invoke.getLocation());
             return true;
         }
@@ -496,12 +497,12 @@ class JSClassProcessor {
         newInvoke.setLocation(invoke.getLocation());
         for (int k = 0; k < invoke.getArguments().size(); ++k) {
             Variable arg = wrapArgument(callLocation, invoke.getArguments().get(k),
-                    method.parameterType(k));
+                    method.parameterType(k), isParameterByRef(method, k));
             newInvoke.getArguments().add(arg);
         }
         replacement.add(newInvoke);
         if (result != null) {
-            result = unwrap(callLocation, result, method.getResultType());
+            result = unwrap(callLocation, result, method.getResultType(), isResultByRef(method));
             copyVar(result, invoke.getReceiver(), invoke.getLocation());
         }
 
@@ -744,6 +745,65 @@ class JSClassProcessor {
         return var;
     }
 
+    private Variable unwrap(CallLocation location, Variable var, ValueType type, boolean byRef) {
+        if (!byRef) {
+            return unwrap(location, var, type);
+        }
+        MethodReference unwrapper = byRefArrayUnwrapper(type);
+        if (unwrapper == null) {
+            reportInvalidByRefType(location, type);
+            return var;
+        }
+        Variable result = program.createVariable();
+        InvokeInstruction insn = new InvokeInstruction();
+        insn.setMethod(unwrapper);
+        insn.getArguments().add(var);
+        insn.setReceiver(result);
+        insn.setType(InvocationType.SPECIAL);
+        insn.setLocation(location.getSourceLocation());
+        replacement.add(insn);
+        return result;
+    }
+
+    private MethodReference byRefArrayUnwrapper(ValueType type) {
+        if (!(type instanceof ValueType.Array)) {
+            return null;
+        }
+        ValueType itemType = ((ValueType.Array) type).getItemType();
+        if (!(itemType instanceof ValueType.Primitive)) {
+            return null;
+        }
+        switch (((ValueType.Primitive) itemType).getKind()) {
+            case BYTE:
+                return new MethodReference(JS.class, "dataToByteArray", JSObject.class, byte[].class);
+            case SHORT:
+                return new MethodReference(JS.class, "dataToShortArray", JSObject.class, short[].class);
+            case CHARACTER:
+                return new MethodReference(JS.class, "dataToCharArray", JSObject.class, char[].class);
+            case INTEGER:
+                return new MethodReference(JS.class, "dataToIntArray", JSObject.class, int[].class);
+            case FLOAT:
+                return new MethodReference(JS.class, "dataToFloatArray", JSObject.class, float[].class);
+            case DOUBLE:
+                return new MethodReference(JS.class, "dataToDoubleArray", JSObject.class, double[].class);
+            default:
+                return null;
+        }
+    }
+
+    private void reportInvalidByRefType(CallLocation location, ValueType type) {
+        diagnostics.error(location, "Only single-dimension arrays of byte, short, char, int, float and double "
+                + "can be passed by reference, got {{t0}}", type);
+    }
+
+    private boolean isParameterByRef(MethodReader method, int index) {
+        return method.parameterAnnotation(index).get(JSByRef.class.getName()) != null;
+    }
+
+    private boolean isResultByRef(MethodReader method) {
+        return method.getAnnotations().get(JSByRef.class.getName()) != null;
+    }
+
     private Variable unwrap(CallLocation location, Variable var, ValueType type) {
         if (type instanceof ValueType.Primitive) {
             switch (((ValueType.Primitive) type).getKind()) {
@@ -978,6 +1038,25 @@ class JSClassProcessor {
         return result;
     }
 
+    private Variable wrapArgument(CallLocation location, Variable var, ValueType type, boolean byRef) {
+        if (!byRef) {
+            return wrapArgument(location, var, type);
+        }
+        if (byRefArrayUnwrapper(type) == null) {
+            reportInvalidByRefType(location, type);
+            return var;
+        }
+        Variable result = program.createVariable();
+        InvokeInstruction insn = new InvokeInstruction();
+        insn.setMethod(new MethodReference(JS.class, "arrayData", Object.class, JSObject.class));
+        insn.getArguments().add(var);
+        insn.setReceiver(result);
+        insn.setType(InvocationType.SPECIAL);
+        insn.setLocation(location.getSourceLocation());
+        replacement.add(insn);
+        return result;
+    }
+
     private Variable wrapArgument(CallLocation location, Variable var, ValueType type) {
         if (type instanceof ValueType.Object) {
             String className = ((ValueType.Object) type).getClassName();
@@ -160,6 +160,29 @@ public class JSNativeGenerator implements Injector, DependencyPlugin, Generator
                     writer.append(")");
                 }
                 break;
+            case "arrayData":
+                writer.append("$rt_arrayData(");
+                context.writeExpr(context.getArgument(0), Precedence.min());
+                writer.append(")");
+                break;
+            case "dataToByteArray":
+                writeArrayFromData(context, "$rt_bytecls", "Int8Array");
+                break;
+            case "dataToShortArray":
+                writeArrayFromData(context, "$rt_shortcls", "Int16Array");
+                break;
+            case "dataToCharArray":
+                writeArrayFromData(context, "$rt_charcls", "Uint16Array");
+                break;
+            case "dataToIntArray":
+                writeArrayFromData(context, "$rt_intcls", "Int32Array");
+                break;
+            case "dataToFloatArray":
+                writeArrayFromData(context, "$rt_floatcls", "Float32Array");
+                break;
+            case "dataToDoubleArray":
+                writeArrayFromData(context, "$rt_doublecls", "Float64Array");
+                break;
             default:
                 if (methodRef.getName().startsWith("unwrap")) {
                     context.writeExpr(context.getArgument(0), context.getPrecedence());
@@ -182,9 +205,25 @@ public class JSNativeGenerator implements Injector, DependencyPlugin, Generator
             case "unwrapString":
                 method.getResult().propagate(agent.getType("java.lang.String"));
                 break;
+            case "dataToByteArray":
+            case "dataToShortArray":
+            case "dataToCharArray":
+            case "dataToIntArray":
+            case "dataToFloatArray":
+            case "dataToDoubleArray":
+                method.getResult().propagate(agent.getType(method.getReference().getReturnType().toString()));
+                break;
         }
     }
 
+    private void writeArrayFromData(InjectorContext context, String itemClass, String typedArray)
+            throws IOException {
+        SourceWriter writer = context.getWriter();
+        writer.append("$rt_wrapTypedArray(").append(itemClass).append("(),").ws().append(typedArray).append(",").ws();
+        context.writeExpr(context.getArgument(0), Precedence.min());
+        writer.append(")");
+    }
+
     private void achieveFunctorMethods(DependencyAgent agent, String type, MethodDependency caller) {
         if (caller.isMissing()) {
             return;
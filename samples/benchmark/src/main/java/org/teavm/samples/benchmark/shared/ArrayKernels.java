@@ -0,0 +1,172 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.shared;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+/**
+ * Small array kernels that exercise loop optimizations: strided access (strength reduction), counters that
+ * move in lockstep (induction variable simplification) and loops with constant bounds (unrolling).
+ * Stream kernels compute the same values as their loop counterparts, to measure overhead of stream pipelines.
+ * Each kernel returns a checksum, so that results of different builds can be compared.
+ */
+public final class ArrayKernels {
+    public static final String[] NAMES = { "strided sum", "lockstep copy", "4x4 matrix multiplication",
+            "polynomial evaluation", "RGB to gray", "filter-map-sum (loop)", "filter-map-sum (IntStream)",
+            "first match (loop)", "first match (Stream)" };
+    private static final int SIZE = 3 * 65536;
+    private static int[] data = new int[SIZE];
+    private static int[] target = new int[SIZE];
+    private static float[] matrixA = new float[16];
+    private static float[] matrixB = new float[16];
+    private static float[] matrixC = new float[16];
+    private static Integer[] boxedData = new Integer[SIZE / 16];
+    private static double[] coefficients = { 1, 0.5, 0.25, 0.125, 0.0625, 0.03125, 0.015625, 0.0078125 };
+
+    static {
+        for (int i = 0; i < SIZE; ++i) {
+            data[i] = (i * 7919) & 0xFF;
+        }
+        for (int i = 0; i < boxedData.length; ++i) {
+            boxedData[i] = i;
+        }
+        for (int i = 0; i < 16; ++i) {
+            matrixA[i] = i * 0.25f;
+            matrixB[i] = 1 - i * 0.125f;
+        }
+    }
+
+    private ArrayKernels() {
+    }
+
+    public static int run(int kernel, int repetitions) {
+        int checksum = 0;
+        for (int i = 0; i < repetitions; ++i) {
+            checksum += run(kernel);
+        }
+        return checksum;
+    }
+
+    private static int run(int kernel) {
+        switch (kernel) {
+            case 0:
+                return stridedSum(data, SIZE / 3);
+            case 1:
+                return lockstepCopy(data, target, SIZE);
+            case 2:
+                return matrixMultiplication();
+            case 3:
+                return polynomial();
+            case 4:
+                return rgbToGray(data, target, SIZE / 3);
+            case 5:
+                return filterMapSumLoop(data);
+            case 6:
+                return filterMapSumStream(data);
+            case 7:
+                return firstMatchLoop(boxedData);
+            case 8:
+                return firstMatchStream(boxedData);
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private static int stridedSum(int[] array, int count) {
+        int sum = 0;
+        for (int i = 0; i < count; ++i) {
+            sum += array[i * 3] - array[i * 3 + 2];
+        }
+        return sum;
+    }
+
+    private static int lockstepCopy(int[] source, int[] destination, int count) {
+        for (int i = 0, j = 0; i < count; ++i, ++j) {
+            destination[j] = source[i];
+        }
+        return destination[count / 2];
+    }
+
+    private static int matrixMultiplication() {
+        int checksum = 0;
+        for (int k = 0; k < 1000; ++k) {
+            multiply(matrixA, matrixB, matrixC);
+            checksum += (int) matrixC[k & 15];
+        }
+        return checksum;
+    }
+
+    private static void multiply(float[] a, float[] b, float[] c) {
+        for (int row = 0; row < 4; ++row) {
+            for (int column = 0; column < 4; ++column) {
+                float sum = 0;
+                for (int k = 0; k < 4; ++k) {
+                    sum += a[row * 4 + k] * b[k * 4 + column];
+                }
+                c[row * 4 + column] = sum;
+            }
+        }
+    }
+
+    private static int polynomial() {
+        double sum = 0;
+        for (int i = 0; i < 10000; ++i) {
+            double x = i * 0.0001;
+            double value = 0;
+            for (int k = 0; k < 8; ++k) {
+                value = value * x + coefficients[k];
+            }
+            sum += value;
+        }
+        return (int) sum;
+    }
+
+    private static int rgbToGray(int[] pixels, int[] gray, int count) {
+        for (int i = 0; i < count; ++i) {
+            gray[i] = (pixels[i * 3] * 77 + pixels[i * 3 + 1] * 150 + pixels[i * 3 + 2] * 29) >> 8;
+        }
+        return gray[count / 2];
+    }
+
+    private static int filterMapSumLoop(int[] array) {
+        int sum = 0;
+        for (int i = 0; i < array.length; ++i) {
+            int value = array[i];
+            if ((value & 1) == 0) {
+                sum += value * 3 + 1;
+            }
+        }
+        return sum;
+    }
+
+    private static int filterMapSumStream(int[] array) {
+        return IntStream.of(array).filter(value -> (value & 1) == 0).map(value -> value * 3 + 1).sum();
+    }
+
+    private static int firstMatchLoop(Integer[] array) {
+        for (Integer value : array) {
+            if (value * value > array.length * 8) {
+                return value;
+            }
+        }
+        return -1;
+    }
+
+    private static int firstMatchStream(Integer[] array) {
+        return Arrays.stream(array).filter(value -> value * value > array.length * 8).findFirst().orElse(-1);
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.shared;
+
+/**
+ * Kernels that exercise virtual dispatch: call sites with one, two and eight receiver classes, and an
+ * interface call site whose implementors belong to unrelated class hierarchies. Comparing monomorphic
+ * and bimorphic kernels to the megamorphic one shows how much guarded dispatch saves over vtable lookups.
+ * Each kernel returns a checksum, so that results of different builds can be compared.
+ */
+public final class DispatchKernels {
+    public static final String[] NAMES = { "monomorphic virtual call", "bimorphic virtual call",
+            "megamorphic virtual call", "interface call" };
+    private static final int SIZE = 4096;
+    private static final int ITERATIONS = 64;
+    private static MonoOp[] monoOps = new MonoOp[SIZE];
+    private static BiOp[] biOps = new BiOp[SIZE];
+    private static MegaOp[] megaOps = new MegaOp[SIZE];
+    private static Op[] interfaceOps = new Op[SIZE];
+
+    static {
+        for (int i = 0; i < SIZE; ++i) {
+            monoOps[i] = new MonoAdd();
+            biOps[i] = (i & 1) == 0 ? new BiAdd() : new BiXor();
+            megaOps[i] = createMegaOp((i * 7919) & 7);
+            interfaceOps[i] = (i & 1) == 0 ? new FirstOp() : new SecondOp();
+        }
+    }
+
+    private DispatchKernels() {
+    }
+
+    public static int run(int kernel, int repetitions) {
+        int checksum = 0;
+        for (int i = 0; i < repetitions; ++i) {
+            checksum += run(kernel);
+        }
+        return checksum;
+    }
+
+    private static int run(int kernel) {
+        switch (kernel) {
+            case 0:
+                return monomorphic(monoOps);
+            case 1:
+                return bimorphic(biOps);
+            case 2:
+                return megamorphic(megaOps);
+            case 3:
+                return interfaceCall(interfaceOps);
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private static int monomorphic(MonoOp[] ops) {
+        int value = 1;
+        for (int k = 0; k < ITERATIONS; ++k) {
+            for (MonoOp op : ops) {
+                value = op.apply(value);
+            }
+        }
+        return value;
+    }
+
+    private static int bimorphic(BiOp[] ops) {
+        int value = 1;
+        for (int k = 0; k < ITERATIONS; ++k) {
+            for (BiOp op : ops) {
+                value = op.apply(value);
+            }
+        }
+        return value;
+    }
+
+    private static int megamorphic(MegaOp[] ops) {
+        int value = 1;
+        for (int k = 0; k < ITERATIONS; ++k) {
+            for (MegaOp op : ops) {
+                value = op.apply(value);
+            }
+        }
+        return value;
+    }
+
+    private static int interfaceCall(Op[] ops) {
+        int value = 1;
+        for (int k = 0; k < ITERATIONS; ++k) {
+            for (Op op : ops) {
+                value = op.apply(value);
+            }
+        }
+        return value;
+    }
+
+    private static MegaOp createMegaOp(int index) {
+        switch (index) {
+            case 0:
+                return new MegaOp0();
+            case 1:
+                return new MegaOp1();
+            case 2:
+                return new MegaOp2();
+            case 3:
+                return new MegaOp3();
+            case 4:
+                return new MegaOp4();
+            case 5:
+                return new MegaOp5();
+            case 6:
+                return new MegaOp6();
+            default:
+                return new MegaOp7();
+        }
+    }
+
+    abstract static class MonoOp {
+        abstract int apply(int value);
+    }
+
+    static class MonoAdd extends MonoOp {
+        @Override
+        int apply(int value) {
+            return value + 3;
+        }
+    }
+
+    abstract static class BiOp {
+        abstract int apply(int value);
+    }
+
+    static class BiAdd extends BiOp {
+        @Override
+        int apply(int value) {
+            return value + 3;
+        }
+    }
+
+    static class BiXor extends BiOp {
+        @Override
+        int apply(int value) {
+            return value ^ 0x55;
+        }
+    }
+
+    abstract static class MegaOp {
+        abstract int apply(int value);
+    }
+
+    static class MegaOp0 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value + 1;
+        }
+    }
+
+    static class MegaOp1 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value ^ 0x33;
+        }
+    }
+
+    static class MegaOp2 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value * 3;
+        }
+    }
+
+    static class MegaOp3 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value - 7;
+        }
+    }
+
+    static class MegaOp4 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value >>> 1;
+        }
+    }
+
+    static class MegaOp5 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value | 0x100;
+        }
+    }
+
+    static class MegaOp6 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value & 0xFFFFFF;
+        }
+    }
+
+    static class MegaOp7 extends MegaOp {
+        @Override
+        int apply(int value) {
+            return value + (value >> 4);
+        }
+    }
+
+    interface Op {
+        int apply(int value);
+    }
+
+    static class FirstBase {
+        int offset = 3;
+    }
+
+    static class FirstOp extends FirstBase implements Op {
+        @Override
+        public int apply(int value) {
+            return value + offset;
+        }
+    }
+
+    static class SecondBase {
+        int mask = 0x55;
+    }
+
+    static class SecondOp extends SecondBase implements Op {
+        @Override
+        public int apply(int value) {
+            return value ^ mask;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.shared;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Kernels that exercise {@link HashMap} and {@link HashSet}. The same kernels are compiled with both hash table
+ * implementations of TeaVM class library (see <code>java.util.HashMap.implementation</code> property), so that
+ * results of two builds can be compared. Each kernel returns a checksum.
+ */
+public final class MapKernels {
+    public static final String[] NAMES = { "insert", "lookup (hit)", "lookup (miss)", "iterate", "remove and insert",
+            "string keys", "set add and contains" };
+    public static final int SIZE = 1 << 15;
+    private static Integer[] keys = new Integer[SIZE];
+    private static Integer[] missingKeys = new Integer[SIZE];
+    private static String[] stringKeys = new String[SIZE / 4];
+    private static Map<Integer, Integer> map = new HashMap<>();
+
+    static {
+        for (int i = 0; i < SIZE; ++i) {
+            keys[i] = i * 0x9E3779B1;
+            missingKeys[i] = i * 0x9E3779B1 + 1;
+        }
+        for (int i = 0; i < stringKeys.length; ++i) {
+            stringKeys[i] = "key" + i;
+        }
+        for (int i = 0; i < SIZE; ++i) {
+            map.put(keys[i], i);
+        }
+    }
+
+    private MapKernels() {
+    }
+
+    public static int run(int kernel, int repetitions) {
+        int checksum = 0;
+        for (int i = 0; i < repetitions; ++i) {
+            checksum += run(kernel);
+        }
+        return checksum;
+    }
+
+    private static int run(int kernel) {
+        switch (kernel) {
+            case 0:
+                return insert().size();
+            case 1:
+                return lookupHits();
+            case 2:
+                return lookupMisses();
+            case 3:
+                return iterate();
+            case 4:
+                return removeAndInsert();
+            case 5:
+                return stringKeys();
+            case 6:
+                return setAddAndContains();
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    /**
+     * Creates a map of {@link #SIZE} entries. Used both as a kernel and to measure memory retained by map.
+     */
+    public static Map<Integer, Integer> insert() {
+        Map<Integer, Integer> result = new HashMap<>();
+        for (int i = 0; i < SIZE; ++i) {
+            result.put(keys[i], i);
+        }
+        return result;
+    }
+
+    private static int lookupHits() {
+        int sum = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            sum += map.get(keys[i]);
+        }
+        return sum;
+    }
+
+    private static int lookupMisses() {
+        int count = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            if (map.get(missingKeys[i]) == null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static int iterate() {
+        int sum = 0;
+        for (Map.Entry<Integer, Integer> entry : map.entrySet()) {
+            sum += entry.getKey() ^ entry.getValue();
+        }
+        return sum;
+    }
+
+    private static int removeAndInsert() {
+        for (int i = 0; i < SIZE; i += 2) {
+            map.remove(keys[i]);
+        }
+        int size = map.size();
+        for (int i = 0; i < SIZE; i += 2) {
+            map.put(keys[i], i);
+        }
+        return size;
+    }
+
+    private static int stringKeys() {
+        Map<String, Integer> result = new HashMap<>();
+        for (int i = 0; i < stringKeys.length; ++i) {
+            result.put(stringKeys[i], i);
+        }
+        int sum = 0;
+        for (int i = 0; i < stringKeys.length; ++i) {
+            sum += result.get(stringKeys[i]);
+        }
+        return sum;
+    }
+
+    private static int setAddAndContains() {
+        Set<Integer> set = new HashSet<>();
+        for (int i = 0; i < SIZE; i += 2) {
+            set.add(keys[i]);
+        }
+        int count = 0;
+        for (int i = 0; i < SIZE; ++i) {
+            if (set.contains(keys[i])) {
+                count++;
+            }
+        }
+        return count;
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.shared;
+
+import java.util.Arrays;
+
+/**
+ * Kernels that measure {@link Arrays#sort(int[])}, {@link Arrays#sort(double[])} and {@link Arrays#sort(Object[])}
+ * across array sizes and distributions of data. Every kernel sorts a fresh copy of the same source array,
+ * so the time includes copying, which is linear and small compared to sorting. Number of repetitions is chosen
+ * so that each kernel sorts roughly the same total number of elements. Each kernel returns a checksum.
+ */
+public final class SortKernels {
+    public static final String[] TYPES = { "int[]", "double[]", "Integer[]" };
+    public static final String[] DISTRIBUTIONS = { "random", "sorted", "reversed", "few unique", "sawtooth",
+            "nearly sorted" };
+    public static final int[] SIZES = { 64, 4096, 1 << 18 };
+    public static final int KERNEL_COUNT = TYPES.length * DISTRIBUTIONS.length * SIZES.length;
+    private static final int ELEMENTS_PER_RUN = 1 << 20;
+    private static int seed;
+    private static int[] intSource;
+    private static double[] doubleSource;
+    private static Integer[] objectSource;
+
+    private SortKernels() {
+    }
+
+    public static String name(int kernel) {
+        return TYPES[type(kernel)] + ", " + DISTRIBUTIONS[distribution(kernel)] + ", " + SIZES[size(kernel)];
+    }
+
+    public static int repetitions(int kernel) {
+        return Math.max(1, ELEMENTS_PER_RUN / SIZES[size(kernel)]);
+    }
+
+    /**
+     * Generates source array for the given kernel. Must be called before {@link #run(int, int)}.
+     */
+    public static void prepare(int kernel) {
+        seed = 1;
+        int[] data = generate(distribution(kernel), SIZES[size(kernel)]);
+        intSource = null;
+        doubleSource = null;
+        objectSource = null;
+        switch (type(kernel)) {
+            case 0:
+                intSource = data;
+                break;
+            case 1:
+                doubleSource = new double[data.length];
+                for (int i = 0; i < data.length; ++i) {
+                    doubleSource[i] = data[i] / 16.0;
+                }
+                break;
+            case 2:
+                objectSource = new Integer[data.length];
+                for (int i = 0; i < data.length; ++i) {
+                    objectSource[i] = data[i];
+                }
+                break;
+        }
+    }
+
+    public static int run(int kernel, int repetitions) {
+        int checksum = 0;
+        for (int i = 0; i < repetitions; ++i) {
+            checksum += run(kernel);
+        }
+        return checksum;
+    }
+
+    private static int run(int kernel) {
+        switch (type(kernel)) {
+            case 0: {
+                int[] array = intSource.clone();
+                Arrays.sort(array);
+                return array[0] ^ array[array.length / 2] ^ array[array.length - 1];
+            }
+            case 1: {
+                double[] array = doubleSource.clone();
+                Arrays.sort(array);
+                return (int) (array[0] + array[array.length / 2] + array[array.length - 1]);
+            }
+            case 2: {
+                Integer[] array = objectSource.clone();
+                Arrays.sort(array);
+                return array[0] ^ array[array.length / 2] ^ array[array.length - 1];
+            }
+            default:
+                throw new IllegalArgumentException();
+        }
+    }
+
+    private static int type(int kernel) {
+        return kernel / (DISTRIBUTIONS.length * SIZES.length);
+    }
+
+    private static int distribution(int kernel) {
+        return kernel / SIZES.length % DISTRIBUTIONS.length;
+    }
+
+    private static int size(int kernel) {
+        return kernel % SIZES.length;
+    }
+
+    private static int[] generate(int distribution, int size) {
+        int[] data = new int[size];
+        switch (distribution) {
+            case 0:
+                for (int i = 0; i < size; ++i) {
+                    data[i] = nextRandom();
+                }
+                break;
+            case 1:
+                for (int i = 0; i < size; ++i) {
+                    data[i] = i;
+                }
+                break;
+            case 2:
+                for (int i = 0; i < size; ++i) {
+                    data[i] = size - i;
+                }
+                break;
+            case 3:
+                for (int i = 0; i < size; ++i) {
+                    data[i] = nextRandom() & 15;
+                }
+                break;
+            case 4: {
+                int period = Math.max(8, size / 16);
+                for (int i = 0; i < size; ++i) {
+                    data[i] = i % period;
+                }
+                break;
+            }
+            case 5:
+                for (int i = 0; i < size; ++i) {
+                    data[i] = i;
+                }
+                for (int i = 0; i < size / 100 + 1; ++i) {
+                    int j = (nextRandom() >>> 1) % size;
+                    int k = (nextRandom() >>> 1) % size;
+                    int t = data[j];
+                    data[j] = data[k];
+                    data[k] = t;
+                }
+                break;
+        }
+        return data;
+    }
+
+    private static int nextRandom() {
+        // xorshift, so that all implementations get exactly the same data
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.shared;
+
+/**
+ * Kernels that exercise basic string operations on many short ASCII strings, which are stored in compact
+ * form on WebAssembly. Each kernel returns a checksum. {@link #retainedBytesPerString()} reports heap consumed
+ * by a string, as seen by the garbage collector.
+ */
+public final class StringKernels {
+    public static final String[] NAMES = { "charAt", "equals", "hashCode", "indexOf(char)", "indexOf(String)" };
+    private static final int COUNT = 16384;
+    private static int seed = 1;
+    private static String[] words = new String[COUNT];
+    private static String[] copies = new String[COUNT];
+    private static String[] patterns = new String[COUNT];
+    private static String[] retained;
+
+    static {
+        for (int i = 0; i < COUNT; ++i) {
+            words[i] = generate(8 + (nextRandom() >>> 1) % 32);
+            copies[i] = new String(words[i].toCharArray());
+            patterns[i] = generate(2);
+        }
+    }
+
+    private StringKernels() {
+    }
+
+    public static int run(int kernel, int repetitions) {
+        int checksum = 0;
+        for (int i = 0; i < repetitions; ++i) {
+            checksum += run(kernel);
+        }
+        return checksum;
+    }
+
+    private static int run(int kernel) {
+        switch (kernel) {
+            case 0:
+                return charAtSum();
+            case 1:
+                return equalsCount();
+            case 2:
+                return hashCodeSum();
+            case 3:
+                return indexOfCharSum();
+            case 4:
+                return indexOfStringSum();
+            default:
+                return 0;
+        }
+    }
+
+    private static int charAtSum() {
+        int sum = 0;
+        for (String word : words) {
+            for (int i = 0; i < word.length(); ++i) {
+                sum += word.charAt(i);
+            }
+        }
+        return sum;
+    }
+
+    private static int equalsCount() {
+        int count = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            if (words[i].equals(copies[i])) {
+                ++count;
+            }
+            if (words[i].equals(copies[(i + 1) % COUNT])) {
+                ++count;
+            }
+        }
+        return count;
+    }
+
+    private static int hashCodeSum() {
+        int sum = 0;
+        for (String word : words) {
+            // Copy shares characters, but not the cached hash code
+            sum += new String(word).hashCode();
+        }
+        return sum;
+    }
+
+    private static int indexOfCharSum() {
+        int sum = 0;
+        for (String word : words) {
+            sum += word.indexOf('q') + word.indexOf('z', 4);
+        }
+        return sum;
+    }
+
+    private static int indexOfStringSum() {
+        int sum = 0;
+        for (int i = 0; i < COUNT; ++i) {
+            sum += words[i].indexOf(patterns[i]);
+        }
+        return sum;
+    }
+
+    /**
+     * Allocates strings of 24 characters and measures heap they retain using {@link Runtime#freeMemory()}.
+     * Returns zero where the runtime does not track heap usage.
+     */
+    public static int retainedBytesPerString() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        long before = runtime.totalMemory() - runtime.freeMemory();
+        retained = new String[COUNT];
+        for (int i = 0; i < COUNT; ++i) {
+            retained[i] = generate(24);
+        }
+        System.gc();
+        long after = runtime.totalMemory() - runtime.freeMemory();
+        retained = null;
+        return (int) ((after - before) / COUNT);
+    }
+
+    private static String generate(int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i) {
+            chars[i] = (char) ('a' + (nextRandom() >>> 1) % 26);
+        }
+        return new String(chars);
+    }
+
+    private static int nextRandom() {
+        // xorshift, so that all implementations get exactly the same data
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.shared;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Kernels that measure {@link String#getBytes(Charset)} and {@link String#String(byte[], Charset)} on payloads
+ * of several megabytes, for different charsets and kinds of text. Text is generated once per kernel,
+ * decoding kernels also encode it once beforehand. Each kernel returns a checksum.
+ */
+public final class TextCodecKernels {
+    public static final Charset[] CHARSETS = { StandardCharsets.UTF_8, StandardCharsets.ISO_8859_1,
+            StandardCharsets.UTF_16LE };
+    public static final String[] TEXTS = { "ASCII", "Latin-1", "Cyrillic", "CJK and emoji" };
+    public static final String[] OPERATIONS = { "encode", "decode" };
+    public static final int KERNEL_COUNT = CHARSETS.length * TEXTS.length * OPERATIONS.length;
+    private static final int TEXT_LENGTH = 1 << 21;
+    private static int seed;
+    private static String text;
+    private static byte[] bytes;
+
+    private TextCodecKernels() {
+    }
+
+    public static String name(int kernel) {
+        return OPERATIONS[operation(kernel)] + ", " + charset(kernel).name() + ", " + TEXTS[textKind(kernel)];
+    }
+
+    public static int repetitions(int kernel) {
+        return 8;
+    }
+
+    /**
+     * Generates payload for the given kernel. Must be called before {@link #run(int, int)}.
+     */
+    public static void prepare(int kernel) {
+        seed = 1;
+        text = generate(textKind(kernel), TEXT_LENGTH);
+        bytes = operation(kernel) == 1 ? text.getBytes(charset(kernel)) : null;
+    }
+
+    public static int run(int kernel, int repetitions) {
+        int checksum = 0;
+        for (int i = 0; i < repetitions; ++i) {
+            checksum += run(kernel);
+        }
+        return checksum;
+    }
+
+    private static int run(int kernel) {
+        Charset charset = charset(kernel);
+        if (operation(kernel) == 0) {
+            byte[] result = text.getBytes(charset);
+            return result.length ^ result[result.length / 2];
+        } else {
+            String result = new String(bytes, charset);
+            return result.length() ^ result.charAt(result.length() / 2);
+        }
+    }
+
+    private static Charset charset(int kernel) {
+        return CHARSETS[kernel / (TEXTS.length * OPERATIONS.length)];
+    }
+
+    private static int textKind(int kernel) {
+        return kernel / OPERATIONS.length % TEXTS.length;
+    }
+
+    private static int operation(int kernel) {
+        return kernel % OPERATIONS.length;
+    }
+
+    private static String generate(int kind, int length) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            int r = nextRandom() >>> 1;
+            if (r % 6 == 0) {
+                sb.append(' ');
+                continue;
+            }
+            switch (kind) {
+                case 0:
+                    sb.append((char) ('a' + r % 26));
+                    break;
+                case 1:
+                    sb.append(r % 4 == 0 ? (char) (0xC0 + r % 64) : (char) ('a' + r % 26));
+                    break;
+                case 2:
+                    sb.append((char) (0x430 + r % 32));
+                    break;
+                case 3:
+                    if (r % 50 == 0) {
+                        sb.appendCodePoint(0x1F600 + r % 80);
+                    } else {
+                        sb.append((char) (0x4E00 + r % 0x5000));
+                    }
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static int nextRandom() {
+        // xorshift, so that all implementations get exactly the same data
+        seed ^= seed << 13;
+        seed ^= seed >>> 17;
+        seed ^= seed << 5;
+        return seed;
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.teavm;
+
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.samples.benchmark.shared.ArrayKernels;
+
+public final class KernelBenchmarkStarter {
+    private static final int REPETITIONS = 200;
+    private static HTMLDocument document = Window.current().getDocument();
+    private static HTMLElement resultTableBody = document.getElementById("result-table-body");
+
+    private KernelBenchmarkStarter() {
+    }
+
+    public static void main(String[] args) {
+        runKernel(0);
+    }
+
+    private static void runKernel(int kernel) {
+        // Warm up JIT before measuring
+        ArrayKernels.run(kernel, REPETITIONS / 10);
+        double start = Performance.now();
+        int checksum = ArrayKernels.run(kernel, REPETITIONS);
+        double end = Performance.now();
+
+        HTMLElement row = document.createElement("tr");
+        resultTableBody.appendChild(row);
+        addCell(row, ArrayKernels.NAMES[kernel]);
+        addCell(row, String.valueOf(end - start));
+        addCell(row, String.valueOf(checksum));
+
+        if (kernel + 1 < ArrayKernels.NAMES.length) {
+            Window.setTimeout(() -> runKernel(kernel + 1), 0);
+        }
+    }
+
+    private static void addCell(HTMLElement row, String text) {
+        HTMLElement cell = document.createElement("td");
+        row.appendChild(cell);
+        cell.appendChild(document.createTextNode(text));
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.teavm;
+
+import java.util.Map;
+import org.teavm.jso.JSBody;
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.samples.benchmark.shared.MapKernels;
+
+public final class MapBenchmarkStarter {
+    private static final int REPETITIONS = 50;
+    private static final int RETAINED_MAPS = 16;
+    private static HTMLDocument document = Window.current().getDocument();
+    private static HTMLElement resultTableBody = document.getElementById("result-table-body");
+    private static HTMLElement memoryElement = document.getElementById("memory");
+
+    private MapBenchmarkStarter() {
+    }
+
+    public static void main(String[] args) {
+        measureMemory();
+        runKernel(0);
+    }
+
+    private static void measureMemory() {
+        double before = usedHeapSize();
+        @SuppressWarnings("unchecked")
+        Map<Integer, Integer>[] maps = new Map[RETAINED_MAPS];
+        for (int i = 0; i < maps.length; ++i) {
+            maps[i] = MapKernels.insert();
+        }
+        double after = usedHeapSize();
+        String text;
+        if (before < 0) {
+            text = "not available in this browser";
+        } else {
+            double bytesPerEntry = (after - before) / ((double) RETAINED_MAPS * MapKernels.SIZE);
+            text = Math.round(bytesPerEntry * 10) / 10.0 + " bytes per entry, " + maps[maps.length - 1].size()
+                    + " entries per map";
+        }
+        memoryElement.appendChild(document.createTextNode(text));
+    }
+
+    private static void runKernel(int kernel) {
+        // Warm up JIT before measuring
+        MapKernels.run(kernel, REPETITIONS / 10);
+        double start = Performance.now();
+        int checksum = MapKernels.run(kernel, REPETITIONS);
+        double end = Performance.now();
+
+        HTMLElement row = document.createElement("tr");
+        resultTableBody.appendChild(row);
+        addCell(row, MapKernels.NAMES[kernel]);
+        addCell(row, String.valueOf(end - start));
+        addCell(row, String.valueOf(checksum));
+
+        if (kernel + 1 < MapKernels.NAMES.length) {
+            Window.setTimeout(() -> runKernel(kernel + 1), 0);
+        }
+    }
+
+    private static void addCell(HTMLElement row, String text) {
+        HTMLElement cell = document.createElement("td");
+        row.appendChild(cell);
+        cell.appendChild(document.createTextNode(text));
+    }
+
+    @JSBody(params = {}, script = "return performance.memory ? performance.memory.usedJSHeapSize : -1;")
+    private static native double usedHeapSize();
+}
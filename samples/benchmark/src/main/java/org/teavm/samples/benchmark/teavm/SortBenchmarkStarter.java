@@ -0,0 +1,61 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.teavm;
+
+import org.teavm.jso.browser.Performance;
+import org.teavm.jso.browser.Window;
+import org.teavm.jso.dom.html.HTMLDocument;
+import org.teavm.jso.dom.html.HTMLElement;
+import org.teavm.samples.benchmark.shared.SortKernels;
+
+public final class SortBenchmarkStarter {
+    private static HTMLDocument document = Window.current().getDocument();
+    private static HTMLElement resultTableBody = document.getElementById("result-table-body");
+
+    private SortBenchmarkStarter() {
+    }
+
+    public static void main(String[] args) {
+        runKernel(0);
+    }
+
+    private static void runKernel(int kernel) {
+        SortKernels.prepare(kernel);
+        int repetitions = SortKernels.repetitions(kernel);
+
+        // Warm up JIT before measuring
+        SortKernels.run(kernel, Math.max(1, repetitions / 10));
+        double start = Performance.now();
+        int checksum = SortKernels.run(kernel, repetitions);
+        double end = Performance.now();
+
+        HTMLElement row = document.createElement("tr");
+        resultTableBody.appendChild(row);
+        addCell(row, SortKernels.name(kernel));
+        addCell(row, String.valueOf(end - start));
+        addCell(row, String.valueOf(checksum));
+
+        if (kernel + 1 < SortKernels.KERNEL_COUNT) {
+            Window.setTimeout(() -> runKernel(kernel + 1), 0);
+        }
+    }
+
+    private static void addCell(HTMLElement row, String text) {
+        HTMLElement cell = document.createElement("td");
+        row.appendChild(cell);
+        cell.appendChild(document.createTextNode(text));
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.samples.benchmark.teavm;
+
+import org.teavm.interop.Import;
+import org.teavm.samples.benchmark.shared.ArrayKernels;
+
+public final class WasmKernelBenchmarkStarter {
+    private static final int REPETITIONS = 200;
+
+    private WasmKernelBenchmarkStarter() {
+    }
+
+    public static void main(String[] args) {
+        for (int kernel = 0; kernel < ArrayKernels.NAMES.length; ++kernel) {
+            ArrayKernels.run(kernel, REPETITIONS / 10);
+            double start = performanceTime();
+            int checksum = ArrayKernels.run(kernel, REPETITIONS);
+            double end = performanceTime();
+            reportKernel(kernel, end - start, checksum);
+        }
+    }
+
+    @Import(module = "benchmark", name = "performanceTime")
+    private static native double performanceTime();
+
+    @Import(module = "benchmark", name = "reportKernel")
+    private static native void reportKernel(int kernel, double time, int checksum);
+}
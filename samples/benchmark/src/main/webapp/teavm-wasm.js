@@ -15,8 +15,9 @@
  */
 
 var Benchmark = function() {
-    function Benchmark(canvas) {
+    function Benchmark(canvas, path) {
         this.canvas = canvas;
+        this.path = path || "teavm-wasm/classes.wasm";
         this.module = null;
         this.line = "";
         this.resultTableBody = document.getElementById("result-table-body");
@@ -50,7 +51,7 @@ var Benchmark = function() {
     function load(benchmark, callback) {
         var xhr = new XMLHttpRequest();
         xhr.responseType = "arraybuffer";
-        xhr.open("GET", "teavm-wasm/classes.wasm");
+        xhr.open("GET", benchmark.path);
         xhr.onload = function() {
             var response = xhr.response;
             if (!response) {
@@ -77,6 +78,19 @@ var Benchmark = function() {
                         row.appendChild(timeCell);
                         timeCell.appendChild(document.createTextNode(timeSpentComputing.toString()));
                     },
+                    reportKernel: function(kernel, time, checksum) {
+                        var row = document.createElement("tr");
+                        benchmark.resultTableBody.appendChild(row);
+                        [kernel, time, checksum].forEach(function(value) {
+                            var cell = document.createElement("td");
+                            row.appendChild(cell);
+                            cell.appendChild(document.createTextNode(value.toString()));
+                        });
+                    },
+                    reportMemory: function(bytesPerObject) {
+                        var memory = document.getElementById("memory");
+                        memory.appendChild(document.createTextNode(bytesPerObject.toString()));
+                    },
                     repeatAfter: function(time) {
                         setTimeout(tick.bind(null, benchmark), time);
                     },
@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.lang;
+
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class StringConcatenationTest {
+    @Test
+    public void nullStringAppended() {
+        String value = nullString();
+        assertEquals("[null]", "[" + value + "]");
+        assertEquals("null", value + "");
+    }
+
+    @Test
+    public void nullObjectAppended() {
+        Object value = nullObject();
+        assertEquals("<null>", "<" + value + ">");
+    }
+
+    @Test
+    public void primitivesAppended() {
+        int i = 23;
+        long l = -42L;
+        char c = 'q';
+        boolean b = true;
+        double d = 1.5;
+        assertEquals("23;-42;q;true;1.5", i + ";" + l + ";" + c + ";" + b + ";" + d);
+    }
+
+    @Test
+    public void nestedConcatenation() {
+        String a = "a";
+        int n = 2;
+        Object o = new StringBuilder("o");
+        String inner = "(" + a + n + ")";
+        assertEquals("[(a2)o][(a2)]", "[" + ("(" + a + n + ")") + o + "][" + inner + "]");
+    }
+
+    @Test
+    public void toStringCalledInOrder() {
+        StringBuilder log = new StringBuilder();
+        Object first = new LoggingObject(log, "1");
+        Object second = new LoggingObject(log, "2");
+        assertEquals("1-2", first + "-" + second);
+        assertEquals("12", log.toString());
+    }
+
+    private static String nullString() {
+        return null;
+    }
+
+    private static Object nullObject() {
+        return null;
+    }
+
+    static class LoggingObject {
+        private StringBuilder log;
+        private String value;
+
+        LoggingObject(StringBuilder log, String value) {
+            this.log = log;
+            this.value = value;
+        }
+
+        @Override
+        public String toString() {
+            log.append(value);
+            return value;
+        }
+    }
+}
@@ -17,6 +17,7 @@ package org.teavm.classlib.java.lang;
 
 import static org.junit.Assert.*;
 import java.io.UnsupportedEncodingException;
+import java.nio.charset.StandardCharsets;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.teavm.junit.TeaVMTestRunner;
@@ -285,4 +286,47 @@ public class StringTest {
     public void internsConstants() {
         assertSame("abc", ("a" + "bc").intern());
     }
+
+    @Test
+    public void comparesLatin1AndWideStrings() {
+        String latin1 = new String(new char[] { 'a', '\u00E9', '\u00FF' });
+        String wide = new String(new char[] { 'a', '\u00E9', '\u0100' });
+        assertEquals("a\u00E9\u00FF", latin1);
+        assertNotEquals(latin1, wide);
+        assertEquals("a\u00E9\u00FF".hashCode(), latin1.hashCode());
+        assertEquals(wide.substring(0, 2), latin1.substring(0, 2));
+        assertEquals(latin1, wide.substring(0, 2) + "\u00FF");
+        assertTrue(latin1.compareTo(wide) < 0);
+    }
+
+    @Test
+    public void searchesLatin1String() {
+        String str = "caf\u00E9 caf\u00E9";
+        assertEquals(3, str.indexOf('\u00E9'));
+        assertEquals(8, str.lastIndexOf('\u00E9'));
+        assertEquals(-1, str.indexOf('\u0100'));
+        assertEquals(-1, "\u00FF".indexOf(-1));
+        assertEquals(-1, "\u00FF".lastIndexOf(-1));
+        assertEquals(-1, "\uFFFF".indexOf(-1));
+        assertEquals(-1, "\uFFFF".lastIndexOf(-1));
+        assertEquals(-1, str.indexOf("\u0100"));
+        assertEquals(5, str.indexOf("caf\u00E9", 1));
+        assertEquals(0, str.indexOf('c', -1));
+        assertTrue(str.contains("\u00E9 c"));
+        assertFalse(str.contains("\u00E9x"));
+        assertTrue("abc".contains(""));
+        assertFalse("abc".contains("cd"));
+    }
+
+    @Test
+    public void convertsBetweenLatin1AndWideStrings() {
+        assertEquals("\u0178", "\u00FF".toUpperCase());
+        assertEquals("\u00FF", "\u0178".toLowerCase());
+        assertEquals("a\u0100c", "abc".replace('b', '\u0100'));
+        assertEquals("abc", "a\u0100c".replace('\u0100', 'b'));
+        assertEquals("ab\u0100", "ab".concat("\u0100"));
+        assertArrayEquals(new char[] { 'a', '\u00E9' }, "a\u00E9".toCharArray());
+        assertArrayEquals(new byte[] { 'a', (byte) 0xE9 }, "a\u00E9".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals("a\u00E9", new String(new byte[] { 'a', (byte) 0xE9 }, StandardCharsets.ISO_8859_1));
+    }
 }
@@ -1,6 +1,7 @@
 package org.teavm.classlib.java.nio;
 
 import static org.hamcrest.CoreMatchers.*;
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
 import static org.junit.Assert.fail;
 import java.nio.*;
@@ -603,4 +604,39 @@ public class ByteBufferTest {
             // expected
         }
     }
+
+    @Test
+    public void getsFloat() {
+        byte[] array = { 0x40, 0x49, 0x0F, (byte)0xD0, 0x3F, (byte)0xC0, 0, 0 };
+        ByteBuffer buffer = ByteBuffer.wrap(array);
+        assertEquals(3.14159, buffer.getFloat(), 0.00001);
+        assertThat(buffer.getFloat(), is(1.5F));
+        assertThat(buffer.position(), is(8));
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        assertThat(Float.floatToIntBits(buffer.getFloat(4)), is(0x0000C03F));
+        try {
+            buffer.getFloat(5);
+            fail("Exception expected");
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void putsDouble() {
+        ByteBuffer buffer = ByteBuffer.allocate(16);
+        buffer.putDouble(2.5);
+        buffer.order(ByteOrder.LITTLE_ENDIAN).putDouble(-0.75);
+        assertThat(buffer.get(0), is((byte)0x40));
+        assertThat(buffer.get(1), is((byte)0x04));
+        assertThat(buffer.get(15), is((byte)0xBF));
+        assertThat(buffer.get(14), is((byte)0xE8));
+        assertThat(buffer.getDouble(8), is(-0.75));
+        try {
+            buffer.putDouble(0.0);
+            fail("Exception expected");
+        } catch (BufferOverflowException e) {
+            // expected
+        }
+    }
 }
@@ -169,4 +169,41 @@ public class ByteBufferWrapperTest {
         buffer.put(1, (byte)0x24);
         assertThat(wrapper.get(0), is((short)0x0024));
     }
+
+    @Test
+    public void bulkTransfersIntBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(20);
+        buffer.get();
+        IntBuffer wrapper = buffer.slice().asIntBuffer();
+        wrapper.put(new int[] { 0x01020304, 0x05060708, -1 });
+        assertThat(buffer.get(1), is((byte)0x01));
+        assertThat(buffer.get(8), is((byte)0x08));
+        assertThat(buffer.get(9), is((byte)0xFF));
+
+        int[] result = new int[4];
+        wrapper.rewind();
+        wrapper.get(result, 1, 3);
+        assertThat(result, is(new int[] { 0, 0x01020304, 0x05060708, -1 }));
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        wrapper = buffer.slice().asIntBuffer();
+        wrapper.get(result, 0, 2);
+        assertThat(result[0], is(0x04030201));
+        assertThat(result[1], is(0x08070605));
+    }
+
+    @Test
+    public void bulkTransfersFloatBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(16);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        FloatBuffer wrapper = buffer.asFloatBuffer();
+        wrapper.put(new float[] { 1.5F, -2F, 3.25F });
+        assertThat(buffer.getFloat(4), is(-2F));
+
+        float[] result = new float[3];
+        wrapper.rewind();
+        wrapper.get(result);
+        assertThat(result, is(new float[] { 1.5F, -2F, 3.25F }));
+        assertThat(buffer.order(ByteOrder.BIG_ENDIAN).getInt(0), is(0x0000C03F));
+    }
 }
@@ -0,0 +1,53 @@
+package org.teavm.classlib.java.nio.charset;
+
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class Latin1Test {
+    @Test
+    public void decodes() {
+        byte[] bytes = { 65, -69, -1, 0 };
+        assertEquals("A\u00BB\u00FF\u0000", new String(bytes, StandardCharsets.ISO_8859_1));
+        assertEquals("A\uFFFD\uFFFD\u0000", new String(bytes, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void encodes() {
+        String text = "A\u00BB\u0436\uD83D\uDE00\uD800";
+        assertArrayEquals(new byte[] { 65, -69, 63, 63, 63 }, text.getBytes(StandardCharsets.ISO_8859_1));
+        assertArrayEquals(new byte[] { 65, 63, 63, 63, 63 }, text.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    public void encodesWithEncoder() {
+        ByteBuffer buffer = StandardCharsets.ISO_8859_1.encode("A\u00BB\u0436\uD83D\uDE00");
+        byte[] result = new byte[buffer.remaining()];
+        buffer.get(result);
+        assertArrayEquals(new byte[] { 65, -69, 63, 63 }, result);
+    }
+
+    @Test
+    public void roundTripsLongText() {
+        byte[] bytes = new byte[10000];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) i;
+        }
+        String text = new String(bytes, StandardCharsets.ISO_8859_1);
+        assertEquals(bytes.length, text.length());
+        assertEquals('\u00FF', text.charAt(255));
+        assertArrayEquals(bytes, text.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    @Test
+    public void lookedUpByName() {
+        assertSame(StandardCharsets.ISO_8859_1, Charset.forName("latin1"));
+        assertSame(StandardCharsets.ISO_8859_1, Charset.forName("iso-8859-1"));
+        assertSame(StandardCharsets.US_ASCII, Charset.forName("ASCII"));
+    }
+}
@@ -0,0 +1,88 @@
+package org.teavm.classlib.java.nio.charset;
+
+import static org.junit.Assert.*;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class UTF16Test {
+    @Test
+    public void encodes() {
+        String text = "A\u00BB\uD83D\uDE00";
+        assertArrayEquals(new byte[] { 0, 65, 0, -69, -40, 61, -34, 0 }, text.getBytes(StandardCharsets.UTF_16BE));
+        assertArrayEquals(new byte[] { 65, 0, -69, 0, 61, -40, 0, -34 }, text.getBytes(StandardCharsets.UTF_16LE));
+        assertArrayEquals(new byte[] { -2, -1, 0, 65, 0, -69, -40, 61, -34, 0 },
+                text.getBytes(StandardCharsets.UTF_16));
+        assertArrayEquals(new byte[0], "".getBytes(StandardCharsets.UTF_16));
+    }
+
+    @Test
+    public void replacesMalformedSurrogates() {
+        assertArrayEquals(new byte[] { 0, 97, -1, -3, 0, 98 }, "a\uD800b".getBytes(StandardCharsets.UTF_16BE));
+        assertArrayEquals(new byte[] { -3, -1 }, "\uDC00".getBytes(StandardCharsets.UTF_16LE));
+        assertEquals("\uFFFDA", new String(new byte[] { -36, 0, 0, 65 }, StandardCharsets.UTF_16BE));
+        assertEquals("\uFFFD", new String(new byte[] { -40, 0, 0, 65 }, StandardCharsets.UTF_16BE));
+        assertEquals("A\uFFFD", new String(new byte[] { 0, 65, -40, 0 }, StandardCharsets.UTF_16BE));
+        assertEquals("A\uFFFD", new String(new byte[] { 0, 65, 0 }, StandardCharsets.UTF_16BE));
+    }
+
+    @Test
+    public void detectsByteOrder() {
+        assertEquals("A", new String(new byte[] { -2, -1, 0, 65 }, StandardCharsets.UTF_16));
+        assertEquals("A", new String(new byte[] { -1, -2, 65, 0 }, StandardCharsets.UTF_16));
+        assertEquals("A", new String(new byte[] { 0, 65 }, StandardCharsets.UTF_16));
+        assertEquals("\uFEFFA", new String(new byte[] { -2, -1, 0, 65 }, StandardCharsets.UTF_16BE));
+    }
+
+    @Test
+    public void detectsByteOrderInChunks() {
+        CharsetDecoder decoder = StandardCharsets.UTF_16.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE);
+        byte[] input = { -1, -2, 65, 0, 66, 0 };
+        ByteBuffer in = ByteBuffer.allocate(input.length);
+        CharBuffer out = CharBuffer.allocate(8);
+        for (int i = 0; i < input.length; ++i) {
+            in.put(input[i]);
+            in.flip();
+            CoderResult result = decoder.decode(in, out, i == input.length - 1);
+            assertTrue(result.isUnderflow());
+            in.compact();
+        }
+        decoder.flush(out);
+        out.flip();
+        assertEquals("AB", out.toString());
+    }
+
+    @Test
+    public void roundTripsLongText() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5000; ++i) {
+            sb.append((char) ('A' + i % 26)).append('\u0436');
+            if (i % 100 == 0) {
+                sb.appendCodePoint(0x1F600 + i % 64);
+            }
+        }
+        String text = sb.toString();
+        for (Charset charset : new Charset[] { StandardCharsets.UTF_16, StandardCharsets.UTF_16BE,
+                StandardCharsets.UTF_16LE }) {
+            byte[] bytes = text.getBytes(charset);
+            assertEquals(text, new String(bytes, charset));
+            assertEquals(text, charset.decode(ByteBuffer.wrap(bytes)).toString());
+        }
+    }
+
+    @Test
+    public void lookedUpByName() {
+        assertSame(StandardCharsets.UTF_16, Charset.forName("utf-16"));
+        assertSame(StandardCharsets.UTF_16BE, Charset.forName("UTF_16BE"));
+        assertSame(StandardCharsets.UTF_16LE, Charset.forName("UnicodeLittleUnmarked"));
+    }
+}
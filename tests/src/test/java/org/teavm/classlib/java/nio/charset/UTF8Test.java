@@ -7,6 +7,7 @@ import java.nio.charset.Charset;
 import java.nio.charset.CharsetDecoder;
 import java.nio.charset.CharsetEncoder;
 import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -91,6 +92,41 @@ public class UTF8Test {
         assertEquals("a\uFFFDbb", new String(result));
     }
 
+    @Test
+    public void replaceOverlongAndSurrogateSequences() {
+        byte[] bytes = { (byte) 0xE0, (byte) 0x80, (byte) 0x80, 97, (byte) 0xED, (byte) 0xA0, (byte) 0x80, 98,
+                (byte) 0xE0, 99 };
+        assertEquals("\uFFFD\uFFFD\uFFFDa\uFFFDb\uFFFDc", new String(bytes, StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void replaceTruncatedSequence() {
+        byte[] bytes = { 97, (byte) 0xF0, (byte) 0x9F, (byte) 0x98 };
+        assertEquals("a\uFFFD", new String(bytes, StandardCharsets.UTF_8));
+        CharBuffer buffer = Charset.forName("UTF-8").decode(ByteBuffer.wrap(bytes));
+        assertEquals("a\uFFFD", buffer.toString());
+    }
+
+    @Test
+    public void decodeLongMalformedByteArray() {
+        byte[] bytes = new byte[4096];
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) (i % 64 == 63 ? 0xFF : 97);
+        }
+        String text = new String(bytes, StandardCharsets.UTF_8);
+        assertEquals(bytes.length, text.length());
+        assertEquals('a', text.charAt(62));
+        assertEquals('\uFFFD', text.charAt(63));
+    }
+
+    @Test
+    public void roundTripLongText() {
+        String longText = text + text + text;
+        byte[] bytes = longText.getBytes(StandardCharsets.UTF_8);
+        assertEquals(hex + hex + hex, bytesToHex(bytes));
+        assertEquals(longText, new String(bytes, StandardCharsets.UTF_8));
+    }
+
     @Test
     public void decodeLongUTF8ByteArray() {
         byte[] bytes = new byte[16384];
@@ -36,6 +36,126 @@ public class ArraysTest {
         assertEquals(Integer.valueOf(7), array[5]);
     }
 
+    @Test
+    public void primitiveArraySorted() {
+        int[] array = new int[1000];
+        int[] expected = new int[array.length];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = (i * 7919) % 1000 / 3;
+            expected[i] = i / 3;
+        }
+        Arrays.sort(array);
+        assertArrayEquals(expected, array);
+    }
+
+    @Test
+    public void primitiveArrayRangeSorted() {
+        int[] array = { 9, 8, 7, 6, 5, 4, 3, 2, 1 };
+        Arrays.sort(array, 2, 6);
+        assertArrayEquals(new int[] { 9, 8, 4, 5, 6, 7, 3, 2, 1 }, array);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void sortRejectsInvertedRange() {
+        Arrays.sort(new int[5], 3, 2);
+    }
+
+    @Test(expected = ArrayIndexOutOfBoundsException.class)
+    public void sortRejectsRangeOutOfArray() {
+        Arrays.sort(new long[5], 0, 6);
+    }
+
+    @Test
+    public void doubleArraySortedWithNanAndSignedZeros() {
+        double[] array = new double[200];
+        for (int i = 0; i < array.length; ++i) {
+            switch (i % 5) {
+                case 0:
+                    array[i] = Double.NaN;
+                    break;
+                case 1:
+                    array[i] = -0.0;
+                    break;
+                case 2:
+                    array[i] = 0.0;
+                    break;
+                default:
+                    array[i] = 100 - i;
+                    break;
+            }
+        }
+        Arrays.sort(array);
+        for (int i = 1; i < array.length; ++i) {
+            assertTrue(Double.compare(array[i - 1], array[i]) <= 0);
+        }
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(array[40]));
+        assertEquals(Double.doubleToLongBits(-0.0), Double.doubleToLongBits(array[79]));
+        assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(array[80]));
+        assertEquals(Double.doubleToLongBits(0.0), Double.doubleToLongBits(array[119]));
+        assertTrue(Double.isNaN(array[160]));
+    }
+
+    @Test
+    public void floatArraySortedWithNan() {
+        float[] array = { 3, Float.NaN, -1, 0.0f, -0.0f, Float.NEGATIVE_INFINITY, 2 };
+        Arrays.sort(array);
+        assertArrayEquals(new float[] { Float.NEGATIVE_INFINITY, -1, -0.0f, 0.0f, 2, 3, Float.NaN }, array, 0);
+        assertEquals(Float.floatToIntBits(-0.0f), Float.floatToIntBits(array[2]));
+    }
+
+    @Test
+    public void charAndByteArraysSorted() {
+        char[] chars = new char[5000];
+        byte[] bytes = new byte[300];
+        for (int i = 0; i < chars.length; ++i) {
+            chars[i] = (char) (chars.length - i);
+        }
+        for (int i = 0; i < bytes.length; ++i) {
+            bytes[i] = (byte) (i * 37);
+        }
+        Arrays.sort(chars);
+        Arrays.sort(bytes);
+        for (int i = 0; i < chars.length; ++i) {
+            assertEquals(i + 1, chars[i]);
+        }
+        for (int i = 1; i < bytes.length; ++i) {
+            assertTrue(bytes[i - 1] <= bytes[i]);
+        }
+    }
+
+    @Test
+    public void objectSortIsStable() {
+        Integer[] array = new Integer[1000];
+        for (int i = 0; i < array.length; ++i) {
+            array[i] = i;
+        }
+        Arrays.sort(array, 100, 900, (a, b) -> Integer.compare(a % 10, b % 10));
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(i, array[i].intValue());
+            assertEquals(900 + i, array[900 + i].intValue());
+        }
+        for (int i = 101; i < 900; ++i) {
+            Integer prev = array[i - 1];
+            Integer cur = array[i];
+            assertTrue(prev % 10 < cur % 10 || prev % 10 == cur % 10 && prev < cur);
+        }
+    }
+
+    @Test
+    public void objectArrayWithRunsSorted() {
+        String[] array = new String[500];
+        for (int i = 0; i < array.length; ++i) {
+            int value = i < 250 ? i : 749 - i;
+            array[i] = String.valueOf(1000 + value);
+        }
+        Arrays.sort(array);
+        for (int i = 0; i < array.length; ++i) {
+            assertEquals(String.valueOf(1000 + i), array[i]);
+        }
+        Arrays.sort(array, null);
+        assertEquals("1000", array[0]);
+    }
+
     @Test
     public void binarySearchWorks() {
         Integer[] array = { 2, 4, 6, 8, 10, 12, 14, 16 };
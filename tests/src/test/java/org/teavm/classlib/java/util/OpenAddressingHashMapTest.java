@@ -0,0 +1,223 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMProperties;
+import org.teavm.junit.TeaVMProperty;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+@TeaVMProperties(@TeaVMProperty(key = "java.util.HashMap.implementation", value = "openAddressing"))
+public class OpenAddressingHashMapTest {
+    @Test
+    @SkipJVM
+    public void replacesHashMap() {
+        assertEquals("java.util.OpenAddressingHashMap", new HashMap<>().getClass().getName());
+        assertEquals("java.util.OpenAddressingHashMap", new HashMap<>(100).getClass().getName());
+        assertEquals("java.util.LinkedHashMap", new LinkedHashMap<>().getClass().getName());
+    }
+
+    @Test
+    @SkipJVM
+    public void replacesHashMapInMethodReference() {
+        Supplier<Map<String, String>> supplier = HashMap::new;
+        assertEquals("java.util.OpenAddressingHashMap", supplier.get().getClass().getName());
+        Function<Integer, Map<String, String>> function = HashMap::new;
+        assertEquals("java.util.OpenAddressingHashMap", function.apply(100).getClass().getName());
+    }
+
+    @Test
+    public void putsAndGets() {
+        Map<String, Integer> map = new HashMap<>();
+        for (int i = 0; i < 100; ++i) {
+            assertNull(map.put("key" + i, i));
+        }
+        assertEquals(100, map.size());
+        for (int i = 0; i < 100; ++i) {
+            assertEquals(Integer.valueOf(i), map.get("key" + i));
+        }
+        assertEquals(Integer.valueOf(5), map.put("key5", 500));
+        assertEquals(Integer.valueOf(500), map.get("key5"));
+        assertEquals(100, map.size());
+        assertNull(map.get("key100"));
+    }
+
+    @Test
+    public void resizes() {
+        Map<Integer, Integer> map = new HashMap<>(2);
+        for (int i = 0; i < 1000; ++i) {
+            map.put(i, -i);
+        }
+        assertEquals(1000, map.size());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(Integer.valueOf(-i), map.get(i));
+        }
+        for (int i = 0; i < 1000; i += 2) {
+            assertEquals(Integer.valueOf(-i), map.remove(i));
+        }
+        assertEquals(500, map.size());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i % 2 != 0, map.containsKey(i));
+        }
+    }
+
+    @Test
+    public void supportsNullKey() {
+        Map<String, String> map = new HashMap<>();
+        assertFalse(map.containsKey(null));
+        assertNull(map.put(null, "a"));
+        map.put("b", null);
+        assertTrue(map.containsKey(null));
+        assertEquals("a", map.get(null));
+        assertTrue(map.containsKey("b"));
+        assertTrue(map.containsValue(null));
+        assertTrue(map.keySet().contains(null));
+        assertEquals("a", map.put(null, "c"));
+        assertEquals(2, map.size());
+
+        int nullKeys = 0;
+        for (Map.Entry<String, String> entry : map.entrySet()) {
+            if (entry.getKey() == null) {
+                assertEquals("c", entry.getValue());
+                nullKeys++;
+            }
+        }
+        assertEquals(1, nullKeys);
+
+        assertEquals("c", map.remove(null));
+        assertFalse(map.containsKey(null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void findsCollidingKeys() {
+        Map<Key, Integer> map = new HashMap<>();
+        for (int i = 0; i < 20; ++i) {
+            map.put(new Key(i, 7), i);
+        }
+        assertEquals(20, map.size());
+        for (int i = 0; i < 20; ++i) {
+            assertEquals(Integer.valueOf(i), map.get(new Key(i, 7)));
+        }
+        assertNull(map.get(new Key(20, 7)));
+        assertEquals(Integer.valueOf(3), map.put(new Key(3, 7), 30));
+        assertEquals(20, map.size());
+    }
+
+    @Test
+    public void shiftsClusterBackOnRemoval() {
+        // Keys with hash 15 form a cluster that wraps around the end of 16 slot table,
+        // keys with hash 0 and 1 are interleaved with it
+        Map<Key, Integer> map = new HashMap<>();
+        Key[] keys = { new Key(0, 15), new Key(1, 15), new Key(2, 0), new Key(3, 15), new Key(4, 1),
+                new Key(5, 0), new Key(6, 15) };
+        for (int i = 0; i < keys.length; ++i) {
+            map.put(keys[i], i);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            assertEquals(Integer.valueOf(i), map.remove(keys[i]));
+            for (int j = i + 1; j < keys.length; ++j) {
+                assertEquals("Key " + j + " lost after removing " + i, Integer.valueOf(j), map.get(keys[j]));
+            }
+            assertEquals(keys.length - i - 1, map.size());
+        }
+        assertTrue(map.isEmpty());
+
+        for (int i = 0; i < keys.length; ++i) {
+            map.put(keys[i], i);
+        }
+        assertEquals(Integer.valueOf(3), map.remove(keys[3]));
+        assertEquals(Integer.valueOf(0), map.remove(keys[0]));
+        for (int i = 0; i < keys.length; ++i) {
+            assertEquals(i != 0 && i != 3, map.containsKey(keys[i]));
+        }
+    }
+
+    @Test
+    public void removesWhileIterating() {
+        Map<Key, Integer> map = new HashMap<>();
+        for (int i = 0; i < 40; ++i) {
+            map.put(new Key(i, i % 3 == 0 ? 15 : i % 5), i);
+        }
+
+        Set<Integer> visited = new HashSet<>();
+        for (Iterator<Map.Entry<Key, Integer>> iter = map.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<Key, Integer> entry = iter.next();
+            assertTrue("Entry " + entry.getValue() + " visited twice", visited.add(entry.getValue()));
+            if (entry.getValue() % 2 == 0) {
+                iter.remove();
+            }
+        }
+        assertEquals(40, visited.size());
+        assertEquals(20, map.size());
+        for (int i = 0; i < 40; ++i) {
+            assertEquals(i % 2 != 0, map.containsKey(new Key(i, i % 3 == 0 ? 15 : i % 5)));
+        }
+
+        for (Iterator<Key> iter = map.keySet().iterator(); iter.hasNext();) {
+            iter.next();
+            iter.remove();
+        }
+        assertTrue(map.isEmpty());
+    }
+
+    @Test
+    public void setsValueThroughEntry() {
+        Map<String, Integer> map = new HashMap<>();
+        map.put("a", 1);
+        map.put("b", 2);
+        for (Map.Entry<String, Integer> entry : map.entrySet()) {
+            entry.setValue(entry.getValue() * 10);
+        }
+        assertEquals(Integer.valueOf(10), map.get("a"));
+        assertEquals(Integer.valueOf(20), map.get("b"));
+    }
+
+    static class Key {
+        final int id;
+        final int hash;
+
+        Key(int id, int hash) {
+            this.id = id;
+            this.hash = hash;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && ((Key) obj).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.classlib.java.util.OpenAddressingHashMapTest.Key;
+import org.teavm.junit.SkipJVM;
+import org.teavm.junit.TeaVMProperties;
+import org.teavm.junit.TeaVMProperty;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+@TeaVMProperties(@TeaVMProperty(key = "java.util.HashMap.implementation", value = "openAddressing"))
+public class OpenAddressingHashSetTest {
+    @Test
+    @SkipJVM
+    public void replacesHashSet() {
+        assertEquals("java.util.OpenAddressingHashSet", new HashSet<>().getClass().getName());
+        assertEquals("java.util.LinkedHashSet", new LinkedHashSet<>().getClass().getName());
+        Supplier<Set<String>> supplier = HashSet::new;
+        assertEquals("java.util.OpenAddressingHashSet", supplier.get().getClass().getName());
+    }
+
+    @Test
+    public void addsAndRemoves() {
+        Set<Integer> set = new HashSet<>(2);
+        for (int i = 0; i < 1000; ++i) {
+            assertTrue(set.add(i));
+        }
+        assertFalse(set.add(500));
+        assertEquals(1000, set.size());
+        for (int i = 0; i < 1000; i += 2) {
+            assertTrue(set.remove(i));
+        }
+        assertFalse(set.remove(0));
+        assertEquals(500, set.size());
+        for (int i = 0; i < 1000; ++i) {
+            assertEquals(i % 2 != 0, set.contains(i));
+        }
+    }
+
+    @Test
+    public void supportsNull() {
+        Set<String> set = new HashSet<>();
+        assertFalse(set.contains(null));
+        assertTrue(set.add(null));
+        assertFalse(set.add(null));
+        set.add("a");
+        assertTrue(set.contains(null));
+
+        List<String> elements = new ArrayList<>();
+        for (String element : set) {
+            elements.add(element);
+        }
+        assertEquals(2, elements.size());
+        assertTrue(elements.contains(null));
+
+        assertTrue(set.remove(null));
+        assertFalse(set.contains(null));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void shiftsClusterBackOnRemoval() {
+        Set<Key> set = new HashSet<>();
+        Key[] keys = { new Key(0, 15), new Key(1, 15), new Key(2, 0), new Key(3, 15), new Key(4, 1),
+                new Key(5, 0), new Key(6, 15) };
+        for (Key key : keys) {
+            set.add(key);
+        }
+        for (int i = 0; i < keys.length; ++i) {
+            assertTrue(set.remove(keys[i]));
+            for (int j = i + 1; j < keys.length; ++j) {
+                assertTrue("Key " + j + " lost after removing " + i, set.contains(keys[j]));
+            }
+        }
+        assertTrue(set.isEmpty());
+    }
+
+    @Test
+    public void removesWhileIterating() {
+        Set<Key> set = new HashSet<>();
+        for (int i = 0; i < 40; ++i) {
+            set.add(new Key(i, i % 3 == 0 ? 15 : i % 5));
+        }
+
+        Set<Integer> visited = new HashSet<>();
+        for (Iterator<Key> iter = set.iterator(); iter.hasNext();) {
+            Key key = iter.next();
+            assertTrue("Key " + key.id + " visited twice", visited.add(key.id));
+            if (key.id % 2 == 0) {
+                iter.remove();
+            }
+        }
+        assertEquals(40, visited.size());
+        assertEquals(20, set.size());
+        for (int i = 0; i < 40; ++i) {
+            assertEquals(i % 2 != 0, set.contains(new Key(i, i % 3 == 0 ? 15 : i % 5)));
+        }
+    }
+}
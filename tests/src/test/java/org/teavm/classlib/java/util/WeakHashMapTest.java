@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.WeakHashMap;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class WeakHashMapTest {
+    @Test
+    public void putsAndGets() {
+        Map<String, Integer> map = new WeakHashMap<>();
+        String[] keys = new String[100];
+        for (int i = 0; i < keys.length; ++i) {
+            keys[i] = "key" + i;
+            assertNull(map.put(keys[i], i));
+        }
+        assertEquals(100, map.size());
+        for (int i = 0; i < keys.length; ++i) {
+            assertEquals(Integer.valueOf(i), map.get(keys[i]));
+        }
+        assertEquals(Integer.valueOf(5), map.put(keys[5], 500));
+        assertEquals(Integer.valueOf(500), map.get(keys[5]));
+        assertEquals(100, map.size());
+    }
+
+    @Test
+    public void removes() {
+        Map<String, Integer> map = new WeakHashMap<>();
+        String a = "a";
+        String b = "b";
+        map.put(a, 1);
+        map.put(b, 2);
+        assertEquals(Integer.valueOf(1), map.remove(a));
+        assertFalse(map.containsKey(a));
+        assertTrue(map.containsKey(b));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void supportsNullKey() {
+        Map<String, Integer> map = new WeakHashMap<>();
+        map.put(null, 23);
+        assertTrue(map.containsKey(null));
+        assertEquals(Integer.valueOf(23), map.get(null));
+        assertNull(map.entrySet().iterator().next().getKey());
+    }
+
+    @Test
+    public void iterates() {
+        Map<String, Integer> map = new WeakHashMap<>();
+        String[] keys = { "foo", "bar", "baz" };
+        for (int i = 0; i < keys.length; ++i) {
+            map.put(keys[i], i);
+        }
+        int sum = 0;
+        for (Iterator<Map.Entry<String, Integer>> iter = map.entrySet().iterator(); iter.hasNext();) {
+            Map.Entry<String, Integer> entry = iter.next();
+            sum += entry.getValue();
+            if (entry.getKey().equals("bar")) {
+                iter.remove();
+            }
+        }
+        assertEquals(3, sum);
+        assertEquals(2, map.size());
+        assertFalse(map.containsKey("bar"));
+    }
+
+    @Test
+    public void clearedReferenceIsEnqueued() {
+        ReferenceQueue<Object> queue = new ReferenceQueue<>();
+        Object referent = new Object();
+        WeakReference<Object> ref = new WeakReference<>(referent, queue);
+        assertSame(referent, ref.get());
+        assertTrue(ref.enqueue());
+        assertNull(ref.get());
+        assertTrue(ref.isEnqueued());
+        assertSame(ref, queue.poll());
+        assertFalse(ref.isEnqueued());
+        assertNull(queue.poll());
+        assertFalse(ref.enqueue());
+    }
+}
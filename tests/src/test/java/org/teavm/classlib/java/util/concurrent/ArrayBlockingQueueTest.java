@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class ArrayBlockingQueueTest {
+    @Test
+    public void offersAndPolls() {
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(2);
+        assertTrue(queue.offer(1));
+        assertTrue(queue.offer(2));
+        assertFalse(queue.offer(3));
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(1, (int) queue.poll());
+        assertTrue(queue.offer(3));
+        assertEquals("[2, 3]", queue.toString());
+        List<Integer> list = new ArrayList<>();
+        assertEquals(2, queue.drainTo(list));
+        assertEquals("[2, 3]", list.toString());
+        assertNull(queue.poll());
+    }
+
+    @Test
+    public void takeWaitsForProducer() throws InterruptedException {
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(1);
+        new Thread(() -> {
+            try {
+                for (int i = 0; i < 5; ++i) {
+                    queue.put(i);
+                }
+            } catch (InterruptedException e) {
+                // do nothing
+            }
+        }).start();
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 5; ++i) {
+            sb.append(queue.take());
+        }
+        assertEquals("01234", sb.toString());
+    }
+
+    @Test
+    public void pollTimesOut() throws InterruptedException {
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(1);
+        long start = System.currentTimeMillis();
+        assertNull(queue.poll(50, TimeUnit.MILLISECONDS));
+        assertTrue(System.currentTimeMillis() - start >= 50);
+    }
+
+    @Test
+    public void takeInterrupted() {
+        BlockingQueue<Integer> queue = new ArrayBlockingQueue<>(1);
+        Thread mainThread = Thread.currentThread();
+        new Thread(mainThread::interrupt).start();
+        try {
+            queue.take();
+            fail("Exception expected");
+        } catch (InterruptedException e) {
+            assertFalse(mainThread.isInterrupted());
+        }
+    }
+}
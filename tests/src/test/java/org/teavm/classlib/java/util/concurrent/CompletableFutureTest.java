@@ -0,0 +1,89 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import static org.junit.Assert.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class CompletableFutureTest {
+    @Test
+    public void dependentStagesRunOnCompletion() {
+        CompletableFuture<Integer> first = new CompletableFuture<>();
+        CompletableFuture<Integer> second = new CompletableFuture<>();
+        CompletableFuture<String> result = first.thenApply(x -> x * 2)
+                .thenCombine(second, (x, y) -> x + y)
+                .thenCompose(x -> CompletableFuture.completedFuture("v" + x));
+        assertFalse(result.isDone());
+        first.complete(20);
+        assertFalse(result.isDone());
+        second.complete(2);
+        assertEquals("v42", result.getNow(null));
+    }
+
+    @Test
+    public void exceptionPropagates() {
+        CompletableFuture<Integer> future = new CompletableFuture<>();
+        CompletableFuture<Integer> dependent = future.thenApply(x -> x + 1);
+        future.completeExceptionally(new IllegalStateException());
+        try {
+            dependent.join();
+            fail("Exception expected");
+        } catch (CompletionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        try {
+            dependent.get();
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } catch (InterruptedException e) {
+            fail("Unexpected interruption");
+        }
+        assertEquals(-1, (int) dependent.exceptionally(e -> -1).join());
+    }
+
+    @Test
+    public void joinWaitsForAsyncTask() {
+        CompletableFuture<Integer> future = CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                // do nothing
+            }
+            return 23;
+        });
+        assertEquals(46, (int) future.thenApplyAsync(x -> x * 2).join());
+    }
+
+    @Test
+    public void allOfCompletesAfterAll() {
+        CompletableFuture<Integer> a = new CompletableFuture<>();
+        CompletableFuture<Integer> b = new CompletableFuture<>();
+        CompletableFuture<Void> all = CompletableFuture.allOf(a, b);
+        CompletableFuture<Object> any = CompletableFuture.anyOf(a, b);
+        b.complete(2);
+        assertFalse(all.isDone());
+        assertEquals(2, any.join());
+        a.complete(1);
+        assertTrue(all.isDone());
+    }
+}
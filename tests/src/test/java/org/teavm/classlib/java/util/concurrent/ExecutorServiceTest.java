@@ -0,0 +1,94 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.concurrent;
+
+import static org.junit.Assert.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class ExecutorServiceTest {
+    @Test
+    public void runsSubmittedTasks() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        AtomicInteger counter = new AtomicInteger();
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; ++i) {
+            int value = i;
+            futures.add(executor.submit(() -> {
+                Thread.sleep(5);
+                counter.incrementAndGet();
+                return value * value;
+            }));
+        }
+        int sum = 0;
+        for (Future<Integer> future : futures) {
+            sum += future.get();
+        }
+        assertEquals(30, sum);
+        assertEquals(5, counter.get());
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(1, TimeUnit.SECONDS));
+        assertTrue(executor.isTerminated());
+    }
+
+    @Test
+    public void reportsFailure() throws InterruptedException {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<Object> future = executor.submit(() -> {
+            throw new IllegalStateException();
+        });
+        try {
+            future.get();
+            fail("Exception expected");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+        executor.shutdown();
+    }
+
+    @Test
+    public void invokesAll() throws InterruptedException, ExecutionException {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        List<Callable<String>> tasks = Arrays.asList(() -> "a", () -> "b", () -> "c");
+        StringBuilder sb = new StringBuilder();
+        for (Future<String> future : executor.invokeAll(tasks)) {
+            sb.append(future.get());
+        }
+        assertEquals("abc", sb.toString());
+        assertTrue("abc".contains(executor.invokeAny(tasks)));
+        executor.shutdown();
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void rejectsAfterShutdown() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        executor.execute(() -> { });
+    }
+}
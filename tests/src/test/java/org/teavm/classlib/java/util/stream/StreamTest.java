@@ -0,0 +1,125 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.classlib.java.util.stream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.stream.Collectors;
+import java.util.stream.DoubleStream;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
+import java.util.stream.Stream;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.teavm.junit.TeaVMTestRunner;
+
+@RunWith(TeaVMTestRunner.class)
+public class StreamTest {
+    @Test
+    public void mapsAndFilters() {
+        List<String> result = Stream.of(1, 2, 3, 4, 5)
+                .filter(n -> n % 2 == 1)
+                .map(n -> "x" + n)
+                .collect(Collectors.toList());
+        assertEquals(Arrays.asList("x1", "x3", "x5"), result);
+    }
+
+    @Test
+    public void streamsCollection() {
+        List<String> list = Arrays.asList("foo", "bar", "baz");
+        assertEquals("foo,bar,baz", list.stream().collect(Collectors.joining(",")));
+        assertEquals("[FOO|BAR|BAZ]", list.stream().map(String::toUpperCase)
+                .collect(Collectors.joining("|", "[", "]")));
+    }
+
+    @Test
+    public void shortCircuits() {
+        int[] counter = new int[1];
+        assertTrue(Stream.iterate(1, n -> n + 1).peek(n -> counter[0]++).anyMatch(n -> n == 5));
+        assertEquals(5, counter[0]);
+        assertFalse(IntStream.range(0, 10).allMatch(n -> n < 5));
+        assertTrue(IntStream.range(0, 10).noneMatch(n -> n > 10));
+        assertEquals(3, IntStream.iterate(3, n -> n * 2).findFirst().getAsInt());
+    }
+
+    @Test
+    public void limitsAndSkips() {
+        assertArrayEquals(new int[] { 2, 3, 4 }, IntStream.iterate(0, n -> n + 1).skip(2).limit(3).toArray());
+        assertArrayEquals(new Object[] { "a", "b" }, Stream.generate(() -> "a").limit(1)
+                .flatMap(s -> Stream.of(s, "b")).toArray());
+        assertEquals(0, LongStream.range(0, 100).limit(0).count());
+    }
+
+    @Test
+    public void sortsAndRemovesDuplicates() {
+        assertArrayEquals(new int[] { 1, 2, 3, 5 }, IntStream.of(5, 3, 1, 3, 2, 5).distinct().sorted().toArray());
+        assertArrayEquals(new String[] { "c", "b", "a" }, Stream.of("b", "a", "c")
+                .sorted((a, b) -> b.compareTo(a)).toArray(String[]::new));
+    }
+
+    @Test
+    public void computesPrimitiveAggregates() {
+        assertEquals(55, IntStream.rangeClosed(1, 10).sum());
+        assertEquals(5050L, LongStream.rangeClosed(1, 100).sum());
+        assertEquals(2.5, DoubleStream.of(1, 2, 3, 4).average().getAsDouble(), 1E-9);
+        assertEquals(-3, IntStream.of(4, -3, 7).min().getAsInt());
+        assertEquals(7, IntStream.of(4, -3, 7).summaryStatistics().getMax());
+        assertFalse(IntStream.empty().max().isPresent());
+        assertEquals(6, IntStream.of(1, 2, 3).mapToLong(n -> n).reduce(1, (a, b) -> a * b));
+    }
+
+    @Test
+    public void groupsElements() {
+        Map<Integer, List<String>> groups = Stream.of("a", "bb", "cc", "ddd")
+                .collect(Collectors.groupingBy(String::length));
+        assertEquals(Arrays.asList("a"), groups.get(1));
+        assertEquals(Arrays.asList("bb", "cc"), groups.get(2));
+        Map<Boolean, Long> partitions = IntStream.range(0, 10).boxed()
+                .collect(Collectors.partitioningBy(n -> n < 3, Collectors.counting()));
+        assertEquals(3L, (long) partitions.get(true));
+        assertEquals(7L, (long) partitions.get(false));
+    }
+
+    @Test
+    public void iteratesLazily() {
+        PrimitiveIterator.OfInt iterator = IntStream.concat(IntStream.of(1), IntStream.range(2, 4)).iterator();
+        assertEquals(1, iterator.nextInt());
+        assertEquals(2, iterator.nextInt());
+        assertEquals(3, iterator.nextInt());
+        assertFalse(iterator.hasNext());
+
+        Iterator<Integer> boxed = Stream.iterate(1, n -> n * 3).iterator();
+        assertEquals(Integer.valueOf(1), boxed.next());
+        assertEquals(Integer.valueOf(3), boxed.next());
+        assertEquals(Integer.valueOf(9), boxed.next());
+    }
+
+    @Test
+    public void runsCloseHandlers() {
+        StringBuilder sb = new StringBuilder();
+        Stream<Integer> stream = Stream.of(1, 2).onClose(() -> sb.append("a")).map(n -> n + 1)
+                .onClose(() -> sb.append("b"));
+        stream.close();
+        assertEquals("ab", sb.toString());
+    }
+}
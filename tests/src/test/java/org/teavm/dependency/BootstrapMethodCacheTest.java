@@ -0,0 +1,133 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.junit.Test;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.model.InMemoryProgramCache;
+import org.teavm.model.MethodDescriptor;
+import org.teavm.model.MethodReference;
+import org.teavm.model.Program;
+import org.teavm.model.ProgramCache;
+import org.teavm.model.ValueType;
+import org.teavm.model.util.ListingBuilder;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+
+public class BootstrapMethodCacheTest {
+    private static final MethodReference METAFACTORY = new MethodReference(LambdaMetafactory.class, "metafactory",
+            MethodHandles.Lookup.class, String.class, MethodType.class, MethodType.class, MethodHandle.class,
+            MethodType.class, CallSite.class);
+    private static final MethodReference SNIPPET = new MethodReference(BootstrapMethodCacheTest.class,
+            "snippet", void.class);
+
+    @Test
+    public void recompilesCallerOfNonCacheableSubstitutor() {
+        TrackingProgramCache cache = new TrackingProgramCache();
+        build(cache, (callSite, pe) -> pe.construct(SupplierA.class));
+        TeaVM vm = build(cache, (callSite, pe) -> pe.construct(SupplierB.class));
+
+        assertFalse("Caller must not be taken from cache", cache.hits.contains(SNIPPET));
+        String listing = snippetListing(vm);
+        assertTrue("Caller must use new substitution", listing.contains(SupplierB.class.getName()));
+        assertFalse("Caller must not use old substitution", listing.contains(SupplierA.class.getName()));
+    }
+
+    @Test
+    public void takesCallerOfLambdaFromCache() {
+        TrackingProgramCache cache = new TrackingProgramCache();
+        build(cache, null);
+        build(cache, null);
+
+        assertTrue("Caller must be taken from cache", cache.hits.contains(SNIPPET));
+    }
+
+    @SuppressWarnings("unused")
+    public static void snippet() {
+        Supplier<String> supplier = () -> "lambda";
+        consume(supplier.get());
+    }
+
+    protected static void consume(@SuppressWarnings("unused") Object value) {
+        // do nothing
+    }
+
+    public static class SupplierA implements Supplier<String> {
+        @Override
+        public String get() {
+            return "A";
+        }
+    }
+
+    public static class SupplierB implements Supplier<String> {
+        @Override
+        public String get() {
+            return "B";
+        }
+    }
+
+    private TeaVM build(ProgramCache cache, BootstrapMethodSubstitutor substitutor) {
+        TeaVM vm = new TeaVMBuilder(new JavaScriptTarget()).build();
+        vm.setIncremental(true);
+        vm.setProgramCache(cache);
+        vm.installPlugins();
+        if (substitutor != null) {
+            vm.add(METAFACTORY, substitutor);
+        }
+        vm.entryPoint(SNIPPET);
+        vm.build(fileName -> new ByteArrayOutputStream(), "tmp");
+        if (!vm.getProblemProvider().getSevereProblems().isEmpty()) {
+            fail("Code compiled with errors");
+        }
+        return vm;
+    }
+
+    private String snippetListing(TeaVM vm) {
+        return new ListingBuilder().buildListing(vm.getWrittenClasses().get(SNIPPET.getClassName())
+                .getMethod(new MethodDescriptor(SNIPPET.getName(), ValueType.VOID)).getProgram(), "");
+    }
+
+    static class TrackingProgramCache implements ProgramCache {
+        ProgramCache underlying = new InMemoryProgramCache();
+        Set<MethodReference> hits = new HashSet<>();
+
+        @Override
+        public Program get(MethodReference method) {
+            Program program = underlying.get(method);
+            if (program != null) {
+                hits.add(method);
+            }
+            return program;
+        }
+
+        @Override
+        public void store(MethodReference method, Program program) {
+            underlying.store(method, program);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.dependency;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import java.util.Date;
+import org.junit.Test;
+import org.teavm.parsing.ClasspathResourceMapper;
+
+public class ClasspathResourceMapperTest {
+    private ClasspathResourceMapper mapper = new ClasspathResourceMapper(
+            ClasspathResourceMapperTest.class.getClassLoader(), name -> null);
+
+    @Test
+    public void lambdaTakesDateOfCaller() {
+        String caller = ClasspathResourceMapperTest.class.getName();
+        Date date = mapper.getModificationDate(caller);
+        assertNotNull(date);
+        assertEquals(date, mapper.getModificationDate(caller + "$$Lambda$1f2e3d"));
+    }
+
+    @Test
+    public void lambdaTakesDateOfCallerWithDoubleDollar() {
+        String caller = Anon$$fun$1.class.getName();
+        Date date = mapper.getModificationDate(caller);
+        assertNotNull(date);
+        assertEquals(date, mapper.getModificationDate(caller + "$$Lambda$1f2e3d"));
+    }
+
+    @Test
+    public void unknownClassHasNoDate() {
+        assertNull(mapper.getModificationDate(ClasspathResourceMapperTest.class.getName() + "$$Missing"));
+    }
+
+    static class Anon$$fun$1 {
+    }
+}
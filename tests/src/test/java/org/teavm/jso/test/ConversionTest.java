@@ -19,9 +19,12 @@ import static org.junit.Assert.*;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.teavm.jso.JSBody;
+import org.teavm.jso.JSByRef;
 import org.teavm.jso.JSObject;
 import org.teavm.jso.JSProperty;
 import org.teavm.jso.core.JSString;
+import org.teavm.jso.typedarrays.Float32Array;
+import org.teavm.jso.typedarrays.Uint8Array;
 import org.teavm.junit.SkipJVM;
 import org.teavm.junit.TeaVMTestRunner;
 
@@ -142,6 +145,56 @@ public class ConversionTest {
         assertEquals(23, array[0]);
     }
 
+    @Test
+    public void passesArrayByReference() {
+        int[] array = { 23, 42 };
+        assertEquals(24, mutateByRef(array));
+        assertEquals(24, array[0]);
+
+        float[] floats = { 1, 2, 3, 4 };
+        Float32Array view = Float32Array.fromJavaArray(floats, 1, 2);
+        assertEquals(2, view.getLength());
+        view.set(0, 5);
+        assertEquals(5, floats[1], 0.01);
+        view.toJavaArray()[1] = 7;
+        assertEquals(7, floats[2], 0.01);
+    }
+
+    @Test
+    public void returnsArrayByReference() {
+        byte[] array = createBytes();
+        assertEquals(3, array.length);
+        assertEquals(-1, array[2]);
+
+        Uint8Array unsigned = Uint8Array.fromJavaArray(array);
+        assertEquals(255, unsigned.get(2));
+        unsigned.set(0, (short) 200);
+        assertEquals((byte) 200, array[0]);
+    }
+
+    @Test
+    public void passesNullArrayByReference() {
+        assertTrue(isNullByRef(null));
+        assertNull(createNullBytes());
+    }
+
+    @Test
+    public void copiesMismatchedArrayViews() {
+        byte[] bytes = createUnsignedBytes();
+        assertEquals(2, bytes.length);
+        assertEquals(1, bytes[0]);
+        assertEquals((byte) 200, bytes[1]);
+
+        char[] chars = createSignedChars();
+        assertEquals(2, chars.length);
+        assertEquals('A', chars[0]);
+        assertEquals('\uFFFF', chars[1]);
+
+        int[] ints = createPlainInts();
+        assertEquals(3, ints.length);
+        assertEquals(42, ints[2]);
+    }
+
     @JSBody(params = { "a", "b", "c", "d", "e", "f", "g", "h" }, script = ""
             + "return '' + a + ':' + b + ':' + c + ':' + d + ':' + e + ':' + f.toFixed(1) + ':'"
                     + "+ g.toFixed(1) + ':' + h;")
@@ -300,4 +353,30 @@ public class ConversionTest {
 
     @JSBody(params = "array", script = "array[0]++; return array[0];")
     private static native int mutate(int[] array);
+
+    @JSBody(params = "array", script = "array[0]++; return array[0];")
+    private static native int mutateByRef(@JSByRef int[] array);
+
+    @JSBody(params = {}, script = "return new Int8Array([1, 2, -1]);")
+    @JSByRef
+    private static native byte[] createBytes();
+
+    @JSBody(params = "array", script = "return array === null;")
+    private static native boolean isNullByRef(@JSByRef int[] array);
+
+    @JSBody(params = {}, script = "return null;")
+    @JSByRef
+    private static native byte[] createNullBytes();
+
+    @JSBody(params = {}, script = "return new Uint8Array([1, 200]);")
+    @JSByRef
+    private static native byte[] createUnsignedBytes();
+
+    @JSBody(params = {}, script = "return new Int16Array([65, -1]);")
+    @JSByRef
+    private static native char[] createSignedChars();
+
+    @JSBody(params = {}, script = "return [23, 24, 42];")
+    @JSByRef
+    private static native int[] createPlainInts();
 }
@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.optimization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import org.junit.Test;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+import org.teavm.model.util.ListingBuilder;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMOptimizationLevel;
+
+/**
+ * <p>Checks that a call site with two implementations becomes a type switch only at advanced optimization
+ * level, and that JavaScript backend renders its check as native <code>instanceof</code>.</p>
+ */
+public class TypeSwitchTest {
+    private static final MethodReference SNIPPET = new MethodReference(TypeSwitchTest.class,
+            "snippet", int.class, void.class);
+    private static final String SQUARE_CHECK = "instanceof " + ValueType.object(Square.class.getName());
+    private static final String RUNTIME_CHECK = "$rt_isInstance(";
+
+    @Test
+    public void emitsTypeSwitchAtAdvancedLevel() {
+        Build build = build(TeaVMOptimizationLevel.ADVANCED);
+        assertTrue("Call must be guarded by type check:\n" + build.listing, build.listing.contains(SQUARE_CHECK));
+    }
+
+    @Test
+    public void keepsVirtualCallAtSimpleLevel() {
+        Build build = build(TeaVMOptimizationLevel.SIMPLE);
+        assertFalse("Call must stay virtual:\n" + build.listing, build.listing.contains(SQUARE_CHECK));
+    }
+
+    @Test
+    public void rendersNativeInstanceOf() {
+        Build simple = build(TeaVMOptimizationLevel.SIMPLE);
+        Build advanced = build(TeaVMOptimizationLevel.ADVANCED);
+        assertEquals("Type switch must not call runtime type checks", count(simple.output, RUNTIME_CHECK),
+                count(advanced.output, RUNTIME_CHECK));
+        assertTrue("Type switch must use native instanceof",
+                count(advanced.output, " instanceof ") > count(simple.output, " instanceof "));
+    }
+
+    public static void snippet(int index) {
+        Shape shape = index > 0 ? new Square() : new Circle();
+        consume(shape.area());
+    }
+
+    protected static void consume(@SuppressWarnings("unused") int value) {
+        // do nothing
+    }
+
+    abstract static class Shape {
+        abstract int area();
+    }
+
+    static class Square extends Shape {
+        @Override
+        int area() {
+            return 1;
+        }
+    }
+
+    static class Circle extends Shape {
+        @Override
+        int area() {
+            return 2;
+        }
+    }
+
+    private Build build(TeaVMOptimizationLevel level) {
+        JavaScriptTarget target = new JavaScriptTarget();
+        target.setMinifying(false);
+        TeaVM vm = new TeaVMBuilder(target).build();
+        vm.setOptimizationLevel(level);
+        vm.installPlugins();
+        vm.entryPoint(SNIPPET);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        vm.build(fileName -> output, "tmp");
+        if (!vm.getProblemProvider().getSevereProblems().isEmpty()) {
+            fail("Code compiled with errors");
+        }
+
+        Build build = new Build();
+        build.listing = new ListingBuilder().buildListing(vm.getWrittenClasses().get(SNIPPET.getClassName())
+                .getMethod(SNIPPET.getDescriptor()).getProgram(), "");
+        try {
+            build.output = output.toString("UTF-8");
+        } catch (UnsupportedEncodingException e) {
+            throw new AssertionError(e);
+        }
+        return build;
+    }
+
+    private static int count(String text, String fragment) {
+        int count = 0;
+        for (int index = text.indexOf(fragment); index >= 0; index = text.indexOf(fragment, index + 1)) {
+            ++count;
+        }
+        return count;
+    }
+
+    static class Build {
+        String listing;
+        String output;
+    }
+}
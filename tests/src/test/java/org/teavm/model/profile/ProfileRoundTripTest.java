@@ -0,0 +1,146 @@
+/*
+ *  Copyright 2016 Alexey Andreev.
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.teavm.model.profile;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.commons.io.output.ByteArrayOutputStream;
+import org.junit.Test;
+import org.teavm.backend.javascript.JavaScriptTarget;
+import org.teavm.model.MethodReference;
+import org.teavm.model.ValueType;
+import org.teavm.model.util.ListingBuilder;
+import org.teavm.vm.TeaVM;
+import org.teavm.vm.TeaVMBuilder;
+import org.teavm.vm.TeaVMOptimizationLevel;
+
+/**
+ * <p>Takes call site names from an instrumented build, feeds a profile with them to an optimizing build and
+ * checks that devirtualization finds the call site. {@code snippet} calls {@code counter.increment()} before
+ * the profiled call. It's virtual right after linking, but final class inference makes it direct before
+ * devirtualization runs, so call site names must not depend on the instruction stream at that point.</p>
+ */
+public class ProfileRoundTripTest {
+    private static final MethodReference SNIPPET = new MethodReference(ProfileRoundTripTest.class,
+            "snippet", int.class, void.class);
+    private static final MethodReference AREA = new MethodReference(Shape.class, "area", int.class);
+    private static final String GUARD = "instanceof " + ValueType.object(Square.class.getName());
+
+    @Test
+    public void devirtualizesProfiledCallSite() {
+        TeaVM instrumented = build(true, null);
+        String callSite = findCallSite(listing(instrumented));
+        assertNotNull("Instrumented build must count receivers of area()", callSite);
+
+        ExecutionProfile profile = new ExecutionProfile();
+        profile.addReceiver(callSite, Square.class.getName(), 1000);
+        String listing = listing(build(false, profile));
+        assertTrue("Dominant receiver must be checked:\n" + listing, listing.contains(GUARD));
+    }
+
+    @Test
+    public void keepsVirtualCallWithoutProfile() {
+        String listing = listing(build(false, null));
+        assertFalse("Unprofiled call must stay virtual:\n" + listing, listing.contains(GUARD));
+    }
+
+    public static void snippet(int index) {
+        Shape[] shapes = { new Square(), new Circle(), new Triangle(), new Hexagon(), new Star() };
+        Counter counter = new Counter();
+        counter.increment();
+        consume(shapes[index % shapes.length].area() + counter.value);
+    }
+
+    protected static void consume(@SuppressWarnings("unused") int value) {
+        // do nothing
+    }
+
+    static class Counter {
+        int value;
+
+        void increment() {
+            value++;
+        }
+    }
+
+    abstract static class Shape {
+        abstract int area();
+    }
+
+    static class Square extends Shape {
+        @Override
+        int area() {
+            return 1;
+        }
+    }
+
+    static class Circle extends Shape {
+        @Override
+        int area() {
+            return 2;
+        }
+    }
+
+    static class Triangle extends Shape {
+        @Override
+        int area() {
+            return 3;
+        }
+    }
+
+    static class Hexagon extends Shape {
+        @Override
+        int area() {
+            return 4;
+        }
+    }
+
+    static class Star extends Shape {
+        @Override
+        int area() {
+            return 5;
+        }
+    }
+
+    private TeaVM build(boolean instrumented, ExecutionProfile profile) {
+        TeaVM vm = new TeaVMBuilder(new JavaScriptTarget()).build();
+        vm.setOptimizationLevel(TeaVMOptimizationLevel.ADVANCED);
+        vm.setProfileInstrumented(instrumented);
+        vm.setProfile(profile);
+        vm.installPlugins();
+        vm.entryPoint(SNIPPET);
+        vm.build(fileName -> new ByteArrayOutputStream(), "tmp");
+        if (!vm.getProblemProvider().getSevereProblems().isEmpty()) {
+            fail("Code compiled with errors");
+        }
+        return vm;
+    }
+
+    private String listing(TeaVM vm) {
+        return new ListingBuilder().buildListing(vm.getWrittenClasses().get(SNIPPET.getClassName())
+                .getMethod(SNIPPET.getDescriptor()).getProgram(), "");
+    }
+
+    private String findCallSite(String listing) {
+        Matcher matcher = Pattern.compile("'([^' ]+#" + Pattern.quote(AREA.getDescriptor().toString())
+                + "#[0-9]+)'").matcher(listing);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+}
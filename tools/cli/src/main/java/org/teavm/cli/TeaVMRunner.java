@@ -110,7 +110,7 @@ public final class TeaVMRunner {
                 .withLongOpt("wasm-version")
                 .withArgName("version")
                 .hasArg()
-                .withDescription("WebAssembly binary version (11, 12, 13)")
+                .withDescription("WebAssembly binary version (1, 11, 12, 13)")
                 .create());
 
         if (args.length == 0) {
@@ -290,6 +290,9 @@ public final class TeaVMRunner {
             try {
                 int version = Integer.parseInt(value);
                 switch (version) {
+                    case 1:
+                        tool.setWasmVersion(WasmBinaryVersion.V_0x1);
+                        break;
                     case 11:
                         tool.setWasmVersion(WasmBinaryVersion.V_0xB);
                         break;
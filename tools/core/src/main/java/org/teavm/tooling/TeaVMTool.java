@@ -16,6 +16,7 @@
 package org.teavm.tooling;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,6 +36,7 @@ import java.util.Set;
 import org.apache.commons.io.IOUtils;
 import org.teavm.backend.javascript.JavaScriptTarget;
 import org.teavm.backend.javascript.rendering.RenderingManager;
+import org.teavm.backend.wasm.WasmHostEnvironment;
 import org.teavm.backend.wasm.WasmTarget;
 import org.teavm.backend.wasm.render.WasmBinaryVersion;
 import org.teavm.cache.DiskCachedClassHolderSource;
@@ -54,6 +56,7 @@ import org.teavm.model.MethodReader;
 import org.teavm.model.MethodReference;
 import org.teavm.model.PreOptimizingClassHolderSource;
 import org.teavm.model.ProgramReader;
+import org.teavm.model.profile.ExecutionProfile;
 import org.teavm.parsing.ClasspathClassHolderSource;
 import org.teavm.tooling.sources.SourceFileProvider;
 import org.teavm.tooling.sources.SourceFilesCopier;
@@ -343,6 +346,11 @@ public class TeaVMTool implements BaseTeaVMTool {
         webAssemblyTarget.setCEmitted(debugInformationGenerated);
         webAssemblyTarget.setWastEmitted(debugInformationGenerated);
         webAssemblyTarget.setVersion(wasmVersion);
+        webAssemblyTarget.setBoundsChecked(Boolean.parseBoolean(System.getProperty("wasm.boundsCheck", "false")));
+        webAssemblyTarget.setCastsChecked(Boolean.parseBoolean(System.getProperty("wasm.castCheck", "false")));
+        if (Boolean.parseBoolean(System.getProperty("wasm.wasi", "false"))) {
+            webAssemblyTarget.setHostEnvironment(WasmHostEnvironment.WASI);
+        }
         return webAssemblyTarget;
     }
 
@@ -384,6 +392,13 @@ public class TeaVMTool implements BaseTeaVMTool {
             vm.setProgramCache(programCache);
             vm.setIncremental(incremental);
             vm.setOptimizationLevel(optimizationLevel);
+            vm.setProfileInstrumented(Boolean.parseBoolean(System.getProperty("teavm.profile.instrument", "false")));
+            String profileFile = System.getProperty("teavm.profile");
+            if (profileFile != null) {
+                try (Reader reader = new InputStreamReader(new FileInputStream(profileFile), "UTF-8")) {
+                    vm.setProfile(ExecutionProfile.read(reader));
+                }
+            }
 
             vm.installPlugins();
             for (ClassHolderTransformer transformer : transformers) {